@@ -20,12 +20,16 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.StringTokenizer;
@@ -42,6 +46,7 @@ import org.codehaus.groovy.ast.expr.Expression;
 import org.codehaus.groovy.ast.stmt.ReturnStatement;
 import org.codehaus.groovy.vmplugin.VMPluginFactory;
 import org.codehaus.jdt.groovy.internal.compiler.ast.JDTClassNode;
+import org.codehaus.jdt.groovy.internal.compiler.ast.JDTMethodNode;
 import org.codehaus.jdt.groovy.internal.compiler.ast.JDTResolver;
 import org.codehaus.jdt.groovy.model.GroovyCompilationUnit;
 import org.codehaus.jdt.groovy.model.ModuleNodeMapper.ModuleNodeInfo;
@@ -56,6 +61,8 @@ import org.eclipse.jdt.core.tests.util.GroovyUtils;
 import org.eclipse.jdt.core.tests.util.Util;
 import org.eclipse.jdt.core.util.CompilerUtils;
 import org.eclipse.jdt.groovy.search.VariableScope;
+import org.eclipse.jdt.internal.compiler.lookup.BinaryTypeBinding;
+import org.eclipse.jdt.internal.compiler.lookup.MethodBinding;
 import org.eclipse.jdt.internal.core.JavaModelManager;
 import org.eclipse.jdt.internal.core.builder.AbstractImageBuilder;
 import org.junit.After;
@@ -501,6 +508,69 @@ public final class BasicGroovyBuildTests extends BuilderTestSuite {
         // expectingCompiledClasses("Client");
     }
 
+    @Test
+    public void testJDTClassNode_MethodsByName() throws Exception {
+        IPath projectPath = env.addProject("Project","1.6");
+        env.addExternalJars(projectPath, Util.getJavaClassLibs());
+        env.addGroovyJars(projectPath);
+        fullBuild(projectPath);
+        // remove old package fragment root so that names don't collide
+        env.removePackageFragmentRoot(projectPath, "");
+
+        IPath root = env.addPackageFragmentRoot(projectPath, "src");
+        env.setOutputFolder(projectPath, "bin");
+
+        JDTResolver.recordInstances = true;
+
+        env.addGroovyClass(root, "", "Foo",
+                "class Foo {\n"+
+                "  boolean bar(Collection<String> strings) {\n"+
+                "    strings.add('baz')\n"+
+                "  }\n"+
+                "}\n");
+
+        incrementalBuild(projectPath);
+        expectingNoProblems();
+
+        JDTResolver resolver = null; JDTClassNode cached = null;
+        for (JDTResolver instance : JDTResolver.instances) {
+            cached = JDTResolver.getCachedNode(instance, "java.util.Collection<E>");
+            if (cached != null) {
+                resolver = instance;
+                break;
+            }
+        }
+        assertNotNull(cached);
+
+        // a fresh node, so that no methods have been initialized yet
+        JDTClassNode jcn = new JDTClassNode(cached.getJdtBinding(), resolver);
+
+        List<MethodNode> adds = jcn.getDeclaredMethods("add");
+        List<MethodNode> addAlls = jcn.getDeclaredMethods("addAll");
+        assertEquals(1, adds.size());
+        assertEquals(1, addAlls.size());
+        assertSame(adds, jcn.getDeclaredMethods("add"));
+
+        List<MethodNode> methods = jcn.getMethods();
+        assertTrue(methods.contains(adds.get(0)));
+        assertTrue(methods.contains(addAlls.get(0)));
+        assertSame(adds.get(0), jcn.getDeclaredMethods("add").get(0));
+        assertSame(addAlls.get(0), jcn.getDeclaredMethods("addAll").get(0));
+
+        List<MethodBinding> expected = new ArrayList<MethodBinding>();
+        for (MethodBinding binding : cached.getJdtBinding().methods()) {
+            if (!binding.isConstructor()) {
+                expected.add(binding);
+            }
+        }
+        Collections.addAll(expected, ((BinaryTypeBinding) cached.getJdtBinding()).infraMethods());
+        List<MethodBinding> actual = new ArrayList<MethodBinding>();
+        for (MethodNode method : methods) {
+            actual.add(((JDTMethodNode) method).getMethodBinding());
+        }
+        assertEquals(expected, actual);
+    }
+
     @Test @Ignore
     public void testCompileStatic_1506() throws Exception {
         assumeTrue(isAtLeastGroovy(20));
@@ -3147,6 +3217,110 @@ public final class BasicGroovyBuildTests extends BuilderTestSuite {
         JavaCore.setOptions(options);
     }
 
+    @Test // tags that share prefixes and suffixes are matched together
+    public void testTaskMarkerOverlappingTags() throws Exception {
+        List<String> messages = getTaskMessages("FIX,FIXME,ME,<<FIX", true,
+                "package p; \n" +
+                        "// <<<FIX one FIXME two ME three @FIX PREFIX\n" +
+                        "public class A {\n" +
+                        "}");
+
+        // "FIX" and "ME" within "FIXME" and "PREFIX" and "FIX" after '@' are not tasks; "FIX" within "<<FIX" does not shorten it
+        assertEquals(Arrays.asList(toTask("<<FIX", "one"), toTask("FIX", "one"), toTask("FIXME", "two"), toTask("ME", "three @FIX PREFIX")), messages);
+    }
+
+    @Test
+    public void testTaskMarkerCaseFolding() throws Exception {
+        List<String> messages = getTaskMessages("ToDo", false,
+                "package p; \n" +
+                        "// TODO one\n" +
+                        "// todo two\n" +
+                        "// tOdO three\n" +
+                        "// XTODO four\n" +
+                        "public class A {\n" +
+                        "}");
+
+        assertEquals(Arrays.asList(toTask("ToDo", "one"), toTask("ToDo", "two"), toTask("ToDo", "three")), messages);
+    }
+
+    @Test
+    public void testTaskMarkerCaseSensitive() throws Exception {
+        List<String> messages = getTaskMessages("ToDo", true,
+                "package p; \n" +
+                        "// TODO one\n" +
+                        "// todo two\n" +
+                        "// ToDo three\n" +
+                        "public class A {\n" +
+                        "}");
+
+        assertEquals(Arrays.asList(toTask("ToDo", "three")), messages);
+    }
+
+    @Test // each task is trimmed by the next one in the comment, not by the next one in the list of tags
+    public void testTaskMarkerTrimmedInSourceOrder() throws Exception {
+        List<String> messages = getTaskMessages("XXX,FIXME,TODO", true,
+                "package p; \n" +
+                        "// TODO one FIXME two XXX three TODO four\n" +
+                        "public class A {\n" +
+                        "}");
+
+        assertEquals(Arrays.asList(toTask("TODO", "one"), toTask("FIXME", "two"), toTask("XXX", "three"), toTask("TODO", "four")), messages);
+    }
+
+    @Test // only a tag that follows a tag after a single character shares its message
+    public void testTaskMarkerAdjacentTags() throws Exception {
+        List<String> messages = getTaskMessages("TODO,FIXME,XXX", true,
+                "package p; \n" +
+                        "// XXX FIXME TODO shared\n" +
+                        "// TODO  FIXME apart\n" +
+                        "public class A {\n" +
+                        "}");
+
+        assertEquals(Arrays.asList(toTask("XXX", "shared"), toTask("FIXME", "shared"), toTask("TODO", "shared"), toTask("TODO", ""), toTask("FIXME", "apart")), messages);
+    }
+
+    /**
+     * Builds a project with the given source as p.A and returns the messages of its task markers in source order.
+     */
+    private List<String> getTaskMessages(String tags, boolean caseSensitive, String contents) throws Exception {
+        Hashtable<String, String> options = JavaCore.getOptions();
+        Hashtable<String, String> newOptions = JavaCore.getOptions();
+        newOptions.put(JavaCore.COMPILER_TASK_TAGS, tags);
+        newOptions.put(JavaCore.COMPILER_TASK_PRIORITIES, tags.replaceAll("[^,]+", "NORMAL"));
+        newOptions.put(JavaCore.COMPILER_TASK_CASE_SENSITIVE, caseSensitive ? JavaCore.ENABLED : JavaCore.DISABLED);
+
+        JavaCore.setOptions(newOptions);
+        try {
+            IPath projectPath = env.addProject("Project");
+            env.addExternalJars(projectPath, Util.getJavaClassLibs());
+            env.addGroovyJars(projectPath);
+
+            // remove old package fragment root so that names don't collide
+            env.removePackageFragmentRoot(projectPath, "");
+
+            IPath root = env.addPackageFragmentRoot(projectPath, "src");
+            env.setOutputFolder(projectPath, "bin");
+
+            IPath pathToA = env.addGroovyClass(root, "p", "A", contents);
+
+            fullBuild(projectPath);
+
+            IMarker[] markers = env.getTaskMarkersFor(pathToA);
+            Arrays.sort(markers, new Comparator<IMarker>() {
+                public int compare(IMarker one, IMarker two) {
+                    return one.getAttribute(IMarker.CHAR_START, -1) - two.getAttribute(IMarker.CHAR_START, -1);
+                }
+            });
+            List<String> messages = new ArrayList<String>(markers.length);
+            for (IMarker marker : markers) {
+                messages.add((String) marker.getAttribute(IMarker.MESSAGE));
+            }
+            return messages;
+        } finally {
+            JavaCore.setOptions(options);
+        }
+    }
+
     @Test
     public void testCopyGroovyResourceNonGroovyProject_GRECLIPSE653() throws Exception {
         IPath projectPath = env.addProject("Project");
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.core.groovy.tests.builder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Closeable;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+
+import groovy.lang.GroovyClassLoader;
+
+import org.codehaus.jdt.groovy.internal.compiler.ast.GroovyClassLoaderPool;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the sharing, eviction and closing of the pooled AST transform class loaders.
+ */
+public final class GroovyClassLoaderPoolTests {
+
+    private static final String CLASSPATH_A = new File("a.jar").getAbsolutePath();
+    private static final String CLASSPATH_B = new File("b.jar").getAbsolutePath();
+
+    private static final class RecordingLoader extends URLClassLoader implements Closeable {
+        boolean closed;
+
+        RecordingLoader() {
+            super(new URL[0], GroovyClassLoaderPoolTests.class.getClassLoader());
+        }
+
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private final List<RecordingLoader> created = new ArrayList<RecordingLoader>();
+
+    private GroovyClassLoaderPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new GroovyClassLoaderPool(new GroovyClassLoaderPool.LoaderFactory() {
+            public URLClassLoader createLoader(String classpath) {
+                RecordingLoader loader = new RecordingLoader();
+                created.add(loader);
+                return loader;
+            }
+        });
+    }
+
+    private void awaitUnreachableLoadersClosed() throws InterruptedException {
+        for (int i = 0; i < 100 && pool.getOrphanCount() > 0; i += 1) {
+            System.gc();
+            Thread.sleep(20);
+            pool.closeUnreachableLoaders();
+        }
+    }
+
+    @Test
+    public void testSameClasspathIsShared() {
+        GroovyClassLoader one = pool.acquire("one", CLASSPATH_A);
+        GroovyClassLoader two = pool.acquire("two", CLASSPATH_A + File.pathSeparator + CLASSPATH_A);
+
+        assertSame(one, two);
+        assertSame(one, pool.acquire("one", CLASSPATH_A));
+        assertEquals(1, created.size());
+    }
+
+    @Test
+    public void testDifferentClasspathIsNotShared() {
+        GroovyClassLoader one = pool.acquire("one", CLASSPATH_A);
+        GroovyClassLoader two = pool.acquire("two", CLASSPATH_B);
+
+        assertNotSame(one, two);
+        assertEquals(2, created.size());
+    }
+
+    @Test
+    public void testCleanEvictsSharedLoader() {
+        GroovyClassLoader before = pool.acquire("one", CLASSPATH_A);
+        pool.acquire("two", CLASSPATH_A);
+
+        pool.release("one");
+
+        // neither the cleaned project nor the one that shared its loader gets the stale loader back
+        GroovyClassLoader after = pool.acquire("one", CLASSPATH_A);
+        assertNotSame(before, after);
+        assertSame(after, pool.acquire("two", CLASSPATH_A));
+        assertEquals(2, created.size());
+    }
+
+    @Test
+    public void testInvalidateEvictsLoader() {
+        GroovyClassLoader before = pool.acquire("one", CLASSPATH_A);
+
+        pool.invalidate("one");
+
+        assertNotSame(before, pool.acquire("one", CLASSPATH_A));
+        assertFalse("Expected the invalidated loader to stay open while it may be in use", created.get(0).closed);
+    }
+
+    @Test
+    public void testReplacedLoaderIsClosedOnceUnreachable() throws Exception {
+        pool.acquire("one", CLASSPATH_A);
+        pool.acquire("one", CLASSPATH_B);
+
+        assertEquals(1, pool.getOrphanCount());
+        assertFalse(created.get(0).closed);
+
+        awaitUnreachableLoadersClosed();
+
+        assertEquals(0, pool.getOrphanCount());
+        assertTrue("Expected the replaced loader to be closed", created.get(0).closed);
+        assertFalse(created.get(1).closed);
+    }
+
+    @Test
+    public void testCleanedLoaderIsClosedOnceUnreachable() throws Exception {
+        pool.acquire("one", CLASSPATH_A);
+
+        pool.release("one");
+
+        awaitUnreachableLoadersClosed();
+
+        assertTrue("Expected the evicted loader to be closed", created.get(0).closed);
+    }
+
+    @Test
+    public void testOrphanIsNotClosedWhileInUse() throws Exception {
+        GroovyClassLoader inUse = pool.acquire("one", CLASSPATH_A);
+
+        pool.release("one");
+
+        for (int i = 0; i < 5; i += 1) {
+            System.gc();
+            pool.closeUnreachableLoaders();
+        }
+        assertFalse(created.get(0).closed);
+        assertEquals(1, pool.getOrphanCount());
+        assertSame(created.get(0), inUse.getParent());
+    }
+
+    @Test
+    public void testCloseProject() {
+        pool.acquire("one", CLASSPATH_A);
+        pool.acquire("two", CLASSPATH_A);
+
+        pool.close("one");
+        assertFalse("Expected the loader to stay open while another project references it", created.get(0).closed);
+
+        pool.close("two");
+        assertTrue(created.get(0).closed);
+        assertEquals(0, pool.getOrphanCount());
+    }
+}
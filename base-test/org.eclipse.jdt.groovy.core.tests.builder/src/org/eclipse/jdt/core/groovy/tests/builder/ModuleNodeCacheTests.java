@@ -0,0 +1,128 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.core.groovy.tests.builder;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.codehaus.jdt.groovy.integration.internal.MultiplexingIndexingParser;
+import org.codehaus.jdt.groovy.internal.compiler.ast.ModuleNodeCache;
+import org.eclipse.jdt.internal.compiler.SourceElementRequestorAdapter;
+import org.eclipse.jdt.internal.compiler.ast.CompilationUnitDeclaration;
+import org.eclipse.jdt.internal.compiler.batch.CompilationUnit;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+import org.eclipse.jdt.internal.compiler.problem.DefaultProblemFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the hits, misses, invalidation and eviction of the cache of indexer parses.
+ */
+public final class ModuleNodeCacheTests {
+
+    private static final String PROJECT = "ModuleNodeCacheTests";
+
+    private long budget;
+    private CompilerOptions options;
+
+    @Before
+    public void setUp() {
+        budget = ModuleNodeCache.budget;
+        ModuleNodeCache.budget = 1024 * 1024;
+        ModuleNodeCache.clear(PROJECT);
+
+        options = new CompilerOptions();
+        options.groovyProjectName = PROJECT;
+    }
+
+    @After
+    public void tearDown() {
+        ModuleNodeCache.clear(PROJECT);
+        ModuleNodeCache.budget = budget;
+    }
+
+    private CompilationUnitDeclaration parse(String name, String contents) {
+        MultiplexingIndexingParser parser = new MultiplexingIndexingParser(new SourceElementRequestorAdapter(),
+            new DefaultProblemFactory(), options, false, false, false);
+        CompilationUnitDeclaration cud = parser.parseCompilationUnit(
+            new CompilationUnit(contents.toCharArray(), "p/" + name + ".groovy", null), false, null);
+        assertNotNull(cud);
+        return cud;
+    }
+
+    @Test
+    public void testUnchangedContentsHit() {
+        CompilationUnitDeclaration first = parse("A", "package p\nclass A { def m() {} }\n");
+        assertSame(first, parse("A", "package p\nclass A { def m() {} }\n"));
+    }
+
+    @Test
+    public void testChangedContentsMiss() {
+        CompilationUnitDeclaration first = parse("A", "package p\nclass A { def m() {} }\n");
+        CompilationUnitDeclaration changed = parse("A", "package p\nclass A { def n() {} }\n");
+        assertNotSame(first, changed);
+
+        // entries are keyed by contents, so both versions stay cached
+        assertSame(first, parse("A", "package p\nclass A { def m() {} }\n"));
+        assertSame(changed, parse("A", "package p\nclass A { def n() {} }\n"));
+    }
+
+    @Test
+    public void testOtherFileMisses() {
+        CompilationUnitDeclaration first = parse("A", "package p\nclass X {}\n");
+        assertNotSame(first, parse("B", "package p\nclass X {}\n"));
+    }
+
+    @Test
+    public void testDisabledCacheMisses() {
+        ModuleNodeCache.budget = 0;
+        CompilationUnitDeclaration first = parse("A", "package p\nclass A {}\n");
+        assertNotSame(first, parse("A", "package p\nclass A {}\n"));
+    }
+
+    @Test
+    public void testChangedOptionsInvalidate() {
+        CompilationUnitDeclaration first = parse("A", "package p\nclass A {}\n");
+
+        options.groovyFlags += 1;
+        CompilationUnitDeclaration second = parse("A", "package p\nclass A {}\n");
+        assertNotSame(first, second);
+
+        // the entries of the previous options were dropped
+        options.groovyFlags -= 1;
+        assertNotSame(first, parse("A", "package p\nclass A {}\n"));
+    }
+
+    @Test
+    public void testClearInvalidates() {
+        CompilationUnitDeclaration first = parse("A", "package p\nclass A {}\n");
+        ModuleNodeCache.clear(PROJECT);
+        assertNotSame(first, parse("A", "package p\nclass A {}\n"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() {
+        // room for one small unit only
+        ModuleNodeCache.budget = 24 * 1024;
+        CompilationUnitDeclaration a = parse("A", "package p\nclass A {}\n");
+        CompilationUnitDeclaration b = parse("B", "package p\nclass B {}\n");
+
+        assertSame(b, parse("B", "package p\nclass B {}\n"));
+        assertNotSame(a, parse("A", "package p\nclass A {}\n"));
+    }
+}
@@ -15,14 +15,20 @@
  */
 package org.eclipse.jdt.core.groovy.tests.locations;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
+import java.io.StringReader;
 import java.util.LinkedList;
 import java.util.List;
 
 import groovy.lang.GroovyClassLoader;
 
+import org.codehaus.groovy.antlr.LineColumn;
 import org.codehaus.groovy.antlr.LocationSupport;
+import org.codehaus.groovy.antlr.SourceBuffer;
+import org.codehaus.groovy.antlr.UnicodeEscapingReader;
 import org.codehaus.groovy.ast.ASTNode;
 import org.codehaus.groovy.ast.ModuleNode;
 import org.codehaus.groovy.ast.expr.DeclarationExpression;
@@ -57,6 +63,130 @@ public final class LocationSupportTests {
         assertEquals("Wrong offset found", 10, locations.findOffset(3, 3));
     }
 
+    /**
+     * Reads the source into a buffer the way the parser plugins do.
+     */
+    private static SourceBuffer fill(String source) throws Exception {
+        SourceBuffer buffer = new SourceBuffer();
+        UnicodeEscapingReader reader = new UnicodeEscapingReader(new StringReader(source), buffer);
+        while (reader.read() != -1) {
+        }
+        return buffer;
+    }
+
+    private static String snippet(SourceBuffer buffer, int startLine, int startColumn, int endLine, int endColumn) {
+        return buffer.getSnippet(new LineColumn(startLine, startColumn), new LineColumn(endLine, endColumn));
+    }
+
+    @Test
+    public void testSourceBufferEmpty() throws Exception {
+        SourceBuffer buffer = fill("");
+        assertNull(snippet(buffer, 1, 1, 1, 2));
+
+        LocationSupport locations = buffer.getLocationSupport();
+        assertEquals(0, locations.getEnd());
+    }
+
+    @Test
+    public void testSourceBufferLineFeeds() throws Exception {
+        String source = "ab\ncd\nef";
+        SourceBuffer buffer = fill(source);
+        assertEquals("b\nc", snippet(buffer, 1, 2, 2, 2));
+        assertEquals("cd", snippet(buffer, 2, 1, 2, 3));
+        assertEquals("ef", snippet(buffer, 3, 1, 3, 9));
+
+        LocationSupport locations = buffer.getLocationSupport();
+        assertEquals(3, locations.findOffset(2, 1));
+        assertEquals(7, locations.findOffset(3, 2));
+        assertEquals(3, locations.getEndLine());
+        assertEquals(source.length(), locations.getEnd());
+        assertArrayEquals(new int[] {2, 2}, locations.getRowCol(4));
+    }
+
+    @Test
+    public void testSourceBufferCarriageReturns() throws Exception {
+        String source = "ab\rcd\ref";
+        SourceBuffer buffer = fill(source);
+        assertEquals("b\rc", snippet(buffer, 1, 2, 2, 2));
+        assertEquals("cd", snippet(buffer, 2, 1, 2, 3));
+        assertEquals("ef", snippet(buffer, 3, 1, 3, 9));
+
+        LocationSupport locations = buffer.getLocationSupport();
+        assertEquals(3, locations.findOffset(2, 1));
+        assertEquals(7, locations.findOffset(3, 2));
+        assertEquals(3, locations.getEndLine());
+        assertEquals(source.length(), locations.getEnd());
+        assertArrayEquals(new int[] {2, 2}, locations.getRowCol(4));
+    }
+
+    @Test
+    public void testSourceBufferCarriageReturnLineFeeds() throws Exception {
+        String source = "ab\r\ncd\r\nef";
+        SourceBuffer buffer = fill(source);
+        // the \n belongs to the line of the \r
+        assertEquals("b\r\nc", snippet(buffer, 1, 2, 2, 2));
+        assertEquals("cd", snippet(buffer, 2, 1, 2, 3));
+        assertEquals("ef", snippet(buffer, 3, 1, 3, 9));
+
+        LocationSupport locations = buffer.getLocationSupport();
+        assertEquals(4, locations.findOffset(2, 1));
+        assertEquals(9, locations.findOffset(3, 2));
+        assertEquals(3, locations.getEndLine());
+        assertEquals(source.length(), locations.getEnd());
+        assertArrayEquals(new int[] {2, 2}, locations.getRowCol(5));
+    }
+
+    @Test
+    public void testSourceBufferMixedLineEndings() throws Exception {
+        String source = "a\r\rb\n\r\nc";
+        SourceBuffer buffer = fill(source);
+        assertEquals("a\r\rb\n\r\nc", snippet(buffer, 1, 1, 5, 2));
+        assertEquals("b", snippet(buffer, 3, 1, 3, 2));
+        assertEquals("c", snippet(buffer, 5, 1, 5, 2));
+
+        LocationSupport locations = buffer.getLocationSupport();
+        assertEquals(source.indexOf('b'), locations.findOffset(3, 1));
+        assertEquals(source.indexOf('c'), locations.findOffset(5, 1));
+        assertEquals(5, locations.getEndLine());
+        assertEquals(source.length(), locations.getEnd());
+    }
+
+    @Test
+    public void testSourceBufferUnicodeEscapes() throws Exception {
+        String source = "a\\u0041b\nc\\uu0042\r\nd";
+        SourceBuffer buffer = fill(source);
+        // the buffer holds the unescaped source
+        assertEquals("aAb", snippet(buffer, 1, 1, 1, 4));
+        assertEquals("b\ncB", snippet(buffer, 1, 3, 2, 3));
+        assertEquals("d", snippet(buffer, 3, 1, 3, 2));
+
+        // the locations are offsets in the escaped source
+        LocationSupport locations = buffer.getLocationSupport();
+        assertEquals(source.indexOf('c'), locations.findOffset(2, 1));
+        assertEquals(source.indexOf('d'), locations.findOffset(3, 1));
+        assertEquals(3, locations.getEndLine());
+        assertEquals(source.length(), locations.getEnd());
+    }
+
+    @Test
+    public void testSourceBufferManyLines() throws Exception {
+        // enough text and lines to outgrow the initial capacity of the buffer
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 500; i += 1) {
+            source.append("line ").append(i).append(i % 2 == 0 ? "\n" : "\r\n");
+        }
+        SourceBuffer buffer = fill(source.toString());
+
+        LocationSupport locations = buffer.getLocationSupport();
+        for (int i = 0; i < 500; i += 1) {
+            String line = "line " + i;
+            int offset = source.indexOf(line + (i % 2 == 0 ? "\n" : "\r\n"));
+            assertEquals(line, snippet(buffer, i + 1, 1, i + 1, line.length() + 1));
+            assertEquals(offset, locations.findOffset(i + 1, 1));
+        }
+        assertEquals(source.length(), locations.getEnd());
+    }
+
     @Test
     public void testParserSourceLocationsBlock() throws Exception {
         String content = "def x = 7\n  x++\n  def y = []";
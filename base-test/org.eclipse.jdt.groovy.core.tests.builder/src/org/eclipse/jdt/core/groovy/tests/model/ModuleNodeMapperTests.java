@@ -0,0 +1,186 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.core.groovy.tests.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.jdt.groovy.model.GroovyCompilationUnit;
+import org.codehaus.jdt.groovy.model.ModuleNodeMapper;
+import org.codehaus.jdt.groovy.model.ModuleNodeMapper.ModuleNodeInfo;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.groovy.core.util.ReflectionUtils;
+import org.eclipse.jdt.internal.core.JavaModelManager.PerWorkingCopyInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the caps, counters and purging of the module node cache.
+ */
+public final class ModuleNodeMapperTests extends GroovyTypeRootTestSuite {
+
+    private int maxModules, maxResolvers;
+
+    @Before
+    public void setUp() {
+        maxModules = ModuleNodeMapper.maxModules;
+        maxResolvers = ModuleNodeMapper.maxResolvers;
+        ModuleNodeMapper.purge();
+    }
+
+    @After
+    public void tearDown() {
+        ModuleNodeMapper.maxModules = maxModules;
+        ModuleNodeMapper.maxResolvers = maxResolvers;
+    }
+
+    private GroovyCompilationUnit[] createWorkingCopies(int count) throws Exception {
+        IPath root = createEmptyGroovyProject();
+        GroovyCompilationUnit[] units = new GroovyCompilationUnit[count];
+        for (int i = 0; i < count; i += 1) {
+            IPath path = env.addGroovyClass(root, "p", "C" + i, "package p\nclass C" + i + " { def m() { " + i + " } }\n");
+            units[i] = (GroovyCompilationUnit) JavaCore.createCompilationUnitFrom(ResourcesPlugin.getWorkspace().getRoot().getFile(path));
+            units[i].becomeWorkingCopy(null);
+            assertNotNull(units[i].getModuleNode());
+        }
+        return units;
+    }
+
+    private static void discard(GroovyCompilationUnit[] units) throws Exception {
+        for (GroovyCompilationUnit unit : units) {
+            unit.discardWorkingCopy();
+        }
+    }
+
+    @Test
+    public void testLookupsAreCounted() throws Exception {
+        GroovyCompilationUnit[] units = createWorkingCopies(1);
+        try {
+            long hits = ModuleNodeMapper.getHitCount();
+
+            assertSame(units[0].getModuleNode(), units[0].getModuleNode());
+            assertTrue(ModuleNodeMapper.getHitCount() >= hits + 2);
+        } finally {
+            discard(units);
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedModuleIsEvicted() throws Exception {
+        GroovyCompilationUnit[] units = createWorkingCopies(3);
+        try {
+            // make the first unit the least recently used one
+            ModuleNode first = units[0].getModuleNode(), second = units[1].getModuleNode(), third = units[2].getModuleNode();
+            int size = ModuleNodeMapper.size();
+            long evictions = ModuleNodeMapper.getEvictionCount();
+
+            ModuleNodeMapper.maxModules = size - 1;
+            ModuleNodeMapper.purge();
+            ModuleNodeMapper.maxModules = maxModules;
+
+            assertEquals(size - 1, ModuleNodeMapper.size());
+            assertEquals(evictions + 1, ModuleNodeMapper.getEvictionCount());
+
+            long hits = ModuleNodeMapper.getHitCount(), misses = ModuleNodeMapper.getMissCount();
+            assertSame(second, units[1].getModuleNode());
+            assertSame(third, units[2].getModuleNode());
+            assertTrue(ModuleNodeMapper.getHitCount() >= hits + 2);
+
+            // the evicted module node is rebuilt on its next lookup
+            ModuleNode rebuilt = units[0].getModuleNode();
+            assertNotNull(rebuilt);
+            assertNotSame(first, rebuilt);
+            assertTrue(ModuleNodeMapper.getMissCount() >= misses + 1);
+            assertEquals(size, ModuleNodeMapper.size());
+        } finally {
+            discard(units);
+        }
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResolverIsEvicted() throws Exception {
+        assumeTrue(ModuleNodeMapper.shouldStoreResovler());
+
+        GroovyCompilationUnit[] units = createWorkingCopies(2);
+        try {
+            ModuleNodeInfo first = units[0].getModuleInfo(false), second = units[1].getModuleInfo(false);
+            assertNotNull(first.resolver);
+            assertNotNull(second.resolver);
+            int size = ModuleNodeMapper.size();
+            long evictions = ModuleNodeMapper.getEvictionCount();
+
+            ModuleNodeMapper.maxResolvers = size - 1;
+            ModuleNodeMapper.purge();
+            ModuleNodeMapper.maxResolvers = maxResolvers;
+
+            // the module node stays cached without its resolver
+            assertEquals(size, ModuleNodeMapper.size());
+            assertEquals(evictions + 1, ModuleNodeMapper.getEvictionCount());
+            assertSame(second, units[1].getModuleInfo(false));
+
+            // the evicted resolver is rebuilt on the next lookup
+            ModuleNodeInfo rebuilt = units[0].getModuleInfo(false);
+            assertNotNull(rebuilt.resolver);
+            assertNotSame(first.resolver, rebuilt.resolver);
+        } finally {
+            discard(units);
+        }
+    }
+
+    @Test
+    public void testPurgeDropsDiscardedWorkingCopies() throws Exception {
+        GroovyCompilationUnit[] units = createWorkingCopies(2);
+        PerWorkingCopyInfo info = units[0].getPerWorkingCopyInfo();
+        try {
+            int size = ModuleNodeMapper.size();
+            long evictions = ModuleNodeMapper.getEvictionCount();
+
+            // as if the working copy was discarded while its module node was being stored
+            ReflectionUtils.setPrivateField(PerWorkingCopyInfo.class, "useCount", info, 0);
+            ModuleNodeMapper.purge();
+
+            assertEquals(size - 1, ModuleNodeMapper.size());
+            // stale entries are not evictions
+            assertEquals(evictions, ModuleNodeMapper.getEvictionCount());
+        } finally {
+            ReflectionUtils.setPrivateField(PerWorkingCopyInfo.class, "useCount", info, 1);
+            discard(units);
+        }
+    }
+
+    @Test
+    public void testForcedLookupLeavesNoEntry() throws Exception {
+        IPath root = createEmptyGroovyProject();
+        IPath path = env.addGroovyClass(root, "p", "D", "package p\nclass D {}\n");
+        GroovyCompilationUnit unit = (GroovyCompilationUnit) JavaCore.createCompilationUnitFrom(ResourcesPlugin.getWorkspace().getRoot().getFile(path));
+        int size = ModuleNodeMapper.size();
+
+        assertNull(unit.getModuleInfo(false));
+        assertNotNull(unit.getModuleInfo(true));
+        assertFalse("Expected the temporary working copy to be discarded", unit.isWorkingCopy());
+        assertEquals(size, ModuleNodeMapper.size());
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.core.groovy.tests.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import groovy.lang.Closure;
+
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.eclipse.jdt.groovy.core.util.GroovyUtils;
+import org.eclipse.jdt.groovy.search.AccessorSupport;
+import org.eclipse.jdt.groovy.search.CategoryMethodIndex;
+import org.eclipse.jdt.groovy.search.VariableScope;
+import org.junit.Test;
+
+/**
+ * Tests that the index of the default category methods finds the same methods, in the same order, as scanning the
+ * categories one by one.
+ */
+public final class CategoryMethodIndexTests {
+
+    private final CategoryMethodIndex index = CategoryMethodIndex.getDefault();
+
+    private static boolean isCategoryMethod(MethodNode method) {
+        Parameter[] parameters = method.getParameters();
+        return method.isStatic() && parameters != null && parameters.length > 0;
+    }
+
+    /**
+     * Candidates as {@link org.eclipse.jdt.groovy.search.CategoryTypeLookup} collects them from each category.
+     */
+    private static List<MethodNode> scanCandidates(String name) {
+        List<MethodNode> candidates = new ArrayList<MethodNode>();
+        for (ClassNode category : VariableScope.ALL_DEFAULT_CATEGORIES) {
+            for (MethodNode method : category.getMethods(name)) {
+                if (isCategoryMethod(method)) {
+                    candidates.add(method);
+                }
+            }
+            String getterName = AccessorSupport.GETTER.createAccessorName(name);
+            if (getterName != null) {
+                for (MethodNode method : category.getMethods(getterName)) {
+                    if (isCategoryMethod(method) && AccessorSupport.findAccessorKind(method, true) == AccessorSupport.GETTER) {
+                        candidates.add(method);
+                    }
+                }
+            }
+            String setterName = AccessorSupport.SETTER.createAccessorName(name);
+            if (setterName != null) {
+                for (MethodNode method : category.getMethods(setterName)) {
+                    if (isCategoryMethod(method) && AccessorSupport.findAccessorKind(method, true) == AccessorSupport.SETTER) {
+                        candidates.add(method);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Completion methods as {@link org.codehaus.groovy.eclipse.codeassist.creators.CategoryProposalCreator} collects them
+     * from each category; a method inherited by several categories is proposed once.
+     */
+    private static List<MethodNode> scanCompletionMethods(ClassNode selfType) {
+        Set<MethodNode> methods = new LinkedHashSet<MethodNode>();
+        for (ClassNode category : VariableScope.ALL_DEFAULT_CATEGORIES) {
+            for (MethodNode method : category.getAllDeclaredMethods()) {
+                if (isCategoryMethod(method) && method.isPublic() && (selfType == null ||
+                        GroovyUtils.isAssignable(selfType, method.getParameters()[0].getType()))) {
+                    methods.add(method);
+                }
+            }
+        }
+        return new ArrayList<MethodNode>(methods);
+    }
+
+    private static List<MethodNode> assignable(Collection<MethodNode> methods, ClassNode selfType) {
+        List<MethodNode> result = new ArrayList<MethodNode>();
+        for (MethodNode method : methods) {
+            if (GroovyUtils.isAssignable(selfType, method.getParameters()[0].getType())) {
+                result.add(method);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testCandidatesOfEveryName() {
+        Set<String> names = new TreeSet<String>();
+        for (ClassNode category : VariableScope.ALL_DEFAULT_CATEGORIES) {
+            for (MethodNode method : category.getMethods()) {
+                String name = method.getName();
+                names.add(name);
+                if (name.length() > 3 && (name.startsWith("get") || name.startsWith("set"))) {
+                    // referenced as a property
+                    names.add(Character.toLowerCase(name.charAt(3)) + name.substring(4));
+                }
+            }
+        }
+        assertFalse(names.isEmpty());
+
+        for (String name : names) {
+            assertEquals(name, scanCandidates(name), index.getCandidates(name));
+        }
+        assertTrue(index.getCandidates("noSuchCategoryMethod").isEmpty());
+    }
+
+    @Test
+    public void testPropertyCandidates() {
+        // found through the getText(self) accessors only
+        List<MethodNode> candidates = index.getCandidates("text");
+        assertFalse(candidates.isEmpty());
+        assertEquals(scanCandidates("text"), candidates);
+    }
+
+    @Test
+    public void testCompletionMethods() {
+        assertEquals(scanCompletionMethods(null), index.getCompletionMethods());
+
+        for (MethodNode method : index.getCompletionMethods()) {
+            assertTrue(VariableScope.ALL_DEFAULT_CATEGORIES.contains(index.getCategory(method)));
+        }
+    }
+
+    @Test
+    public void testCompletionMethodsBySelfType() {
+        ClassNode[] selfTypes = {
+            VariableScope.OBJECT_CLASS_NODE,
+            VariableScope.STRING_CLASS_NODE,
+            ClassHelper.make(CharSequence.class),
+            ClassHelper.int_TYPE,
+            VariableScope.INTEGER_CLASS_NODE,
+            VariableScope.NUMBER_CLASS_NODE,
+            ClassHelper.boolean_TYPE,
+            VariableScope.LIST_CLASS_NODE,
+            ClassHelper.make(ArrayList.class),
+            ClassHelper.make(Map.class),
+            ClassHelper.make(Closure.class),
+            ClassHelper.make(File.class),
+            VariableScope.OBJECT_CLASS_NODE.makeArray(),
+            ClassHelper.int_TYPE.makeArray(),
+        };
+        for (ClassNode selfType : selfTypes) {
+            List<MethodNode> expected = scanCompletionMethods(selfType);
+            List<MethodNode> found = index.getCompletionMethods(selfType);
+
+            // the index may return more methods, but never fewer and always in category order
+            assertEquals(selfType.getName(), expected, assignable(found, selfType));
+        }
+    }
+
+    @Test
+    public void testCompletionAccessors() {
+        List<MethodNode> expected = new ArrayList<MethodNode>();
+        for (MethodNode method : index.getCompletionMethods()) {
+            if (method.getParameters().length == 1 && AccessorSupport.create(method.getName(), true).isAccessor()) {
+                expected.add(method);
+            }
+        }
+        assertEquals(expected, index.getCompletionAccessors());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.core.groovy.tests.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.jdt.groovy.model.GroovyCompilationUnit;
+import org.eclipse.jdt.groovy.search.InferenceMemo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that type lookup results are reused across reconciles only while they are still valid.
+ */
+public final class InferenceMemoTests extends InferencingTestSuite {
+
+    private static final String CONTENTS =
+        "class Memo {\n" +
+        "  def a() { 'x'.toUpperCase() }\n" +
+        "  def b() { new ArrayList() }\n" +
+        "  def c() { 1 + 2 }\n" +
+        "}\n";
+
+    private boolean enabled;
+
+    @Before
+    public void setUp() {
+        enabled = InferenceMemo.setEnabled(true);
+    }
+
+    @After
+    public void tearDown() {
+        InferenceMemo.setEnabled(enabled);
+    }
+
+    private static SearchRequestor edit(GroovyCompilationUnit unit, String contents, String expr) throws Exception {
+        unit.getBuffer().setContents(contents);
+        unit.reconcile(true, null);
+        InferenceMemo.resetReusedResultCount();
+        int start = contents.indexOf(expr);
+        return doVisit(start, start + expr.length(), unit, false);
+    }
+
+    @Test
+    public void testUnchangedMemberIsReused() throws Exception {
+        GroovyCompilationUnit unit = createUnit("Memo", CONTENTS);
+        unit.becomeWorkingCopy(null);
+        try {
+            edit(unit, CONTENTS, "'x'.toUpperCase()");
+
+            SearchRequestor requestor = edit(unit, CONTENTS.replace("1 + 2", "1 + 3"), "'x'.toUpperCase()");
+            assertNotNull(requestor.result);
+            assertEquals("java.lang.String", printTypeName(requestor.result.type));
+            assertTrue("Expected results of unchanged members to be reused", InferenceMemo.getReusedResultCount() > 0);
+        } finally {
+            unit.discardWorkingCopy();
+        }
+    }
+
+    @Test
+    public void testJavaModelChangeDiscardsResults() throws Exception {
+        GroovyCompilationUnit unit = createUnit("Memo", CONTENTS);
+        unit.becomeWorkingCopy(null);
+        try {
+            edit(unit, CONTENTS, "'x'.toUpperCase()");
+
+            // changes the Java model; any result may refer to a type that changed
+            createUnit("Other", "class Other {}");
+
+            SearchRequestor requestor = edit(unit, CONTENTS.replace("1 + 2", "1 + 3"), "'x'.toUpperCase()");
+            assertEquals("java.lang.String", printTypeName(requestor.result.type));
+            assertEquals(0, InferenceMemo.getReusedResultCount());
+        } finally {
+            unit.discardWorkingCopy();
+        }
+    }
+
+    @Test
+    public void testResultsOfPreviousResolverAreNotReused() throws Exception {
+        GroovyCompilationUnit unit = createUnit("Memo", CONTENTS);
+        unit.becomeWorkingCopy(null);
+        try {
+            ClassNode before = edit(unit, CONTENTS, "new ArrayList()").result.type;
+
+            SearchRequestor requestor = edit(unit, CONTENTS.replace("1 + 2", "1 + 3"), "new ArrayList()");
+            assertEquals("java.util.ArrayList", printTypeName(requestor.result.type));
+            // the type of the previous reconcile belongs to a lookup environment that is gone
+            assertNotSame(before.redirect(), requestor.result.type.redirect());
+        } finally {
+            unit.discardWorkingCopy();
+        }
+    }
+
+    @Test
+    public void testOutlineChangeDiscardsResults() throws Exception {
+        GroovyCompilationUnit unit = createUnit("Memo", CONTENTS);
+        unit.becomeWorkingCopy(null);
+        try {
+            edit(unit, CONTENTS, "'x'.toUpperCase()");
+
+            SearchRequestor requestor = edit(unit, CONTENTS.replace("def c()", "def d()"), "'x'.toUpperCase()");
+            assertEquals("java.lang.String", printTypeName(requestor.result.type));
+            assertEquals(0, InferenceMemo.getReusedResultCount());
+        } finally {
+            unit.discardWorkingCopy();
+        }
+    }
+}
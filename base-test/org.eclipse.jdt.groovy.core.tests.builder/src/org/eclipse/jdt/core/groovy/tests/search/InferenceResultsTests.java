@@ -0,0 +1,227 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.core.groovy.tests.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.jdt.groovy.model.GroovyCompilationUnit;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.groovy.search.ITypeRequestor;
+import org.eclipse.jdt.groovy.search.ITypeRequestor.VisitStatus;
+import org.eclipse.jdt.groovy.search.InferenceMemo;
+import org.eclipse.jdt.groovy.search.InferenceResults;
+import org.eclipse.jdt.groovy.search.TypeLookupResult;
+import org.eclipse.jdt.groovy.search.VariableScope;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that requestors fed from recorded inferencing results see what they would see during a visit of their own.
+ */
+public final class InferenceResultsTests extends InferencingTestSuite {
+
+    private static final String CONTENTS =
+        "class Replay {\n" +
+        "  def a(List list) {\n" +
+        "    print y\n" +
+        "    def y = 1\n" +
+        "    for (item in list) { print item }\n" +
+        "    try { y += 1 } catch (Exception e) { print e }\n" +
+        "    list.each { print it }\n" +
+        "  }\n" +
+        "  def b() { 'x'.toUpperCase() }\n" +
+        "  def c() { new ArrayList() }\n" +
+        "}\n";
+
+    private boolean enabled;
+    private GroovyCompilationUnit unit;
+
+    @Before
+    public void setUp() throws Exception {
+        // keep the results of each visit apart
+        enabled = InferenceMemo.setEnabled(false);
+        unit = createUnit("Replay", CONTENTS);
+        unit.becomeWorkingCopy(null);
+        InferenceResults.invalidateAll();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        unit.discardWorkingCopy();
+        InferenceMemo.setEnabled(enabled);
+    }
+
+    private Recorder visit(Recorder requestor) {
+        factory.createVisitor(unit).visitCompilationUnit(requestor);
+        return requestor;
+    }
+
+    private Recorder replay(Recorder requestor) {
+        factory.createVisitor(unit).visitCompilationUnitFromStore(requestor);
+        return requestor;
+    }
+
+    private static String find(List<String> visits, String prefix) {
+        for (String visit : visits) {
+            if (visit.startsWith(prefix)) {
+                return visit;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testReplayMatchesVisit() {
+        List<String> expected = visit(new Recorder()).visits;
+        // the first replay records the results, the second one only replays them
+        assertEquals(expected, replay(new Recorder()).visits);
+        assertEquals(expected, replay(new Recorder()).visits);
+    }
+
+    @Test
+    public void testReplayKeepsScopeOfEachNode() {
+        replay(new Recorder());
+        List<String> visits = replay(new Recorder()).visits;
+
+        int offset = CONTENTS.indexOf("print y") + 6;
+        String before = find(visits, "VariableExpression@" + offset + " ");
+        assertTrue("Expected y to be undeclared before its declaration: " + before, before.contains("undeclared"));
+
+        offset = CONTENTS.indexOf("print item") + 6;
+        String loop = find(visits, "VariableExpression@" + offset + " ");
+        assertTrue("Expected item to be declared by the for loop: " + loop, loop.contains("declared in ForStatement"));
+
+        offset = CONTENTS.indexOf("print e") + 6;
+        String caught = find(visits, "VariableExpression@" + offset + " ");
+        assertTrue("Expected e to be declared by the catch: " + caught, caught.contains("declared in CatchStatement"));
+
+        offset = CONTENTS.indexOf("print it") + 6;
+        String closure = find(visits, "VariableExpression@" + offset + " ");
+        assertTrue("Expected each to enclose the closure: " + closure, closure.contains("call each"));
+    }
+
+    @Test
+    public void testCancelBranch() {
+        List<String> expected = visit(new Recorder().cancel("list.each { print it }", MethodCallExpression.class, VisitStatus.CANCEL_BRANCH)).visits;
+        assertEquals(expected, replay(new Recorder().cancel("list.each { print it }", MethodCallExpression.class, VisitStatus.CANCEL_BRANCH)).visits);
+        assertEquals(expected, replay(new Recorder().cancel("list.each { print it }", MethodCallExpression.class, VisitStatus.CANCEL_BRANCH)).visits);
+
+        assertNull(find(expected, "VariableExpression@" + (CONTENTS.indexOf("print it") + 6) + " "));
+        assertNotNull(find(expected, "ConstructorCallExpression@"));
+    }
+
+    @Test
+    public void testCancelMember() {
+        List<String> expected = visit(new Recorder().cancel("'x'.toUpperCase()", MethodCallExpression.class, VisitStatus.CANCEL_MEMBER)).visits;
+        assertEquals(expected, replay(new Recorder().cancel("'x'.toUpperCase()", MethodCallExpression.class, VisitStatus.CANCEL_MEMBER)).visits);
+        assertEquals(expected, replay(new Recorder().cancel("'x'.toUpperCase()", MethodCallExpression.class, VisitStatus.CANCEL_MEMBER)).visits);
+
+        // the rest of b is skipped, but not c
+        assertNotNull(find(expected, "ConstructorCallExpression@"));
+        assertTrue(expected.size() < visit(new Recorder()).visits.size());
+    }
+
+    @Test
+    public void testStopVisit() {
+        List<String> expected = visit(new Recorder().cancel("list.each", VariableExpression.class, VisitStatus.STOP_VISIT)).visits;
+        assertEquals(expected, replay(new Recorder().cancel("list.each", VariableExpression.class, VisitStatus.STOP_VISIT)).visits);
+        assertEquals(expected, replay(new Recorder().cancel("list.each", VariableExpression.class, VisitStatus.STOP_VISIT)).visits);
+
+        assertTrue(expected.get(expected.size() - 1).startsWith("VariableExpression@" + CONTENTS.indexOf("list.each")));
+        assertNull(find(expected, "ConstructorCallExpression@"));
+    }
+
+    @Test
+    public void testInvalidateAllRecordsAgain() {
+        List<TypeLookupResult> first = replay(new Recorder()).results;
+        List<TypeLookupResult> second = replay(new Recorder()).results;
+        int i = 0;
+        while (first.get(i) == null || first.get(i).scope == null) {
+            i += 1;
+        }
+        assertSame(first.get(i), second.get(i));
+
+        InferenceResults.invalidateAll();
+
+        Recorder third = replay(new Recorder());
+        assertNotSame(first.get(i), third.results.get(i));
+        assertEquals(visit(new Recorder()).visits, third.visits);
+    }
+
+    //--------------------------------------------------------------------------
+
+    /**
+     * Describes each node with its lookup result and the answers its scope gives.
+     */
+    private static class Recorder implements ITypeRequestor {
+        final List<String> visits = new ArrayList<String>();
+        final List<TypeLookupResult> results = new ArrayList<TypeLookupResult>();
+        private final Map<Integer, Class<? extends ASTNode>> cancelTypes = new HashMap<Integer, Class<? extends ASTNode>>();
+        private final Map<Integer, VisitStatus> cancelStatus = new HashMap<Integer, VisitStatus>();
+
+        Recorder cancel(String text, Class<? extends ASTNode> type, VisitStatus status) {
+            int offset = CONTENTS.indexOf(text);
+            cancelTypes.put(offset, type);
+            cancelStatus.put(offset, status);
+            return this;
+        }
+
+        public VisitStatus acceptASTNode(ASTNode node, TypeLookupResult result, IJavaElement enclosingElement) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(node.getClass().getSimpleName()).append('@').append(node.getStart()).append(' ');
+            sb.append(enclosingElement != null ? enclosingElement.getElementName() : null);
+            if (result != null) {
+                sb.append(' ').append(printTypeName(result.type)).append(' ').append(result.confidence);
+                VariableScope scope = result.scope;
+                if (scope != null) {
+                    if (node instanceof VariableExpression) {
+                        VariableScope.VariableInfo info = scope.lookupName(((VariableExpression) node).getName());
+                        sb.append(info == null ? " undeclared" : " declared in " + simpleName(info.scopeNode));
+                    }
+                    sb.append(" enclosed by ").append(simpleName(scope.getEnclosingNode()));
+                    VariableScope.CallAndType call = scope.getEnclosingMethodCallExpression();
+                    sb.append(" call ").append(call != null ? call.call.getMethodAsString() : null);
+                }
+            }
+            visits.add(sb.toString());
+            results.add(result);
+
+            Class<? extends ASTNode> type = cancelTypes.get(node.getStart());
+            if (type != null && type.isInstance(node) && node.getEnd() > 0) {
+                return cancelStatus.get(node.getStart());
+            }
+            return VisitStatus.CONTINUE;
+        }
+
+        private static String simpleName(ASTNode node) {
+            return node != null ? node.getClass().getSimpleName() : null;
+        }
+    }
+}
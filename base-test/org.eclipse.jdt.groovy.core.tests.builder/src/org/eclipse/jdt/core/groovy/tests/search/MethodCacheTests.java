@@ -0,0 +1,180 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.core.groovy.tests.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.GenericsType;
+import org.codehaus.groovy.ast.MethodNode;
+import org.eclipse.jdt.groovy.search.SimpleTypeLookup;
+import org.eclipse.jdt.groovy.search.VariableScope;
+import org.junit.Test;
+
+/**
+ * Tests that the method resolutions that {@link SimpleTypeLookup} caches per visit are the ones it would resolve anew.
+ */
+public final class MethodCacheTests {
+
+    private static final class Lookup extends SimpleTypeLookup {
+        Lookup(boolean cached) {
+            if (cached) {
+                initialize(null, null);
+            }
+        }
+
+        MethodNode find(String name, ClassNode declaringType, List<ClassNode> arguments) {
+            return findMethodDeclaration(name, declaringType, arguments);
+        }
+    }
+
+    private static ClassNode parameterized(Class<?> type, ClassNode... arguments) {
+        ClassNode node = ClassHelper.make(type).getPlainNodeReference();
+        GenericsType[] generics = new GenericsType[arguments.length];
+        for (int i = 0; i < arguments.length; i += 1) {
+            generics[i] = new GenericsType(arguments[i]);
+        }
+        node.setGenericsTypes(generics);
+        return node;
+    }
+
+    private static ClassNode placeholder(String name) {
+        ClassNode node = ClassHelper.makeWithoutCaching(name);
+        node.setRedirect(ClassHelper.OBJECT_TYPE);
+        node.setGenericsPlaceHolder(true);
+        return node;
+    }
+
+    private static List<ClassNode> args(ClassNode... types) {
+        return Arrays.asList(types);
+    }
+
+    private static final ClassNode[] DECLARING_TYPES = {
+        ClassHelper.STRING_TYPE,
+        ClassHelper.make(StringBuilder.class),
+        ClassHelper.make(Math.class),
+        ClassHelper.LIST_TYPE,
+        parameterized(ArrayList.class, ClassHelper.STRING_TYPE),
+        parameterized(ArrayList.class, ClassHelper.Integer_TYPE),
+        ClassHelper.make(AbstractList.class),
+    };
+
+    private static final String[] NAMES = {
+        "valueOf", "indexOf", "append", "insert", "max", "add", "get", "set", "toString", "noSuchMethod",
+    };
+
+    @SuppressWarnings("unchecked")
+    private static final List<ClassNode>[] ARGUMENTS = new List[] {
+        null,
+        Collections.emptyList(),
+        args(ClassHelper.int_TYPE),
+        args(ClassHelper.Integer_TYPE),
+        args(ClassHelper.long_TYPE),
+        args(ClassHelper.double_TYPE),
+        args(ClassHelper.STRING_TYPE),
+        args(ClassHelper.OBJECT_TYPE),
+        args(VariableScope.NULL_TYPE),
+        args(ClassHelper.char_TYPE.makeArray()),
+        args(ClassHelper.CLOSURE_TYPE),
+        args(parameterized(List.class, ClassHelper.STRING_TYPE)),
+        args(parameterized(List.class, ClassHelper.Integer_TYPE)),
+        args(placeholder("T")),
+        args(ClassHelper.int_TYPE, ClassHelper.int_TYPE),
+        args(ClassHelper.int_TYPE, VariableScope.NULL_TYPE),
+        args(ClassHelper.int_TYPE, ClassHelper.OBJECT_TYPE),
+        args(ClassHelper.int_TYPE, ClassHelper.STRING_TYPE),
+    };
+
+    @Test
+    public void testCachedResolutionsMatchUncached() {
+        Lookup cached = new Lookup(true), uncached = new Lookup(false);
+        // twice, so the second round is answered from the cache
+        for (int round = 0; round < 2; round += 1) {
+            for (ClassNode declaringType : DECLARING_TYPES) {
+                for (String name : NAMES) {
+                    for (List<ClassNode> arguments : ARGUMENTS) {
+                        assertSame(declaringType.getName() + "." + name + arguments,
+                            uncached.find(name, declaringType, arguments), cached.find(name, declaringType, arguments));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testOverloadsAreKeyedByArgumentTypes() {
+        Lookup cached = new Lookup(true);
+        MethodNode ofInt = cached.find("valueOf", ClassHelper.STRING_TYPE, args(ClassHelper.int_TYPE));
+        MethodNode ofObject = cached.find("valueOf", ClassHelper.STRING_TYPE, args(ClassHelper.OBJECT_TYPE));
+        MethodNode ofChars = cached.find("valueOf", ClassHelper.STRING_TYPE, args(ClassHelper.char_TYPE.makeArray()));
+
+        assertEquals("int", ofInt.getParameters()[0].getType().getName());
+        assertEquals("java.lang.Object", ofObject.getParameters()[0].getType().getName());
+        assertNotSame(ofInt, ofObject);
+        assertNotSame(ofObject, ofChars);
+        assertSame(ofInt, cached.find("valueOf", ClassHelper.STRING_TYPE, args(ClassHelper.int_TYPE)));
+        // no arguments at all and no argument list are different lookups
+        assertSame(new Lookup(false).find("valueOf", ClassHelper.STRING_TYPE, null), cached.find("valueOf", ClassHelper.STRING_TYPE, null));
+    }
+
+    @Test
+    public void testNullTypeIsNotObject() {
+        Lookup cached = new Lookup(true);
+        // null is compatible with any reference type, so it may resolve differently from Object
+        MethodNode ofObject = cached.find("valueOf", ClassHelper.STRING_TYPE, args(ClassHelper.OBJECT_TYPE));
+        MethodNode ofNull = cached.find("valueOf", ClassHelper.STRING_TYPE, args(VariableScope.NULL_TYPE));
+
+        Lookup uncached = new Lookup(false);
+        assertSame(uncached.find("valueOf", ClassHelper.STRING_TYPE, args(ClassHelper.OBJECT_TYPE)), ofObject);
+        assertSame(uncached.find("valueOf", ClassHelper.STRING_TYPE, args(VariableScope.NULL_TYPE)), ofNull);
+
+        // the other way around, too
+        cached = new Lookup(true);
+        assertSame(ofNull, cached.find("valueOf", ClassHelper.STRING_TYPE, args(VariableScope.NULL_TYPE)));
+        assertSame(ofObject, cached.find("valueOf", ClassHelper.STRING_TYPE, args(ClassHelper.OBJECT_TYPE)));
+    }
+
+    @Test
+    public void testGenericArgumentsAreErased() {
+        Lookup cached = new Lookup(true), uncached = new Lookup(false);
+        ClassNode listOfString = parameterized(List.class, ClassHelper.STRING_TYPE);
+        ClassNode listOfInteger = parameterized(List.class, ClassHelper.Integer_TYPE);
+
+        MethodNode method = cached.find("addAll", ClassHelper.LIST_TYPE, args(listOfString));
+        assertNotNull(method);
+        assertSame(uncached.find("addAll", ClassHelper.LIST_TYPE, args(listOfInteger)), cached.find("addAll", ClassHelper.LIST_TYPE, args(listOfInteger)));
+        assertSame(method, cached.find("addAll", ClassHelper.LIST_TYPE, args(listOfInteger)));
+
+        // parameterizations of the declaring type share the resolutions of the generic type
+        ClassNode arrayListOfString = parameterized(ArrayList.class, ClassHelper.STRING_TYPE);
+        ClassNode arrayListOfInteger = parameterized(ArrayList.class, ClassHelper.Integer_TYPE);
+        assertSame(cached.find("add", arrayListOfString, args(ClassHelper.OBJECT_TYPE)), cached.find("add", arrayListOfInteger, args(ClassHelper.OBJECT_TYPE)));
+        assertSame(uncached.find("add", arrayListOfInteger, args(ClassHelper.OBJECT_TYPE)), cached.find("add", arrayListOfInteger, args(ClassHelper.OBJECT_TYPE)));
+
+        // a type parameter is erased to its bound
+        assertSame(uncached.find("add", ClassHelper.LIST_TYPE, args(placeholder("E"))), cached.find("add", ClassHelper.LIST_TYPE, args(placeholder("E"))));
+    }
+}
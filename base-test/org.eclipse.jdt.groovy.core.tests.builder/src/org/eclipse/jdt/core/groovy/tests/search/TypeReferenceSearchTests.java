@@ -25,6 +25,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.codehaus.jdt.groovy.integration.internal.ParallelMatchLocator;
 import org.codehaus.jdt.groovy.model.GroovyCompilationUnit;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.NullProgressMonitor;
@@ -395,6 +396,45 @@ public final class TypeReferenceSearchTests extends SearchTestSuite {
 
     //--------------------------------------------------------------------------
 
+    @Test
+    public void testParallelSearchFindsSameMatches() throws Exception {
+        GroovyCompilationUnit first = createUnit("p", "First", "package p\nclass First {}");
+        List<IJavaElement> units = new ArrayList<IJavaElement>();
+        for (int i = 0; i < 6; i += 1) {
+            units.add(createUnit("p", "Second" + i,
+                "package p\n" +
+                "class Second" + i + " {\n" +
+                "  First f" + i + " = new First()\n" +
+                "  def m(List<First> list) { (First) list[0] }\n" +
+                "}"));
+        }
+        env.fullBuild();
+        SearchPattern pattern = SearchPattern.createPattern(first.getType("First"), IJavaSearchConstants.REFERENCES);
+        IJavaSearchScope scope = SearchEngine.createJavaSearchScope(units.toArray(new IJavaElement[units.size()]), IJavaSearchScope.SOURCES);
+
+        List<String> serial = searchAll(pattern, scope);
+        assertEquals(units.size() * 4, serial.size());
+
+        int parallelism = ParallelMatchLocator.parallelism;
+        ParallelMatchLocator.parallelism = 4;
+        try {
+            assertEquals(serial, searchAll(pattern, scope));
+        } finally {
+            ParallelMatchLocator.parallelism = parallelism;
+        }
+    }
+
+    private static List<String> searchAll(SearchPattern pattern, IJavaSearchScope scope) throws CoreException {
+        final List<String> matches = new ArrayList<String>();
+        new SearchEngine().search(pattern, new SearchParticipant[] {SearchEngine.getDefaultSearchParticipant()}, scope, new SearchRequestor() {
+            @Override
+            public void acceptSearchMatch(SearchMatch match) {
+                matches.add(match.getResource().getFullPath() + " " + match.getOffset() + " " + match.getLength() + " " + ((IJavaElement) match.getElement()).getElementName());
+            }
+        }, new NullProgressMonitor());
+        return matches;
+    }
+
     private static void assertElements(Set<Object> actualSet, Object... expecteds) {
         Set<Object> expectedSet = new HashSet<Object>(Arrays.asList(expecteds));
         StringBuilder msg = new StringBuilder();
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.core.groovy.tests.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.ClassHelper;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.expr.ArgumentListExpression;
+import org.codehaus.groovy.ast.expr.MethodCallExpression;
+import org.codehaus.groovy.ast.expr.VariableExpression;
+import org.codehaus.groovy.ast.stmt.BlockStatement;
+import org.eclipse.jdt.groovy.search.VariableScope;
+import org.eclipse.jdt.groovy.search.VariableScope.CallAndType;
+import org.eclipse.jdt.groovy.search.VariableScope.VariableInfo;
+import org.junit.Test;
+
+/**
+ * Tests the variables that a scope iterates over and the node and call stacks that its scopes share.
+ */
+public final class VariableScopeTests {
+
+    private final ClassNode type = new ClassNode("Foo", Modifier.PUBLIC, ClassHelper.OBJECT_TYPE);
+    private final MethodNode method = new MethodNode("m", Modifier.PUBLIC, ClassHelper.OBJECT_TYPE,
+        Parameter.EMPTY_ARRAY, ClassNode.EMPTY_ARRAY, new BlockStatement());
+    private final BlockStatement block = new BlockStatement();
+
+    private static List<String> names(VariableScope scope) {
+        List<String> names = new ArrayList<String>();
+        for (VariableInfo info : scope) {
+            names.add(info.name);
+        }
+        return names;
+    }
+
+    private static CallAndType call(String name) {
+        return new CallAndType(new MethodCallExpression(VariableExpression.THIS_EXPRESSION, name,
+            ArgumentListExpression.EMPTY_ARGUMENTS), ClassHelper.OBJECT_TYPE, null);
+    }
+
+    @Test
+    public void testIteratorVisitsScopeThenParents() {
+        VariableScope classScope = new VariableScope(null, type, false);
+        classScope.addVariable("a", ClassHelper.STRING_TYPE, type);
+        VariableScope methodScope = new VariableScope(classScope, method, false);
+        methodScope.addVariable("b", ClassHelper.int_TYPE, type);
+
+        List<ASTNode> scopeNodes = new ArrayList<ASTNode>();
+        for (VariableInfo info : methodScope) {
+            scopeNodes.add(info.scopeNode);
+        }
+        assertEquals(Arrays.asList("b", "a"), names(methodScope));
+        assertEquals(Arrays.<ASTNode>asList(method, type), scopeNodes);
+    }
+
+    @Test
+    public void testIteratorStopsAtEmptyParent() {
+        VariableScope classScope = new VariableScope(null, type, false);
+        classScope.addVariable("a", ClassHelper.STRING_TYPE, type);
+        VariableScope methodScope = new VariableScope(classScope, method, false);
+        VariableScope blockScope = new VariableScope(methodScope, block, false);
+        blockScope.addVariable("c", ClassHelper.int_TYPE, type);
+
+        // the method scope declares nothing, so the variables of the class scope are not reached
+        assertEquals(Arrays.asList("c"), names(blockScope));
+        // but lookups still find them
+        assertSame(classScope.lookupName("a"), blockScope.lookupName("a"));
+    }
+
+    @Test
+    public void testIteratorOfEmptyScopeStartsAtParent() {
+        VariableScope classScope = new VariableScope(null, type, false);
+        classScope.addVariable("a", ClassHelper.STRING_TYPE, type);
+        VariableScope methodScope = new VariableScope(classScope, method, false);
+
+        assertEquals(Arrays.asList("a"), names(methodScope));
+        assertEquals(Arrays.asList(), names(new VariableScope(methodScope, block, false)));
+        assertEquals(Arrays.asList(), names(new VariableScope(null, type, false)));
+    }
+
+    @Test
+    public void testIteratorSeesLateDeclarations() {
+        VariableScope classScope = new VariableScope(null, type, false);
+        VariableScope methodScope = new VariableScope(classScope, method, false);
+        assertFalse(methodScope.iterator().hasNext());
+
+        methodScope.addVariable("b", ClassHelper.int_TYPE, type);
+        methodScope.addVariable("b", ClassHelper.STRING_TYPE, type);
+        Iterator<VariableInfo> iterator = methodScope.iterator();
+        assertTrue(iterator.hasNext());
+        VariableInfo info = iterator.next();
+        assertEquals("java.lang.String", info.type.getName());
+        assertSame(method, info.scopeNode);
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void testNodeStack() {
+        VariableScope scope = new VariableScope(null, type, false);
+        assertNull(scope.getCurrentNode());
+        assertNull(scope.getEnclosingNode());
+        // forgetting a node that was never set is harmless
+        scope.forgetCurrentNode();
+
+        scope.setCurrentNode(type);
+        scope.setCurrentNode(method);
+        VariableScope child = new VariableScope(scope, method, false);
+        child.setCurrentNode(block);
+        assertSame(block, scope.getCurrentNode());
+        assertSame(method, scope.getEnclosingNode());
+
+        child.forgetCurrentNode();
+        assertSame(method, scope.getCurrentNode());
+        assertSame(type, scope.getEnclosingNode());
+        scope.forgetCurrentNode();
+        scope.forgetCurrentNode();
+        assertNull(scope.getCurrentNode());
+    }
+
+    @Test
+    public void testEnclosingCallStack() {
+        VariableScope scope = new VariableScope(null, type, false);
+        assertNull(scope.getEnclosingMethodCallExpression());
+        assertTrue(scope.getAllEnclosingMethodCallExpressions().isEmpty());
+
+        CallAndType outer = call("outer"), inner = call("inner");
+        scope.addEnclosingMethodCall(outer);
+        new VariableScope(scope, block, false).addEnclosingMethodCall(inner);
+        assertSame(inner, scope.getEnclosingMethodCallExpression());
+        assertEquals(Arrays.asList(outer, inner), scope.getAllEnclosingMethodCallExpressions());
+
+        scope.forgetEnclosingMethodCall();
+        assertSame(outer, scope.getEnclosingMethodCallExpression());
+        scope.forgetEnclosingMethodCall();
+        assertNull(scope.getEnclosingMethodCallExpression());
+    }
+}
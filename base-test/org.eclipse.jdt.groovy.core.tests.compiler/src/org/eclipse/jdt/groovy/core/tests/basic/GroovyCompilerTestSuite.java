@@ -225,6 +225,15 @@ public abstract class GroovyCompilerTestSuite {
         }
     }
 
+    /**
+     * @return the disassembly of a .class file in the output folder
+     */
+    protected static String getDisassembly(String filename, int detail) throws Exception {
+        File f = new File(AbstractRegressionTest.OUTPUT_DIR + File.separator + filename);
+        byte[] classFileBytes = org.eclipse.jdt.internal.compiler.util.Util.getFileByteContent(f);
+        return ToolFactory.createDefaultClassFileBytesDisassembler().disassemble(classFileBytes, "\n", detail);
+    }
+
     protected static void checkGCUDeclaration(String filename, String expectedOutput) {
         GroovyCompilationUnitDeclaration decl = ((DebugRequestor) GroovyParser.debugRequestor).declarations.get(filename);
         String declarationContents = decl.print();
@@ -24,7 +24,9 @@ import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeTrue;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -39,6 +41,7 @@ import org.codehaus.jdt.groovy.internal.compiler.ast.GroovyClassScope;
 import org.codehaus.jdt.groovy.internal.compiler.ast.GroovyCompilationUnitDeclaration;
 import org.codehaus.jdt.groovy.internal.compiler.ast.JDTClassNode;
 import org.codehaus.jdt.groovy.internal.compiler.ast.JDTResolver;
+import org.codehaus.jdt.groovy.internal.compiler.ast.ParallelSourceParser;
 import org.eclipse.jdt.core.tests.util.GroovyUtils;
 import org.eclipse.jdt.core.util.ClassFileBytesDisassembler;
 import org.eclipse.jdt.internal.compiler.ast.ASTNode;
@@ -5612,6 +5615,73 @@ public final class GroovySimpleTests extends GroovyCompilerTestSuite {
         }
     }
 
+    @Test
+    public void testParallelParse() throws Exception {
+        // more units than the workers parse ahead, and a java unit in between
+        List<String> sources = new ArrayList<String>();
+        sources.add("p/Main.groovy");
+        sources.add(
+            "package p\n" +
+            "class Main {\n" +
+            "  static main(args) {\n" +
+            "    print new C0().next().next().value\n" +
+            "  }\n" +
+            "}\n");
+        sources.add("p/J.java");
+        sources.add(
+            "package p;\n" +
+            "public class J {\n" +
+            "  C0 c = new C0();\n" +
+            "}\n");
+        for (int i = 0; i < 20; i += 1) {
+            sources.add("p/C" + i + ".groovy");
+            sources.add(
+                "package p\n" +
+                "class C" + i + " {\n" +
+                "  String value = 'c" + i + "'\n" +
+                "  def next() { new C" + (i + 1) % 20 + "() }\n" +
+                "}\n");
+        }
+        String[] units = sources.toArray(new String[sources.size()]);
+
+        runConformTest(units, "c2");
+        Map<String, String> serial = printDeclarations(units);
+        Map<String, String> serialClasses = disassembleClasses(units);
+
+        int parallelism = ParallelSourceParser.parallelism;
+        ParallelSourceParser.parallelism = 4;
+        try {
+            runConformTest(units, "c2");
+        } finally {
+            ParallelSourceParser.parallelism = parallelism;
+        }
+        assertEquals(serial, printDeclarations(units));
+        assertEquals(serialClasses, disassembleClasses(units));
+    }
+
+    private static Map<String, String> disassembleClasses(String[] sources) throws Exception {
+        Map<String, String> classes = new LinkedHashMap<String, String>();
+        for (int i = 0; i < sources.length; i += 2) {
+            if (sources[i].endsWith(".groovy")) {
+                String filename = sources[i].replace(".groovy", ".class");
+                // older groovy versions write compile timestamps into their classes
+                classes.put(filename, getDisassembly(filename, ClassFileBytesDisassembler.DETAILED).replaceAll("\\d{10,}", "#"));
+            }
+        }
+        return classes;
+    }
+
+    private static Map<String, String> printDeclarations(String[] sources) {
+        Map<String, String> declarations = new LinkedHashMap<String, String>();
+        for (int i = 0; i < sources.length; i += 2) {
+            if (sources[i].endsWith(".groovy")) {
+                String filename = sources[i].substring(sources[i].lastIndexOf('/') + 1);
+                declarations.put(filename, getCUDeclFor(filename).print());
+            }
+        }
+        return declarations;
+    }
+
     private void assertEvent(String eventText, EventListener listener) {
         boolean found = false;
         Iterator<String> eventIter = listener.getEvents().iterator();
@@ -15,9 +15,6 @@
  */
 package org.codehaus.groovy.antlr;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * A simple buffer that provides line/col access to chunks of source code
  * held within itself.
@@ -28,25 +25,21 @@ import java.util.List;
  * @version $Revision: 7922 $
  */
 public class SourceBuffer {
-    private final List<StringBuilder> lines;
-    private StringBuilder current;
-    // GRECLIPSE: start
-    private final List<Integer> lineEndings;
-
-    // GRECLIPSE-805 Support for unicode escape sequences
-    private UnicodeEscapingReader unescaper;
-    // end
+    // GRECLIPSE edit -- one char array for all lines and primitive arrays for the line table
+    private char[] chars = new char[1024];
+    private int length;
+    // offsets of the lines in chars
+    private int[] lineStarts = new int[64];
+    private int lineCount = 1;
+    // offsets of the line ends in the source, which differ from chars when there are unicode escapes
+    private int[] lineEndings = new int[64];
+    private int lineEndingCount = 1;
+    private boolean prevWasCarriageReturn;
+    // GRECLIPSE-805: Support for unicode escape sequences
+    private UnicodeEscapingReader unescaper = new NoEscaper();
+    // GRECLIPSE end
 
     public SourceBuffer() {
-        lines = new ArrayList<StringBuilder>();
-        //lines.add(new StringBuffer()); // dummy row for position [0] in the List
-        // GRECLIPSE: start
-        lineEndings = new ArrayList<Integer>();
-        lineEndings.add(0);
-        unescaper = new NoEscaper();
-        // end
-        current = new StringBuilder();
-        lines.add(current);
     }
 
     /**
@@ -59,7 +52,7 @@ public class SourceBuffer {
         // preconditions
         if (start == null || end == null) { return null; } // no text to return
         if (start.equals(end)) { return null; } // no text to return
-        if (lines.size() == 1 && current.length() == 0) { return null; } // buffer hasn't been filled yet
+        if (length == 0) { return null; } // buffer hasn't been filled yet
 
         // working variables
         int startLine = start.getLine();
@@ -72,34 +65,38 @@ public class SourceBuffer {
         if (endLine < 1) { endLine = 1;}
         if (startColumn < 1) { startColumn = 1;}
         if (endColumn < 1) { endColumn = 1;}
-        if (startLine > lines.size()) { startLine = lines.size(); }
-        if (endLine > lines.size()) { endLine = lines.size(); }
+        if (startLine > lineCount) { startLine = lineCount; }
+        if (endLine > lineCount) { endLine = lineCount; }
 
         // obtain the snippet from the buffer within specified bounds
-        StringBuffer snippet = new StringBuffer();
-        for (int i = startLine - 1; i < endLine;i++) {
-            String line = (lines.get(i)).toString();
+        StringBuilder snippet = new StringBuilder();
+        for (int i = startLine - 1; i < endLine; i++) {
+            int lineStart = lineStarts[i];
+            int lineLength = (i + 1 < lineCount ? lineStarts[i + 1] : length) - lineStart;
+            int from = 0, to = lineLength;
             if (startLine == endLine) {
                 // reset any out of bounds requests (again)
-                if (startColumn > line.length()) { startColumn = line.length();}
+                if (startColumn > lineLength) { startColumn = lineLength;}
                 if (startColumn < 1) { startColumn = 1;}
-                if (endColumn > line.length()) { endColumn = line.length() + 1;}
+                if (endColumn > lineLength) { endColumn = lineLength + 1;}
                 if (endColumn < 1) { endColumn = 1;}
+                if (endColumn < startColumn) { endColumn = startColumn;}
 
-                line = line.substring(startColumn - 1, endColumn - 1);
+                from = startColumn - 1;
+                to = endColumn - 1;
             } else {
                 if (i == startLine - 1) {
-                    if (startColumn - 1 < line.length()) {
-                        line = line.substring(startColumn - 1);
+                    if (startColumn - 1 < lineLength) {
+                        from = startColumn - 1;
                     }
                 }
                 if (i == endLine - 1) {
-                    if (endColumn - 1 < line.length()) {
-                        line = line.substring(0,endColumn - 1);
+                    if (endColumn - 1 < lineLength) {
+                        to = endColumn - 1;
                     }
                 }
             }
-            snippet.append(line);
+            snippet.append(chars, lineStart + from, to - from);
         }
         return snippet.toString();
     }
@@ -108,64 +105,72 @@ public class SourceBuffer {
      * Writes the specified character into the buffer
      * @param c
      */
-    // GRECLIPSE: start
-    /*{
-    public void write(int c) {
-        if (c != -1) {
-            current.append((char)c);
-        }
-        if (c == '\n') {
-            current = new StringBuffer();
-            lines.add(current);
-        }
-    } 
-    }*/
-    // newcode:
-    public void setUnescaper(UnicodeEscapingReader unicodeEscapingReader) {
-        this.unescaper = unicodeEscapingReader;
-    }
-    
-    private boolean prevWasCarriageReturn = false;
-    private int col = 0;
-    // FIXASC tidy this up, looks slow
     public void write(int c) {
+        // GRECLIPSE edit
         if (c != -1) {
-        	col++;
-            current.append((char)c);
+            if (length == chars.length) {
+                chars = grow(chars);
+            }
+            chars[length++] = (char) c;
         }
         if (c == '\n') {
-        	if (!prevWasCarriageReturn) {
-	            current = new StringBuilder();
-	            lines.add(current);
-	            lineEndings.add(col + unescaper.getUnescapedUnicodeOffsetCount());
-        	} else {
-        		// \r\n was found
-        		// back out previous line and add a \n to the line
-        		current = new StringBuilder();
-        		lines.get(lines.size()-1).append('\n');
-        		lineEndings.remove(lineEndings.size()-1);
-        		lineEndings.add(col + unescaper.getUnescapedUnicodeOffsetCount());
-        	}
+            if (!prevWasCarriageReturn) {
+                addLine();
+            } else { // \r\n was found
+                // the \n belongs to the line of the \r; move the start of the next line and its ending after it
+                lineStarts[lineCount - 1] = length;
+                lineEndingCount -= 1;
+            }
+            addLineEnding();
         }
         // handle carriage returns as well as newlines
         if (c == '\r') {
-        	current = new StringBuilder();
-        	lines.add(current);
-        	lineEndings.add(col + unescaper.getUnescapedUnicodeOffsetCount());
-        	// this may be a \r\n, but may not be
-        	prevWasCarriageReturn = true;
+            addLine();
+            addLineEnding();
+            // this may be a \r\n, but may not be
+            prevWasCarriageReturn = true;
         } else {
-        	prevWasCarriageReturn = false;
+            prevWasCarriageReturn = false;
         }
+        // GRECLIPSE end
     }
-    
+
+    // GRECLIPSE add
+    private void addLine() {
+        if (lineCount == lineStarts.length) {
+            lineStarts = grow(lineStarts);
+        }
+        lineStarts[lineCount++] = length;
+    }
+
+    private void addLineEnding() {
+        if (lineEndingCount == lineEndings.length) {
+            lineEndings = grow(lineEndings);
+        }
+        lineEndings[lineEndingCount++] = length + unescaper.getUnescapedUnicodeOffsetCount();
+    }
+
+    private static char[] grow(char[] array) {
+        char[] larger = new char[array.length * 2];
+        System.arraycopy(array, 0, larger, 0, array.length);
+        return larger;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] larger = new int[array.length * 2];
+        System.arraycopy(array, 0, larger, 0, array.length);
+        return larger;
+    }
+
     public LocationSupport getLocationSupport() {
-    	lineEndings.add(col + unescaper.getUnescapedUnicodeOffsetCount()); // last line ends where the data runs out
-    	int[] lineEndingsArray = new int[lineEndings.size()];
-    	for (int i=0,max=lineEndings.size();i<max;i++) {
-    		lineEndingsArray[i] = lineEndings.get(i).intValue();
-    	}
-    	return new LocationSupport(lineEndingsArray);
+        addLineEnding(); // last line ends where the data runs out
+        int[] lineEndingsArray = new int[lineEndingCount];
+        System.arraycopy(lineEndings, 0, lineEndingsArray, 0, lineEndingCount);
+        return new LocationSupport(lineEndingsArray);
+    }
+
+    public void setUnescaper(UnicodeEscapingReader unicodeEscapingReader) {
+        this.unescaper = unicodeEscapingReader;
     }
-    // end
+    // GRECLIPSE end
 }
@@ -18,9 +18,6 @@
  */
 package org.codehaus.groovy.antlr;
 
-import java.util.List;
-import java.util.ArrayList;
-
 /**
  * A simple buffer that provides line/col access to chunks of source code
  * held within itself.
@@ -28,19 +25,21 @@ import java.util.ArrayList;
  * @author <a href="mailto:groovy@ross-rayner.com">Jeremy Rayner</a>
  */
 public class SourceBuffer {
-    // GRECLIPSE edit
-    private final List<StringBuilder> lines = new ArrayList<StringBuilder>();
-    private final List<Integer> lineEndings = new ArrayList<Integer>();
-    private StringBuilder current = new StringBuilder();
+    // GRECLIPSE edit -- one char array for all lines and primitive arrays for the line table
+    private char[] chars = new char[1024];
+    private int length;
+    // offsets of the lines in chars
+    private int[] lineStarts = new int[64];
+    private int lineCount = 1;
+    // offsets of the line ends in the source, which differ from chars when there are unicode escapes
+    private int[] lineEndings = new int[64];
+    private int lineEndingCount = 1;
+    private boolean prevWasCarriageReturn;
     // GRECLIPSE-805: Support for unicode escape sequences
     private UnicodeEscapingReader unescaper = new NoEscaper();
     // GRECLIPSE end
 
     public SourceBuffer() {
-        // GRECLIPSE edit
-        lines.add(current);
-        lineEndings.add(0);
-        // GRECLIPSE end
     }
 
     /**
@@ -53,7 +52,7 @@ public class SourceBuffer {
         // preconditions
         if (start == null || end == null) { return null; } // no text to return
         if (start.equals(end)) { return null; } // no text to return
-        if (lines.size() == 1 && current.length() == 0) { return null; } // buffer hasn't been filled yet
+        if (length == 0) { return null; } // buffer hasn't been filled yet
 
         // working variables
         int startLine = start.getLine();
@@ -66,35 +65,38 @@ public class SourceBuffer {
         if (endLine < 1) { endLine = 1;}
         if (startColumn < 1) { startColumn = 1;}
         if (endColumn < 1) { endColumn = 1;}
-        if (startLine > lines.size()) { startLine = lines.size(); }
-        if (endLine > lines.size()) { endLine = lines.size(); }
+        if (startLine > lineCount) { startLine = lineCount; }
+        if (endLine > lineCount) { endLine = lineCount; }
 
         // obtain the snippet from the buffer within specified bounds
-        StringBuffer snippet = new StringBuffer();
-        for (int i = startLine - 1; i < endLine;i++) {
-            String line = lines.get(i).toString();
+        StringBuilder snippet = new StringBuilder();
+        for (int i = startLine - 1; i < endLine; i++) {
+            int lineStart = lineStarts[i];
+            int lineLength = (i + 1 < lineCount ? lineStarts[i + 1] : length) - lineStart;
+            int from = 0, to = lineLength;
             if (startLine == endLine) {
                 // reset any out of bounds requests (again)
-                if (startColumn > line.length()) { startColumn = line.length();}
+                if (startColumn > lineLength) { startColumn = lineLength;}
                 if (startColumn < 1) { startColumn = 1;}
-                if (endColumn > line.length()) { endColumn = line.length() + 1;}
+                if (endColumn > lineLength) { endColumn = lineLength + 1;}
                 if (endColumn < 1) { endColumn = 1;}
                 if (endColumn < startColumn) { endColumn = startColumn;}
 
-                line = line.substring(startColumn - 1, endColumn - 1);
+                from = startColumn - 1;
+                to = endColumn - 1;
             } else {
                 if (i == startLine - 1) {
-                    if (startColumn - 1 < line.length()) {
-                        line = line.substring(startColumn - 1);
+                    if (startColumn - 1 < lineLength) {
+                        from = startColumn - 1;
                     }
                 }
                 if (i == endLine - 1) {
-                    if (endColumn - 1 < line.length()) {
-                        line = line.substring(0,endColumn - 1);
+                    if (endColumn - 1 < lineLength) {
+                        to = endColumn - 1;
                     }
                 }
             }
-            snippet.append(line);
+            snippet.append(chars, lineStart + from, to - from);
         }
         return snippet.toString();
     }
@@ -104,33 +106,27 @@ public class SourceBuffer {
      * @param c
      */
     public void write(int c) {
+        // GRECLIPSE edit
         if (c != -1) {
-            // GRECLIPSE add
-            col += 1;
-            // GRECLIPSE end
-            current.append((char)c);
+            if (length == chars.length) {
+                chars = grow(chars);
+            }
+            chars[length++] = (char) c;
         }
         if (c == '\n') {
-            current = new StringBuilder();
-            // GRECLIPSE add
             if (!prevWasCarriageReturn) {
-            // GRECLIPSE end
-            lines.add(current);
-            // GRECLIPSE add
+                addLine();
             } else { // \r\n was found
-                // back out previous line and add a \n to the line
-                lines.get(lines.size() - 1).append('\n');
-                lineEndings.remove(lineEndings.size() - 1);
+                // the \n belongs to the line of the \r; move the start of the next line and its ending after it
+                lineStarts[lineCount - 1] = length;
+                lineEndingCount -= 1;
             }
-            lineEndings.add(col + unescaper.getUnescapedUnicodeOffsetCount());
-            // GRECLIPSE end
+            addLineEnding();
         }
-        // GRECLIPSE add
         // handle carriage returns as well as newlines
         if (c == '\r') {
-            current = new StringBuilder();
-            lines.add(current);
-            lineEndings.add(col + unescaper.getUnescapedUnicodeOffsetCount());
+            addLine();
+            addLineEnding();
             // this may be a \r\n, but may not be
             prevWasCarriageReturn = true;
         } else {
@@ -138,15 +134,38 @@ public class SourceBuffer {
         }
         // GRECLIPSE end
     }
-    private int col;
-    private boolean prevWasCarriageReturn;
 
-    public LocationSupport getLocationSupport() {
-        lineEndings.add(col + unescaper.getUnescapedUnicodeOffsetCount()); // last line ends where the data runs out
-        int[] lineEndingsArray = new int[lineEndings.size()];
-        for (int i = 0, max = lineEndings.size(); i < max; i += 1) {
-            lineEndingsArray[i] = lineEndings.get(i).intValue();
+    // GRECLIPSE add
+    private void addLine() {
+        if (lineCount == lineStarts.length) {
+            lineStarts = grow(lineStarts);
+        }
+        lineStarts[lineCount++] = length;
+    }
+
+    private void addLineEnding() {
+        if (lineEndingCount == lineEndings.length) {
+            lineEndings = grow(lineEndings);
         }
+        lineEndings[lineEndingCount++] = length + unescaper.getUnescapedUnicodeOffsetCount();
+    }
+
+    private static char[] grow(char[] array) {
+        char[] larger = new char[array.length * 2];
+        System.arraycopy(array, 0, larger, 0, array.length);
+        return larger;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] larger = new int[array.length * 2];
+        System.arraycopy(array, 0, larger, 0, array.length);
+        return larger;
+    }
+
+    public LocationSupport getLocationSupport() {
+        addLineEnding(); // last line ends where the data runs out
+        int[] lineEndingsArray = new int[lineEndingCount];
+        System.arraycopy(lineEndings, 0, lineEndingsArray, 0, lineEndingCount);
         return new LocationSupport(lineEndingsArray);
     }
 
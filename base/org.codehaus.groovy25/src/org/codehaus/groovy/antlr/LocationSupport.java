@@ -91,11 +91,19 @@ public class LocationSupport {
     }
 
     public int[] getRowCol(int offset) {
-        for (int i = 1, n = lineEndings.length; i < n; i += 1) {
-            if (lineEndings[i] > offset) {
-                return new int[] {i, offset - lineEndings[i - 1] + 1};
+        // binary search for the first line that ends after the offset
+        int lo = 1, hi = lineEndings.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (lineEndings[mid] > offset) {
+                hi = mid - 1;
+            } else {
+                lo = mid + 1;
             }
         }
+        if (lo < lineEndings.length) {
+            return new int[] {lo, offset - lineEndings[lo - 1] + 1};
+        }
         // after end of document
         throw new RuntimeException("Location is after end of document.  Offset : " + offset);
     }
@@ -36,6 +36,7 @@ import org.codehaus.jdt.groovy.model.GroovyClassFileWorkingCopy;
 import org.codehaus.jdt.groovy.model.GroovyCompilationUnit;
 import org.codehaus.jdt.groovy.model.GroovyNature;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.ISourceRange;
@@ -202,6 +203,14 @@ public class GroovyLanguageSupport implements LanguageSupport {
         return false;
     }
 
+    public boolean[] performDelegatedSearch(PossibleMatch[] possibleMatches, int start, int length, SearchPattern pattern,
+            SearchRequestor requestor, IProgressMonitor monitor) throws CoreException {
+        if (!ParallelMatchLocator.isEnabled()) {
+            return null;
+        }
+        return new ParallelMatchLocator(pattern, requestor, monitor).locateMatches(possibleMatches, start, length);
+    }
+
     public EventHandler getEventHandler() {
         // FIXASC could be une singleton?
         return new GroovyEventHandler();
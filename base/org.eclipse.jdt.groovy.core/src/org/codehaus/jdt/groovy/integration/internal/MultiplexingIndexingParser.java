@@ -19,6 +19,7 @@ import java.util.Collections;
 
 import org.codehaus.jdt.groovy.internal.compiler.ast.GroovyCompilationUnitDeclaration;
 import org.codehaus.jdt.groovy.internal.compiler.ast.GroovyParser;
+import org.codehaus.jdt.groovy.internal.compiler.ast.ModuleNodeCache;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.groovy.core.util.ContentTypeUtils;
 import org.eclipse.jdt.groovy.core.util.ReflectionUtils;
@@ -68,18 +69,24 @@ public class MultiplexingIndexingParser extends IndexingParser {
             // 2) parsing is for the entire CU (ie- from character 0, to unit.getContents().length)
             // 3) nodesToCategories map is not necessary. I think it has something to do with JavaDoc, but not sure
 
-            CompilationResult compilationResult = new CompilationResult(unit, 0, 0, this.options.maxProblemsPerUnit);
+            char[] contents = unit.getContents();
+            GroovyCompilationUnitDeclaration cud = ModuleNodeCache.get(unit, contents, this.options);
+            if (cud == null) {
+                CompilationResult compilationResult = new CompilationResult(unit, 0, 0, this.options.maxProblemsPerUnit);
 
-            // FIXASC Is it ok to use a new parser here everytime? If we don't we sometimes recurse back into the first one
-            GroovyCompilationUnitDeclaration cud = (GroovyCompilationUnitDeclaration) new GroovyParser(this.options,
-                    problemReporter, false, true).dietParse(unit, compilationResult);
+                // a new parser each time: a shared one would add unrelated files to one groovy compilation unit, so types declared
+                // in more than one file (other source folders or projects) would clash and references could resolve across them;
+                // reusing the parser would also recurse back into it
+                cud = (GroovyCompilationUnitDeclaration) new GroovyParser(this.options,
+                        problemReporter, false, true).dietParse(unit, compilationResult);
+                ModuleNodeCache.put(unit, contents, this.options, cud);
+            }
 
-            // CompilationUnitDeclaration cud groovyParser.dietParse(sourceUnit, compilationResult);
             HashtableOfObjectToInt sourceEnds = createSourceEnds(cud);
             GroovyIndexingVisitor visitor = new GroovyIndexingVisitor(requestor);
             visitor.doVisit(cud.getModuleNode(), cud.currentPackage);
 
-            notifier.notifySourceElementRequestor(cud, 0, unit.getContents().length, groovyReportReferenceInfo, sourceEnds,
+            notifier.notifySourceElementRequestor(cud, 0, contents.length, groovyReportReferenceInfo, sourceEnds,
             /* We don't care about the @category tag, so pass empty map */Collections.EMPTY_MAP);
             return cud;
         } else {
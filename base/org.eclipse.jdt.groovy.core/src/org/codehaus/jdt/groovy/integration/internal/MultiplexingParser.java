@@ -56,8 +56,19 @@ public class MultiplexingParser extends Parser {
         }
     }
 
+    @Override
+    public void beginToParse(ICompilationUnit[] sourceUnits, int maxUnits) {
+        if (groovyParser == null) {
+            groovyParser = new GroovyParser(this.requestor, this.compilerOptions, this.problemReporter, true, false);
+        }
+        groovyParser.beginToParse(sourceUnits, maxUnits);
+    }
+
     @Override
     public void reset() {
+        if (groovyParser != null) {
+            groovyParser.endToParse();
+        }
         groovyParser = null;
     }
 }
@@ -107,11 +107,13 @@ public class MultiplexingSourceElementRequestorParser extends SourceElementParse
             // 1) there is no difference between a diet and full parse in the groovy works, so can ignore the fullParse parameter
             // 2) parsing is for the entire CU (ie- from character 0, to unit.getContents().length)
             // 3) nodesToCategories map is not necessary. I think it has something to do with JavaDoc, but not sure
+            // 4) the result is not shared through ModuleNodeCache; callers like GroovyCompilationUnit.buildStructure keep its module node and clean it up
 
             CompilationResult compilationResult = new CompilationResult(unit, 0, 0, options.maxProblemsPerUnit);
 
-            // FIXASC Is it ok to use a new parser here everytime? If we don't we sometimes recurse back into the first one.
-            // FIXASC ought to reuse to ensure types end up in same groovy CU
+            // a new parser each time: a shared one would add unrelated files to one groovy compilation unit, so types declared
+            // in more than one file (other source folders or projects) would clash and references could resolve across them;
+            // reusing the parser would also recurse back into it
             GroovyParser groovyParser = new GroovyParser(this.groovyParser.requestor, options, problemReporter, false, true);
             CompilationUnitDeclaration cud = groovyParser.dietParse(unit, compilationResult);
 
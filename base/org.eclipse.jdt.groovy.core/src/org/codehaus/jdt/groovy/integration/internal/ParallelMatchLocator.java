@@ -0,0 +1,171 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.jdt.groovy.integration.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.search.SearchPattern;
+import org.eclipse.jdt.core.search.SearchRequestor;
+import org.eclipse.jdt.groovy.search.BufferingSearchRequestor;
+import org.eclipse.jdt.groovy.search.ITypeRequestor;
+import org.eclipse.jdt.groovy.search.TypeInferencingVisitorFactory;
+import org.eclipse.jdt.groovy.search.TypeInferencingVisitorWithRequestor;
+import org.eclipse.jdt.groovy.search.TypeRequestorFactory;
+import org.eclipse.jdt.internal.core.search.matching.PossibleMatch;
+import org.eclipse.jdt.internal.core.util.Util;
+
+/**
+ * Locates the matches of a search in several groovy documents at once. Each document is parsed, resolved and inferred on
+ * a worker thread (with its own parser, resolver and type lookups, as when it is searched on its own); its matches are
+ * collected and then reported on the searching thread in the order of the possible matches, so the results do not depend
+ * on the scheduling of the workers. If the search of a document fails on a worker, its partial results are dropped and the
+ * document is left to the serial search. Cancellation is checked while waiting for each document; documents that have
+ * not been started yet are skipped once the search is canceled.
+ * <p>
+ * Enabled by setting system property <code>greclipse.searchParallelism</code> to the number of worker threads (greater
+ * than 1).
+ */
+public class ParallelMatchLocator {
+
+    // allow test cases to compare parallel and serial searches
+    public static int parallelism = Integer.getInteger("greclipse.searchParallelism", 1);
+
+    static boolean isEnabled() {
+        return parallelism > 1;
+    }
+
+    private static final long CANCEL_POLL_MILLIS = 100;
+
+    private final SearchPattern pattern;
+    private final SearchRequestor requestor;
+    private final IProgressMonitor monitor;
+    private volatile boolean canceled;
+
+    ParallelMatchLocator(SearchPattern pattern, SearchRequestor requestor, IProgressMonitor monitor) {
+        this.pattern = pattern;
+        this.requestor = requestor;
+        this.monitor = monitor;
+    }
+
+    /**
+     * @return for each possible match in the range, whether it was searched, or <code>null</code> if there are too few
+     *         groovy documents to make use of the workers or the pattern is not supported
+     */
+    boolean[] locateMatches(PossibleMatch[] possibleMatches, int start, int length) throws CoreException {
+        List<Integer> indexes = new ArrayList<Integer>();
+        List<BufferingSearchRequestor> buffers = new ArrayList<BufferingSearchRequestor>();
+        List<ITypeRequestor> typeRequestors = new ArrayList<ITypeRequestor>();
+        TypeRequestorFactory requestorFactory = new TypeRequestorFactory();
+        for (int i = 0; i < length; i += 1) {
+            PossibleMatch possibleMatch = possibleMatches[start + i];
+            if (possibleMatch.isInterestingSourceFile() && possibleMatch.openable != null && possibleMatch.openable.exists()) {
+                BufferingSearchRequestor buffer = new BufferingSearchRequestor(requestor);
+                ITypeRequestor typeRequestor = requestorFactory.createRequestor(possibleMatch, pattern, buffer);
+                if (typeRequestor == null) {
+                    return null; // the pattern is not supported; same for all documents
+                }
+                indexes.add(i);
+                buffers.add(buffer);
+                typeRequestors.add(typeRequestor);
+            }
+        }
+        if (indexes.size() < 2) {
+            return null;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, indexes.size()), new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Groovy Match Locator");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        List<Future<?>> futures = new ArrayList<Future<?>>(indexes.size());
+        boolean completed = false;
+        try {
+            for (int i = 0, n = indexes.size(); i < n; i += 1) {
+                futures.add(executor.submit(newSearch(possibleMatches[start + indexes.get(i)], typeRequestors.get(i))));
+            }
+
+            boolean[] searched = new boolean[length];
+            for (int i = 0, n = futures.size(); i < n; i += 1) {
+                if (await(futures.get(i), possibleMatches[start + indexes.get(i)])) {
+                    buffers.get(i).replay();
+                    searched[indexes.get(i)] = true;
+                }
+            }
+            completed = true;
+            return searched;
+        } finally {
+            if (!completed) {
+                canceled = true;
+                for (Future<?> future : futures) {
+                    future.cancel(false); // running searches are not interrupted since that may break java model operations
+                }
+            }
+            executor.shutdown();
+        }
+    }
+
+    private Callable<Void> newSearch(final PossibleMatch possibleMatch, final ITypeRequestor typeRequestor) {
+        return new Callable<Void>() {
+            public Void call() {
+                if (!canceled) {
+                    TypeInferencingVisitorWithRequestor visitor = new TypeInferencingVisitorFactory().createVisitor(possibleMatch);
+                    if (visitor != null) {
+                        visitor.visitCompilationUnit(typeRequestor);
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    /**
+     * @return <code>true</code> iff the search completed normally
+     */
+    private boolean await(Future<?> future, PossibleMatch possibleMatch) {
+        while (true) {
+            if (monitor != null && monitor.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+            try {
+                future.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (TimeoutException e) {
+                // check for cancellation again
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new OperationCanceledException();
+            } catch (ExecutionException e) {
+                Util.log(e.getCause(), "Exception when searching " + possibleMatch.document.getPath() + "; searching it again serially");
+                return false;
+            }
+        }
+    }
+}
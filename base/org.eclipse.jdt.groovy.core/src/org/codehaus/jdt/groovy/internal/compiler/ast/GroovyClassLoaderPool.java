@@ -0,0 +1,257 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.jdt.groovy.internal.compiler.ast;
+
+import java.io.Closeable;
+import java.io.File;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import groovy.lang.GroovyClassLoader;
+
+import org.apache.xbean.classloader.DestroyableClassLoader;
+import org.codehaus.groovy.eclipse.GroovyLogManager;
+import org.codehaus.groovy.eclipse.TraceCategory;
+
+/**
+ * Pool of the class loaders used to discover and load AST transforms (and customizers). Loaders are keyed by a fingerprint
+ * of their classpath, so projects with the same transform classpath share one loader. A loader that is replaced (because
+ * the classpath of a project changed, the project was cleaned or the loader was invalidated) is not handed out again.
+ * Parsers, compiles and cached modules may still be using it, so once no project references it, it is closed when it
+ * is no longer reachable rather than right away. Closing a project closes its loader at once unless another project
+ * references it.
+ */
+public class GroovyClassLoaderPool {
+
+    static class PooledLoader {
+        final String fingerprint;
+        final URLClassLoader parentLoader;
+        final GroovyClassLoader groovyClassLoader;
+        int referenceCount;
+        boolean retired;
+
+        PooledLoader(String fingerprint, URLClassLoader parentLoader) {
+            this.fingerprint = fingerprint;
+            this.parentLoader = parentLoader;
+            this.groovyClassLoader = new GroovyClassLoader(parentLoader);
+        }
+    }
+
+    /**
+     * Keeps the parent of an orphaned loader until the loader is collected, so its jar files can be closed then.
+     */
+    static class OrphanedLoader extends WeakReference<GroovyClassLoader> {
+        final URLClassLoader parentLoader;
+
+        OrphanedLoader(PooledLoader loader, ReferenceQueue<GroovyClassLoader> queue) {
+            super(loader.groovyClassLoader, queue);
+            this.parentLoader = loader.parentLoader;
+        }
+    }
+
+    public interface LoaderFactory {
+        URLClassLoader createLoader(String classpath);
+    }
+
+    private final LoaderFactory factory;
+
+    /** live (not retired) loaders by classpath fingerprint */
+    private final Map<String, PooledLoader> loadersByFingerprint = new HashMap<String, PooledLoader>();
+
+    /** the loader each project currently references */
+    private final Map<String, PooledLoader> loadersByProject = new HashMap<String, PooledLoader>();
+
+    /** loaders that no project references any more; kept reachable until they are closed */
+    private final Set<OrphanedLoader> orphanedLoaders = new HashSet<OrphanedLoader>();
+
+    private final ReferenceQueue<GroovyClassLoader> unreachableLoaders = new ReferenceQueue<GroovyClassLoader>();
+
+    public GroovyClassLoaderPool(LoaderFactory factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Returns the loader for the given project and classpath, creating it if no project uses the same classpath yet. If the
+     * project referenced a loader for a different classpath before, that reference is dropped.
+     */
+    public synchronized GroovyClassLoader acquire(String projectName, String classpath) {
+        closeUnreachableLoaders();
+        String fingerprint = fingerprint(classpath);
+        PooledLoader current = loadersByProject.get(projectName);
+        if (current != null && !current.retired && current.fingerprint.equals(fingerprint)) {
+            return current.groovyClassLoader;
+        }
+
+        PooledLoader loader = loadersByFingerprint.get(fingerprint);
+        if (loader == null) {
+            if (GroovyLogManager.manager.hasLoggers()) {
+                GroovyLogManager.manager.log(TraceCategory.AST_TRANSFORM,
+                        "Classpath for GroovyClassLoader (used to discover transforms): " + classpath);
+            }
+            loader = new PooledLoader(fingerprint, factory.createLoader(classpath));
+            loadersByFingerprint.put(fingerprint, loader);
+        }
+        loader.referenceCount += 1;
+        loadersByProject.put(projectName, loader);
+
+        if (current != null) {
+            dereference(current);
+        }
+        return loader.groovyClassLoader;
+    }
+
+    /**
+     * Drops the project's reference to its loader and stops handing the loader out, so the next compile of this (or any
+     * other) project with the same classpath starts with a fresh loader. Used when the project is cleaned. The loader is
+     * not closed right away, as it may still be in use.
+     */
+    public synchronized void release(String projectName) {
+        closeUnreachableLoaders();
+        PooledLoader loader = loadersByProject.remove(projectName);
+        if (loader != null) {
+            retire(loader);
+            dereference(loader);
+        }
+    }
+
+    /**
+     * Drops the project's reference to its loader and closes the loader if no other project references it.
+     */
+    public synchronized void close(String projectName) {
+        closeUnreachableLoaders();
+        PooledLoader loader = loadersByProject.remove(projectName);
+        if (loader != null) {
+            loader.referenceCount -= 1;
+            if (loader.referenceCount <= 0) {
+                retire(loader);
+                close(loader.groovyClassLoader);
+                close(loader.parentLoader);
+            }
+        }
+    }
+
+    /**
+     * Stops handing out the project's loader (to this or any other project). Used to get rid of stale classes like trait
+     * helpers; the loader is orphaned, not closed.
+     */
+    public synchronized void invalidate(String projectName) {
+        closeUnreachableLoaders();
+        PooledLoader loader = loadersByProject.get(projectName);
+        if (loader != null) {
+            retire(loader);
+        }
+    }
+
+    /**
+     * Stops handing out any of the current loaders. Used when stale classes are seen in a compile that does not belong
+     * to a project.
+     */
+    public synchronized void invalidateAll() {
+        closeUnreachableLoaders();
+        for (PooledLoader loader : loadersByProject.values()) {
+            loader.retired = true;
+        }
+        loadersByFingerprint.clear();
+    }
+
+    private void retire(PooledLoader loader) {
+        if (!loader.retired) {
+            loader.retired = true;
+            loadersByFingerprint.remove(loader.fingerprint);
+        }
+    }
+
+    private void dereference(PooledLoader loader) {
+        loader.referenceCount -= 1;
+        if (loader.referenceCount <= 0) {
+            retire(loader);
+            orphanedLoaders.add(new OrphanedLoader(loader, unreachableLoaders));
+        }
+    }
+
+    /**
+     * Closes the parents (and with them the jar files) of the orphaned loaders that have been collected.
+     *
+     * @return the number of loaders closed
+     */
+    public synchronized int closeUnreachableLoaders() {
+        int count = 0;
+        Reference<? extends GroovyClassLoader> reference;
+        while ((reference = unreachableLoaders.poll()) != null) {
+            if (orphanedLoaders.remove(reference)) {
+                close(((OrphanedLoader) reference).parentLoader);
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of orphaned loaders that are still waiting to be closed
+     */
+    public synchronized int getOrphanCount() {
+        return orphanedLoaders.size();
+    }
+
+    /**
+     * Computes a key that is the same for classpaths with the same entries in the same order.
+     */
+    public static String fingerprint(String classpath) {
+        if (classpath == null) {
+            return "";
+        }
+        Set<String> entries = new LinkedHashSet<String>();
+        for (String entry : classpath.split(File.pathSeparator)) {
+            entry = entry.trim();
+            if (entry.length() > 0) {
+                entries.add(new File(entry).getAbsolutePath());
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String entry : entries) {
+            sb.append(entry).append(File.pathSeparatorChar);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Releases the resources (mainly open jar files) held by the given loader.
+     */
+    public static void close(ClassLoader loader) {
+        if (loader instanceof GroovyClassLoader) {
+            ((GroovyClassLoader) loader).clearCache();
+        }
+        try {
+            if (loader instanceof DestroyableClassLoader) {
+                ((DestroyableClassLoader) loader).destroy();
+            } else if (loader instanceof Closeable) {
+                // URLClassLoader is Closeable on Java 7 and later
+                ((Closeable) loader).close();
+            }
+        } catch (Exception e) {
+            if (GroovyLogManager.manager.hasLoggers()) {
+                GroovyLogManager.manager.log(TraceCategory.AST_TRANSFORM, "Failed to close class loader: " + e);
+            }
+        }
+    }
+}
@@ -201,7 +201,11 @@ public class GroovyCompilationUnitDeclaration extends CompilationUnitDeclaration
             for (ModuleNode module : groovyCompilationUnit.getAST().getModules()) {
                 for (ClassNode classNode : module.getClasses()) {
                     if (traitHelper.isTrait(classNode)) {
-                        GroovyParser.tidyCache();
+                        if (compilerOptions.groovyProjectName != null) {
+                            GroovyParser.tidyTransformLoader(compilerOptions.groovyProjectName);
+                        } else {
+                            GroovyParser.tidyCache();
+                        }
                         break;
                     }
                 }
@@ -447,19 +451,19 @@ public class GroovyCompilationUnitDeclaration extends CompilationUnitDeclaration
         // against the wrong type. That is the only case I have seen of it, so I'm not putting in the general mechanism for all
         // errors yet, I'm just dealing with RuntimeParserExceptions. The general strategy would be to compare the ModuleNode
         // for each message with the ModuleNode currently being processed - if they differ then this isn't a message for this
-        // unit and so we ignore it. If we do deal with it then we remember that we did (in errorsRecorded) and remove it from
-        // the list of those to process.
+        // unit and so we ignore it. If we do deal with it then we remove it from the list of those to process.
 
-        List<Message> errorsRecorded = new ArrayList<Message>();
+        if (errors.isEmpty()) {
+            return;
+        }
+        int[] lineSeparatorPositions = compilationResult.lineSeparatorPositions;
+        DefaultProblemFactory problemFactory = new DefaultProblemFactory();
         // FIXASC poor way to get the errors attached to the files
         // FIXASC does groovy ever produce warnings? How are they treated here?
         for (Iterator<?> iterator = errors.iterator(); iterator.hasNext();) {
             SyntaxException syntaxException = null;
             Message message = (Message) iterator.next();
-            StringWriter sw = new StringWriter();
-            message.write(new PrintWriter(sw));
-            String msg = sw.toString();
-            CategorizedProblem p = null;
+            String msg = null;
             int line = 0;
             int sev = 0;
             int scol = 0;
@@ -475,16 +479,8 @@ public class GroovyCompilationUnitDeclaration extends CompilationUnitDeclaration
                 }
             }
             if (message instanceof SimpleMessage) {
-                SimpleMessage simpleMessage = (SimpleMessage) message;
                 sev |= ProblemSeverities.Error;
-                String simpleText = simpleMessage.getMessage();
-                if (simpleText.length() > 1 && simpleText.charAt(0) == '\n') {
-                    simpleText = simpleText.substring(1);
-                }
-                msg = "Groovy:" + simpleText;
-                if (msg.indexOf("\n") != -1) {
-                    msg = msg.substring(0, msg.indexOf("\n"));
-                }
+                msg = toProblemMessage(((SimpleMessage) message).getMessage());
             }
             if (message instanceof SyntaxErrorMessage) {
                 SyntaxErrorMessage errorMessage = (SyntaxErrorMessage) message;
@@ -492,14 +488,7 @@ public class GroovyCompilationUnitDeclaration extends CompilationUnitDeclaration
                 sev |= ProblemSeverities.Error;
                 // FIXASC in the short term, prefixed groovy to indicate
                 // where it came from
-                String actualMessage = syntaxException.getMessage();
-                if (actualMessage.length() > 1 && actualMessage.charAt(0) == '\n') {
-                    actualMessage = actualMessage.substring(1);
-                }
-                msg = "Groovy:" + actualMessage;
-                if (msg.indexOf("\n") != -1) {
-                    msg = msg.substring(0, msg.indexOf("\n"));
-                }
+                msg = toProblemMessage(syntaxException.getMessage());
                 line = syntaxException.getLine();
                 scol = errorMessage.getCause().getStartColumn();
                 ecol = errorMessage.getCause().getEndColumn() - 1;
@@ -512,10 +501,7 @@ public class GroovyCompilationUnitDeclaration extends CompilationUnitDeclaration
                 if (em.getCause() instanceof RuntimeParserException) {
                     RuntimeParserException rpe = (RuntimeParserException) em.getCause();
                     sev |= ProblemSeverities.Error;
-                    msg = "Groovy:" + rpe.getMessage();
-                    if (msg.indexOf("\n") != -1) {
-                        msg = msg.substring(0, msg.indexOf("\n"));
-                    }
+                    msg = firstLine("Groovy:" + rpe.getMessage());
                     ModuleNode errorModuleNode = rpe.getModule();
                     ModuleNode thisModuleNode = this.getModuleNode();
                     if (!errorModuleNode.equals(thisModuleNode)) {
@@ -524,32 +510,20 @@ public class GroovyCompilationUnitDeclaration extends CompilationUnitDeclaration
                     soffset = rpe.getNode().getStart();
                     eoffset = rpe.getNode().getEnd() - 1;
                     // need to work out the line again as it may be wrong
-                    line = 0;
-                    while (compilationResult.lineSeparatorPositions[line] < soffset
-                            && line < compilationResult.lineSeparatorPositions.length) {
-                        line++;
-                    }
-
-                    line++; // from an array index to a real 'line number'
+                    line = getLineNumber(lineSeparatorPositions, soffset);
                 }
             }
             if (syntaxException instanceof PreciseSyntaxException) {
                 soffset = ((PreciseSyntaxException) syntaxException).getStartOffset();
                 eoffset = ((PreciseSyntaxException) syntaxException).getEndOffset();
                 // need to work out the line again as it may be wrong
-                line = 0;
-                while (line < compilationResult.lineSeparatorPositions.length
-                        && compilationResult.lineSeparatorPositions[line] < soffset) {
-                    line++;
-                }
-                ;
-                line++; // from an array index to a real 'line number'
+                line = getLineNumber(lineSeparatorPositions, soffset);
             } else {
                 if (soffset == -1) {
-                    soffset = getOffset(compilationResult.lineSeparatorPositions, line, scol);
+                    soffset = getOffset(lineSeparatorPositions, line, scol);
                 }
                 if (eoffset == -1) {
-                    eoffset = getOffset(compilationResult.lineSeparatorPositions, line, ecol);
+                    eoffset = getOffset(lineSeparatorPositions, line, ecol);
                 }
             }
             if (soffset > eoffset) {
@@ -559,13 +533,34 @@ public class GroovyCompilationUnitDeclaration extends CompilationUnitDeclaration
                 soffset = sourceEnd;
                 eoffset = sourceEnd;
             }
+            if (msg == null) {
+                // other kinds of message only provide their text by writing it out
+                StringWriter sw = new StringWriter();
+                message.write(new PrintWriter(sw));
+                msg = sw.toString();
+            }
 
-            p = new DefaultProblemFactory().createProblem(getFileName(), 0, new String[] {msg}, 0, new String[] {msg}, sev, soffset, eoffset, line, scol);
+            String[] arguments = new String[] {msg};
+            CategorizedProblem p = problemFactory.createProblem(getFileName(), 0, arguments, 0, arguments, sev, soffset, eoffset, line, scol);
             problemReporter.record(p, compilationResult, this, false);
-            errorsRecorded.add(message);
+            iterator.remove();
             log(String.valueOf(compilationResult.getFileName()) + ": " + line + " " + msg);
         }
-        errors.removeAll(errorsRecorded);
+    }
+
+    /**
+     * Prefixes the text of a groovy message for display as a problem and cuts it off after the first line.
+     */
+    private static String toProblemMessage(String text) {
+        if (text.length() > 1 && text.charAt(0) == '\n') {
+            text = text.substring(1);
+        }
+        return firstLine("Groovy:" + text);
+    }
+
+    private static String firstLine(String text) {
+        int newline = text.indexOf('\n');
+        return newline < 0 ? text : text.substring(0, newline);
     }
 
     private int getOffset(int[] lineSeparatorPositions, int line, int col) {
@@ -576,6 +571,22 @@ public class GroovyCompilationUnitDeclaration extends CompilationUnitDeclaration
         }
     }
 
+    /**
+     * @return the 1-based number of the line that contains the offset, found by binary search of the line separators
+     */
+    private static int getLineNumber(int[] lineSeparatorPositions, int offset) {
+        int lo = 0, hi = lineSeparatorPositions.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (lineSeparatorPositions[mid] < offset) {
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo + 1; // from the number of preceding separators to a real 'line number'
+    }
+
     //------------------------------------------------------------------------------------------------------------------
 
     @Override
@@ -627,59 +638,18 @@ public class GroovyCompilationUnitDeclaration extends CompilationUnitDeclaration
             return;
         }
         char[][] taskTags = this.compilerOptions.taskTags;
-        char[][] taskPriorities = this.compilerOptions.taskPriorities;
-        boolean caseSensitiveTags = this.compilerOptions.isTaskCaseSensitive;
+        if (taskTags == null || taskTags.length == 0) {
+            return;
+        }
         try {
-            if (taskTags != null) {
-                // For each comment find all task tags within it and cope with
-                for (Comment comment : comments) {
-                    List<TaskEntry> allTasksInComment = new ArrayList<TaskEntry>();
-                    for (int t = 0; t < taskTags.length; t++) {
-                        String taskTag = new String(taskTags[t]);
-                        String taskPriority = null;
-                        if (taskPriorities != null) {
-                            taskPriority = new String(taskPriorities[t]);
-                        }
-                        allTasksInComment.addAll(comment.getPositionsOf(taskTag, taskPriority,
-                                compilationResult.lineSeparatorPositions, caseSensitiveTags));
-                    }
-                    if (!allTasksInComment.isEmpty()) {
-                        // Need to check quickly for clashes
-                        for (int t1 = 0; t1 < allTasksInComment.size(); t1++) {
-                            for (int t2 = 0; t2 < allTasksInComment.size(); t2++) {
-                                if (t1 == t2)
-                                    continue;
-                                TaskEntry taskOne = allTasksInComment.get(t1);
-                                TaskEntry taskTwo = allTasksInComment.get(t2);
-                                if (DEBUG_TASK_TAGS) {
-                                    log("Comparing " + taskOne.toString() + " and " + taskTwo.toString());
-                                }
-                                if ((taskOne.start + taskOne.taskTag.length() + 1) == taskTwo.start) {
-                                    // Adjacent tags
-                                    taskOne.isAdjacentTo = taskTwo;
-                                } else {
-                                    if ((taskOne.getEnd() > taskTwo.start) && (taskOne.start < taskTwo.start)) {
-                                        taskOne.setEnd(taskTwo.start - 1);
-                                        if (DEBUG_TASK_TAGS) {
-                                            log("trim " + taskOne.toString() + " and " + taskTwo.toString());
-                                        }
-                                    } else if (taskTwo.getEnd() > taskOne.start && taskTwo.start < taskOne.start) {
-                                        taskTwo.setEnd(taskOne.start - 1);
-                                        if (DEBUG_TASK_TAGS) {
-                                            log("trim " + taskOne.toString() + " and " + taskTwo.toString());
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                        for (TaskEntry taskEntry : allTasksInComment) {
-                            this.problemReporter.referenceContext = this;
-                            if (DEBUG_TASK_TAGS) {
-                                log("Adding task " + taskEntry.toString());
-                            }
-                            problemReporter.task(taskEntry.taskTag, taskEntry.getText(), taskEntry.taskPriority, taskEntry.start, taskEntry.getEnd());
-                        }
+            TaskTagMatcher matcher = TaskTagMatcher.getInstance(taskTags, this.compilerOptions.taskPriorities, this.compilerOptions.isTaskCaseSensitive);
+            for (Comment comment : comments) {
+                for (TaskEntry taskEntry : matcher.findTasks(comment, compilationResult.lineSeparatorPositions)) {
+                    this.problemReporter.referenceContext = this;
+                    if (DEBUG_TASK_TAGS) {
+                        log("Adding task " + taskEntry.toString());
                     }
+                    problemReporter.task(taskEntry.taskTag, taskEntry.getText(), taskEntry.taskPriority, taskEntry.start, taskEntry.getEnd());
                 }
             }
         } catch (AbortCompilation ac) {
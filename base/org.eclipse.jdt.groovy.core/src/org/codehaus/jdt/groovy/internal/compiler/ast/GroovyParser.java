@@ -25,7 +25,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.jar.JarFile;
 
 import groovy.lang.GroovyClassLoader;
 
@@ -39,8 +38,6 @@ import org.codehaus.groovy.control.ErrorCollector;
 import org.codehaus.groovy.control.Phases;
 import org.codehaus.groovy.control.SourceUnit;
 import org.codehaus.groovy.control.customizers.CompilationCustomizer;
-import org.codehaus.groovy.eclipse.GroovyLogManager;
-import org.codehaus.groovy.eclipse.TraceCategory;
 import org.codehaus.jdt.groovy.control.EclipseSourceUnit;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.ResourcesPlugin;
@@ -85,77 +82,54 @@ public class GroovyParser {
     }
 
     /*
-     * Each project is allowed a GroovyClassLoader that will be used to load transform definitions and supporting classes. A cache
-     * is maintained from project names to the current classpath and associated loader. If the classpath matches the cached version
-     * on a call to build a parser then it is reused. If it does not match then a new loader is created and stored (storing it
-     * orphans the previously cached one). When either a full build or a clean or project close occurs, we also discard the loader
-     * instances associated with the project.
+     * Each project is allowed a GroovyClassLoader that will be used to load transform definitions and supporting classes. The
+     * loaders are pooled by classpath fingerprint, so projects with the same transform classpath share a loader. If the
+     * classpath of a project changes, it references a new loader and the old one is orphaned (it may still be in use by
+     * parsers or cached modules) and closed once it is unreachable. When either a full build or a clean occurs, we also
+     * evict the loader associated with the project, so the next compile does not pick up stale transform classes; when
+     * the project is closed, its loader is closed unless another project shares it.
      */
 
-    private static Map<String, PathLoaderPair> projectToLoaderCache = new ConcurrentHashMap<String, PathLoaderPair>();
-    private static Map<String, ScriptFolderSelector> scriptFolderSelectorCache = new ConcurrentHashMap<String, ScriptFolderSelector>();
-
-    static class PathLoaderPair {
-        String classpath;
-        GroovyClassLoader groovyClassLoader;
-
-        PathLoaderPair(String classpath) {
-            this.classpath = classpath;
-            this.groovyClassLoader = new GroovyClassLoader(createConfigureLoader(classpath));
+    private static final GroovyClassLoaderPool loaderPool = new GroovyClassLoaderPool(new GroovyClassLoaderPool.LoaderFactory() {
+        public URLClassLoader createLoader(String classpath) {
+            return createConfigureLoader(classpath);
         }
-    }
+    });
+    private static Map<String, ScriptFolderSelector> scriptFolderSelectorCache = new ConcurrentHashMap<String, ScriptFolderSelector>();
 
     /**
-     * Close the jar files that have been kept open by the URLClassLoader
+     * Close the jar files that have been kept open by the loader
      */
     public static void close(GroovyClassLoader groovyClassLoader) {
-        try {
-            Class<?> clazz = java.net.URLClassLoader.class;
-            Field field_urlClasspath = clazz.getDeclaredField("ucp");
-            field_urlClasspath.setAccessible(true);
-            Object urlClasspath = field_urlClasspath.get(groovyClassLoader);
-            Field field_loaders = urlClasspath.getClass().getDeclaredField("loaders");
-            field_loaders.setAccessible(true);
-            Object[] jarLoaders = ((java.util.Collection<?>) field_loaders.get(urlClasspath)).toArray();
-            for (Object jarLoader : jarLoaders) {
-                try {
-                    Field field_jarFile = jarLoader.getClass().getDeclaredField("jar");
-                    field_jarFile.setAccessible(true);
-                    JarFile jarFile = (JarFile) field_jarFile.get(jarLoader);
-                    String jarFileName = jarFile.getName();
-                    if (jarFileName.indexOf("cache") != -1 || jarFileName.indexOf("plugins") != -1) {
-                        jarFile.close();
-                    }
-                } catch (Throwable t) {
-                    // Probably not a JarLoader
-                }
-            }
-        } catch (Throwable t) {
-            // Not the kind of VM we thought it was...
-        }
+        GroovyClassLoaderPool.close(groovyClassLoader);
     }
 
     /**
      * Remove all cached classloaders for this project
      */
     public static void tidyCache(String projectName) {
-        // This will orphan the loader on the heap
-        projectToLoaderCache.remove(projectName);
+        loaderPool.release(projectName);
         scriptFolderSelectorCache.remove(projectName);
+        ModuleNodeCache.clear(projectName);
     }
 
     public static void closeClassLoader(String projectName) {
-        PathLoaderPair pathLoaderPair = projectToLoaderCache.get(projectName);
-        if (pathLoaderPair != null) {
-            close(pathLoaderPair.groovyClassLoader);
-        }
+        loaderPool.close(projectName);
     }
 
     /**
      * Clears cached class loaders for all caches. It helps to fix problems with cached trait helper classes.
      */
     static void tidyCache() {
-        projectToLoaderCache.clear();
+        loaderPool.invalidateAll();
+    }
+
+    /**
+     * Discards the class loader used by the project so that its next compile starts afresh. It helps to fix problems with
+     * cached trait helper classes.
+     */
+    static void tidyTransformLoader(String projectName) {
+        loaderPool.invalidate(projectName);
     }
 
     private GroovyClassLoader gclForBatch = null;
@@ -202,24 +176,7 @@ public class GroovyParser {
             if (projectName == null) {
                 // throw new IllegalStateException("Cannot build without knowing project name");
             } else {
-                PathLoaderPair pathAndLoader = projectToLoaderCache.get(projectName);
-                if (pathAndLoader == null) {
-                    if (GroovyLogManager.manager.hasLoggers()) {
-                        GroovyLogManager.manager.log(TraceCategory.AST_TRANSFORM,
-                                "Classpath for GroovyClassLoader (used to discover transforms): " + path);
-                    }
-                    pathAndLoader = new PathLoaderPair(path);
-                    projectToLoaderCache.put(projectName, pathAndLoader);
-                } else {
-                    if (!path.equals(pathAndLoader.classpath)) {
-                        // classpath change detected
-                        // System.out.println("Classpath change detected for " + projectName);
-                        pathAndLoader = new PathLoaderPair(path);
-                        projectToLoaderCache.put(projectName, pathAndLoader);
-                    }
-                }
-                // System.out.println("Using loader with path " + pathAndLoader.classpath);
-                gcl = pathAndLoader.groovyClassLoader;
+                gcl = loaderPool.acquire(projectName, path);
             }
         }
         return gcl;
@@ -267,6 +224,7 @@ public class GroovyParser {
             new GrapeAwareGroovyClassLoader(gcl), gcl,
             this.compilationUnit.isReconcile,
             this.compilationUnit.allowTransforms);
+        endToParse();
     }
 
     static class GrapeAwareGroovyClassLoader extends GroovyClassLoader {
@@ -353,41 +311,21 @@ public class GroovyParser {
      * Call the groovy parser to drive the first few phases of
      */
     public CompilationUnitDeclaration dietParse(ICompilationUnit sourceUnit, CompilationResult compilationResult) {
-        char[] sourceCode = sourceUnit.getContents();
-        if (sourceCode == null) {
-            sourceCode = CharOperation.NO_CHAR; // pretend empty from thereon
-        }
-
-        ErrorCollector errorCollector = new GroovyErrorCollectorForJDT(compilationUnit.getConfiguration());
-        String filepath = null;
-
-        // This check is necessary because the filename is short (as in the last part, eg. Foo.groovy) for types coming in
-        // from the hierarchy resolver. If there is the same type in two different packages then the compilation process
-        // is going to go wrong because the filename is used as a key in some groovy data structures. This can lead to false
-        // complaints about the same file defining duplicate types.
-        char[] fileName = sourceUnit.getFileName();
-        if (sourceUnit instanceof org.eclipse.jdt.internal.compiler.batch.CompilationUnit) {
-            filepath = new String(((org.eclipse.jdt.internal.compiler.batch.CompilationUnit) sourceUnit).fileName);
+        char[] sourceCode;
+        SourceUnit groovySourceUnit;
+        ParallelSourceParser.ParsedUnit parsedUnit = parallelSourceParser != null ? parallelSourceParser.take(sourceUnit) : null;
+        if (parsedUnit != null) {
+            sourceCode = parsedUnit.contents;
+            groovySourceUnit = parsedUnit.sourceUnit;
         } else {
-            filepath = new String(fileName);
-        }
-
-        // Try to turn this into a 'real' absolute file system reference (this is because Grails 1.5 expects it).
-        Path path = new Path(filepath);
-        IFile eclipseFile = null;
-        // GRECLIPSE-1269 ensure get plugin is not null to ensure the workspace is open (ie- not in batch mode)
-        if (ResourcesPlugin.getPlugin() != null && path.segmentCount() >= 2) { // Needs 2 segments: a project and file name or
-            // eclipse throws assertion failed here.
-            eclipseFile = ResourcesPlugin.getWorkspace().getRoot().getFile(new Path(filepath));
-            final IPath location = eclipseFile.getLocation();
-            if (location != null) {
-                filepath = location.toFile().getAbsolutePath();
+            sourceCode = sourceUnit.getContents();
+            if (sourceCode == null) {
+                sourceCode = CharOperation.NO_CHAR; // pretend empty from thereon
             }
+            groovySourceUnit = createSourceUnit(sourceUnit, sourceCode, compilationUnit, resolver);
         }
+        IFile eclipseFile = ((EclipseSourceUnit) groovySourceUnit).getEclipseFile();
 
-        SourceUnit groovySourceUnit = new EclipseSourceUnit(eclipseFile, filepath, new String(sourceCode),
-                compilationUnit.getConfiguration(), compilationUnit.getClassLoader(), errorCollector, this.resolver);
-        groovySourceUnit.isReconcile = compilationUnit.isReconcile;
         GroovyCompilationUnitDeclaration gcuDeclaration = new GroovyCompilationUnitDeclaration(problemReporter, compilationResult,
                 sourceCode.length, compilationUnit, groovySourceUnit, compilerOptions);
         // FIXASC get this from the Antlr parser
@@ -434,6 +372,74 @@ public class GroovyParser {
         return gcuDeclaration;
     }
 
+    /**
+     * Creates the groovy source unit for a unit of the given compilation unit. Only reads from its arguments, so it may be
+     * called on a worker thread with the compilation unit and resolver of the parser at the start of a batch.
+     */
+    private static SourceUnit createSourceUnit(ICompilationUnit sourceUnit, char[] sourceCode, CompilationUnit compilationUnit, JDTResolver resolver) {
+        ErrorCollector errorCollector = new GroovyErrorCollectorForJDT(compilationUnit.getConfiguration());
+        String filepath = null;
+
+        // This check is necessary because the filename is short (as in the last part, eg. Foo.groovy) for types coming in
+        // from the hierarchy resolver. If there is the same type in two different packages then the compilation process
+        // is going to go wrong because the filename is used as a key in some groovy data structures. This can lead to false
+        // complaints about the same file defining duplicate types.
+        char[] fileName = sourceUnit.getFileName();
+        if (sourceUnit instanceof org.eclipse.jdt.internal.compiler.batch.CompilationUnit) {
+            filepath = new String(((org.eclipse.jdt.internal.compiler.batch.CompilationUnit) sourceUnit).fileName);
+        } else {
+            filepath = new String(fileName);
+        }
+
+        // Try to turn this into a 'real' absolute file system reference (this is because Grails 1.5 expects it).
+        Path path = new Path(filepath);
+        IFile eclipseFile = null;
+        // GRECLIPSE-1269 ensure get plugin is not null to ensure the workspace is open (ie- not in batch mode)
+        if (ResourcesPlugin.getPlugin() != null && path.segmentCount() >= 2) { // Needs 2 segments: a project and file name or
+            // eclipse throws assertion failed here.
+            eclipseFile = ResourcesPlugin.getWorkspace().getRoot().getFile(new Path(filepath));
+            final IPath location = eclipseFile.getLocation();
+            if (location != null) {
+                filepath = location.toFile().getAbsolutePath();
+            }
+        }
+
+        SourceUnit groovySourceUnit = new EclipseSourceUnit(eclipseFile, filepath, new String(sourceCode),
+                compilationUnit.getConfiguration(), compilationUnit.getClassLoader(), errorCollector, resolver);
+        groovySourceUnit.isReconcile = compilationUnit.isReconcile;
+        return groovySourceUnit;
+    }
+
+    private ParallelSourceParser parallelSourceParser;
+
+    /**
+     * Called by the compiler with the units it is about to parse. In batch compiles, the groovy units among them are parsed
+     * on worker threads if parallelism is enabled. The workers create their source units from the compilation unit and
+     * resolver as they are now, not from the fields of this parser.
+     */
+    public void beginToParse(ICompilationUnit[] sourceUnits, int maxUnits) {
+        endToParse();
+        if (projectName == null && ParallelSourceParser.isEnabled()) {
+            final CompilationUnit compilationUnit = this.compilationUnit;
+            final JDTResolver resolver = this.resolver;
+            parallelSourceParser = new ParallelSourceParser(sourceUnits, maxUnits, new ParallelSourceParser.SourceUnitFactory() {
+                public SourceUnit createSourceUnit(ICompilationUnit unit, char[] contents) {
+                    return GroovyParser.createSourceUnit(unit, contents, compilationUnit, resolver);
+                }
+            });
+        }
+    }
+
+    /**
+     * Stops parsing ahead and drops the units that were parsed but not taken.
+     */
+    public void endToParse() {
+        if (this.parallelSourceParser != null) {
+            this.parallelSourceParser.shutdown();
+            this.parallelSourceParser = null;
+        }
+    }
+
     /**
      * ProgressListener is called back when parsing of a file or generation of a classfile completes. By calling back to the build
      * notifier we ignore those long pauses where it look likes it has hung!
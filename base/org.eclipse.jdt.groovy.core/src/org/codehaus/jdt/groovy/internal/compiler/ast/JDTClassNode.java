@@ -16,9 +16,16 @@
 package org.codehaus.jdt.groovy.internal.compiler.ast;
 
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.codehaus.groovy.GroovyBugError;
 import org.codehaus.groovy.ast.AnnotationNode;
@@ -65,13 +72,15 @@ import org.eclipse.jdt.internal.compiler.lookup.ReferenceBinding;
 import org.eclipse.jdt.internal.compiler.lookup.SourceTypeBinding;
 import org.eclipse.jdt.internal.compiler.lookup.SyntheticMethodBinding;
 import org.eclipse.jdt.internal.compiler.lookup.TypeBinding;
+import org.eclipse.jdt.internal.compiler.lookup.TypeConstants;
 import org.eclipse.jdt.internal.compiler.lookup.TypeVariableBinding;
 
 /**
  * Groovy can use these to ask questions of JDT bindings. They are only built as
  * required (as groovy references to java files are resolved). They remain
  * uninitialized until groovy starts digging into them - at that time the details
- * are filled in (eg. members).
+ * are filled in (eg. members). Methods are filled in by name as they are asked
+ * for, and all together only when the complete list of methods is requested.
  */
 public class JDTClassNode extends ClassNode implements JDTNode {
 
@@ -88,10 +97,14 @@ public class JDTClassNode extends ClassNode implements JDTNode {
     // The resolver instance involved at the moment
     JDTResolver resolver;
 
-    // Configuration flags
-    private int bits = 0;
+    // Configuration flags; set while holding lazyInitLock
+    private volatile int bits = 0;
     private static final int ANNOTATIONS_INITIALIZED = 0x0001;
     private static final int PROPERTIES_INITIALIZED = 0x0002;
+    private static final int METHODS_INITIALIZED = 0x0004;
+
+    // Methods that were asked for by name before all methods were initialized; written while holding lazyInitLock
+    private final ConcurrentMap<String, List<MethodNode>> methodsByName = new ConcurrentHashMap<String, List<MethodNode>>(4, 0.75f, 1);
     private TypeDeclaration groovyDecl = null;
 
     static final ClassNode unboundWildcard; // represents plain old '?'
@@ -254,78 +267,177 @@ public class JDTClassNode extends ClassNode implements JDTNode {
             return;
         }
 
-        MethodBinding[] methodBindings;
+        if (jdtBinding instanceof SourceTypeBinding) {
+            ClassScope classScope = ((SourceTypeBinding) jdtBinding).scope;
+            // a null scope indicates it has already been 'cleaned up' so nothing to do (CUDeclaration.cleanUp())
+            if (classScope != null) {
+                CompilationUnitScope cuScope = classScope.compilationUnitScope();
+                LookupEnvironment environment = classScope.environment();
+                MethodVerifier verifier = environment.methodVerifier();
+                cuScope.verifyMethods(verifier);
+            }
+        }
+
+        // methods are initialized on demand; see getDeclaredMethods(String) and getMethods()
+        for (MethodBinding methodBinding : getMethodBindings(TypeConstants.INIT)) {
+            if (methodBinding.isConstructor()) {
+                ConstructorNode cNode = constructorBindingToConstructorNode(methodBinding);
+                addConstructor(cNode);
+            }
+        }
+
+        FieldBinding[] fieldBindings;
         if (jdtBinding instanceof ParameterizedTypeBinding) {
-            ReferenceBinding genericType = ((ParameterizedTypeBinding) jdtBinding).genericType();
-            methodBindings = genericType.methods();
+            fieldBindings = ((ParameterizedTypeBinding) jdtBinding).genericType().fields();
         } else {
-            methodBindings = jdtBinding.methods();
+            fieldBindings = jdtBinding.fields();
         }
-        if (methodBindings != null) {
-            for (MethodBinding methodBinding : methodBindings) {
-                if (methodBinding.isConstructor()) {
-                    ConstructorNode cNode = constructorBindingToConstructorNode(methodBinding);
-                    addConstructor(cNode);
-                } else {
-                    MethodNode mNode = methodBindingToMethodNode(methodBinding);
-                    addMethod(mNode);
-                }
+        if (fieldBindings != null) {
+            for (FieldBinding fieldBinding : fieldBindings) {
+                FieldNode fNode = fieldBindingToFieldNode(fieldBinding, groovyDecl);
+                addField(fNode);
             }
         }
+    }
+
+    /**
+     * @param selector the name of the methods, or <code>null</code> for all methods and constructors
+     * @return the bindings of the methods, including infrastructure and synthetic methods
+     */
+    private List<MethodBinding> getMethodBindings(char[] selector) {
+        List<MethodBinding> bindings = new ArrayList<MethodBinding>();
+        ReferenceBinding typeBinding = jdtBinding;
+        if (jdtBinding instanceof ParameterizedTypeBinding) {
+            typeBinding = ((ParameterizedTypeBinding) jdtBinding).genericType();
+        }
+        MethodBinding[] methodBindings = (selector == null ? typeBinding.methods() : typeBinding.getMethods(selector));
+        if (methodBindings != null) {
+            Collections.addAll(bindings, methodBindings);
+        }
 
         if (jdtBinding instanceof BinaryTypeBinding) {
-            MethodBinding[] infraBindings = ((BinaryTypeBinding) jdtBinding).infraMethods();
-            for (MethodBinding methodBinding : infraBindings) {
-                if (methodBinding.isConstructor()) {
-                    ConstructorNode cNode = constructorBindingToConstructorNode(methodBinding);
-                    addConstructor(cNode);
-                } else {
-                    MethodNode mNode = methodBindingToMethodNode(methodBinding);
-                    addMethod(mNode);
+            for (MethodBinding methodBinding : ((BinaryTypeBinding) jdtBinding).infraMethods()) {
+                if (selector == null || CharOperation.equals(selector, methodBinding.selector)) {
+                    bindings.add(methodBinding);
                 }
             }
         } else if (jdtBinding instanceof SourceTypeBinding) {
             SourceTypeBinding jdtSourceTypeBinding = (SourceTypeBinding) jdtBinding;
-            ClassScope classScope = jdtSourceTypeBinding.scope;
-            // a null scope indicates it has already been 'cleaned up' so nothing to do (CUDeclaration.cleanUp())
-            if (classScope != null) {
-                CompilationUnitScope cuScope = classScope.compilationUnitScope();
-                LookupEnvironment environment = classScope.environment();
-                MethodVerifier verifier = environment.methodVerifier();
-                cuScope.verifyMethods(verifier);
-            }
             if (jdtSourceTypeBinding.isPrototype()) {
                 // Synthetic bindings are created for features like covariance, where the method implementing an interface method uses a
                 // different return type (interface I { A foo(); } class C implements I { AA foo(); } - this needs a method 'A foo()' in C.
                 SyntheticMethodBinding[] syntheticMethodBindings = jdtSourceTypeBinding.syntheticMethods();
                 if (syntheticMethodBindings != null) {
                     for (SyntheticMethodBinding syntheticBinding : syntheticMethodBindings) {
-                        if (syntheticBinding.isConstructor()) {
-                            ConstructorNode cNode = constructorBindingToConstructorNode(syntheticBinding);
-                            addConstructor(cNode);
-                        } else {
-                            MethodNode mNode = methodBindingToMethodNode(syntheticBinding);
-                            addMethod(mNode);
+                        if (selector == null || CharOperation.equals(selector, syntheticBinding.selector)) {
+                            bindings.add(syntheticBinding);
                         }
                     }
                 }
             }
         }
+        return bindings;
+    }
 
-        FieldBinding[] fieldBindings;
-        if (jdtBinding instanceof ParameterizedTypeBinding) {
-            fieldBindings = ((ParameterizedTypeBinding) jdtBinding).genericType().fields();
-        } else {
-            fieldBindings = jdtBinding.fields();
+    /**
+     * Returns the methods with the given name, converting only the bindings with that selector until all methods have
+     * been initialized. Conversion happens under the lazy init lock; a result, once published, is read without locking.
+     */
+    @Override
+    public List<MethodNode> getDeclaredMethods(String name) {
+        if (redirect != null || (bits & METHODS_INITIALIZED) != 0) {
+            return super.getDeclaredMethods(name);
         }
-        if (fieldBindings != null) {
-            for (FieldBinding fieldBinding : fieldBindings) {
-                FieldNode fNode = fieldBindingToFieldNode(fieldBinding, groovyDecl);
-                addField(fNode);
+        List<MethodNode> methodNodes = methodsByName.get(name);
+        if (methodNodes == null) {
+            lazyClassInit();
+            synchronized (lazyInitLock) {
+                if ((bits & METHODS_INITIALIZED) != 0) {
+                    return super.getDeclaredMethods(name);
+                }
+                methodNodes = methodsByName.get(name);
+                if (methodNodes == null) {
+                    List<MethodNode> newNodes = new ArrayList<MethodNode>(2);
+                    for (MethodBinding methodBinding : getMethodBindings(name.toCharArray())) {
+                        if (!methodBinding.isConstructor()) {
+                            MethodNode mNode = methodBindingToMethodNode(methodBinding);
+                            mNode.setDeclaringClass(this);
+                            newNodes.add(mNode);
+                        }
+                    }
+                    methodNodes = newNodes.isEmpty() ? Collections.<MethodNode>emptyList() : Collections.unmodifiableList(newNodes);
+                    methodsByName.put(name, methodNodes);
+                }
+            }
+        }
+        if ((bits & METHODS_INITIALIZED) != 0) {
+            // all methods were initialized in the meantime; they reuse the nodes from above
+            return super.getDeclaredMethods(name);
+        }
+        return methodNodes;
+    }
+
+    @Override
+    public List<MethodNode> getMethods() {
+        if (redirect == null) {
+            ensureMethodsInitialized();
+        }
+        return super.getMethods();
+    }
+
+    @Override
+    public void addMethod(MethodNode node) {
+        if (redirect == null) {
+            ensureMethodsInitialized();
+        }
+        super.addMethod(node);
+    }
+
+    private void ensureMethodsInitialized() {
+        if ((bits & METHODS_INITIALIZED) == 0) {
+            lazyClassInit();
+            synchronized (lazyInitLock) {
+                if ((bits & METHODS_INITIALIZED) == 0) {
+                    initializeMethods();
+                    bits |= METHODS_INITIALIZED;
+                    methodsByName.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds all methods in binding order, reusing the nodes of methods that were asked for by name. Bindings of source
+     * types may be replaced in between, so nodes are matched by selector and descriptor when the binding is not the same.
+     */
+    private void initializeMethods() {
+        Map<MethodBinding, MethodNode> existing = new IdentityHashMap<MethodBinding, MethodNode>();
+        Map<String, MethodNode> existingByKey = new HashMap<String, MethodNode>();
+        for (List<MethodNode> methodNodes : methodsByName.values()) {
+            for (MethodNode methodNode : methodNodes) {
+                MethodBinding methodBinding = ((JDTMethodNode) methodNode).getMethodBinding();
+                existing.put(methodBinding, methodNode);
+                existingByKey.put(getMethodKey(methodBinding), methodNode);
+            }
+        }
+        for (MethodBinding methodBinding : getMethodBindings(null)) {
+            if (!methodBinding.isConstructor()) {
+                MethodNode mNode = existing.get(methodBinding);
+                if (mNode == null && !existingByKey.isEmpty()) {
+                    mNode = existingByKey.get(getMethodKey(methodBinding));
+                }
+                if (mNode == null) {
+                    mNode = methodBindingToMethodNode(methodBinding);
+                }
+                super.addMethod(mNode);
             }
         }
     }
 
+    private static String getMethodKey(MethodBinding methodBinding) {
+        return String.valueOf(CharOperation.concat(methodBinding.selector, methodBinding.signature()));
+    }
+
     @Override
     public boolean mightHaveInners() {
         return (jdtBinding.memberTypes().length != 0);
@@ -519,17 +631,21 @@ public class JDTClassNode extends ClassNode implements JDTNode {
         return super.getAnnotations(type);
     }
 
-    private synchronized void ensureAnnotationsInitialized() {
+    private void ensureAnnotationsInitialized() {
         if ((bits & ANNOTATIONS_INITIALIZED) == 0) {
-            if ((jdtBinding instanceof SourceTypeBinding)) {
-                // ensure resolved
-                ((SourceTypeBinding) jdtBinding).getAnnotationTagBits();
-            }
-            AnnotationBinding[] annotationBindings = jdtBinding.getAnnotations();
-            for (AnnotationBinding annotationBinding : annotationBindings) {
-                addAnnotation(new JDTAnnotationNode(annotationBinding, this.resolver));
+            synchronized (lazyInitLock) {
+                if ((bits & ANNOTATIONS_INITIALIZED) == 0) {
+                    if ((jdtBinding instanceof SourceTypeBinding)) {
+                        // ensure resolved
+                        ((SourceTypeBinding) jdtBinding).getAnnotationTagBits();
+                    }
+                    AnnotationBinding[] annotationBindings = jdtBinding.getAnnotations();
+                    for (AnnotationBinding annotationBinding : annotationBindings) {
+                        addAnnotation(new JDTAnnotationNode(annotationBinding, this.resolver));
+                    }
+                    bits |= ANNOTATIONS_INITIALIZED;
+                }
             }
-            bits |= ANNOTATIONS_INITIALIZED;
         }
     }
 
@@ -539,9 +655,12 @@ public class JDTClassNode extends ClassNode implements JDTNode {
         }
     }
 
-    protected synchronized void initializeProperties() {
-        if ((bits & PROPERTIES_INITIALIZED) == 0) {
-            lazyClassInit();
+    protected void initializeProperties() {
+        lazyClassInit();
+        synchronized (lazyInitLock) {
+            if ((bits & PROPERTIES_INITIALIZED) != 0) {
+                return;
+            }
             // getX methods
             // make it behave like groovy - no property nodes unless it is groovy source
             if (groovyDecl != null) {
@@ -111,12 +111,7 @@ public class JDTResolver extends ResolveVisitor {
         return null;
     }
     public static JDTClassNode getCachedNode(JDTResolver instance, String name) {
-        for (JDTClassNode nodeFromCache : instance.nodeCache.values()) {
-            if (name.equals(String.valueOf(nodeFromCache.jdtBinding.readableName()))) {
-                return nodeFromCache;
-            }
-        }
-        return null;
+        return instance.nodeCacheByName.get(name);
     }
 
     // Type references are resolved through the 'activeScope'. This ensures visibility rules are obeyed - just because a
@@ -132,6 +127,9 @@ public class JDTResolver extends ResolveVisitor {
     // Cache from bindings to JDTClassNodes to avoid unnecessary JDTClassNode creation
     private Map<TypeBinding, JDTClassNode> nodeCache = new IdentityHashMap<TypeBinding, JDTClassNode>();
 
+    // Index of nodeCache by readable name of the binding; kept in step with nodeCache
+    private Map<String, JDTClassNode> nodeCacheByName = new HashMap<String, JDTClassNode>();
+
     private Set<ClassNode> resolvedClassNodes = new HashSet<ClassNode>();
 
     public JDTResolver(CompilationUnit groovyCompilationUnit) {
@@ -466,12 +464,20 @@ public class JDTResolver extends ResolveVisitor {
             jdtNode.setupGenerics();
 
             assert nodeCache.get(jdtBinding) == null : "not unique";
-            nodeCache.put(jdtBinding, jdtNode);
+            cacheNode(jdtBinding, jdtNode);
             inProgress.remove(jdtBinding);
         }
         return classNode;
     }
 
+    private void cacheNode(TypeBinding jdtBinding, JDTClassNode jdtNode) {
+        nodeCache.put(jdtBinding, jdtNode);
+        String name = String.valueOf(jdtBinding.readableName());
+        if (!nodeCacheByName.containsKey(name)) {
+            nodeCacheByName.put(name, jdtNode);
+        }
+    }
+
     /**
      * Called when a resolvevisitor is commencing resolution for a type - allows us to setup the JDTResolver to point at the right
      * scope for resolutionification. If not able to find a scope, that is a serious problem!
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.jdt.groovy.internal.compiler.ast;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.eclipse.GroovyLogManager;
+import org.codehaus.groovy.eclipse.TraceCategory;
+import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
+import org.eclipse.jdt.internal.compiler.impl.CompilerOptions;
+
+/**
+ * Caches the results of structure-only (diet) parses of groovy files, keyed by file name and a digest of the file contents.
+ * The cached {@link GroovyCompilationUnitDeclaration}s (and their post-CONVERSION module nodes) are only ever handed back to
+ * the indexer, which just reads them. They must not be driven through any further phases, cleaned up or kept by the model,
+ * so declarations from parsers whose results reach the model (like the source element requestor) are never cached.
+ * <p>
+ * The cache is opt-in. Set system property <code>greclipse.moduleNodeCache</code> to the number of megabytes each project
+ * may use. Entries of a project are evicted least-recently-used first once the (estimated) budget is exceeded and are all
+ * discarded when the compiler level, project flags or the groovy class loader path of the project changes.
+ */
+public class ModuleNodeCache {
+
+    /**
+     * Estimated memory retained by every parsed unit regardless of its size: the groovy compilation unit with its
+     * configuration and phase operations, the source unit and the JDT compilation result.
+     */
+    private static final long BYTES_PER_UNIT = 16 * 1024;
+
+    /**
+     * Estimated memory retained per char of source text: two copies of the text (the JDT unit and the groovy reader source)
+     * and the module node built from it, whose expressions and statements grow with the text.
+     */
+    private static final long BYTES_PER_CHAR = 4 + 24;
+
+    /**
+     * Estimated memory retained per class and member: the groovy node and the JDT declaration built for it.
+     */
+    private static final long BYTES_PER_DECLARATION = 512;
+
+    // allow test cases to set the number of bytes each project may use
+    public static long budget = getBudget();
+
+    private static long getBudget() {
+        String value = System.getProperty("greclipse.moduleNodeCache");
+        if (value != null) {
+            try {
+                return Math.max(0, Long.parseLong(value.trim()) * 1024 * 1024);
+            } catch (NumberFormatException e) {
+                GroovyLogManager.manager.log(TraceCategory.COMPILER, "Invalid value for greclipse.moduleNodeCache: " + value);
+            }
+        }
+        return 0;
+    }
+
+    private static final ConcurrentHashMap<String, ProjectCache> projectCaches = new ConcurrentHashMap<String, ProjectCache>();
+
+    public static boolean isEnabled() {
+        return budget > 0;
+    }
+
+    /**
+     * @return the cached declaration for the given unit and options or <code>null</code> if there is none
+     */
+    public static GroovyCompilationUnitDeclaration get(ICompilationUnit unit, char[] contents, CompilerOptions options) {
+        if (!isEnabled() || options.groovyProjectName == null || contents == null) {
+            return null;
+        }
+        ProjectCache cache = projectCaches.get(options.groovyProjectName);
+        if (cache == null) {
+            return null;
+        }
+        GroovyCompilationUnitDeclaration result = cache.get(getConfiguration(options), getKey(unit, contents));
+        if (GroovyLogManager.manager.hasLoggers()) {
+            GroovyLogManager.manager.log(TraceCategory.COMPILER, "ModuleNodeCache " + (result != null ? "hit" : "miss") +
+                " for " + new String(unit.getFileName()) + " in " + options.groovyProjectName);
+        }
+        return result;
+    }
+
+    public static void put(ICompilationUnit unit, char[] contents, CompilerOptions options, GroovyCompilationUnitDeclaration declaration) {
+        if (!isEnabled() || options.groovyProjectName == null || contents == null ||
+                declaration == null || declaration.getModuleNode() == null) {
+            return;
+        }
+        ProjectCache cache = projectCaches.get(options.groovyProjectName);
+        if (cache == null) {
+            cache = new ProjectCache();
+            ProjectCache existing = projectCaches.putIfAbsent(options.groovyProjectName, cache);
+            if (existing != null) {
+                cache = existing;
+            }
+        }
+        cache.put(getConfiguration(options), getKey(unit, contents), declaration, estimateSize(declaration, contents));
+    }
+
+    /**
+     * Discards all cached parse results for the given project.
+     */
+    public static void clear(String projectName) {
+        if (projectName != null) {
+            projectCaches.remove(projectName);
+        }
+    }
+
+    //--------------------------------------------------------------------------
+
+    /**
+     * Captures the options that influence the result of a parse; a change to any of them invalidates the project's cache.
+     */
+    private static String getConfiguration(CompilerOptions options) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(options.complianceLevel).append(':');
+        sb.append(options.sourceLevel).append(':');
+        sb.append(options.groovyFlags).append(':');
+        sb.append(options.groovyClassLoaderPath);
+        return sb.toString();
+    }
+
+    private static long estimateSize(GroovyCompilationUnitDeclaration declaration, char[] contents) {
+        long declarations = 0;
+        for (ClassNode classNode : declaration.getModuleNode().getClasses()) {
+            declarations += 1 + classNode.getFields().size() + classNode.getMethods().size() + classNode.getDeclaredConstructors().size();
+        }
+        return BYTES_PER_UNIT + contents.length * BYTES_PER_CHAR + declarations * BYTES_PER_DECLARATION;
+    }
+
+    private static String getKey(ICompilationUnit unit, char[] contents) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(unit.getFileName()).append('#');
+        try {
+            // digest the UTF-16 code units; no charset needed
+            byte[] bytes = new byte[contents.length * 2];
+            for (int i = 0, j = 0; i < contents.length; i += 1) {
+                bytes[j++] = (byte) (contents[i] >> 8);
+                bytes[j++] = (byte) contents[i];
+            }
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(bytes);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+        } catch (NoSuchAlgorithmException e) {
+            // fall back to the full contents
+            sb.append(contents);
+        }
+        return sb.toString();
+    }
+
+    private static class ProjectCache {
+
+        private String configuration;
+        private long size;
+
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+
+        synchronized GroovyCompilationUnitDeclaration get(String configuration, String key) {
+            if (!configuration.equals(this.configuration)) {
+                return null;
+            }
+            Entry entry = entries.get(key);
+            return entry != null ? entry.declaration : null;
+        }
+
+        synchronized void put(String configuration, String key, GroovyCompilationUnitDeclaration declaration, long bytes) {
+            if (bytes > budget) {
+                return;
+            }
+            if (!configuration.equals(this.configuration)) {
+                entries.clear();
+                size = 0;
+                this.configuration = configuration;
+            }
+            Entry previous = entries.put(key, new Entry(declaration, bytes));
+            if (previous != null) {
+                size -= previous.bytes;
+            }
+            size += bytes;
+
+            for (Iterator<Entry> it = entries.values().iterator(); size > budget && it.hasNext();) {
+                size -= it.next().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    private static class Entry {
+        final GroovyCompilationUnitDeclaration declaration;
+        final long bytes;
+
+        Entry(GroovyCompilationUnitDeclaration declaration, long bytes) {
+            this.declaration = declaration;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.jdt.groovy.internal.compiler.ast;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.codehaus.groovy.control.SourceUnit;
+import org.eclipse.jdt.core.compiler.CharOperation;
+import org.eclipse.jdt.groovy.core.util.ContentTypeUtils;
+import org.eclipse.jdt.internal.compiler.env.ICompilationUnit;
+
+/**
+ * Runs the PARSING phase (antlr lexing and parsing into a CST) of the groovy units of a batch compile on a pool of worker
+ * threads, a bounded number of units ahead of the compiler. The compiler takes each pre-parsed {@link SourceUnit} from here
+ * and drives it from CONVERSION onwards exactly as it would have done otherwise; the phase operations that span units still
+ * run on the compiler's thread.
+ * <p>
+ * The later phases stay on the compiler's thread, as they are not safe to run for several units at once:
+ * <ul>
+ * <li>CONVERSION adds each module to the compile unit shared by all units, and a source unit cannot be converted ahead
+ * of the compiler's own conversion operation.</li>
+ * <li>SEMANTIC_ANALYSIS resolves types through the {@link JDTResolver}, which looks them up in the compiler's lookup
+ * environment and caches class nodes for all units; neither is thread-safe.</li>
+ * <li>CLASS_GENERATION runs once the JDT compiler has resolved and analysed all units; the verifier and the class
+ * generator change class nodes that the other units refer to (inner and outer classes, bridge methods, ...).</li>
+ * </ul>
+ * <p>
+ * Enabled by setting system property <code>greclipse.parallelism</code> to the number of worker threads (greater than 1).
+ */
+public class ParallelSourceParser {
+
+    // allow test cases to compare parallel and serial parses
+    public static int parallelism = Integer.getInteger("greclipse.parallelism", 1);
+
+    static boolean isEnabled() {
+        return parallelism > 1;
+    }
+
+    interface SourceUnitFactory {
+        SourceUnit createSourceUnit(ICompilationUnit unit, char[] contents);
+    }
+
+    static class ParsedUnit {
+        final char[] contents;
+        final SourceUnit sourceUnit;
+
+        ParsedUnit(char[] contents, SourceUnit sourceUnit) {
+            this.contents = contents;
+            this.sourceUnit = sourceUnit;
+        }
+    }
+
+    private final List<ICompilationUnit> units = new ArrayList<ICompilationUnit>();
+    private final Map<ICompilationUnit, Future<ParsedUnit>> pending = new IdentityHashMap<ICompilationUnit, Future<ParsedUnit>>();
+    private final SourceUnitFactory factory;
+    private final ExecutorService executor;
+    private final int window;
+    private int next;
+
+    ParallelSourceParser(ICompilationUnit[] compilationUnits, int length, SourceUnitFactory factory) {
+        for (int i = 0; i < length; i += 1) {
+            ICompilationUnit unit = compilationUnits[i];
+            if (unit != null && ContentTypeUtils.isGroovyLikeFileName(unit.getFileName())) {
+                units.add(unit);
+            }
+        }
+        int threads = parallelism;
+        this.factory = factory;
+        this.window = threads * 4; // bounds the number of CSTs held in memory
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Groovy Source Parser");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        submitAhead();
+    }
+
+    /**
+     * Returns the pre-parsed unit or <code>null</code> if the unit is not known here or could not be parsed in the background
+     * (the caller should then parse it itself, so that any failure is reported as usual).
+     */
+    synchronized ParsedUnit take(ICompilationUnit unit) {
+        Future<ParsedUnit> future = pending.remove(unit);
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (Exception e) {
+            return null;
+        } finally {
+            submitAhead();
+        }
+    }
+
+    synchronized void shutdown() {
+        for (Future<ParsedUnit> future : pending.values()) {
+            future.cancel(true);
+        }
+        pending.clear();
+        executor.shutdownNow();
+    }
+
+    private void submitAhead() {
+        while (pending.size() < window && next < units.size()) {
+            final ICompilationUnit unit = units.get(next);
+            units.set(next++, null); // no longer hold onto the unit
+            pending.put(unit, executor.submit(new Callable<ParsedUnit>() {
+                public ParsedUnit call() throws Exception {
+                    char[] contents = unit.getContents();
+                    if (contents == null) {
+                        contents = CharOperation.NO_CHAR;
+                    }
+                    SourceUnit sourceUnit = factory.createSourceUnit(unit, contents);
+                    sourceUnit.parse();
+                    if (sourceUnit.getErrorCollector().hasErrors()) {
+                        // let the compiler parse it again and report the problems in its usual way
+                        return null;
+                    }
+                    sourceUnit.completePhase();
+                    return new ParsedUnit(contents, sourceUnit);
+                }
+            }));
+        }
+        if (next >= units.size() && !executor.isShutdown()) {
+            // everything is submitted; let the workers finish what is queued and then terminate
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.jdt.groovy.internal.compiler.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.codehaus.groovy.ast.Comment;
+import org.codehaus.groovy.ast.TaskEntry;
+import org.eclipse.jdt.core.compiler.CharOperation;
+
+/**
+ * Finds the task tags (TODO, FIXME, ...) in comments. All of the configured tags are matched in a single pass over the
+ * comment text by an Aho-Corasick automaton, which is built once per task tag configuration. The tasks of a comment are
+ * returned in source order with adjacent tags linked and overlapping tasks trimmed, like {@link Comment#getPositionsOf}
+ * followed by a pairwise comparison of its results, but each task is trimmed by the nearest task that follows its tag.
+ */
+final class TaskTagMatcher {
+
+    private static volatile TaskTagMatcher last;
+
+    /**
+     * Returns the matcher for the given configuration, reusing the previous matcher if the configuration is unchanged.
+     */
+    static TaskTagMatcher getInstance(char[][] taskTags, char[][] taskPriorities, boolean caseSensitive) {
+        TaskTagMatcher matcher = last;
+        if (matcher == null || !matcher.matches(taskTags, taskPriorities, caseSensitive)) {
+            last = matcher = new TaskTagMatcher(taskTags, taskPriorities, caseSensitive);
+        }
+        return matcher;
+    }
+
+    //--------------------------------------------------------------------------
+
+    private final char[][] taskTags;
+    private final char[][] taskPriorities;
+    private final boolean caseSensitive;
+
+    private final String[] tags;
+    private final String[] priorities;
+
+    // automaton: per state, the sorted characters of its edges and their target states, the failure state and the tags that end in it
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] failure;
+    private final int[][] output;
+
+    private TaskTagMatcher(char[][] taskTags, char[][] taskPriorities, boolean caseSensitive) {
+        this.taskTags = taskTags;
+        this.taskPriorities = taskPriorities;
+        this.caseSensitive = caseSensitive;
+
+        int n = taskTags.length;
+        tags = new String[n];
+        priorities = new String[n];
+        for (int t = 0; t < n; t += 1) {
+            tags[t] = new String(taskTags[t]);
+            if (taskPriorities != null) {
+                priorities[t] = new String(taskPriorities[t]);
+            }
+        }
+
+        // build the trie
+        List<Map<Character, Integer>> trie = new ArrayList<Map<Character, Integer>>();
+        List<int[]> ends = new ArrayList<int[]>();
+        trie.add(new TreeMap<Character, Integer>());
+        ends.add(null);
+        for (int t = 0; t < n; t += 1) {
+            if (tags[t].length() == 0) {
+                continue;
+            }
+            int state = 0;
+            for (int i = 0, len = tags[t].length(); i < len; i += 1) {
+                Character c = Character.valueOf(fold(tags[t].charAt(i)));
+                Integer next = trie.get(state).get(c);
+                if (next == null) {
+                    next = trie.size();
+                    trie.get(state).put(c, next);
+                    trie.add(new TreeMap<Character, Integer>());
+                    ends.add(null);
+                }
+                state = next;
+            }
+            ends.set(state, append(ends.get(state), t));
+        }
+
+        int size = trie.size();
+        edgeChars = new char[size][];
+        edgeTargets = new int[size][];
+        for (int s = 0; s < size; s += 1) {
+            Map<Character, Integer> edges = trie.get(s);
+            edgeChars[s] = new char[edges.size()];
+            edgeTargets[s] = new int[edges.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> edge : edges.entrySet()) {
+                edgeChars[s][i] = edge.getKey().charValue();
+                edgeTargets[s][i] = edge.getValue().intValue();
+                i += 1;
+            }
+        }
+
+        // compute failure states and outputs breadth-first
+        failure = new int[size];
+        output = new int[size][];
+        output[0] = ends.get(0);
+        int[] queue = new int[size];
+        int head = 0, tail = 0;
+        for (int target : edgeTargets[0]) {
+            queue[tail++] = target;
+            output[target] = ends.get(target);
+        }
+        while (head < tail) {
+            int s = queue[head++];
+            for (int i = 0; i < edgeChars[s].length; i += 1) {
+                char c = edgeChars[s][i];
+                int target = edgeTargets[s][i];
+                int f = failure[s];
+                int next;
+                while ((next = transition(f, c)) < 0 && f != 0) {
+                    f = failure[f];
+                }
+                failure[target] = (next < 0 ? 0 : next);
+                output[target] = concat(ends.get(target), output[failure[target]]);
+                queue[tail++] = target;
+            }
+        }
+    }
+
+    private boolean matches(char[][] taskTags, char[][] taskPriorities, boolean caseSensitive) {
+        return this.caseSensitive == caseSensitive && CharOperation.equals(this.taskTags, taskTags) &&
+            CharOperation.equals(this.taskPriorities, taskPriorities);
+    }
+
+    /**
+     * Finds the tasks in a comment.
+     *
+     * @param lineSeparatorPositions positions of the line separators of the source that contains the comment
+     * @return the tasks, sorted by start offset
+     */
+    List<TaskEntry> findTasks(Comment comment, int[] lineSeparatorPositions) {
+        String text = comment.toString();
+        List<TaskEntry> tasks = null;
+        int[] nextStart = null; // per tag, where the next occurrence may start; each tag is matched without overlapping itself
+
+        int state = 0;
+        for (int i = 0, len = text.length(); i < len; i += 1) {
+            char c = fold(text.charAt(i));
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = failure[state];
+            }
+            state = (next < 0 ? 0 : next);
+
+            if (output[state] != null) {
+                for (int t : output[state]) {
+                    int index = i - tags[t].length() + 1;
+                    if (nextStart == null) {
+                        nextStart = new int[tags.length];
+                    } else if (index < nextStart[t]) {
+                        continue;
+                    }
+                    nextStart[t] = i + 1;
+                    if (isValidStartLocationForTask(text, index, tags[t])) {
+                        if (tasks == null) {
+                            tasks = new ArrayList<TaskEntry>(4);
+                        }
+                        tasks.add(newTaskEntry(comment, text, index, t, lineSeparatorPositions));
+                    }
+                }
+            }
+        }
+        if (tasks == null) {
+            return Collections.emptyList();
+        }
+        if (tasks.size() > 1) {
+            resolveClashes(tasks);
+        }
+        return tasks;
+    }
+
+    private TaskEntry newTaskEntry(Comment comment, String text, int index, int t, int[] lineseps) {
+        int offsetToLineStart = (comment.sline == 1 ? 0 : lineseps[comment.sline - 2] + 1);
+        int offsetToCommentStart = offsetToLineStart + comment.scol - 1;
+        int taskStart = offsetToCommentStart + index;
+        int taskEnd;
+        if (!text.startsWith("/*")) {
+            // single-line comment: the task extends to the end of the comment
+            taskEnd = offsetToLineStart + comment.ecol - 2;
+        } else {
+            // multi-line comment: the task extends to the end of its line or the end of the comment text
+            int end = index;
+            for (int len = text.length(); end < len - 1; end += 1) {
+                char ch = text.charAt(end);
+                if (ch == '\n' || ch == '\r') {
+                    break;
+                }
+            }
+            if (end == text.length() - 1) {
+                end -= 1; // before the closing '*/'
+            }
+            taskEnd = offsetToCommentStart + end - 1;
+        }
+        return new TaskEntry(taskStart, taskEnd, tags[t], priorities[t], text, offsetToCommentStart);
+    }
+
+    /**
+     * Links each task to a task that starts right after its tag (so they share the message) and trims any other task to
+     * end before the start of the next task. Tasks that start within the tag of a task do not shorten it.
+     */
+    private static void resolveClashes(List<TaskEntry> tasks) {
+        Collections.sort(tasks, new Comparator<TaskEntry>() {
+            public int compare(TaskEntry one, TaskEntry two) {
+                return one.start - two.start;
+            }
+        });
+        for (int i = 0, n = tasks.size(); i < n; i += 1) {
+            TaskEntry task = tasks.get(i);
+            int tagEnd = task.start + task.taskTag.length();
+            int next = i + 1;
+            while (next < n && tasks.get(next).start < tagEnd) {
+                next += 1;
+            }
+            if (next == n) {
+                continue;
+            }
+            for (int j = next; j < n && tasks.get(j).start <= tagEnd + 1; j += 1) {
+                if (tasks.get(j).start == tagEnd + 1) {
+                    task.isAdjacentTo = tasks.get(j);
+                }
+            }
+            if (task.isAdjacentTo == null && task.getEnd() > tasks.get(next).start) {
+                task.setEnd(tasks.get(next).start - 1);
+            }
+        }
+    }
+
+    private static boolean isValidStartLocationForTask(String text, int index, String tag) {
+        if (index > 0 && text.charAt(index - 1) == '@') {
+            return false;
+        }
+        // ensure tag is not led by a letter if tag starts with a letter
+        if (index > 0 && Character.isJavaIdentifierStart(text.charAt(index)) && Character.isJavaIdentifierPart(text.charAt(index - 1))) {
+            return false;
+        }
+        // ensure tag is not followed by a letter if tag finishes with a letter
+        int end = index + tag.length();
+        if (end < text.length() && Character.isJavaIdentifierStart(text.charAt(end - 1)) && Character.isJavaIdentifierPart(text.charAt(end))) {
+            return false;
+        }
+        return true;
+    }
+
+    private int transition(int state, char c) {
+        int i = Arrays.binarySearch(edgeChars[state], c);
+        return (i < 0 ? -1 : edgeTargets[state][i]);
+    }
+
+    private char fold(char c) {
+        return caseSensitive ? c : Character.toLowerCase(c);
+    }
+
+    private static int[] append(int[] array, int value) {
+        if (array == null) {
+            return new int[] {value};
+        }
+        int[] result = new int[array.length + 1];
+        System.arraycopy(array, 0, result, 0, array.length);
+        result[array.length] = value;
+        return result;
+    }
+
+    private static int[] concat(int[] one, int[] two) {
+        if (one == null) {
+            return two;
+        }
+        if (two == null) {
+            return one;
+        }
+        int[] result = new int[one.length + two.length];
+        System.arraycopy(one, 0, result, 0, one.length);
+        System.arraycopy(two, 0, result, one.length, two.length);
+        return result;
+    }
+}
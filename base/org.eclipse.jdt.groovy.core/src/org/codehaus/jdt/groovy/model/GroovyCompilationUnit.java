@@ -119,26 +119,28 @@ public class GroovyCompilationUnit extends CompilationUnit {
             if (!isConsistent()) {
                 makeConsistent(null);
             }
+            // lookups do not lock, so that units can be parsed and looked up in parallel;
+            // discard the working copy after finishing if there was no working copy to begin with
             boolean becameWorkingCopy = false;
-            ModuleNodeMapper.getInstance().lock();
-            // discard the working copy after finishing
-            // if there was no working copy to begin with
             try {
-                becameWorkingCopy = (force && !isWorkingCopy());
-                if (becameWorkingCopy) {
+                JavaModelManager.PerWorkingCopyInfo info = getPerWorkingCopyInfo();
+                if (info == null && force) {
                     becomeWorkingCopy(null);
+                    becameWorkingCopy = true;
+                    info = getPerWorkingCopyInfo();
                 }
-                JavaModelManager.PerWorkingCopyInfo info = getPerWorkingCopyInfo();
                 if (info != null) {
-                    return ModuleNodeMapper.getInstance().get(info);
+                    ModuleNodeInfo moduleInfo = ModuleNodeMapper.getInstance().get(info);
+                    if (ModuleNodeMapper.getInstance().wasEvicted(info)) {
+                        // module node or resolver was dropped to keep the cache within its limits; rebuild them
+                        openWhenClosed(createElementInfo(), false, new NullProgressMonitor());
+                        moduleInfo = ModuleNodeMapper.getInstance().get(info);
+                    }
+                    return moduleInfo;
                 }
             } finally {
-                try {
-                    if (becameWorkingCopy) {
-                        discardWorkingCopy();
-                    }
-                } finally {
-                    ModuleNodeMapper.getInstance().unlock();
+                if (becameWorkingCopy) {
+                    discardWorkingCopy();
                 }
             }
         } catch (JavaModelException e) {
@@ -167,20 +169,21 @@ public class GroovyCompilationUnit extends CompilationUnit {
         ModuleNodeMapper.getInstance().lock();
         try {
             JavaModelManager.PerWorkingCopyInfo info = getPerWorkingCopyInfo();
-            if (workingCopyInfoWillBeDiscarded(info)) {
+            super.discardWorkingCopy();
+            // if another thread became a working copy of this unit in the meantime, the info is still in use
+            if (workingCopyInfoWasDiscarded(info)) {
                 ModuleNodeMapper.getInstance().remove(info);
             }
-            super.discardWorkingCopy();
         } finally {
             ModuleNodeMapper.getInstance().unlock();
         }
     }
 
     /**
-     * working copy info is about to be discared if useCount <= 1
+     * working copy info has been discarded if useCount <= 0
      */
-    private boolean workingCopyInfoWillBeDiscarded(JavaModelManager.PerWorkingCopyInfo info) {
-        return info != null && ((Integer) ReflectionUtils.getPrivateField(JavaModelManager.PerWorkingCopyInfo.class, "useCount", info)).intValue() <= 1;
+    private boolean workingCopyInfoWasDiscarded(JavaModelManager.PerWorkingCopyInfo info) {
+        return info != null && ((Integer) ReflectionUtils.getPrivateField(JavaModelManager.PerWorkingCopyInfo.class, "useCount", info)).intValue() <= 0;
     }
 
     /**
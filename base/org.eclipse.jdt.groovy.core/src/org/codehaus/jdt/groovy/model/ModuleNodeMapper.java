@@ -15,10 +15,12 @@
  */
 package org.codehaus.jdt.groovy.model;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.codehaus.groovy.ast.ModuleNode;
@@ -42,7 +44,10 @@ import org.eclipse.jdt.internal.core.util.Util;
 /**
  * Stores module nodes for groovy compilation units This class is not meant to be accessed externally.
  * <p>
- * One module node is stored per working copy of a unit.
+ * One module node is stored per working copy of a unit. Lookups do not lock; stale entries (working copies that have been
+ * discarded) are purged in the background after every {@link #PURGE_INTERVAL} updates. The number of retained module nodes
+ * and resolvers can be capped with the system properties <code>greclipse.moduleNodeMapper.maxModules</code> and
+ * <code>greclipse.moduleNodeMapper.maxResolvers</code>; least recently used entries are evicted first.
  *
  * @author Andrew Eisenberg
  * @created Jun 11, 2009
@@ -60,6 +65,8 @@ public class ModuleNodeMapper {
         public CompilationResult result;
         public final JDTResolver resolver;
 
+        volatile long lastAccess;
+
         public final boolean isEmpty() {
             if (module == null || module.getClasses() == null || (module.getClasses().isEmpty() && module.getImports().isEmpty())) {
                 return true;
@@ -91,18 +98,48 @@ public class ModuleNodeMapper {
         return INSTANCE;
     }
 
+    private static final int PURGE_INTERVAL = 32;
+
+    // allow test cases to lower the caps
+    public static int maxModules = Integer.getInteger("greclipse.moduleNodeMapper.maxModules", Integer.MAX_VALUE);
+
+    public static int maxResolvers = Integer.getInteger("greclipse.moduleNodeMapper.maxResolvers", Integer.MAX_VALUE);
+
+    /**
+     * Serializes discarding of working copies (see GRECLIPSE-804); not needed for accessing the map and never held during a parse.
+     */
     private final ReentrantLock lock = new ReentrantLock(true);
 
-    private final Map<PerWorkingCopyInfo, ModuleNodeInfo> infoToModuleMap = new HashMap<PerWorkingCopyInfo, ModuleNodeInfo>();
+    private final ConcurrentHashMap<PerWorkingCopyInfo, ModuleNodeInfo> infoToModuleMap = new ConcurrentHashMap<PerWorkingCopyInfo, ModuleNodeInfo>();
 
-    void store(PerWorkingCopyInfo key, ModuleNodeInfo val) {
-        lock.lock();
-        try {
+    /** Working copies whose module node or resolver was evicted to honor the caps; their next lookup should rebuild them. */
+    private final Map<PerWorkingCopyInfo, Boolean> evicted = new ConcurrentHashMap<PerWorkingCopyInfo, Boolean>();
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicInteger updatesSincePurge = new AtomicInteger();
+    private final AtomicBoolean purgeScheduled = new AtomicBoolean();
+
+    private final Job purgeJob = new Job("Purge module node cache") {
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            purgeScheduled.set(false);
             sweepAndPurgeModuleNodes();
-            infoToModuleMap.put(key, val);
-        } finally {
-            lock.unlock();
+            return Status.OK_STATUS;
         }
+    };
+    {
+        purgeJob.setSystem(true);
+    }
+
+    void store(PerWorkingCopyInfo key, ModuleNodeInfo val) {
+        val.lastAccess = clock.incrementAndGet();
+        infoToModuleMap.put(key, val);
+        evicted.remove(key);
+        maybeSchedulePurge();
     }
 
     private final static boolean DSL_BUNDLE_INSTALLED;
@@ -121,44 +158,38 @@ public class ModuleNodeMapper {
     }
 
     ModuleNode getModule(PerWorkingCopyInfo info) {
-        lock.lock();
-        try {
-            ModuleNodeInfo moduleNodeInfo = get(info);
-            return moduleNodeInfo != null ? moduleNodeInfo.module : null;
-        } finally {
-            lock.unlock();
-        }
+        ModuleNodeInfo moduleNodeInfo = get(info);
+        return moduleNodeInfo != null ? moduleNodeInfo.module : null;
     }
 
     ModuleNodeInfo get(PerWorkingCopyInfo info) {
-        lock.lock();
-        try {
-            sweepAndPurgeModuleNodes();
-            return infoToModuleMap.get(info);
-        } finally {
-            lock.unlock();
+        ModuleNodeInfo moduleNodeInfo = infoToModuleMap.get(info);
+        if (moduleNodeInfo != null) {
+            moduleNodeInfo.lastAccess = clock.incrementAndGet();
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
         }
+        return moduleNodeInfo;
     }
 
     JDTResolver getResolver(PerWorkingCopyInfo info) {
-        lock.lock();
-        try {
-            ModuleNodeInfo moduleNodeInfo = get(info);
-            return moduleNodeInfo != null ? moduleNodeInfo.resolver : null;
-        } finally {
-            lock.unlock();
-        }
+        ModuleNodeInfo moduleNodeInfo = get(info);
+        return moduleNodeInfo != null ? moduleNodeInfo.resolver : null;
     }
 
     ModuleNode remove(PerWorkingCopyInfo info) {
-        lock.lock();
-        try {
-            sweepAndPurgeModuleNodes();
-            ModuleNodeInfo removed = infoToModuleMap.remove(info);
-            return removed != null ? removed.module : null;
-        } finally {
-            lock.unlock();
-        }
+        evicted.remove(info);
+        ModuleNodeInfo removed = infoToModuleMap.remove(info);
+        maybeSchedulePurge();
+        return removed != null ? removed.module : null;
+    }
+
+    /**
+     * @return <code>true</code> if the module node or resolver of the given working copy was dropped to stay within the configured caps
+     */
+    boolean wasEvicted(PerWorkingCopyInfo info) {
+        return evicted.containsKey(info);
     }
 
     /**
@@ -168,34 +199,24 @@ public class ModuleNodeMapper {
         final JavaModelManager.PerWorkingCopyInfo perWorkingCopyInfo,
         final GroovyCompilationUnitDeclaration compilationUnitDeclaration) {
 
-        if (lock.tryLock()) {
-            try {
-                if (perWorkingCopyInfo != null && compilationUnitDeclaration != null) {
-                    ModuleNode module = compilationUnitDeclaration.getModuleNode();
-                    if (module != null) {
-                        JDTResolver resolver = null;
-                        if (shouldStoreResovler()) {
-                            resolver = (JDTResolver) compilationUnitDeclaration.getCompilationUnit().getResolveVisitor();
-                        }
-
-                        ModuleNodeInfo info = new ModuleNodeInfo(module, resolver);
-                        info.result = compilationUnitDeclaration.compilationResult();
-
-                        store(perWorkingCopyInfo, info);
-                    }
+        if (perWorkingCopyInfo != null && compilationUnitDeclaration != null) {
+            ModuleNode module = compilationUnitDeclaration.getModuleNode();
+            if (module != null) {
+                JDTResolver resolver = null;
+                if (shouldStoreResovler()) {
+                    resolver = (JDTResolver) compilationUnitDeclaration.getCompilationUnit().getResolveVisitor();
                 }
-            } finally {
-                lock.unlock();
-            }
-        } else {
-            // lock grabbed by someone else. rerun this operation later
-            new Job("Cache module node") {
-                @Override
-                protected IStatus run(IProgressMonitor monitor) {
-                    maybeCacheModuleNode(perWorkingCopyInfo, compilationUnitDeclaration);
-                    return Status.OK_STATUS;
+
+                ModuleNodeInfo info = new ModuleNodeInfo(module, resolver);
+                info.result = compilationUnitDeclaration.compilationResult();
+
+                store(perWorkingCopyInfo, info);
+
+                // the working copy may have been discarded concurrently
+                if (getUseCount(perWorkingCopyInfo) <= 0) {
+                    infoToModuleMap.remove(perWorkingCopyInfo);
                 }
-            }.schedule();
+            }
         }
     }
 
@@ -207,36 +228,99 @@ public class ModuleNodeMapper {
         return INSTANCE.infoToModuleMap.size();
     }
 
+    public static long getHitCount() {
+        return INSTANCE.hits.get();
+    }
+
+    public static long getMissCount() {
+        return INSTANCE.misses.get();
+    }
+
+    public static long getEvictionCount() {
+        return INSTANCE.evictions.get();
+    }
+
+    /**
+     * Purges stale entries and enforces the caps now rather than in the background.
+     */
+    public static void purge() {
+        INSTANCE.sweepAndPurgeModuleNodes();
+    }
+
+    private void maybeSchedulePurge() {
+        if ((updatesSincePurge.incrementAndGet() >= PURGE_INTERVAL || infoToModuleMap.size() > maxModules) &&
+                purgeScheduled.compareAndSet(false, true)) {
+            updatesSincePurge.set(0);
+            purgeJob.schedule();
+        }
+    }
+
+    private static int getUseCount(PerWorkingCopyInfo info) {
+        return ((Integer) ReflectionUtils.getPrivateField(PerWorkingCopyInfo.class, "useCount", info)).intValue();
+    }
+
     // GRECLIPSE-804 check to see that the stored nodes are correct
     // provide info to stdout if not and purge any stale elements
     void sweepAndPurgeModuleNodes() {
-        lock.lock();
-        try {
-            if (System.getProperty("groovy.eclipse.model.purge") == null) {
-                return;
-            }
+        boolean verbose = (System.getProperty("groovy.eclipse.model.purge") != null);
 
-            List<PerWorkingCopyInfo> toPurge = new ArrayList<PerWorkingCopyInfo>();
-            for (PerWorkingCopyInfo info : infoToModuleMap.keySet()) {
-                int useCount = ((Integer) ReflectionUtils.getPrivateField(PerWorkingCopyInfo.class, "useCount", info)).intValue();
-                if (useCount <= 0) {
+        int resolverCount = 0;
+        for (Map.Entry<PerWorkingCopyInfo, ModuleNodeInfo> entry : infoToModuleMap.entrySet()) {
+            PerWorkingCopyInfo info = entry.getKey();
+            int useCount = getUseCount(info);
+            if (useCount <= 0) {
+                if (verbose) {
                     String message = "Bad module node map entry: " + info.getWorkingCopy().getElementName();
                     System.out.println(message);
                     Util.log(new RuntimeException(message), message);
-                    toPurge.add(info);
-                } else if (useCount > 1) {
+                }
+                infoToModuleMap.remove(info);
+            } else {
+                if (useCount > 1 && verbose) {
                     System.out.println(info.getWorkingCopy().getElementName() + " : useCount : " + useCount);
                 }
+                if (entry.getValue().resolver != null) {
+                    resolverCount += 1;
+                }
             }
+        }
 
-            if (toPurge.size() > 0) {
-                for (PerWorkingCopyInfo info : toPurge) {
-                    infoToModuleMap.remove(info);
-                }
+        // drop resolvers (each pins its node cache) and then whole module nodes, least recently used first
+        while (resolverCount > maxResolvers) {
+            Map.Entry<PerWorkingCopyInfo, ModuleNodeInfo> lru = findLeastRecentlyUsed(true);
+            if (lru == null) {
+                break;
+            }
+            ModuleNodeInfo withoutResolver = new ModuleNodeInfo(lru.getValue().module, null);
+            withoutResolver.result = lru.getValue().result;
+            withoutResolver.lastAccess = lru.getValue().lastAccess;
+            if (infoToModuleMap.replace(lru.getKey(), lru.getValue(), withoutResolver)) {
+                evicted.put(lru.getKey(), Boolean.TRUE);
+                evictions.incrementAndGet();
+            }
+            resolverCount -= 1;
+        }
+        while (infoToModuleMap.size() > maxModules) {
+            Map.Entry<PerWorkingCopyInfo, ModuleNodeInfo> lru = findLeastRecentlyUsed(false);
+            if (lru == null) {
+                break;
+            }
+            if (infoToModuleMap.remove(lru.getKey()) != null) {
+                evicted.put(lru.getKey(), Boolean.TRUE);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private Map.Entry<PerWorkingCopyInfo, ModuleNodeInfo> findLeastRecentlyUsed(boolean withResolver) {
+        Map.Entry<PerWorkingCopyInfo, ModuleNodeInfo> lru = null;
+        for (Map.Entry<PerWorkingCopyInfo, ModuleNodeInfo> entry : infoToModuleMap.entrySet()) {
+            if ((!withResolver || entry.getValue().resolver != null) &&
+                    (lru == null || entry.getValue().lastAccess < lru.getValue().lastAccess)) {
+                lru = entry;
             }
-        } finally {
-            lock.unlock();
         }
+        return lru;
     }
 
     public void lock() {
@@ -17,6 +17,9 @@ package org.eclipse.jdt.groovy.core.util;
 
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 import groovyjarjarantlr.Token;
 import groovyjarjarantlr.TokenStream;
@@ -34,7 +37,7 @@ import org.eclipse.jface.text.IDocument;
 public class GroovyScanner {
 
     private TokenStream stream;
-    private GroovyLexer lexer;
+    private StatefulLexer lexer;
     private boolean whiteSpaceIncluded;
 
     public GroovyScanner(Reader input) {
@@ -47,7 +50,7 @@ public class GroovyScanner {
 
     private void init(Reader input, boolean whiteSpaceIncluded) {
         this.whiteSpaceIncluded = whiteSpaceIncluded;
-        lexer = new GroovyLexer(input);
+        lexer = new StatefulLexer(input);
         lexer.setWhitespaceIncluded(whiteSpaceIncluded);
         this.stream = lexer.plumb();
         /*
@@ -60,10 +63,46 @@ public class GroovyScanner {
         this(new StringReader(text), false);
     }
 
+    /**
+     * Creates a scanner that continues scanning a document at the given position, in a state that was taken from another
+     * scanner at that position by {@link #getState()}. The text from the position onwards may have changed since then.
+     *
+     * @param offset document offset of the position
+     * @param line antlr style line number of the position
+     * @param col antlr style col number of the position
+     */
+    public GroovyScanner(IDocument document, int offset, int line, int col, State state) throws BadLocationException {
+        init(new StringReader(document.get(offset, document.getLength() - offset)), state.whiteSpaceIncluded);
+        lexer.setLine(line);
+        lexer.setColumn(col);
+        lexer.setState(state);
+    }
+
     public Token nextToken() throws TokenStreamException {
         return stream.nextToken();
     }
 
+    /**
+     * @return antlr style line number of the position after the last scanned token
+     */
+    public int getLine() {
+        return lexer.getInputState().getLine();
+    }
+
+    /**
+     * @return antlr style col number of the position after the last scanned token
+     */
+    public int getColumn() {
+        return lexer.getInputState().getColumn();
+    }
+
+    /**
+     * @return the state of the lexer after the last scanned token; only valid between tokens
+     */
+    public State getState() {
+        return lexer.getState(whiteSpaceIncluded);
+    }
+
     /**
      * Attempt to recover after a scanning error. We will recreate the Antlr lexer one character past the place where we got an
      * error and try to continue scanning from there.
@@ -95,4 +134,71 @@ public class GroovyScanner {
         return document.getLineOffset(line - 1) + col - 1;
     }
 
+    /**
+     * The part of the lexer's state that is carried from one token to the next: nesting of parentheses and string
+     * constructors and the last significant token (which decides between division and regular expressions). Two
+     * scanners in equal states produce the same tokens from the same text.
+     */
+    public static final class State {
+        private final int parenLevel;
+        private final int suppressNewline;
+        private final int stringCtorState;
+        private final int lastSigTokenType;
+        private final List<Object> parenLevelStack;
+        private final boolean whiteSpaceIncluded;
+
+        State(int parenLevel, int suppressNewline, int stringCtorState, int lastSigTokenType, List<Object> parenLevelStack, boolean whiteSpaceIncluded) {
+            this.parenLevel = parenLevel;
+            this.suppressNewline = suppressNewline;
+            this.stringCtorState = stringCtorState;
+            this.lastSigTokenType = lastSigTokenType;
+            this.parenLevelStack = parenLevelStack;
+            this.whiteSpaceIncluded = whiteSpaceIncluded;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof State)) {
+                return false;
+            }
+            State that = (State) obj;
+            return parenLevel == that.parenLevel && suppressNewline == that.suppressNewline &&
+                stringCtorState == that.stringCtorState && lastSigTokenType == that.lastSigTokenType &&
+                whiteSpaceIncluded == that.whiteSpaceIncluded && parenLevelStack.equals(that.parenLevelStack);
+        }
+
+        @Override
+        public int hashCode() {
+            return ((parenLevel * 31 + stringCtorState) * 31 + lastSigTokenType) * 31 + parenLevelStack.size();
+        }
+    }
+
+    /**
+     * Gives access to the lexer's state between tokens.
+     */
+    private static class StatefulLexer extends GroovyLexer {
+        StatefulLexer(Reader input) {
+            super(input);
+        }
+
+        @SuppressWarnings("unchecked")
+        State getState(boolean whiteSpaceIncluded) {
+            List<Object> stack = parenLevelStack.isEmpty() ? Collections.<Object>emptyList() : new ArrayList<Object>(parenLevelStack);
+            return new State(parenLevel, suppressNewline, stringCtorState, lastSigTokenType, stack, whiteSpaceIncluded);
+        }
+
+        @SuppressWarnings("unchecked")
+        void setState(State state) {
+            parenLevel = state.parenLevel;
+            suppressNewline = state.suppressNewline;
+            stringCtorState = state.stringCtorState;
+            lastSigTokenType = state.lastSigTokenType;
+            parenLevelStack.clear();
+            parenLevelStack.addAll(state.parenLevelStack);
+        }
+    }
+
 }
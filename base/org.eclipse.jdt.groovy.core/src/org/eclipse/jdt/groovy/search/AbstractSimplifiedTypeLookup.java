@@ -92,6 +92,15 @@ public abstract class AbstractSimplifiedTypeLookup implements ITypeLookupExtensi
         return currentExpression;
     }
 
+    /**
+     * Forgets the expression of the last lookup, so that a lookup that is kept
+     * for later visits does not hold on to the module of a previous one.
+     */
+    protected void clearCurrentExpression() {
+        isStatic = false;
+        currentExpression = null;
+    }
+
     /**
      * @return true iff the current expression being inferred is a quoted string
      */
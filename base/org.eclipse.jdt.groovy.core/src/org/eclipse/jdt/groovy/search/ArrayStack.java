@@ -0,0 +1,52 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.groovy.search;
+
+import java.util.ArrayList;
+import java.util.NoSuchElementException;
+
+/**
+ * Array-backed stack with the {@link java.util.LinkedList} methods that the inferencing visitor uses for its stacks.
+ * Unlike a linked list, pushing an element does not allocate a node, and the backing array is reused as the stack
+ * grows and shrinks during a visit.
+ */
+@SuppressWarnings("serial")
+final class ArrayStack<E> extends ArrayList<E> {
+
+    ArrayStack() {
+        super(16);
+    }
+
+    public void addLast(E element) {
+        add(element);
+    }
+
+    public E getLast() {
+        int n = size();
+        if (n == 0) {
+            throw new NoSuchElementException();
+        }
+        return get(n - 1);
+    }
+
+    public E removeLast() {
+        int n = size();
+        if (n == 0) {
+            throw new NoSuchElementException();
+        }
+        return remove(n - 1);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.groovy.search;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jdt.core.search.SearchMatch;
+import org.eclipse.jdt.core.search.SearchRequestor;
+
+/**
+ * Collects the matches of a search that runs on a worker thread, so that they can be passed on to the actual
+ * requestor later, on the thread that started the search and in a predictable order.
+ */
+public class BufferingSearchRequestor extends SearchRequestor {
+
+    /**
+     * @return the requestor that receives the matches in the end
+     */
+    public static SearchRequestor unwrap(SearchRequestor requestor) {
+        while (requestor instanceof BufferingSearchRequestor) {
+            requestor = ((BufferingSearchRequestor) requestor).delegate;
+        }
+        return requestor;
+    }
+
+    private final SearchRequestor delegate;
+    private final List<SearchMatch> matches = new ArrayList<SearchMatch>();
+
+    public BufferingSearchRequestor(SearchRequestor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized void acceptSearchMatch(SearchMatch match) {
+        matches.add(match);
+    }
+
+    /**
+     * Passes the collected matches on to the delegate requestor.
+     */
+    public synchronized void replay() throws CoreException {
+        for (SearchMatch match : matches) {
+            delegate.acceptSearchMatch(match);
+        }
+        matches.clear();
+    }
+}
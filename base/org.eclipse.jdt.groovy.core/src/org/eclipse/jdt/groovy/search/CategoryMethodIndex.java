@@ -0,0 +1,219 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.groovy.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.eclipse.jdt.groovy.core.util.GroovyUtils;
+
+/**
+ * Immutable index of the methods of {@link VariableScope#ALL_DEFAULT_CATEGORIES} (DefaultGroovyMethods and friends).
+ * These are the same for every project that uses this Groovy runtime, so the index is built once, on first use, and
+ * shared by all type lookups and content assist requests.
+ * <p>
+ * Lookup entries are the static methods with a self parameter that each category declares, indexed by name and, for
+ * getters and setters, by the capitalized property name. Completion entries are the public static methods with a self
+ * parameter of each category and its super types, indexed by the erased type of the self parameter. All lists preserve
+ * the order of the categories and, within a category, of its methods.
+ */
+public class CategoryMethodIndex {
+
+    private static class Holder {
+        static final CategoryMethodIndex INSTANCE = new CategoryMethodIndex(VariableScope.ALL_DEFAULT_CATEGORIES);
+    }
+
+    public static CategoryMethodIndex getDefault() {
+        return Holder.INSTANCE;
+    }
+
+    //--------------------------------------------------------------------------
+
+    private final List<ClassNode> categories;
+    private final Set<ClassNode> categorySet;
+
+    // lookup entries
+    private final Map<String, List<MethodNode>> methodsByName = new HashMap<String, List<MethodNode>>();
+    private final Map<String, List<MethodNode>> gettersByProperty = new HashMap<String, List<MethodNode>>();
+    private final Map<String, List<MethodNode>> settersByProperty = new HashMap<String, List<MethodNode>>();
+    private final Map<MethodNode, Integer> categoryIndex = new HashMap<MethodNode, Integer>();
+
+    // completion entries
+    private final List<MethodNode> completionMethods = new ArrayList<MethodNode>();
+    private final Map<String, List<MethodNode>> completionMethodsBySelfType = new HashMap<String, List<MethodNode>>();
+    private final List<MethodNode> completionMethodsForAnySelfType = new ArrayList<MethodNode>();
+    private final List<MethodNode> completionAccessors = new ArrayList<MethodNode>();
+    private final Map<MethodNode, Integer> completionOrder = new HashMap<MethodNode, Integer>();
+    private final Map<MethodNode, ClassNode> completionCategory = new HashMap<MethodNode, ClassNode>();
+
+    private CategoryMethodIndex(Iterable<ClassNode> categories) {
+        this.categories = new ArrayList<ClassNode>();
+        for (ClassNode category : categories) {
+            int index = this.categories.size();
+            this.categories.add(category);
+
+            for (MethodNode method : category.getMethods()) {
+                if (!isCategoryMethod(method)) {
+                    continue;
+                }
+                categoryIndex.put(method, index);
+                add(methodsByName, method.getName(), method);
+                AccessorSupport kind = AccessorSupport.findAccessorKind(method, true);
+                if (kind == AccessorSupport.GETTER) {
+                    add(gettersByProperty, method.getName().substring(3), method);
+                } else if (kind == AccessorSupport.SETTER) {
+                    add(settersByProperty, method.getName().substring(3), method);
+                }
+            }
+
+            for (MethodNode method : category.getAllDeclaredMethods()) {
+                if (!isCategoryMethod(method) || !method.isPublic() || completionOrder.containsKey(method)) {
+                    continue;
+                }
+                completionCategory.put(method, category);
+                completionOrder.put(method, completionMethods.size());
+                completionMethods.add(method);
+                if (method.getParameters().length == 1 && AccessorSupport.create(method.getName(), true).isAccessor()) {
+                    completionAccessors.add(method);
+                }
+                ClassNode selfType = method.getParameters()[0].getType();
+                if (selfType.isGenericsPlaceHolder()) {
+                    completionMethodsForAnySelfType.add(method);
+                } else {
+                    add(completionMethodsBySelfType, GroovyUtils.getWrapperTypeIfPrimitive(selfType).getName(), method);
+                }
+            }
+        }
+        this.categorySet = new HashSet<ClassNode>(this.categories);
+    }
+
+    private static boolean isCategoryMethod(MethodNode method) {
+        Parameter[] parameters = method.getParameters();
+        return method.isStatic() && parameters != null && parameters.length > 0;
+    }
+
+    private static void add(Map<String, List<MethodNode>> map, String key, MethodNode method) {
+        List<MethodNode> methods = map.get(key);
+        if (methods == null) {
+            methods = new ArrayList<MethodNode>(2);
+            map.put(key, methods);
+        }
+        methods.add(method);
+    }
+
+    //--------------------------------------------------------------------------
+
+    public boolean isDefaultCategory(ClassNode category) {
+        return categorySet.contains(category);
+    }
+
+    /**
+     * Returns the methods that may be referenced by the given name (directly or as a property) in the order that
+     * {@link CategoryTypeLookup} considers them: by category and within each category the methods of that name followed by
+     * its getters and setters. Compatibility with the self type is not checked.
+     */
+    public List<MethodNode> getCandidates(String name) {
+        List<MethodNode> methods = methodsByName.get(name);
+        List<MethodNode> getters = null, setters = null;
+        // see AccessorSupport.createAccessorName
+        if (name.length() > 0 && !name.startsWith("get") && !name.startsWith("set")) {
+            String property = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            getters = gettersByProperty.get(property);
+            setters = settersByProperty.get(property);
+        }
+        if (getters == null && setters == null) {
+            return methods != null ? Collections.unmodifiableList(methods) : Collections.<MethodNode>emptyList();
+        }
+
+        List<MethodNode> candidates = new ArrayList<MethodNode>();
+        int m = 0, g = 0, s = 0;
+        for (int c = 0, n = categories.size(); c < n; c += 1) {
+            m = addFromCategory(candidates, methods, m, c);
+            g = addFromCategory(candidates, getters, g, c);
+            s = addFromCategory(candidates, setters, s, c);
+        }
+        return candidates;
+    }
+
+    private int addFromCategory(List<MethodNode> candidates, List<MethodNode> methods, int i, int category) {
+        if (methods != null) {
+            while (i < methods.size() && categoryIndex.get(methods.get(i)) == category) {
+                candidates.add(methods.get(i));
+                i += 1;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * @return all public static methods with a self parameter of the default categories and their super types
+     */
+    public List<MethodNode> getCompletionMethods() {
+        return Collections.unmodifiableList(completionMethods);
+    }
+
+    /**
+     * @return the category through which the completion method was found; the method may be declared by a super type
+     */
+    public ClassNode getCategory(MethodNode completionMethod) {
+        return completionCategory.get(completionMethod);
+    }
+
+    /**
+     * @return the completion methods that take only a self parameter and are named like a getter or setter
+     */
+    public List<MethodNode> getCompletionAccessors() {
+        return Collections.unmodifiableList(completionAccessors);
+    }
+
+    /**
+     * Returns the completion methods whose self parameter may accept the given type, in the order of
+     * {@link #getCompletionMethods()}; a superset of the methods for which {@link GroovyUtils#isAssignable(ClassNode, ClassNode)}
+     * holds for the type and the self parameter type. Returns all completion methods for array types.
+     */
+    public List<MethodNode> getCompletionMethods(ClassNode selfType) {
+        if (selfType.isArray()) {
+            return getCompletionMethods();
+        }
+        LinkedHashSet<ClassNode> hierarchy = new LinkedHashSet<ClassNode>();
+        VariableScope.createTypeHierarchy(GroovyUtils.getWrapperTypeIfPrimitive(selfType), hierarchy, false);
+        hierarchy.add(VariableScope.OBJECT_CLASS_NODE);
+
+        TreeMap<Integer, MethodNode> ordered = new TreeMap<Integer, MethodNode>();
+        for (ClassNode type : hierarchy) {
+            List<MethodNode> methods = completionMethodsBySelfType.get(type.getName());
+            if (methods != null) {
+                for (MethodNode method : methods) {
+                    ordered.put(completionOrder.get(method), method);
+                }
+            }
+        }
+        for (MethodNode method : completionMethodsForAnySelfType) {
+            ordered.put(completionOrder.get(method), method);
+        }
+        return new ArrayList<MethodNode>(ordered.values());
+    }
+}
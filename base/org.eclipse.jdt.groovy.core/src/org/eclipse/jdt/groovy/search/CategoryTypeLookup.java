@@ -51,7 +51,18 @@ public class CategoryTypeLookup implements ITypeLookup {
             //
             List<MethodNode> candidates = new ArrayList<MethodNode>();
 
+            // default categories come first and are the same everywhere
+            CategoryMethodIndex index = CategoryMethodIndex.getDefault();
+            for (MethodNode method : index.getCandidates(simpleName)) {
+                if (isCompatibleCategoryMethod(method, normalizedType)) {
+                    candidates.add(method);
+                }
+            }
+
             for (ClassNode category : scope.getCategoryNames()) {
+                if (index.isDefaultCategory(category)) {
+                    continue;
+                }
                 for (MethodNode method : category.getMethods(simpleName)) {
                     if (isCompatibleCategoryMethod(method, normalizedType)) {
                         candidates.add(method);
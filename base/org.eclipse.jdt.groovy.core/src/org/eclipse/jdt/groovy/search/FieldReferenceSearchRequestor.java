@@ -188,6 +188,6 @@ public class FieldReferenceSearchRequestor implements ITypeRequestor {
      * in the refactoring wizard of "possible matches".
      */
     private boolean shouldAlwaysBeAccurate() {
-        return requestor.getClass().getPackage().getName().indexOf("refactoring") != -1;
+        return BufferingSearchRequestor.unwrap(requestor).getClass().getPackage().getName().indexOf("refactoring") != -1;
     }
 }
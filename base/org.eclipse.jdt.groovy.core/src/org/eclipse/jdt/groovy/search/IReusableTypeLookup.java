@@ -0,0 +1,31 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.groovy.search;
+
+/**
+ * A type lookup whose instances may be used for one inferencing visit after
+ * another. {@link ITypeLookup#initialize initialize} prepares an instance for
+ * a visit and {@link #reset()} is called once the visit is done, after which
+ * the instance is kept for a later visitor of any project.
+ */
+public interface IReusableTypeLookup extends ITypeLookup {
+
+    /**
+     * Drops everything that the lookup holds on to for the last visit, such as
+     * the module node, compilation unit or resolver.
+     */
+    void reset();
+}
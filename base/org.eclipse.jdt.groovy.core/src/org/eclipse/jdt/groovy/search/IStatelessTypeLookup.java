@@ -0,0 +1,24 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.groovy.search;
+
+/**
+ * Marks a type lookup that keeps no state at all, not even what it is given by
+ * {@link ITypeLookup#initialize initialize}. A single instance of such a lookup
+ * is shared by all inferencing visitors, which may use it from several threads.
+ */
+public interface IStatelessTypeLookup extends ITypeLookup {
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.groovy.search;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.groovy.ast.AnnotatedNode;
+import org.codehaus.groovy.ast.ClassNode;
+import org.codehaus.groovy.ast.FieldNode;
+import org.codehaus.groovy.ast.GenericsType;
+import org.codehaus.groovy.ast.MethodNode;
+import org.codehaus.groovy.ast.ModuleNode;
+import org.codehaus.groovy.ast.Parameter;
+import org.codehaus.groovy.ast.PropertyNode;
+import org.codehaus.groovy.ast.expr.Expression;
+import org.codehaus.groovy.control.SourceUnit;
+import org.codehaus.jdt.groovy.internal.compiler.ast.JDTNode;
+import org.codehaus.jdt.groovy.model.GroovyCompilationUnit;
+import org.eclipse.jdt.core.ElementChangedEvent;
+import org.eclipse.jdt.core.IElementChangedListener;
+import org.eclipse.jdt.core.JavaCore;
+
+/**
+ * Type lookup results of the previous full inferencing visit of a compilation unit, kept per field and method, so that
+ * after a reconcile only the members that were edited (and the members that depend on them) go through the type lookups
+ * again. All other members are still visited, so requestors see the nodes and scopes of the new module, but the results
+ * of their expressions are taken from here.
+ * <p>
+ * A member is reused if its source text is unchanged. Everything is looked up again if anything outside of the method
+ * bodies and field initializers changed (imports, type headers, member signatures, ...), the type lookups may have
+ * changed (see {@link InferenceResults#invalidateAll()}) or anything in the Java model changed since the previous visit
+ * began. If the return type of an edited method or the type of an edited field is inferred, members that mention its
+ * name are looked up again too.
+ * <p>
+ * Only results that refer to nothing built by the unit's resolver are kept: nodes of the module itself are replaced by
+ * the reconcile, and nodes of other types belong to the resolver's lookup environment, which the next reconcile replaces
+ * as well. So what remains are results in terms of the Groovy and Java runtime types that are shared by all resolvers,
+ * and a memo does not keep the module, its resolver or its lookup environment alive.
+ * <p>
+ * Enabled by setting system property <code>greclipse.incrementalInference</code> to <code>true</code>.
+ */
+public final class InferenceMemo {
+
+    private static volatile boolean enabled = Boolean.getBoolean("greclipse.incrementalInference");
+
+    private static final AtomicInteger REUSED_RESULTS = new AtomicInteger();
+
+    private static final int MAX_UNITS = 8;
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    // allow test cases to switch reuse on and to see how many results were reused
+
+    /**
+     * @return the previous setting
+     */
+    public static boolean setEnabled(boolean value) {
+        boolean previous = enabled;
+        enabled = value;
+        return previous;
+    }
+
+    public static int getReusedResultCount() {
+        return REUSED_RESULTS.get();
+    }
+
+    public static void resetReusedResultCount() {
+        REUSED_RESULTS.set(0);
+    }
+
+    /**
+     * Incremented by every change to the Java model (resources, classpath, ...). A change while the previous visit was
+     * running or after it began may have changed the types that its results refer to.
+     */
+    private static final AtomicInteger MODEL_STAMP = new AtomicInteger();
+    static {
+        JavaCore.addElementChangedListener(new IElementChangedListener() {
+            public void elementChanged(ElementChangedEvent event) {
+                MODEL_STAMP.incrementAndGet();
+            }
+        }, ElementChangedEvent.POST_CHANGE);
+    }
+
+    private static final Map<GroovyCompilationUnit, InferenceMemo> MEMOS = Collections.synchronizedMap(
+        new LinkedHashMap<GroovyCompilationUnit, InferenceMemo>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<GroovyCompilationUnit, InferenceMemo> eldest) {
+                return size() > MAX_UNITS;
+            }
+        });
+
+    /**
+     * @return memo for a full visit of the module or <code>null</code> if the module's source is not available
+     */
+    static InferenceMemo begin(GroovyCompilationUnit unit, ModuleNode module) {
+        String source = readSource(module.getContext());
+        if (source == null) {
+            return null;
+        }
+        InferenceMemo memo = new InferenceMemo(unit, module, source);
+        memo.connect(MEMOS.get(unit));
+        return memo;
+    }
+
+    //--------------------------------------------------------------------------
+
+    final class Member {
+        private final String text;
+        private final int start;
+        private final String name;
+        private final boolean inferred;
+        private final Map<String, TypeLookupResult> results = new HashMap<String, TypeLookupResult>();
+        private Map<String, TypeLookupResult> reusable;
+
+        Member(AnnotatedNode node, String name, boolean inferred) {
+            this.start = node.getStart();
+            this.text = source.substring(node.getStart(), node.getEnd());
+            this.name = name;
+            this.inferred = inferred;
+        }
+
+        /**
+         * @return the result of the previous visit for the expression or <code>null</code> if it must be looked up
+         */
+        TypeLookupResult lookup(Expression node, ClassNode objExprType, boolean isStatic, VariableScope scope) {
+            if (reusable == null || node.getEnd() <= 0) {
+                return null;
+            }
+            TypeLookupResult result = reusable.get(key(node, objExprType, isStatic));
+            if (result == null) {
+                return null;
+            }
+            results.put(key(node, objExprType, isStatic), result);
+            REUSED_RESULTS.incrementAndGet();
+
+            TypeLookupResult copy = new TypeLookupResult(result.type, result.declaringType, result.declaration, result.confidence, scope, result.extraDoc);
+            copy.enclosingAnnotation = result.enclosingAnnotation;
+            copy.isGroovy = result.isGroovy;
+            return copy;
+        }
+
+        void record(Expression node, ClassNode objExprType, boolean isStatic, TypeLookupResult result) {
+            if (node.getEnd() > 0 && result.enclosingAnnotation == null && !refersToModule(result) && !refersToResolver(result)) {
+                // keep no scope; it belongs to the module
+                TypeLookupResult copy = new TypeLookupResult(result.type, result.declaringType, result.declaration, result.confidence, null, result.extraDoc);
+                copy.isGroovy = result.isGroovy;
+                results.put(key(node, objExprType, isStatic), copy);
+            }
+        }
+
+        private String key(Expression node, ClassNode objExprType, boolean isStatic) {
+            StringBuilder sb = new StringBuilder();
+            sb.append(node.getStart() - start).append(':').append(node.getEnd() - start).append(':');
+            sb.append(node.getClass().getName()).append(':').append(isStatic).append(':');
+            if (objExprType != null) {
+                sb.append(objExprType.getName());
+            }
+            return sb.toString();
+        }
+    }
+
+    private final GroovyCompilationUnit unit;
+    /** the module of the visit; released once the visit is done */
+    private ModuleNode module;
+    private final String source;
+    private final String outline;
+    private final int generation;
+    private final int modelStamp;
+    private final Map<String, Member> members = new HashMap<String, Member>();
+
+    /** names of the members with inferred types that differ from the previous visit */
+    private final Set<String> changedNames = new HashSet<String>();
+    private InferenceMemo previous;
+
+    private InferenceMemo(GroovyCompilationUnit unit, ModuleNode module, String source) {
+        this.unit = unit;
+        this.module = module;
+        this.source = source;
+        this.generation = InferenceResults.generation();
+        this.modelStamp = MODEL_STAMP.get();
+
+        // the source minus method bodies and field initializers; any difference makes every result suspect
+        List<int[]> bodies = new ArrayList<int[]>();
+        for (ClassNode type : module.getClasses()) {
+            for (MethodNode method : type.getMethods()) {
+                addRange(bodies, method.getCode());
+            }
+            for (MethodNode ctor : type.getDeclaredConstructors()) {
+                addRange(bodies, ctor.getCode());
+            }
+            for (FieldNode field : type.getFields()) {
+                addRange(bodies, field.getInitialExpression());
+            }
+        }
+        Collections.sort(bodies, new Comparator<int[]>() {
+            public int compare(int[] a, int[] b) {
+                return a[0] - b[0];
+            }
+        });
+        StringBuilder sb = new StringBuilder(source.length());
+        int offset = 0;
+        for (int[] body : bodies) {
+            if (body[0] >= offset) {
+                sb.append(source, offset, body[0]).append('\u0000');
+                offset = body[1];
+            } else if (body[1] > offset) {
+                offset = body[1]; // nested
+            }
+        }
+        sb.append(source, offset, source.length());
+        this.outline = sb.toString();
+    }
+
+    private boolean hasSourceRange(ASTNode node) {
+        return node.getStart() >= 0 && node.getEnd() > node.getStart() && node.getEnd() <= source.length();
+    }
+
+    private void addRange(List<int[]> ranges, ASTNode node) {
+        if (node != null && hasSourceRange(node)) {
+            ranges.add(new int[] {node.getStart(), node.getEnd()});
+        }
+    }
+
+    private void connect(InferenceMemo previous) {
+        if (previous == null || previous.generation != generation || previous.modelStamp != modelStamp || !previous.outline.equals(outline)) {
+            return;
+        }
+        this.previous = previous;
+        for (ClassNode type : module.getClasses()) {
+            for (MethodNode method : type.getMethods()) {
+                compare(previous, memberKey(method), method);
+            }
+            for (MethodNode ctor : type.getDeclaredConstructors()) {
+                compare(previous, memberKey(ctor), ctor);
+            }
+            for (FieldNode field : type.getFields()) {
+                compare(previous, memberKey(field), field);
+            }
+        }
+    }
+
+    private void compare(InferenceMemo previous, String key, AnnotatedNode node) {
+        Member before = previous.members.get(key);
+        if (before != null && before.inferred && (!hasSourceRange(node) || !before.text.equals(source.substring(node.getStart(), node.getEnd())))) {
+            changedNames.add(before.name);
+        }
+    }
+
+    /**
+     * Called when the visit reaches a field or method. Returns <code>null</code> if the member has no source location.
+     *
+     * @param enclosing the member in which this member is declared (anonymous inner types) or <code>null</code>
+     */
+    Member enterMember(AnnotatedNode node, Member enclosing) {
+        if (!hasSourceRange(node)) {
+            return null;
+        }
+        Member member;
+        String key;
+        if (node instanceof MethodNode) {
+            MethodNode method = (MethodNode) node;
+            key = memberKey(method);
+            member = new Member(node, method.getName(), method.isDynamicReturnType());
+        } else {
+            FieldNode field = (FieldNode) node;
+            key = memberKey(field);
+            member = new Member(node, field.getName(), field.isDynamicTyped());
+        }
+        members.put(key, member);
+
+        if (previous != null && (enclosing == null || enclosing.reusable != null)) {
+            Member before = previous.members.get(key);
+            if (before != null && before.text.equals(member.text) && !mentionsChangedName(member.text)) {
+                member.reusable = before.results;
+            }
+        }
+        return member;
+    }
+
+    /**
+     * Makes the results of this (complete) visit available to the next visit of the unit.
+     */
+    void publish() {
+        previous = null;
+        module = null;
+        MEMOS.put(unit, this);
+    }
+
+    private boolean mentionsChangedName(String text) {
+        for (String name : changedNames) {
+            if (containsIdentifier(text, name) || containsIdentifier(text, propertyName(name))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean refersToModule(TypeLookupResult result) {
+        if (isFromModule(result.type) || isFromModule(result.declaringType)) {
+            return true;
+        }
+        ASTNode declaration = result.declaration;
+        if (declaration == null) {
+            return false;
+        }
+        if (declaration instanceof ClassNode) {
+            return isFromModule((ClassNode) declaration);
+        }
+        if (declaration instanceof MethodNode) {
+            return isFromModule(((MethodNode) declaration).getDeclaringClass());
+        }
+        if (declaration instanceof FieldNode) {
+            return isFromModule(((FieldNode) declaration).getDeclaringClass());
+        }
+        if (declaration instanceof PropertyNode) {
+            return isFromModule(((PropertyNode) declaration).getDeclaringClass());
+        }
+        // local variables, parameters, etc.
+        return true;
+    }
+
+    private boolean isFromModule(ClassNode type) {
+        if (type == null) {
+            return false;
+        }
+        if (type.isArray()) {
+            return isFromModule(type.getComponentType());
+        }
+        if (type.redirect().getModule() == module) {
+            return true;
+        }
+        GenericsType[] generics = type.getGenericsTypes();
+        if (generics != null) {
+            for (GenericsType gt : generics) {
+                if (gt.getType() != null && gt.getType() != type && gt.getType().redirect().getModule() == module) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean refersToResolver(TypeLookupResult result) {
+        ASTNode declaration = result.declaration;
+        if (declaration instanceof JDTNode) {
+            return true;
+        }
+        ClassNode declaringClass = null;
+        if (declaration instanceof ClassNode) {
+            declaringClass = (ClassNode) declaration;
+        } else if (declaration instanceof MethodNode) {
+            declaringClass = ((MethodNode) declaration).getDeclaringClass();
+        } else if (declaration instanceof FieldNode) {
+            declaringClass = ((FieldNode) declaration).getDeclaringClass();
+        } else if (declaration instanceof PropertyNode) {
+            declaringClass = ((PropertyNode) declaration).getDeclaringClass();
+        }
+        Map<ClassNode, Boolean> seen = new IdentityHashMap<ClassNode, Boolean>();
+        return isFromResolver(result.type, seen) || isFromResolver(result.declaringType, seen) || isFromResolver(declaringClass, seen);
+    }
+
+    private static boolean isFromResolver(ClassNode type, Map<ClassNode, Boolean> seen) {
+        if (type == null || seen.put(type, Boolean.TRUE) != null) {
+            return false;
+        }
+        if (type.isArray()) {
+            return isFromResolver(type.getComponentType(), seen);
+        }
+        if (type.redirect() instanceof JDTNode) {
+            return true;
+        }
+        GenericsType[] generics = type.getGenericsTypes();
+        if (generics != null) {
+            for (GenericsType gt : generics) {
+                if (isFromResolver(gt.getType(), seen) || isFromResolver(gt.getLowerBound(), seen)) {
+                    return true;
+                }
+                if (gt.getUpperBounds() != null) {
+                    for (ClassNode bound : gt.getUpperBounds()) {
+                        if (isFromResolver(bound, seen)) {
+                            return true;
+                        }
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    //--------------------------------------------------------------------------
+
+    private static String memberKey(MethodNode method) {
+        StringBuilder sb = new StringBuilder(method.getDeclaringClass().getName());
+        sb.append('#').append(method.getName()).append('(');
+        for (Parameter param : method.getParameters()) {
+            sb.append(param.getType().getName()).append(',');
+        }
+        return sb.append(')').toString();
+    }
+
+    private static String memberKey(FieldNode field) {
+        return field.getDeclaringClass().getName() + '.' + field.getName();
+    }
+
+    private static String propertyName(String methodName) {
+        int prefix = methodName.startsWith("is") ? 2 : (methodName.startsWith("get") || methodName.startsWith("set")) ? 3 : 0;
+        if (prefix > 0 && methodName.length() > prefix && Character.isUpperCase(methodName.charAt(prefix))) {
+            return Character.toLowerCase(methodName.charAt(prefix)) + methodName.substring(prefix + 1);
+        }
+        return methodName;
+    }
+
+    private static boolean containsIdentifier(String text, String name) {
+        int i = text.indexOf(name);
+        while (i >= 0) {
+            int end = i + name.length();
+            if ((i == 0 || !Character.isJavaIdentifierPart(text.charAt(i - 1))) &&
+                    (end == text.length() || !Character.isJavaIdentifierPart(text.charAt(end)))) {
+                return true;
+            }
+            i = text.indexOf(name, i + 1);
+        }
+        return false;
+    }
+
+    private static String readSource(SourceUnit unit) {
+        if (unit == null || unit.getSource() == null) {
+            return null;
+        }
+        try {
+            Reader reader = unit.getSource().getReader();
+            try {
+                StringBuilder sb = new StringBuilder();
+                char[] buffer = new char[8192];
+                int n;
+                while ((n = reader.read(buffer)) > 0) {
+                    sb.append(buffer, 0, n);
+                }
+                return sb.toString();
+            } finally {
+                reader.close();
+            }
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.eclipse.jdt.groovy.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.codehaus.jdt.groovy.model.ModuleNodeMapper.ModuleNodeInfo;
+import org.eclipse.jdt.core.IJavaElement;
+import org.eclipse.jdt.groovy.search.ITypeRequestor.VisitStatus;
+
+/**
+ * The results of one inferencing visit of a module, recorded so that further requestors can be fed from them instead of
+ * inferring the whole module again. Results are kept for as long as the module's {@link ModuleNodeInfo}, which is until
+ * the next reconcile replaces it, or until {@link #invalidateAll()} is called because the type lookups have changed.
+ * <p>
+ * Each recorded result carries a snapshot of its {@link VariableScope}, so requestors that ask which variables, enclosing
+ * nodes or enclosing method calls are in scope get the same answers as they would during the visit itself.
+ */
+public class InferenceResults {
+
+    private static final Map<ModuleNodeInfo, InferenceResults> STORE =
+        Collections.synchronizedMap(new WeakHashMap<ModuleNodeInfo, InferenceResults>());
+
+    private static final AtomicInteger GENERATION = new AtomicInteger();
+
+    /**
+     * Discards all recorded results. To be called when the results of type lookups may change for unchanged modules;
+     * for example, when DSLDs are (re)loaded.
+     */
+    public static void invalidateAll() {
+        GENERATION.incrementAndGet();
+        STORE.clear();
+    }
+
+    static int generation() {
+        return GENERATION.get();
+    }
+
+    static InferenceResults forModule(ModuleNodeInfo info) {
+        synchronized (STORE) {
+            InferenceResults results = STORE.get(info);
+            if (results == null || results.generation != GENERATION.get()) {
+                results = new InferenceResults(GENERATION.get());
+                STORE.put(info, results);
+            }
+            return results;
+        }
+    }
+
+    //--------------------------------------------------------------------------
+
+    private final int generation;
+    private final List<ASTNode> nodes = new ArrayList<ASTNode>();
+    private final List<TypeLookupResult> results = new ArrayList<TypeLookupResult>();
+    private final List<IJavaElement> elements = new ArrayList<IJavaElement>();
+    private boolean recorded;
+
+    private InferenceResults(int generation) {
+        this.generation = generation;
+    }
+
+    /**
+     * Feeds the requestor the recorded results in visit order, recording them with the given visitor first if that has
+     * not been done. {@link VisitStatus#CANCEL_BRANCH} skips the nodes that follow within the source range of the node it
+     * was returned for, up to the first node without a source location, and {@link VisitStatus#CANCEL_MEMBER} skips the
+     * rest of the enclosing element.
+     */
+    void replay(TypeInferencingVisitorWithRequestor visitor, ITypeRequestor requestor) {
+        synchronized (this) {
+            if (!recorded) {
+                visitor.visitCompilationUnit(new ITypeRequestor() {
+                    public VisitStatus acceptASTNode(ASTNode node, TypeLookupResult result, IJavaElement enclosingElement) {
+                        nodes.add(node);
+                        results.add(snapshot(result));
+                        elements.add(enclosingElement);
+                        return VisitStatus.CONTINUE;
+                    }
+                });
+                recorded = true;
+            }
+        }
+
+        // the lists are not modified once recorded
+        int i = 0, n = nodes.size();
+        while (i < n) {
+            ASTNode node = nodes.get(i);
+            IJavaElement element = elements.get(i);
+            VisitStatus status = requestor.acceptASTNode(node, results.get(i), element);
+            i += 1;
+            switch (status) {
+                case CANCEL_BRANCH:
+                    if (node.getEnd() > 0) {
+                        while (i < n && isWithin(nodes.get(i), node)) {
+                            i += 1;
+                        }
+                    }
+                    break;
+                case CANCEL_MEMBER:
+                    while (i < n && element.equals(elements.get(i))) {
+                        i += 1;
+                    }
+                    break;
+                case STOP_VISIT:
+                    return;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private static TypeLookupResult snapshot(TypeLookupResult result) {
+        // the visitor goes on changing the scope after the requestor has seen it
+        if (result == null || result.scope == null) {
+            return result;
+        }
+        TypeLookupResult copy = new TypeLookupResult(result.type, result.declaringType, result.declaration, result.confidence, result.scope.snapshot(), result.extraDoc);
+        copy.enclosingAnnotation = result.enclosingAnnotation;
+        copy.enclosingAssignment = result.enclosingAssignment;
+        copy.isGroovy = result.isGroovy;
+        return copy;
+    }
+
+    private static boolean isWithin(ASTNode node, ASTNode branch) {
+        // nodes without source location cannot be placed in the branch; they end it and are offered to the requestor
+        return node.getEnd() > 0 && node.getStart() >= branch.getStart() && node.getEnd() <= branch.getEnd();
+    }
+}
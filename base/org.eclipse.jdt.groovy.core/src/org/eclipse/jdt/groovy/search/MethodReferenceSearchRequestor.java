@@ -329,6 +329,6 @@ public class MethodReferenceSearchRequestor implements ITypeRequestor {
      * complaints in the refactoring wizard of "possible matches"
      */
     private boolean shouldAlwaysBeAccurate() {
-        return requestor.getClass().getPackage().getName().indexOf("refactoring") != -1;
+        return BufferingSearchRequestor.unwrap(requestor).getClass().getPackage().getName().indexOf("refactoring") != -1;
     }
 }
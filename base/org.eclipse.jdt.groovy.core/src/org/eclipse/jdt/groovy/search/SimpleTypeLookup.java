@@ -16,10 +16,13 @@
 package org.eclipse.jdt.groovy.search;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.codehaus.groovy.ast.ASTNode;
 import org.codehaus.groovy.ast.AnnotatedNode;
@@ -56,6 +59,8 @@ import org.codehaus.groovy.ast.expr.TupleExpression;
 import org.codehaus.groovy.ast.expr.VariableExpression;
 import org.codehaus.groovy.ast.stmt.BlockStatement;
 import org.codehaus.groovy.classgen.asm.OptimizingStatementWriter.StatementMeta;
+import org.codehaus.groovy.eclipse.GroovyLogManager;
+import org.codehaus.groovy.eclipse.TraceCategory;
 import org.codehaus.jdt.groovy.internal.compiler.ast.JDTMethodNode;
 import org.codehaus.jdt.groovy.model.GroovyCompilationUnit;
 import org.eclipse.jdt.groovy.core.util.GroovyUtils;
@@ -71,8 +76,28 @@ public class SimpleTypeLookup implements ITypeLookupExtension {
 
     protected GroovyCompilationUnit unit;
 
+    /**
+     * Results of {@link #findMethodDeclaration(String, ClassNode, List)} for the current visit; a module tends to call
+     * the same few methods of the same few types over and over.
+     */
+    private MethodCache methodCache;
+
     public void initialize(GroovyCompilationUnit unit, VariableScope topLevelScope) {
         this.unit = unit;
+        this.methodCache = new MethodCache();
+    }
+
+    /**
+     * Logs the hit rate of the method resolution cache for the current visit.
+     */
+    void logMethodCacheStatistics() {
+        if (methodCache != null && GroovyLogManager.manager.hasLoggers()) {
+            int hits = methodCache.hits, total = hits + methodCache.misses;
+            if (total > 0) {
+                GroovyLogManager.manager.log(TraceCategory.COMPILER, String.format("Method resolution cache for %s: %d of %d lookups hit (%d%%)",
+                    unit != null ? unit.getElementName() : "?", hits, total, (100 * hits) / total));
+            }
+        }
     }
 
     public TypeLookupResult lookupType(Expression node, VariableScope scope, ClassNode objectExpressionType) {
@@ -553,6 +578,22 @@ public class SimpleTypeLookup implements ITypeLookupExtension {
      * then will return an arbitrary one.
      */
     protected MethodNode findMethodDeclaration(String name, ClassNode declaringType, List<ClassNode> methodCallArgumentTypes) {
+        if (methodCache == null) {
+            return findMethodDeclarationUncached(name, declaringType, methodCallArgumentTypes);
+        }
+        MethodKey key = new MethodKey(name, declaringType, methodCallArgumentTypes);
+        MethodNode method = methodCache.get(key);
+        if (method != null || methodCache.containsKey(key)) {
+            methodCache.hits += 1;
+        } else {
+            methodCache.misses += 1;
+            method = findMethodDeclarationUncached(name, declaringType, methodCallArgumentTypes);
+            methodCache.put(key, method);
+        }
+        return method;
+    }
+
+    private MethodNode findMethodDeclarationUncached(String name, ClassNode declaringType, List<ClassNode> methodCallArgumentTypes) {
         // concrete types return all declared methods from getMethods(String)
         if (!declaringType.isInterface() && !declaringType.isAbstract()) {
             List<MethodNode> candidates = declaringType.getMethods(name);
@@ -629,6 +670,63 @@ public class SimpleTypeLookup implements ITypeLookupExtension {
         return closestMatch;
     }
 
+    /**
+     * Identifies a method resolution by the declaring type's redirect and the erased argument types. The resolution
+     * only depends on these: candidates come from the redirect and arguments are compared by name and hierarchy.
+     */
+    private static class MethodKey {
+        private final String name;
+        private final ClassNode declaringType;
+        private final String[] argumentTypes;
+        private final int hashCode;
+
+        MethodKey(String name, ClassNode declaringType, List<ClassNode> arguments) {
+            this.name = name;
+            this.declaringType = declaringType.redirect();
+            if (arguments == null) {
+                this.argumentTypes = null;
+            } else {
+                this.argumentTypes = new String[arguments.size()];
+                for (int i = 0, n = argumentTypes.length; i < n; i += 1) {
+                    ClassNode argument = arguments.get(i);
+                    // NULL_TYPE is Object by name, but is compatible with any reference type
+                    argumentTypes[i] = argument == VariableScope.NULL_TYPE ? "null" : argument.redirect().getName();
+                }
+            }
+            this.hashCode = (31 * name.hashCode() + System.identityHashCode(this.declaringType)) * 31 + Arrays.hashCode(argumentTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof MethodKey)) {
+                return false;
+            }
+            MethodKey that = (MethodKey) obj;
+            return this.declaringType == that.declaringType && this.name.equals(that.name) && Arrays.equals(this.argumentTypes, that.argumentTypes);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class MethodCache extends LinkedHashMap<MethodKey, MethodNode> {
+        private static final int MAX_ENTRIES = 512;
+
+        int hits, misses;
+
+        MethodCache() {
+            super(64, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<MethodKey, MethodNode> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    }
+
     //--------------------------------------------------------------------------
     // TODO: Can any of these be relocated for reuse?
 
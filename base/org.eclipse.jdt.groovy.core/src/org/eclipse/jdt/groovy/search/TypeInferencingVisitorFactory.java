@@ -67,7 +67,7 @@ public class TypeInferencingVisitorFactory {
     }
 
     // Order matters!!! SimpleTypeLookup must be last
-    private ITypeLookup[] createLookups(IProject project) {
+    static ITypeLookup[] createLookups(IProject project) {
         ITypeLookup[] lookups;
         try {
             List<ITypeLookup> lookupsList = TypeLookupRegistry.getRegistry().getLookupsFor(project);
@@ -20,7 +20,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -260,13 +259,18 @@ public class TypeInferencingVisitorWithRequestor extends ClassCodeVisitorSupport
 
     private final GroovyCompilationUnit unit;
 
-    private final LinkedList<VariableScope> scopes = new LinkedList<VariableScope>();
+    private final ArrayStack<VariableScope> scopes = new ArrayStack<VariableScope>();
 
     // we are going to have to be very careful about the ordering of lookups
     // Simple type lookup must be last because it always returns an answer
     // Assume that if something returns an answer, then we go with that.
     // Later on, should do some ordering of results
-    private final ITypeLookup[] lookups;
+    private ITypeLookup[] lookups;
+
+    /**
+     * Set once the lookups are handed back to the registry at the end of a visit; a further visit gets new ones.
+     */
+    private boolean lookupsReleased;
 
     private ITypeRequestor requestor;
     private IJavaElement enclosingElement;
@@ -278,32 +282,40 @@ public class TypeInferencingVisitorWithRequestor extends ClassCodeVisitorSupport
      * The head of the stack is the current property/attribute/methodcall/binary expression being visited. This stack is used so we
      * can keep track of the type of the object expressions in these property expressions
      */
-    private final LinkedList<ASTNode> completeExpressionStack = new LinkedList<ASTNode>();
+    private final ArrayStack<ASTNode> completeExpressionStack = new ArrayStack<ASTNode>();
 
     /**
      * Keeps track of the type of the object expression corresponding to each frame of the property expression.
      */
-    private final LinkedList<ClassNode> primaryTypeStack = new LinkedList<ClassNode>();
+    private final ArrayStack<ClassNode> primaryTypeStack = new ArrayStack<ClassNode>();
 
     /**
      * Keeps track of the declaring type of the current dependent expression. Dependent expressions are dependent on a primary
      * expression to find type information. this field is only applicable for {@link PropertyExpression}s and
      * {@link MethodCallExpression}s.
      */
-    private final LinkedList<Tuple> dependentDeclarationStack = new LinkedList<Tuple>();
+    private final ArrayStack<Tuple> dependentDeclarationStack = new ArrayStack<Tuple>();
 
     /**
      * Keeps track of the type of the type of the property field corresponding to each frame of the property expression.
      */
-    private final LinkedList<ClassNode> dependentTypeStack = new LinkedList<ClassNode>();
+    private final ArrayStack<ClassNode> dependentTypeStack = new ArrayStack<ClassNode>();
 
     /**
      * Keeps track of closures types.
      */
-    private LinkedList<Map<ClosureExpression, ClassNode>> closureTypes = new LinkedList<Map<ClosureExpression, ClassNode>>();
+    private final ArrayStack<Map<ClosureExpression, ClassNode>> closureTypes = new ArrayStack<Map<ClosureExpression, ClassNode>>();
 
     private final JDTResolver resolver;
 
+    private final ModuleNodeInfo moduleInfo;
+
+    /**
+     * Lookup results of the previous visit of the unit, if incremental inferencing is enabled, and the member being visited.
+     */
+    private InferenceMemo memo;
+    private InferenceMemo.Member memoMember;
+
     private final AssignmentStorer assignmentStorer = new AssignmentStorer();
 
     /**
@@ -320,12 +332,25 @@ public class TypeInferencingVisitorWithRequestor extends ClassCodeVisitorSupport
         this.unit = unit;
         this.lookups = lookups;
         ModuleNodeInfo info = createModuleNode(unit);
+        this.moduleInfo = info;
         this.resolver = info != null ? info.resolver : null;
         this.enclosingDeclarationNode = info != null ? info.module : null;
     }
 
     //--------------------------------------------------------------------------
 
+    /**
+     * Like {@link #visitCompilationUnit(ITypeRequestor)}, but the requestor is fed from the results of an earlier visit
+     * of the same module (see {@link InferenceResults}), which this visit records if there are none yet.
+     */
+    public void visitCompilationUnitFromStore(ITypeRequestor requestor) {
+        if (moduleInfo == null || enclosingDeclarationNode == null) {
+            // no module node, can't do anything
+            return;
+        }
+        InferenceResults.forModule(moduleInfo).replay(this, requestor);
+    }
+
     public void visitCompilationUnit(ITypeRequestor requestor) {
         if (enclosingDeclarationNode == null) {
             // no module node, can't do anything
@@ -337,12 +362,19 @@ public class TypeInferencingVisitorWithRequestor extends ClassCodeVisitorSupport
         VariableScope topLevelScope = new VariableScope(null, enclosingDeclarationNode, false);
         scopes.add(topLevelScope);
 
+        if (lookupsReleased) {
+            lookups = TypeInferencingVisitorFactory.createLookups(unit.getJavaProject().getProject());
+            lookupsReleased = false;
+        }
         for (ITypeLookup lookup : lookups) {
             if (lookup instanceof ITypeResolver) {
                 ((ITypeResolver) lookup).setResolverInformation((ModuleNode) enclosingDeclarationNode, resolver);
             }
             lookup.initialize(unit, topLevelScope);
         }
+        if (InferenceMemo.isEnabled()) {
+            memo = InferenceMemo.begin(unit, (ModuleNode) enclosingDeclarationNode);
+        }
 
         try {
             visitPackage(((ModuleNode) enclosingDeclarationNode).getPackage());
@@ -352,6 +384,14 @@ public class TypeInferencingVisitorWithRequestor extends ClassCodeVisitorSupport
             }
             scopes.removeLast();
 
+            if (memo != null) {
+                memo.publish();
+            }
+            for (ITypeLookup lookup : lookups) {
+                if (lookup instanceof SimpleTypeLookup) {
+                    ((SimpleTypeLookup) lookup).logMethodCacheStatistics();
+                }
+            }
         } catch (VisitCompleted vc) {
             // can ignore
         } catch (Exception e) {
@@ -360,6 +400,9 @@ public class TypeInferencingVisitorWithRequestor extends ClassCodeVisitorSupport
                 System.err.println("Excpetion thrown from inferencing engine");
                 e.printStackTrace();
             }
+        } finally {
+            TypeLookupRegistry.getRegistry().release(lookups);
+            lookupsReleased = true;
         }
         if (DEBUG) {
             postVisitSanityCheck();
@@ -470,6 +513,10 @@ public class TypeInferencingVisitorWithRequestor extends ClassCodeVisitorSupport
 
         enclosingDeclarationNode = fieldNode;
         scopes.add(new VariableScope(scopes.getLast(), fieldNode, fieldNode.isStatic()));
+        InferenceMemo.Member oldMemoMember = memoMember;
+        if (memo != null) {
+            memoMember = memo.enterMember(fieldNode, oldMemoMember);
+        }
         try {
             visitField(fieldNode);
         } catch (VisitCompleted vc) {
@@ -479,6 +526,7 @@ public class TypeInferencingVisitorWithRequestor extends ClassCodeVisitorSupport
         } finally {
             enclosingDeclarationNode = oldEnclosingNode;
             enclosingElement = oldEnclosing;
+            memoMember = oldMemoMember;
             scopes.removeLast();
         }
 
@@ -515,6 +563,10 @@ public class TypeInferencingVisitorWithRequestor extends ClassCodeVisitorSupport
         enclosingDeclarationNode = methodNode;
         this.requestor = requestor;
         scopes.add(new VariableScope(scopes.getLast(), methodNode, methodNode.isStatic()));
+        InferenceMemo.Member oldMemoMember = memoMember;
+        if (memo != null) {
+            memoMember = memo.enterMember(methodNode, oldMemoMember);
+        }
         try {
             visitConstructorOrMethod(methodNode, method.isConstructor());
 
@@ -534,6 +586,7 @@ public class TypeInferencingVisitorWithRequestor extends ClassCodeVisitorSupport
         } finally {
             enclosingElement = oldEnclosing;
             enclosingDeclarationNode = oldEnclosingNode;
+            memoMember = oldMemoMember;
             scopes.removeLast();
         }
     }
@@ -2277,21 +2330,11 @@ assert primaryExprType != null && dependentExprType != null;
     }
 
     private TypeLookupResult lookupExpressionType(Expression node, ClassNode objExprType, boolean isStatic, VariableScope scope) {
-        TypeLookupResult result = null;
-        for (ITypeLookup lookup : lookups) {
-            TypeLookupResult candidate;
-            if (lookup instanceof ITypeLookupExtension) {
-                candidate = ((ITypeLookupExtension) lookup).lookupType(node, scope, objExprType, isStatic);
-            } else {
-                candidate = lookup.lookupType(node, scope, objExprType);
-            }
-            if (candidate != null) {
-                if (result == null || result.confidence.isLessThan(candidate.confidence)) {
-                    result = candidate;
-                }
-                if (result.confidence.isAtLeast(TypeConfidence.INFERRED)) {
-                    break;
-                }
+        TypeLookupResult result = (memoMember != null ? memoMember.lookup(node, objExprType, isStatic, scope) : null);
+        if (result == null) {
+            result = lookupExpressionTypeUncached(node, objExprType, isStatic, scope);
+            if (memoMember != null) {
+                memoMember.record(node, objExprType, isStatic, result);
             }
         }
         if (TypeConfidence.UNKNOWN == result.confidence && VariableScope.MAP_CLASS_NODE.equals(result.declaringType)) {
@@ -2314,6 +2357,27 @@ assert primaryExprType != null && dependentExprType != null;
         return result.resolveTypeParameterization(objExprType, isStatic);
     }
 
+    private TypeLookupResult lookupExpressionTypeUncached(Expression node, ClassNode objExprType, boolean isStatic, VariableScope scope) {
+        TypeLookupResult result = null;
+        for (ITypeLookup lookup : lookups) {
+            TypeLookupResult candidate;
+            if (lookup instanceof ITypeLookupExtension) {
+                candidate = ((ITypeLookupExtension) lookup).lookupType(node, scope, objExprType, isStatic);
+            } else {
+                candidate = lookup.lookupType(node, scope, objExprType);
+            }
+            if (candidate != null) {
+                if (result == null || result.confidence.isLessThan(candidate.confidence)) {
+                    result = candidate;
+                }
+                if (result.confidence.isAtLeast(TypeConfidence.INFERRED)) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
     private VisitStatus notifyRequestor(ASTNode node, ITypeRequestor requestor, TypeLookupResult result) {
         // result is never null because SimpleTypeLookup always returns non-null
         return requestor.acceptASTNode(node, result, enclosingElement);
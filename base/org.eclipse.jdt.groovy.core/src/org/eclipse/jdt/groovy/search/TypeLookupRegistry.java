@@ -17,10 +17,15 @@ package org.eclipse.jdt.groovy.search;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IConfigurationElement;
 import org.eclipse.core.runtime.IExtension;
@@ -29,7 +34,12 @@ import org.eclipse.core.runtime.Platform;
 import org.eclipse.jdt.internal.core.util.Util;
 
 /**
- * Manages type lookups
+ * Manages type lookups.
+ * <p>
+ * The lookups that apply to a project are determined from its natures once and
+ * again after its description changes. Instances of {@link IStatelessTypeLookup}s
+ * are shared by all visitors and instances of {@link IReusableTypeLookup}s are
+ * pooled once {@link #release released}; all others are created for each visitor.
  *
  * @author Andrew Eisenberg
  * @created Nov 17, 2009
@@ -43,6 +53,8 @@ public class TypeLookupRegistry {
 
     private static final String TYPE_LOOKUP_EXTENSION = "org.eclipse.jdt.groovy.core.typeLookup";
 
+    private static final int MAX_POOLED = 8;
+
     private final static TypeLookupRegistry DEFAULT = new TypeLookupRegistry();
 
     static TypeLookupRegistry getRegistry() {
@@ -52,29 +64,113 @@ public class TypeLookupRegistry {
     // maps from project nature to lists of type lookup classes
     private Map<String, List<IConfigurationElement>> natureLookupMap = new HashMap<String, List<IConfigurationElement>>();
 
+    // maps from project name to the type lookup classes for its natures; guarded by this
+    private final Map<String, List<IConfigurationElement>> projectLookupMap = new HashMap<String, List<IConfigurationElement>>();
+
+    // maps from type lookup class name to its shared instance or to its released instances; guarded by this
+    private final Map<String, ITypeLookup> statelessLookups = new HashMap<String, ITypeLookup>();
+    private final Map<String, LinkedList<ITypeLookup>> reusableLookups = new HashMap<String, LinkedList<ITypeLookup>>();
+
     List<ITypeLookup> getLookupsFor(IProject project) throws CoreException {
         if (!project.exists()) {
             return new ArrayList<ITypeLookup>(3);
         }
-        String[] natures = project.getDescription().getNatureIds();
-        List<ITypeLookup> lookups = new ArrayList<ITypeLookup>();
-        for (String nature : natures) {
-            List<IConfigurationElement> configs = natureLookupMap.get(nature);
-            if (configs != null) {
-                for (IConfigurationElement config : configs) {
-                    try {
-                        lookups.add((ITypeLookup) config.createExecutableExtension(LOOKUP));
-                    } catch (CoreException e) {
-                        Util.log(e, "Problem creating lookup for type " + config.getAttribute(LOOKUP));
+        List<IConfigurationElement> configs = getConfigsFor(project);
+        List<ITypeLookup> lookups = new ArrayList<ITypeLookup>(configs.size() + 2);
+        for (IConfigurationElement config : configs) {
+            String className = config.getAttribute(LOOKUP);
+            ITypeLookup lookup;
+            synchronized (this) {
+                lookup = statelessLookups.get(className);
+                if (lookup == null) {
+                    LinkedList<ITypeLookup> pool = reusableLookups.get(className);
+                    if (pool != null) {
+                        lookup = pool.poll();
+                    }
+                }
+            }
+            if (lookup == null) {
+                try {
+                    lookup = (ITypeLookup) config.createExecutableExtension(LOOKUP);
+                } catch (CoreException e) {
+                    Util.log(e, "Problem creating lookup for type " + className);
+                    continue;
+                }
+                if (lookup instanceof IStatelessTypeLookup) {
+                    synchronized (this) {
+                        statelessLookups.put(className, lookup);
                     }
                 }
             }
+            lookups.add(lookup);
         }
         return lookups;
     }
 
+    private synchronized List<IConfigurationElement> getConfigsFor(IProject project) throws CoreException {
+        List<IConfigurationElement> configs = projectLookupMap.get(project.getName());
+        if (configs == null) {
+            configs = new ArrayList<IConfigurationElement>();
+            for (String nature : project.getDescription().getNatureIds()) {
+                List<IConfigurationElement> natureConfigs = natureLookupMap.get(nature);
+                if (natureConfigs != null) {
+                    configs.addAll(natureConfigs);
+                }
+            }
+            projectLookupMap.put(project.getName(), configs);
+        }
+        return configs;
+    }
+
+    /**
+     * Takes back the lookups of a visitor that is done. {@link IReusableTypeLookup}s are reset and kept for later
+     * visitors; others are left alone.
+     */
+    void release(ITypeLookup[] lookups) {
+        for (ITypeLookup lookup : lookups) {
+            if (lookup instanceof IReusableTypeLookup && !(lookup instanceof IStatelessTypeLookup)) {
+                String className = lookup.getClass().getName();
+                try {
+                    ((IReusableTypeLookup) lookup).reset();
+                } catch (RuntimeException e) {
+                    Util.log(e, "Problem resetting lookup for type " + className);
+                    continue;
+                }
+                synchronized (this) {
+                    LinkedList<ITypeLookup> pool = reusableLookups.get(className);
+                    if (pool == null) {
+                        pool = new LinkedList<ITypeLookup>();
+                        reusableLookups.put(className, pool);
+                    }
+                    if (pool.size() < MAX_POOLED) {
+                        pool.add(lookup);
+                    }
+                }
+            }
+        }
+    }
+
+    private synchronized void projectChanged(String projectName) {
+        projectLookupMap.remove(projectName);
+    }
+
     private TypeLookupRegistry() {
         initialize();
+
+        ResourcesPlugin.getWorkspace().addResourceChangeListener(new IResourceChangeListener() {
+            public void resourceChanged(IResourceChangeEvent event) {
+                IResourceDelta delta = event.getDelta();
+                if (delta != null) {
+                    for (IResourceDelta projectDelta : delta.getAffectedChildren()) {
+                        // natures may have changed if project was added, removed, opened, closed or its description was modified
+                        if (projectDelta.getKind() != IResourceDelta.CHANGED ||
+                                (projectDelta.getFlags() & (IResourceDelta.DESCRIPTION | IResourceDelta.OPEN)) != 0) {
+                            projectChanged(projectDelta.getResource().getName());
+                        }
+                    }
+                }
+            }
+        }, IResourceChangeEvent.POST_CHANGE);
     }
 
     private void initialize() {
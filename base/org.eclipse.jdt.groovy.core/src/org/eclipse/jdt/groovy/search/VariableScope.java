@@ -31,7 +31,6 @@ import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -192,8 +191,8 @@ public class VariableScope implements Iterable<VariableScope.VariableInfo> {
             this.declaringType = declaringType;
         }
 
-        private VariableInfo(VariableInfo info, ASTNode node) {
-            this(info.name, info.type, info.declaringType);
+        private VariableInfo(String name, ClassNode type, ClassNode declaringType, ASTNode node) {
+            this(name, type, declaringType);
             this.scopeNode = node;
         }
 
@@ -255,19 +254,33 @@ public class VariableScope implements Iterable<VariableScope.VariableInfo> {
         /**
          * this field stores values that need to get passed between parts of the file to another
          */
-        final Map<String, Object> wormhole = new HashMap<String, Object>();
+        final Map<String, Object> wormhole;
         /**
          * the enclosing method call is the one where there are the current node is part of an argument list
          */
-        final LinkedList<CallAndType> enclosingCallStack = new LinkedList<VariableScope.CallAndType>();
+        final ArrayStack<CallAndType> enclosingCallStack = new ArrayStack<VariableScope.CallAndType>();
         /**
          * Node currently being evaluated, or null if none
          */
-        final LinkedList<ASTNode> nodeStack = new LinkedList<ASTNode>();
+        final ArrayStack<ASTNode> nodeStack = new ArrayStack<ASTNode>();
         /**
          * true iff current scope is implicit run method of script
          */
         boolean isRunMethod;
+
+        SharedState() {
+            wormhole = new HashMap<String, Object>();
+        }
+
+        /**
+         * Copies the stacks of the given state; the wormhole is shared.
+         */
+        SharedState(SharedState that) {
+            wormhole = that.wormhole;
+            enclosingCallStack.addAll(that.enclosingCallStack);
+            nodeStack.addAll(that.nodeStack);
+            isRunMethod = that.isRunMethod;
+        }
     }
 
     /**
@@ -300,7 +313,16 @@ public class VariableScope implements Iterable<VariableScope.VariableInfo> {
     private List<ClassNode> methodCallArgumentTypes;
     private GenericsType[]  methodCallGenericsTypes;
 
-    private final Map<String, VariableInfo> nameVariableMap = new HashMap<String, VariableInfo>();
+    /**
+     * Variables declared in this scope; created on first declaration since most block scopes declare none. The infos
+     * are stored with this scope's node already set, so lookups can return them without copying.
+     */
+    private Map<String, VariableInfo> nameVariableMap;
+
+    /**
+     * Set once {@link #nameVariableMap} is shared with a snapshot; the next declaration or update copies the map first.
+     */
+    private boolean isVariableMapShared;
 
     //--------------------------------------------------------------------------
 
@@ -319,6 +341,33 @@ public class VariableScope implements Iterable<VariableScope.VariableInfo> {
         }
     }
 
+    private VariableScope(VariableScope parent, VariableScope that, SharedState shared) {
+        this.parent = parent;
+        this.shared = shared;
+        this.scopeNode = that.scopeNode;
+        this.isPrimaryNode = that.isPrimaryNode;
+        this.isStaticScope = that.isStaticScope;
+        this.categoryBeingDeclared = that.categoryBeingDeclared;
+        this.methodCallArgumentTypes = that.methodCallArgumentTypes;
+        this.methodCallGenericsTypes = that.methodCallGenericsTypes;
+        if (that.nameVariableMap != null) {
+            this.nameVariableMap = that.nameVariableMap;
+            this.isVariableMapShared = that.isVariableMapShared = true;
+        }
+    }
+
+    /**
+     * Copies this scope and its parents as they are now: the variables, the enclosing nodes and the enclosing method
+     * calls of the copy do not change as the visit goes on. Variable maps are shared until either side changes them.
+     */
+    VariableScope snapshot() {
+        return snapshot(new SharedState(shared));
+    }
+
+    private VariableScope snapshot(SharedState state) {
+        return new VariableScope(parent != null ? parent.snapshot(state) : null, this, state);
+    }
+
     /**
      * Back door for storing and retrieving objects between lookup locations.
      */
@@ -399,22 +448,22 @@ public class VariableScope implements Iterable<VariableScope.VariableInfo> {
             }
         }
 
-        VariableInfo var = lookupNameInCurrentScope(name);
-        if (var == null && parent != null) {
-            var = parent.lookupName(name);
+        for (VariableScope scope = this; scope != null; scope = scope.parent) {
+            if (scope.nameVariableMap != null) {
+                VariableInfo var = scope.nameVariableMap.get(name);
+                if (var != null) {
+                    return var;
+                }
+            }
         }
-        return var;
+        return null;
     }
 
     /**
      * Finds the name in the current scope. Does not recur up to parent scopes.
      */
     public VariableInfo lookupNameInCurrentScope(String name) {
-        VariableInfo info = nameVariableMap.get(name);
-        if (info != null) {
-            info = new VariableInfo(info, scopeNode);
-        }
-        return info;
+        return nameVariableMap != null ? nameVariableMap.get(name) : null;
     }
 
     public ClassNode getThis() {
@@ -448,7 +497,17 @@ public class VariableScope implements Iterable<VariableScope.VariableInfo> {
     }
 
     public void addVariable(String name, ClassNode type, ClassNode declaringType) {
-        nameVariableMap.put(name, new VariableInfo(name, type, declaringType != null ? declaringType : OBJECT_CLASS_NODE));
+        putVariable(name, type, declaringType != null ? declaringType : OBJECT_CLASS_NODE);
+    }
+
+    private void putVariable(String name, ClassNode type, ClassNode declaringType) {
+        if (nameVariableMap == null) {
+            nameVariableMap = new HashMap<String, VariableInfo>(4);
+        } else if (isVariableMapShared) {
+            nameVariableMap = new HashMap<String, VariableInfo>(nameVariableMap);
+            isVariableMapShared = false;
+        }
+        nameVariableMap.put(name, new VariableInfo(name, type, declaringType, scopeNode));
     }
 
     public void addVariable(Variable var) {
@@ -555,15 +614,14 @@ public class VariableScope implements Iterable<VariableScope.VariableInfo> {
      * Return true if the type has been udpated, false otherwise
      */
     private boolean internalUpdateVariable(String name, ClassNode type, ClassNode declaringType) {
-        VariableInfo info = lookupNameInCurrentScope(name);
-        if (info != null) {
-            nameVariableMap.put(name, new VariableInfo(name, type, declaringType == null ? info.declaringType : declaringType));
-            return true;
-        } else if (parent != null) {
-            return parent.internalUpdateVariable(name, type, declaringType);
-        } else {
-            return false;
+        for (VariableScope scope = this; scope != null; scope = scope.parent) {
+            VariableInfo info = scope.lookupNameInCurrentScope(name);
+            if (info != null) {
+                scope.putVariable(name, type, declaringType == null ? info.declaringType : declaringType);
+                return true;
+            }
         }
+        return false;
     }
 
     public static ClassNode resolveTypeParameterization(GenericsMapper mapper, ClassNode type) {
@@ -849,7 +907,7 @@ public class VariableScope implements Iterable<VariableScope.VariableInfo> {
      * @return {@code true} iff in the {@link #nameVariableMap}
      */
     public boolean containsInThisScope(String name) {
-        return nameVariableMap.containsKey(name);
+        return nameVariableMap != null && nameVariableMap.containsKey(name);
     }
 
     void setMethodCallArgumentTypes(List<ClassNode> methodCallArgumentTypes) {
@@ -883,7 +941,7 @@ public class VariableScope implements Iterable<VariableScope.VariableInfo> {
     public Iterator<VariableInfo> iterator() {
         return new Iterator<VariableInfo>() {
             VariableScope currentScope = VariableScope.this;
-            Iterator<VariableInfo> currentIter = currentScope.nameVariableMap.values().iterator();
+            Iterator<VariableInfo> currentIter = values(currentScope);
 
             public boolean hasNext() {
                 if (currentIter == null) {
@@ -891,13 +949,20 @@ public class VariableScope implements Iterable<VariableScope.VariableInfo> {
                 }
                 if (!currentIter.hasNext()) {
                     currentScope = currentScope.parent;
-                    currentIter = currentScope == null ? null : currentScope.nameVariableMap.values().iterator();
+                    currentIter = currentScope == null ? null : values(currentScope);
                 }
                 return currentIter != null && currentIter.hasNext();
             }
 
             public VariableInfo next() {
-                return new VariableInfo(currentIter.next(), currentScope.scopeNode);
+                return currentIter.next();
+            }
+
+            private Iterator<VariableInfo> values(VariableScope scope) {
+                if (scope.nameVariableMap == null) {
+                    return Collections.<VariableInfo>emptyList().iterator();
+                }
+                return scope.nameVariableMap.values().iterator();
             }
 
             public void remove() {
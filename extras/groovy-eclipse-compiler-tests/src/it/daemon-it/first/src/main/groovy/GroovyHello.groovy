@@ -0,0 +1,5 @@
+class GroovyHello {
+	String hello() {
+		new JavaHello().hello() + " and Groovy"
+	}
+}
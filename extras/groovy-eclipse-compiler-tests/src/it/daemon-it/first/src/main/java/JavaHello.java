@@ -0,0 +1,5 @@
+public class JavaHello {
+	public String hello() {
+		return "Hello from Java";
+	}
+}
@@ -0,0 +1,5 @@
+class GroovyMain {
+	static void main(String[] args) {
+		println "Hello from the second module"
+	}
+}
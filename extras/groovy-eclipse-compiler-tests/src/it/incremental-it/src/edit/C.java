@@ -0,0 +1,5 @@
+public class C {
+	public long foo() {
+		return 2L;
+	}
+}
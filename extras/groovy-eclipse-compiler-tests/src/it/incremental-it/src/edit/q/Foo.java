@@ -0,0 +1,7 @@
+package q;
+
+public class Foo {
+	public static String name() {
+		return "q";
+	}
+}
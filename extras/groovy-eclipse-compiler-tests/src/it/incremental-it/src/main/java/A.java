@@ -0,0 +1,5 @@
+public class A {
+	public Object value() {
+		return new B().foo();
+	}
+}
@@ -0,0 +1,5 @@
+public class C {
+	public int foo() {
+		return 1;
+	}
+}
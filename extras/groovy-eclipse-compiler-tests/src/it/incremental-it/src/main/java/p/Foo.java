@@ -0,0 +1,7 @@
+package p;
+
+public class Foo {
+	public static String name() {
+		return "p";
+	}
+}
@@ -0,0 +1,9 @@
+package q;
+
+import p.*;
+
+public class User {
+	public static String name() {
+		return Foo.name();
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.eclipse.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.security.SecureRandom;
+import java.util.Properties;
+
+import org.eclipse.jdt.internal.compiler.batch.Main;
+
+/**
+ * A compiler process that is reused by the compiles of many modules, so that JVM startup, loading of the batch compiler
+ * (and groovy) classes and JIT warm-up are paid once. It is started by {@link DaemonClient} on the classpath of the
+ * groovy-eclipse-batch jar and this plugin's jar and serves the compile requests of any number of modules and maven
+ * processes, one at a time, on a loopback socket. The paths in the requests are absolute, so the directory the daemon
+ * runs in does not matter. The port and a secret the clients must present are published in a port file that only the owner
+ * can read.
+ * <p>
+ * The daemon exits when it has been idle for the given time or when the heap is more than 3/4 full after a compile (the
+ * next compile then starts a fresh daemon).
+ * <p>
+ * Arguments: <code>portFile idleTimeoutMillis</code>; the idle timeout must be positive
+ */
+public class CompilerDaemon {
+
+    public static void main(String[] args) throws IOException {
+        File portFile = new File(args[0]);
+        long idleTimeout = Long.parseLong(args[1]);
+        if (idleTimeout <= 0) {
+            // a socket timeout of 0 is infinite; the daemon would never exit
+            throw new IllegalArgumentException("Idle timeout must be positive: " + idleTimeout);
+        }
+
+        // nobody reads the process's own streams
+        File logFile = new File(portFile.getPath() + ".log");
+        DaemonClient.createPrivateFile(logFile);
+        PrintStream log = new PrintStream(new FileOutputStream(logFile), true);
+        System.setOut(log);
+        System.setErr(log);
+
+        ServerSocket server = new ServerSocket(0, 50, InetAddress.getByName(null));
+        String secret = new BigInteger(130, new SecureRandom()).toString(32);
+        try {
+            server.setSoTimeout((int) Math.min(Integer.MAX_VALUE, idleTimeout));
+            publish(portFile, server.getLocalPort(), secret);
+            log.println("Groovy-Eclipse compiler daemon listening on port " + server.getLocalPort());
+
+            boolean retire = false;
+            while (!retire) {
+                Socket socket;
+                try {
+                    socket = server.accept();
+                } catch (SocketTimeoutException e) {
+                    log.println("Idle for " + idleTimeout + "ms; exiting");
+                    break;
+                }
+                try {
+                    retire = serve(socket, secret, log);
+                } catch (Exception e) {
+                    e.printStackTrace(log);
+                } finally {
+                    socket.close();
+                }
+            }
+        } finally {
+            unpublish(portFile, server.getLocalPort());
+            server.close();
+        }
+        System.exit(0);
+    }
+
+    /**
+     * @return <code>true</code> if the daemon should exit after this request
+     */
+    private static boolean serve(Socket socket, String secret, PrintStream log) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        if (in.readInt() != DaemonClient.PROTOCOL_VERSION || !secret.equals(in.readUTF())) {
+            log.println("Rejected request from " + socket.getRemoteSocketAddress());
+            return false;
+        }
+        String[] args = new String[in.readInt()];
+        for (int i = 0; i < args.length; i += 1) {
+            args[i] = in.readUTF();
+        }
+
+        StringWriter output = new StringWriter();
+        PrintWriter writer = new PrintWriter(output);
+        boolean success, retire;
+        try {
+            Main main = new Main(writer, writer, false/* systemExit */, null/* options */, null/* progress */);
+            success = main.compile(args);
+            retire = isMemoryExhausted();
+        } catch (Throwable t) {
+            // most likely out of memory; report and make room for a fresh daemon
+            t.printStackTrace(writer);
+            success = false;
+            retire = true;
+        }
+        writer.flush();
+
+        byte[] bytes = output.toString().getBytes("UTF-8");
+        out.writeInt(success ? 0 : 1);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.flush();
+        return retire;
+    }
+
+    private static boolean isMemoryExhausted() {
+        Runtime runtime = Runtime.getRuntime();
+        long limit = runtime.maxMemory() / 4 * 3;
+        if (runtime.totalMemory() - runtime.freeMemory() > limit) {
+            System.gc();
+            return runtime.totalMemory() - runtime.freeMemory() > limit;
+        }
+        return false;
+    }
+
+    private static void publish(File portFile, int port, String secret) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("port", String.valueOf(port));
+        properties.setProperty("secret", secret);
+
+        // restrict access before the secret is written
+        File tempFile = new File(portFile.getPath() + ".tmp");
+        DaemonClient.createPrivateFile(tempFile);
+        FileOutputStream stream = new FileOutputStream(tempFile);
+        try {
+            properties.store(stream, "Groovy-Eclipse compiler daemon");
+        } finally {
+            stream.close();
+        }
+        portFile.delete();
+        if (!tempFile.renameTo(portFile)) {
+            throw new IOException("Unable to create " + portFile);
+        }
+    }
+
+    private static void unpublish(File portFile, int port) {
+        // a newer daemon may have taken over the file
+        Properties properties = DaemonClient.readPortFile(portFile);
+        if (properties != null && String.valueOf(port).equals(properties.getProperty("port"))) {
+            portFile.delete();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.eclipse.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.FileLock;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Submits compiles to a {@link CompilerDaemon}, starting one if there is none (or it does not answer). Starting is guarded
+ * by a lock file next to the port file, so that parallel builds do not start several daemons for the same port file. Used
+ * by the maven side and by the daemon itself, so it must not reference maven/plexus nor JDT classes.
+ */
+class DaemonClient {
+
+    static final int PROTOCOL_VERSION = 1;
+
+    static final String DAEMON_CLASS = "org.codehaus.groovy.eclipse.compiler.CompilerDaemon";
+
+    private static final int CONNECT_TIMEOUT = 5000;
+    private static final int START_TIMEOUT = 60000;
+
+    static class Result {
+        final int exitCode;
+        final String output;
+        /** port of the daemon that compiled */
+        final int port;
+
+        Result(int exitCode, String output, int port) {
+            this.exitCode = exitCode;
+            this.output = output;
+            this.port = port;
+        }
+    }
+
+    private final File portFile;
+    private final List<String> launchCommand;
+
+    /**
+     * @param portFile where the daemon publishes its port; daemons started with different commands must use different files
+     * @param launchCommand command line that starts a daemon publishing to <code>portFile</code>
+     */
+    DaemonClient(File portFile, List<String> launchCommand) {
+        this.portFile = portFile;
+        this.launchCommand = launchCommand;
+    }
+
+    Result compile(String[] args) throws IOException {
+        Properties daemon = readPortFile(portFile);
+        Socket socket = daemon != null ? connect(daemon) : null;
+        if (socket == null) {
+            // file locks are held by the whole JVM, so the threads of a parallel build must take turns here first
+            synchronized (DaemonClient.class) {
+                File directory = portFile.getParentFile();
+                directory.mkdirs();
+                restrictToOwner(directory);
+                RandomAccessFile lockFile = new RandomAccessFile(new File(portFile.getPath() + ".lock"), "rw");
+                try {
+                    FileLock lock = lockFile.getChannel().lock();
+                    try {
+                        // another build may have started the daemon while this one was waiting
+                        daemon = readPortFile(portFile);
+                        socket = daemon != null ? connect(daemon) : null;
+                        if (socket == null) {
+                            daemon = start();
+                            socket = connect(daemon);
+                        }
+                    } finally {
+                        lock.release();
+                    }
+                } finally {
+                    lockFile.close();
+                }
+            }
+            if (socket == null) {
+                throw new IOException("Unable to connect to compiler daemon");
+            }
+        }
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(PROTOCOL_VERSION);
+            out.writeUTF(daemon.getProperty("secret"));
+            out.writeInt(args.length);
+            for (String arg : args) {
+                out.writeUTF(arg);
+            }
+            out.flush();
+
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            int exitCode = in.readInt();
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new Result(exitCode, new String(bytes, "UTF-8"), socket.getPort());
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static Socket connect(Properties daemon) {
+        Socket socket = new Socket();
+        try {
+            int port = Integer.parseInt(daemon.getProperty("port"));
+            socket.connect(new InetSocketAddress(InetAddress.getByName(null), port), CONNECT_TIMEOUT);
+            return socket;
+        } catch (Exception e) {
+            try {
+                socket.close();
+            } catch (IOException ignore) {
+            }
+            return null;
+        }
+    }
+
+    private Properties start() throws IOException {
+        portFile.delete();
+
+        Process process = new ProcessBuilder(launchCommand).directory(portFile.getParentFile()).redirectErrorStream(true).start();
+        process.getOutputStream().close();
+
+        long deadline = System.currentTimeMillis() + START_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            Properties daemon = readPortFile(portFile);
+            if (daemon != null) {
+                return daemon;
+            }
+            try {
+                int exitCode = process.exitValue();
+                throw new IOException("Compiler daemon exited with code " + exitCode + ": " + read(process.getInputStream()));
+            } catch (IllegalThreadStateException stillRunning) {
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        process.destroy();
+        throw new IOException("Compiler daemon did not start within " + (START_TIMEOUT / 1000) + "s");
+    }
+
+    /**
+     * @return the port and secret of the daemon or <code>null</code> if it has not published them (yet)
+     */
+    static Properties readPortFile(File portFile) {
+        if (!portFile.isFile()) {
+            return null;
+        }
+        try {
+            InputStream stream = new FileInputStream(portFile);
+            try {
+                Properties properties = new Properties();
+                properties.load(stream);
+                return properties.getProperty("port") != null && properties.getProperty("secret") != null ? properties : null;
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates an empty file that only its owner can read and write, replacing any existing file.
+     */
+    static void createPrivateFile(File file) throws IOException {
+        file.delete();
+        if (!file.createNewFile()) {
+            throw new IOException("Unable to create " + file);
+        }
+        restrictToOwner(file);
+    }
+
+    /**
+     * Takes away all permissions of users other than the owner.
+     */
+    static void restrictToOwner(File file) throws IOException {
+        if (File.separatorChar == '\\') {
+            return; // not supported; files in the user's profile folder are private by default
+        }
+        boolean restricted = file.setReadable(false, false) && file.setReadable(true, true) &&
+            file.setWritable(false, false) && file.setWritable(true, true);
+        if (file.isDirectory()) {
+            restricted = restricted && file.setExecutable(false, false) && file.setExecutable(true, true);
+        }
+        if (!restricted) {
+            throw new IOException("Unable to restrict access to " + file);
+        }
+    }
+
+    private static String read(InputStream stream) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        byte[] buffer = new byte[4096];
+        int n;
+        while ((n = stream.read(buffer)) > 0) {
+            sb.append(new String(buffer, 0, n));
+        }
+        return sb.toString();
+    }
+}
@@ -42,6 +42,7 @@ import org.codehaus.plexus.compiler.CompilerResult;
 import org.codehaus.plexus.compiler.CompilerMessage.Kind;
 import org.codehaus.plexus.compiler.CompilerOutputStyle;
 import org.codehaus.plexus.compiler.util.scan.InclusionScanException;
+import org.codehaus.plexus.compiler.util.scan.SimpleSourceInclusionScanner;
 import org.codehaus.plexus.compiler.util.scan.SourceInclusionScanner;
 import org.codehaus.plexus.compiler.util.scan.StaleSourceScanner;
 import org.codehaus.plexus.compiler.util.scan.mapping.SourceMapping;
@@ -72,10 +73,26 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
 
     private static final String JAVA_AGENT_CLASS_PARAM_NAME = "-javaAgentClass";
 
+    private static final String INCREMENTAL_PARAM_NAME = "-incremental";
+
+    private static final String DAEMON_PARAM_NAME = "-daemon";
+
+    private static final String DAEMON_IDLE_TIMEOUT_PARAM_NAME = "-daemonIdleTimeout";
+
+    /** minutes a compiler daemon waits for the next compile before it exits */
+    private static final int DEFAULT_DAEMON_IDLE_TIMEOUT = 10;
+
+    /** options of the groovy-eclipse compiler whose values are a file or a list of files */
+    private static final Set<String> PATH_OPTIONS = new HashSet<String>(Arrays.asList("-cp", "-classpath", "-sourcepath",
+            "-bootclasspath", "-extdirs", "-endorseddirs", "-processorpath", "-d", "-s", "-log"));
+
     private String javaAgentClass = "";
 
     boolean verbose;
 
+    /** dependency state of the current compile; null if incremental compilation is turned off */
+    private IncrementalBuild incrementalBuild;
+
     public GroovyEclipseCompiler() {
         // here is a bit of a hack. maven only wants a single file extension
         // for sources, so we pass it "". Later, we must recalculate for real.
@@ -109,12 +126,15 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
         String[] args = createCommandLine(config);
         if (args.length == 0) {
             getLogger().info("Nothing to compile - all classes are up to date");
+            if (incrementalBuild != null) {
+                incrementalBuild.save();
+            }
             return true;
         }
 
-        boolean success;
+        String executable = null, groovyEclipseLocation = null;
         if (config.isFork()) {
-            String executable = config.getExecutable();
+            executable = config.getExecutable();
 
             if (StringUtils.isEmpty(executable)) {
                 try {
@@ -125,8 +145,40 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
                 }
             }
 
-            String groovyEclipseLocation = getGroovyEclipseBatchLocation();
-            success = compileOutOfProcess(config, executable, groovyEclipseLocation, args, messages);
+            groovyEclipseLocation = getGroovyEclipseBatchLocation();
+        }
+
+        boolean success;
+        while (true) {
+            if (incrementalBuild != null) {
+                incrementalBuild.beginRound(config.getSourceFiles());
+            }
+            success = compile(config, executable, groovyEclipseLocation, args, messages);
+            if (incrementalBuild == null) {
+                break;
+            }
+            Set<File> dependents = incrementalBuild.endRound(success);
+            if (dependents.isEmpty()) {
+                incrementalBuild.save();
+                break;
+            }
+            getLogger().info("Compiling " + dependents.size() + " dependent source file" + (dependents.size() == 1 ? "" : "s") +
+                    " affected by signature changes");
+            config.setSourceFiles(dependents);
+            args = createCommandLine(config, dependents.toArray(new File[0]));
+        }
+        return success;
+    }
+
+    private boolean compile(CompilerConfiguration config, String executable, String groovyEclipseLocation,
+            String[] args, List<CompilerMessage> messages) throws CompilerException {
+        boolean success;
+        if (config.isFork()) {
+            if ("true".equalsIgnoreCase(getCustomArgument(config, DAEMON_PARAM_NAME))) {
+                success = compileInDaemon(config, executable, groovyEclipseLocation, args, messages);
+            } else {
+                success = compileOutOfProcess(config, executable, groovyEclipseLocation, args, messages);
+            }
         } else {
             StringWriter out = new StringWriter();
             Result result = InternalCompiler.doCompile(args, out, getLogger(), verbose);
@@ -151,14 +203,49 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
         if (includes == null || includes.isEmpty()) {
             includes = Collections.singleton("**/*");
         }
-        StaleSourceScanner scanner = new StaleSourceScanner(staleMillis, includes, config.getExcludes());
-        Set<File> staleSources = computeStaleSources(config, scanner);
+        Set<File> staleSources;
+        if (isIncremental(config)) {
+            // scan for all sources; dependency state decides which of them are stale
+            Set<File> allSources = computeStaleSources(config, new SimpleSourceInclusionScanner(includes, config.getExcludes()));
+            incrementalBuild = new IncrementalBuild(new File(config.getOutputLocation()), config.getSourceLocations(),
+                    IncrementalBuild.fingerprint(config, config.getCustomCompilerArgumentsAsMap()), getLogger());
+            staleSources = incrementalBuild.computeStaleSources(allSources);
+        } else {
+            incrementalBuild = null;
+            StaleSourceScanner scanner = new StaleSourceScanner(staleMillis, includes, config.getExcludes());
+            staleSources = computeStaleSources(config, scanner);
+        }
         config.setSourceFiles(staleSources);
 
         File[] sourceFiles = staleSources.toArray(new File[0]);
         return sourceFiles;
     }
 
+    /**
+     * Incremental compilation is off unless compiler argument <code>-incremental</code> is set to <code>true</code>.
+     */
+    private boolean isIncremental(CompilerConfiguration config) {
+        return "true".equalsIgnoreCase(getCustomArgument(config, INCREMENTAL_PARAM_NAME));
+    }
+
+    /**
+     * Returns the value of a custom compiler argument that is interpreted by this class (and not passed on to the compiler).
+     * The argument may be given with or without leading hyphen.
+     */
+    private String getCustomArgument(CompilerConfiguration config, String name) {
+        Map<String, String> args = config.getCustomCompilerArgumentsAsMap();
+        return args.containsKey(name) ? args.get(name) : args.get(name.substring(1));
+    }
+
+    private boolean isCustomArgument(String key) {
+        for (String name : new String[] {INCREMENTAL_PARAM_NAME, DAEMON_PARAM_NAME, DAEMON_IDLE_TIMEOUT_PARAM_NAME}) {
+            if (name.equals(key) || name.substring(1).equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean startsWithHyphen(Object key) {
         return null != key && String.class.isInstance(key) && ((String) key).startsWith("-");
     }
@@ -183,14 +270,36 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
         }
     }
 
-    private Map<String,String> composeSourceFiles(File[] sourceFiles) {
+    private Map<String,String> composeSourceFiles(File[] sourceFiles, File workingDirectory) {
         Map<String,String> sources = new DeduplicatingHashMap<String,String>(getLogger(), sourceFiles.length);
         for (int i = 0; i < sourceFiles.length; i++) {
-            sources.put(sourceFiles[i].getPath(), null);
+            sources.put(absolutePath(sourceFiles[i].getPath(), workingDirectory), null);
         }
         return sources;
     }
 
+    /**
+     * Resolves a relative path against the working directory of the module, so that the arguments mean the same to a
+     * compiler running in any directory (like the compiler daemon, which is shared by the modules of a build).
+     */
+    private static String absolutePath(String path, File workingDirectory) {
+        if (workingDirectory == null || path.length() == 0 || "none".equals(path) || new File(path).isAbsolute()) {
+            return path;
+        }
+        return new File(workingDirectory, path).getAbsolutePath();
+    }
+
+    private static String absolutePaths(String paths, File workingDirectory) {
+        StringBuilder sb = new StringBuilder();
+        for (String path : paths.split(File.pathSeparator, -1)) {
+            if (sb.length() > 0) {
+                sb.append(File.pathSeparator);
+            }
+            sb.append(absolutePath(path, workingDirectory));
+        }
+        return sb.toString();
+    }
+
     public String[] createCommandLine(CompilerConfiguration config) throws CompilerException {
         File destinationDir = new File(config.getOutputLocation());
 
@@ -220,6 +329,11 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
         // super
         File[] sourceFiles = recalculateStaleFiles(config);
 
+        return createCommandLine(config, sourceFiles);
+    }
+
+    private String[] createCommandLine(CompilerConfiguration config, File[] sourceFiles) throws CompilerException {
+        File destinationDir = new File(config.getOutputLocation());
         if (sourceFiles.length == 0) {
             return new String[0];
         }
@@ -232,8 +346,9 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
         // intentionally using DeduplicatingHashMap to preserve order and Map to deduplicate values
         // See https://jira.codehaus.org/browse/GRECLIPSE-1659
         Map<String,String> args = new DeduplicatingHashMap<String,String>(getLogger());
+        File workingDirectory = config.getWorkingDirectory();
 
-        String cp = super.getPathString(config.getClasspathEntries());
+        String cp = absolutePaths(super.getPathString(config.getClasspathEntries()), workingDirectory);
         verbose = config.isVerbose();
         if (verbose) {
             getLogger().info("Classpath: " + cp);
@@ -243,7 +358,7 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
         }
 
         if (config.getOutputLocation() != null && config.getOutputLocation().length() > 0) {
-            args.put("-d", config.getOutputLocation());
+            args.put("-d", absolutePath(config.getOutputLocation(), workingDirectory));
         }
 
         if (config.isDebug()) {
@@ -310,6 +425,10 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
         for (Entry<String, String> entry : config.getCustomCompilerArgumentsAsMap().entrySet()) {
 
             String key = entry.getKey();
+            if (isCustomArgument(key)) {
+                // handled here; not an option of the groovy-eclipse compiler
+                continue;
+            }
             if (startsWithHyphen(key)) {
                 if (JAVA_AGENT_CLASS_PARAM_NAME.equals(key)) {
                     setJavaAgentClass(entry.getValue());
@@ -319,7 +438,7 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
                 } else {
                     // don't add a "-" if the arg
                     // already has one
-                    args.put(key, entry.getValue());
+                    args.put(key, pathOptionValue(key, entry.getValue(), workingDirectory));
                 }
             } else if (key != null && !key.equals("org.osgi.framework.system.packages")) {
                 // See https://jira.codehaus.org/browse/GRECLIPSE-1418 ignore
@@ -329,12 +448,12 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
                  * don't think this should allow for null keys? "-null" probably
                  * isn't going to play nicely with any compiler?
                  */
-                args.put("-" + key, entry.getValue());
+                args.put("-" + key, pathOptionValue("-" + key, entry.getValue(), workingDirectory));
             }
 
         }
 
-        args.putAll(composeSourceFiles(sourceFiles));
+        args.putAll(composeSourceFiles(sourceFiles, workingDirectory));
 
         String[] argsList = flattenArgumentsMap(args);
         if (verbose) {
@@ -344,6 +463,10 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
         return argsList;
     }
 
+    private static String pathOptionValue(String option, String value, File workingDirectory) {
+        return value != null && PATH_OPTIONS.contains(option) ? absolutePaths(value, workingDirectory) : value;
+    }
+
     private Set<File> computeStaleSources(CompilerConfiguration compilerConfiguration, SourceInclusionScanner scanner)
             throws CompilerException {
         SourceMapping mappingGroovy = new SuffixMapping(".groovy", ".class");
@@ -366,7 +489,12 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
             }
 
             try {
-                staleSources.addAll(scanner.getIncludedSources(rootFile, outputDirectory));
+                for (File source : scanner.getIncludedSources(rootFile, outputDirectory)) {
+                    String name = source.getName();
+                    if (name.endsWith(".groovy") || name.endsWith(".java")) {
+                        staleSources.add(source);
+                    }
+                }
             } catch (InclusionScanException e) {
                 throw new CompilerException(
                         "Error scanning source root: \'" + sourceRoot + "\' " + "for stale files to recompile.", e);
@@ -464,6 +592,67 @@ public class GroovyEclipseCompiler extends AbstractCompiler {
         return returnCode == 0;
     }
 
+    /**
+     * Compile in a long-lived compiler process that is shared by the compiles (and maven processes) using the same java
+     * executable, groovy-eclipse-batch jar, java agent and memory settings, whatever module they belong to; the paths of the
+     * arguments are absolute. The daemon is started if it is not running yet. If it cannot be used, the compile falls back
+     * to a one-off forked process.
+     */
+    private boolean compileInDaemon(CompilerConfiguration config, String executable, String groovyEclipseLocation,
+            String[] args, List<CompilerMessage> messages) throws CompilerException {
+
+        List<String> command = new ArrayList<String>();
+        command.add(executable);
+        if (!StringUtils.isEmpty(javaAgentClass)) {
+            command.add("-javaagent:" + getAdditionnalJavaAgentLocation());
+        }
+        if (!StringUtils.isEmpty(config.getMaxmem())) {
+            command.add("-Xmx" + config.getMaxmem());
+        }
+        if (!StringUtils.isEmpty(config.getMeminitial())) {
+            command.add("-Xms" + config.getMeminitial());
+        }
+        command.add("-cp");
+        command.add(groovyEclipseLocation + File.pathSeparator + getClassLocation(DaemonClient.DAEMON_CLASS));
+        command.add(DaemonClient.DAEMON_CLASS);
+
+        File portFile = new File(new File(System.getProperty("user.home"), ".groovy-eclipse"), "daemon-" +
+                IncrementalBuild.digest(command.toString() + new File(groovyEclipseLocation).lastModified()) + ".port");
+        int idleTimeout = DEFAULT_DAEMON_IDLE_TIMEOUT;
+        String value = getCustomArgument(config, DAEMON_IDLE_TIMEOUT_PARAM_NAME);
+        if (value != null) {
+            try {
+                idleTimeout = Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                idleTimeout = 0;
+            }
+            // a timeout of 0 would keep the daemon running forever
+            if (idleTimeout <= 0) {
+                idleTimeout = DEFAULT_DAEMON_IDLE_TIMEOUT;
+                getLogger().warn("Invalid value for " + DAEMON_IDLE_TIMEOUT_PARAM_NAME + " (must be a positive number of minutes); using " +
+                        idleTimeout + " minutes");
+            }
+        }
+        command.add(portFile.getAbsolutePath());
+        command.add(String.valueOf(idleTimeout * 60000L));
+
+        try {
+            File argumentsFile = createFileWithArguments(args, config.getOutputLocation());
+            DaemonClient.Result result = new DaemonClient(portFile, command).compile(
+                    new String[] { "@" + argumentsFile.getCanonicalPath().replace(File.separatorChar, '/') });
+            getLogger().info("Compiled in compiler daemon on port " + result.port + " using " + groovyEclipseLocation);
+
+            messages.addAll(parseMessages(result.exitCode, result.output, config.isShowWarnings()));
+            if (result.exitCode != 0 && messages.isEmpty()) {
+                messages.add(new CompilerMessage("Failure executing groovy-eclipse compiler:" + EOL + result.output, Kind.ERROR));
+            }
+            return result.exitCode == 0;
+        } catch (IOException e) {
+            getLogger().warn("Unable to use the compiler daemon (" + e.getMessage() + "); compiling in a forked process instead");
+            return compileOutOfProcess(config, executable, groovyEclipseLocation, args, messages);
+        }
+    }
+
     /**
      * Parse the output from the compiler into a list of CompilerError objects
      *
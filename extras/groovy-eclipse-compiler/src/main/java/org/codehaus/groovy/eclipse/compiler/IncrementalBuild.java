@@ -0,0 +1,797 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.eclipse.compiler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.codehaus.plexus.compiler.CompilerConfiguration;
+import org.codehaus.plexus.logging.Logger;
+
+/**
+ * Keeps track of the sources compiled into an output directory, the class files each of them produced, the types each of
+ * them references and a digest of the signature (non-private API) of each class. The state is persisted in a file next to
+ * the output directory (for example <code>target/classes.greclipse-deps</code>) and is used to compute the minimal set of
+ * sources to compile:
+ * <ul>
+ * <li>sources that are new, changed since the last compile or whose class files are gone</li>
+ * <li>sources that reference a type of a removed source</li>
+ * <li>after each compile round, sources that reference a type whose signature changed in that round</li>
+ * <li>after each compile round, sources that reference a type with the same simple name as a type that was added in that
+ * round (the new type may shadow the one they resolved before)</li>
+ * </ul>
+ * A change to a type also counts as a change to all of its subtypes, since their inherited members change with it.
+ * The references are read from the generated class files, so this works the same for java and groovy sources and for
+ * in-process and forked compiles. Since java compilers inline the values of constant fields (leaving no reference behind),
+ * a change to the value of a constant causes a full compile.
+ */
+class IncrementalBuild {
+
+    private static final String STATE_FILE_SUFFIX = ".greclipse-deps";
+    private static final String STATE_FILE_HEADER = "greclipse-deps 2";
+
+    /** allowance for file systems that store modification times with a coarse granularity */
+    private static final long TIMESTAMP_SLACK = 2000;
+
+    /** the compiler may need to run again when signatures change; beyond this many rounds everything left is compiled */
+    static final int MAX_ROUNDS = 8;
+
+    private final File outputDirectory;
+    private final List<String> sourceRoots;
+    private final String fingerprint;
+    private final Logger logger;
+
+    private final Map<String, SourceState> sources = new LinkedHashMap<String, SourceState>();
+    private boolean fingerprintMatches;
+
+    private Set<File> roundSources = new LinkedHashSet<File>();
+    private long roundStart;
+    private int rounds;
+
+    IncrementalBuild(File outputDirectory, List<String> sourceRoots, String fingerprint, Logger logger) {
+        this.outputDirectory = outputDirectory;
+        this.sourceRoots = sourceRoots;
+        this.fingerprint = fingerprint;
+        this.logger = logger;
+    }
+
+    File getStateFile() {
+        return new File(outputDirectory.getParentFile(), outputDirectory.getName() + STATE_FILE_SUFFIX);
+    }
+
+    /**
+     * Computes the sources that must be compiled out of all the sources of the compile. Class files of sources that no
+     * longer exist are deleted.
+     */
+    Set<File> computeStaleSources(Set<File> allSources) {
+        load();
+
+        Set<String> allPaths = new HashSet<String>();
+        for (File source : allSources) {
+            allPaths.add(source.getAbsolutePath());
+        }
+        Set<String> removedTypes = new HashSet<String>();
+        for (String path : new ArrayList<String>(sources.keySet())) {
+            if (!allPaths.contains(path)) {
+                SourceState removed = sources.remove(path);
+                for (String type : removed.classes.keySet()) {
+                    classFile(type).delete();
+                    removedTypes.add(type);
+                }
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Source removed since last compile: " + path);
+                }
+            }
+        }
+
+        if (!fingerprintMatches) {
+            if (!sources.isEmpty()) {
+                logger.info("Compiler configuration changed since last compile - all sources are stale");
+            }
+            return new LinkedHashSet<File>(allSources);
+        }
+
+        Set<File> staleSources = new LinkedHashSet<File>();
+        for (File source : allSources) {
+            SourceState state = sources.get(source.getAbsolutePath());
+            if (state == null || state.lastModified != source.lastModified() || !classFilesExist(state)) {
+                staleSources.add(source);
+            }
+        }
+        staleSources.addAll(getDependents(withSubtypes(removedTypes)));
+        return staleSources;
+    }
+
+    /**
+     * Called before the given sources are compiled. Their previous class files are deleted, so that no orphaned classes
+     * (removed inner classes, closures and the like) are left behind.
+     */
+    void beginRound(Collection<File> compiledSources) {
+        rounds += 1;
+        roundSources = new LinkedHashSet<File>(compiledSources);
+        for (File source : roundSources) {
+            SourceState state = sources.get(source.getAbsolutePath());
+            if (state == null) {
+                state = new SourceState(source.getAbsolutePath());
+                sources.put(state.path, state);
+            } else {
+                for (String type : state.classes.keySet()) {
+                    classFile(type).delete();
+                }
+            }
+            state.pendingLastModified = source.lastModified();
+        }
+        roundStart = System.currentTimeMillis();
+    }
+
+    /**
+     * Called after the sources of the round have been compiled. Reads the class files generated in this round and updates
+     * the state of the round's sources.
+     *
+     * @return the sources that must be compiled (again) because a signature they depend upon changed
+     */
+    Set<File> endRound(boolean success) {
+        if (!success) {
+            // compile them again next time; keep the previous signatures so that dependents are still found then
+            for (File source : roundSources) {
+                sources.get(source.getAbsolutePath()).lastModified = -1;
+            }
+            return new LinkedHashSet<File>();
+        }
+
+        Map<SourceState, Map<String, ClassState>> generated = new HashMap<SourceState, Map<String, ClassState>>();
+        Map<SourceState, Set<String>> references = new HashMap<SourceState, Set<String>>();
+        for (SourceState state : getRoundStates()) {
+            generated.put(state, new LinkedHashMap<String, ClassState>());
+            references.put(state, new TreeSet<String>());
+        }
+        SourceLocator locator = new SourceLocator(getRoundStates());
+        List<File> classFiles = new ArrayList<File>();
+        collectClassFiles(outputDirectory, roundStart - TIMESTAMP_SLACK, classFiles);
+        for (File classFile : classFiles) {
+            ClassFileInfo info;
+            try {
+                info = ClassFileInfo.read(classFile);
+            } catch (IOException e) {
+                logger.warn("Unable to read class file " + classFile + ": " + e.getMessage());
+                continue;
+            }
+            SourceState owner = locator.locate(info);
+            if (owner == null) {
+                // generated by an annotation processor or written in an earlier round
+                if (logger.isDebugEnabled()) {
+                    logger.debug("No source of this round found for class " + info.name);
+                }
+                continue;
+            }
+            generated.get(owner).put(info.name, new ClassState(info.abiHash, info.constantsHash, info.supertypes));
+            references.get(owner).addAll(info.references);
+        }
+
+        boolean constantsChanged = false;
+        Set<String> changedTypes = new HashSet<String>();
+        Set<String> addedTypes = new HashSet<String>();
+        for (SourceState state : getRoundStates()) {
+            Map<String, ClassState> newClasses = generated.get(state);
+            for (String type : newClasses.keySet()) {
+                if (!state.classes.containsKey(type)) {
+                    addedTypes.add(type);
+                }
+            }
+            for (Map.Entry<String, ClassState> entry : state.classes.entrySet()) {
+                ClassState newClass = newClasses.get(entry.getKey());
+                if (newClass == null || !newClass.abiHash.equals(entry.getValue().abiHash)) {
+                    changedTypes.add(entry.getKey());
+                }
+                if (!entry.getValue().constantsHash.equals(newClass != null ? newClass.constantsHash : ClassFileInfo.NO_CONSTANTS)) {
+                    constantsChanged = true;
+                }
+            }
+            state.classes = newClasses;
+            state.references = references.get(state);
+            state.lastModified = state.pendingLastModified;
+        }
+
+        Set<File> dependents = new LinkedHashSet<File>();
+        if (constantsChanged || rounds >= MAX_ROUNDS) {
+            if (logger.isDebugEnabled()) {
+                logger.debug(constantsChanged ? "Value of a constant changed - compiling all other sources"
+                        : "Maximum number of compile rounds reached - compiling all other sources");
+            }
+            for (SourceState state : sources.values()) {
+                dependents.add(new File(state.path));
+            }
+        } else {
+            changedTypes.addAll(addedTypes);
+            dependents.addAll(getDependents(withSubtypes(changedTypes)));
+            dependents.addAll(getDependentsBySimpleName(addedTypes));
+        }
+        dependents.removeAll(roundSources);
+        return dependents;
+    }
+
+    /**
+     * Writes the state next to the output directory. If that fails, the state file is removed so that the next compile
+     * starts from scratch.
+     */
+    void save() {
+        File stateFile = getStateFile();
+        PrintWriter writer = null;
+        try {
+            writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(stateFile), "UTF-8"));
+            writer.println(STATE_FILE_HEADER);
+            writer.println("F " + fingerprint);
+            for (SourceState state : sources.values()) {
+                writer.println("S " + state.lastModified + " " + state.path);
+                for (Map.Entry<String, ClassState> entry : state.classes.entrySet()) {
+                    ClassState classState = entry.getValue();
+                    writer.print("C " + entry.getKey() + " " + classState.abiHash + " " + classState.constantsHash);
+                    for (String supertype : classState.supertypes) {
+                        writer.print(" " + supertype);
+                    }
+                    writer.println();
+                }
+                for (String reference : state.references) {
+                    writer.println("R " + reference);
+                }
+            }
+            writer.flush();
+            if (writer.checkError()) {
+                throw new IOException("write failed");
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to write incremental compile state to " + stateFile + ": " + e.getMessage());
+            if (writer != null) {
+                writer.close();
+                writer = null;
+            }
+            stateFile.delete();
+        } finally {
+            if (writer != null) {
+                writer.close();
+            }
+        }
+    }
+
+    private void load() {
+        sources.clear();
+        fingerprintMatches = false;
+        File stateFile = getStateFile();
+        if (!stateFile.isFile()) {
+            return;
+        }
+        BufferedReader reader = null;
+        try {
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(stateFile), "UTF-8"));
+            if (!STATE_FILE_HEADER.equals(reader.readLine())) {
+                return;
+            }
+            String line = reader.readLine();
+            fingerprintMatches = line != null && line.equals("F " + fingerprint);
+
+            SourceState state = null;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("S ")) {
+                    int space = line.indexOf(' ', 2);
+                    state = new SourceState(line.substring(space + 1));
+                    state.lastModified = Long.parseLong(line.substring(2, space));
+                    sources.put(state.path, state);
+                } else if (line.startsWith("C ") && state != null) {
+                    String[] parts = line.split(" ");
+                    state.classes.put(parts[1], new ClassState(parts[2], parts[3], Arrays.asList(parts).subList(4, parts.length)));
+                } else if (line.startsWith("R ") && state != null) {
+                    state.references.add(line.substring(2));
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Unable to read incremental compile state from " + stateFile + ": " + e.getMessage());
+            sources.clear();
+            fingerprintMatches = false;
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private Set<File> getDependents(Set<String> types) {
+        Set<File> dependents = new LinkedHashSet<File>();
+        if (!types.isEmpty()) {
+            for (SourceState state : sources.values()) {
+                for (String reference : state.references) {
+                    if (types.contains(reference)) {
+                        dependents.add(new File(state.path));
+                        break;
+                    }
+                }
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Finds the sources that reference a type with the same simple name as one of the given types but in a different
+     * package or outer type; for example an on-demand import that is now shadowed by a type in the same package.
+     */
+    private Set<File> getDependentsBySimpleName(Set<String> types) {
+        Set<File> dependents = new LinkedHashSet<File>();
+        if (!types.isEmpty()) {
+            Set<String> simpleNames = new HashSet<String>();
+            for (String type : types) {
+                simpleNames.add(simpleName(type));
+            }
+            for (SourceState state : sources.values()) {
+                for (String reference : state.references) {
+                    if (simpleNames.contains(simpleName(reference))) {
+                        dependents.add(new File(state.path));
+                        break;
+                    }
+                }
+            }
+        }
+        return dependents;
+    }
+
+    /**
+     * Adds the (direct and indirect) subtypes of the given types that are known from the class files of the sources.
+     */
+    private Set<String> withSubtypes(Set<String> types) {
+        if (types.isEmpty()) {
+            return types;
+        }
+        Map<String, List<String>> subtypes = new HashMap<String, List<String>>();
+        for (SourceState state : sources.values()) {
+            for (Map.Entry<String, ClassState> entry : state.classes.entrySet()) {
+                for (String supertype : entry.getValue().supertypes) {
+                    List<String> list = subtypes.get(supertype);
+                    if (list == null) {
+                        list = new ArrayList<String>(2);
+                        subtypes.put(supertype, list);
+                    }
+                    list.add(entry.getKey());
+                }
+            }
+        }
+        Set<String> result = new HashSet<String>(types);
+        List<String> queue = new ArrayList<String>(types);
+        while (!queue.isEmpty()) {
+            List<String> list = subtypes.get(queue.remove(queue.size() - 1));
+            if (list != null) {
+                for (String subtype : list) {
+                    if (result.add(subtype)) {
+                        queue.add(subtype);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String simpleName(String type) {
+        return type.substring(Math.max(type.lastIndexOf('/'), type.lastIndexOf('$')) + 1);
+    }
+
+    private List<SourceState> getRoundStates() {
+        List<SourceState> states = new ArrayList<SourceState>(roundSources.size());
+        for (File source : roundSources) {
+            states.add(sources.get(source.getAbsolutePath()));
+        }
+        return states;
+    }
+
+    private boolean classFilesExist(SourceState state) {
+        for (String type : state.classes.keySet()) {
+            if (!classFile(type).isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private File classFile(String type) {
+        return new File(outputDirectory, type.replace('/', File.separatorChar) + ".class");
+    }
+
+    private static void collectClassFiles(File directory, long modifiedSince, List<File> classFiles) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    collectClassFiles(file, modifiedSince, classFiles);
+                } else if (file.getName().endsWith(".class") && file.lastModified() >= modifiedSince) {
+                    classFiles.add(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes a key that changes whenever something changes that may affect all of the compiler output: the classpath
+     * (including the timestamps of its jars), the compiler options and the compiler itself.
+     */
+    static String fingerprint(CompilerConfiguration config, Map<String, String> compilerArgs) {
+        StringBuilder sb = new StringBuilder();
+        for (Object entry : config.getClasspathEntries()) {
+            File file = new File(String.valueOf(entry));
+            sb.append(file.getAbsolutePath());
+            if (file.isFile()) {
+                sb.append('@').append(file.lastModified()).append('/').append(file.length());
+            }
+            sb.append(File.pathSeparatorChar);
+        }
+        sb.append('\n').append(config.getSourceVersion());
+        sb.append('\n').append(config.getTargetVersion());
+        sb.append('\n').append(config.isDebug()).append(config.getDebugLevel());
+        sb.append('\n').append(config.getSourceEncoding());
+        sb.append('\n').append(config.getProc()).append(config.getAnnotationProcessors() != null ? Arrays.asList(config.getAnnotationProcessors()) : null);
+        sb.append('\n').append(compilerArgs);
+        try {
+            // can't reference JDT directly in this class either
+            File batch = new File(Class.forName("org.eclipse.jdt.internal.compiler.batch.Main").getProtectionDomain().getCodeSource().getLocation().getPath());
+            sb.append('\n').append(batch.getName()).append('@').append(batch.lastModified());
+        } catch (Exception e) {
+            // not found or no code source; the other parts have to do
+        }
+        return digest(sb.toString());
+    }
+
+    static String digest(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(text.getBytes("UTF-8"));
+            StringBuilder sb = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(text.hashCode());
+        } catch (IOException e) {
+            return Integer.toHexString(text.hashCode());
+        }
+    }
+
+    //--------------------------------------------------------------------------
+
+    private static class SourceState {
+        final String path;
+        long lastModified;
+        long pendingLastModified;
+        Map<String, ClassState> classes = new LinkedHashMap<String, ClassState>();
+        Set<String> references = new TreeSet<String>();
+
+        SourceState(String path) {
+            this.path = path;
+        }
+    }
+
+    private static class ClassState {
+        final String abiHash;
+        final String constantsHash;
+        final List<String> supertypes;
+
+        ClassState(String abiHash, String constantsHash, List<String> supertypes) {
+            this.abiHash = abiHash;
+            this.constantsHash = constantsHash;
+            this.supertypes = supertypes;
+        }
+    }
+
+    /**
+     * Finds the source of a class file among the sources of the current round, using the class's package and its
+     * <code>SourceFile</code> attribute. Groovy does not require that the package of a source matches its folder, so if
+     * that fails a source with a matching file name is used if there is exactly one.
+     */
+    private class SourceLocator {
+        private final Map<String, SourceState> byRelativePath = new HashMap<String, SourceState>();
+        private final Map<String, List<SourceState>> byFileName = new HashMap<String, List<SourceState>>();
+
+        SourceLocator(List<SourceState> states) {
+            for (SourceState state : states) {
+                String path = state.path.replace(File.separatorChar, '/');
+                for (String root : sourceRoots) {
+                    String prefix = new File(root).getAbsolutePath().replace(File.separatorChar, '/') + '/';
+                    if (path.startsWith(prefix)) {
+                        byRelativePath.put(path.substring(prefix.length()), state);
+                    }
+                }
+                String fileName = path.substring(path.lastIndexOf('/') + 1);
+                List<SourceState> list = byFileName.get(fileName);
+                if (list == null) {
+                    list = new ArrayList<SourceState>(1);
+                    byFileName.put(fileName, list);
+                }
+                list.add(state);
+            }
+        }
+
+        SourceState locate(ClassFileInfo info) {
+            int slash = info.name.lastIndexOf('/');
+            String packagePath = slash > 0 ? info.name.substring(0, slash + 1) : "";
+            List<String> fileNames = new ArrayList<String>(2);
+            if (info.sourceFile != null) {
+                fileNames.add(info.sourceFile);
+            } else {
+                String topLevel = info.name.substring(slash + 1);
+                if (topLevel.indexOf('$') > 0) {
+                    topLevel = topLevel.substring(0, topLevel.indexOf('$'));
+                }
+                fileNames.add(topLevel + ".groovy");
+                fileNames.add(topLevel + ".java");
+            }
+            for (String fileName : fileNames) {
+                SourceState state = byRelativePath.get(packagePath + fileName);
+                if (state != null) {
+                    return state;
+                }
+            }
+            for (String fileName : fileNames) {
+                List<SourceState> states = byFileName.get(fileName);
+                if (states != null && states.size() == 1) {
+                    return states.get(0);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The parts of a class file relevant for dependency tracking.
+     */
+    static class ClassFileInfo {
+
+        static final String NO_CONSTANTS = "-";
+
+        private static final Pattern TYPE_IN_DESCRIPTOR = Pattern.compile("L([\\p{javaJavaIdentifierPart}/]+)[;<]");
+
+        private static final int ACC_PRIVATE = 0x0002;
+        private static final int ACC_SUPER = 0x0020;
+        private static final int ACC_SYNTHETIC = 0x1000;
+
+        String name;
+        String sourceFile;
+        String abiHash;
+        String constantsHash;
+        final Set<String> references = new HashSet<String>();
+        final List<String> supertypes = new ArrayList<String>(2);
+
+        private Object[] pool;
+
+        static ClassFileInfo read(File classFile) throws IOException {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(classFile)));
+            try {
+                ClassFileInfo info = new ClassFileInfo();
+                info.read(in);
+                return info;
+            } finally {
+                in.close();
+            }
+        }
+
+        private void read(DataInputStream in) throws IOException {
+            if (in.readInt() != 0xCAFEBABE) {
+                throw new IOException("not a class file");
+            }
+            in.readUnsignedShort(); // minor version
+            in.readUnsignedShort(); // major version
+
+            int count = in.readUnsignedShort();
+            pool = new Object[count];
+            for (int i = 1; i < count; i += 1) {
+                int tag = in.readUnsignedByte();
+                switch (tag) {
+                case 1: // Utf8
+                    pool[i] = in.readUTF();
+                    break;
+                case 3: // Integer
+                    pool[i] = Integer.valueOf(in.readInt());
+                    break;
+                case 4: // Float
+                    pool[i] = Float.valueOf(in.readFloat());
+                    break;
+                case 5: // Long
+                    pool[i] = Long.valueOf(in.readLong());
+                    i += 1;
+                    break;
+                case 6: // Double
+                    pool[i] = Double.valueOf(in.readDouble());
+                    i += 1;
+                    break;
+                case 7: // Class
+                    pool[i] = new ClassRef(in.readUnsignedShort());
+                    break;
+                case 8: // String
+                    pool[i] = new StringRef(in.readUnsignedShort());
+                    break;
+                case 16: // MethodType
+                case 19: // Module
+                case 20: // Package
+                    in.readUnsignedShort();
+                    break;
+                case 15: // MethodHandle
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                    break;
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 17: // Dynamic
+                case 18: // InvokeDynamic
+                    in.readInt();
+                    break;
+                default:
+                    throw new IOException("unknown constant pool tag " + tag);
+                }
+            }
+
+            // every type named in the class, its descriptors or its signatures
+            for (Object entry : pool) {
+                if (entry instanceof ClassRef) {
+                    String className = utf8(((ClassRef) entry).index);
+                    if (!className.startsWith("[")) {
+                        references.add(className);
+                    } // else array type; the descriptor is handled below
+                } else if (entry instanceof String) {
+                    addTypesInDescriptor((String) entry);
+                }
+            }
+
+            StringBuilder abi = new StringBuilder();
+            StringBuilder constants = new StringBuilder();
+
+            abi.append(in.readUnsignedShort() & ~ACC_SUPER).append(' ');
+            name = className(in.readUnsignedShort());
+            references.remove(name);
+            String superclass = className(in.readUnsignedShort());
+            if (superclass.length() > 0) {
+                supertypes.add(superclass);
+            }
+            abi.append(name).append(" extends ").append(superclass).append(" implements");
+            int interfaces = in.readUnsignedShort();
+            for (int i = 0; i < interfaces; i += 1) {
+                String superinterface = className(in.readUnsignedShort());
+                supertypes.add(superinterface);
+                abi.append(' ').append(superinterface);
+            }
+            abi.append('\n');
+
+            Set<String> members = new TreeSet<String>();
+            readMembers(in, members, constants);
+            readMembers(in, members, constants);
+            for (String member : members) {
+                abi.append(member).append('\n');
+            }
+
+            int attributes = in.readUnsignedShort();
+            for (int i = 0; i < attributes; i += 1) {
+                String attribute = utf8(in.readUnsignedShort());
+                int length = in.readInt();
+                if ("SourceFile".equals(attribute)) {
+                    sourceFile = utf8(in.readUnsignedShort());
+                } else if ("Signature".equals(attribute)) {
+                    abi.append("signature ").append(utf8(in.readUnsignedShort())).append('\n');
+                } else {
+                    in.skipBytes(length);
+                }
+            }
+
+            abiHash = digest(abi.toString());
+            constantsHash = constants.length() > 0 ? digest(constants.toString()) : NO_CONSTANTS;
+            pool = null;
+        }
+
+        private void readMembers(DataInputStream in, Set<String> members, StringBuilder constants) throws IOException {
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i += 1) {
+                int access = in.readUnsignedShort();
+                String memberName = utf8(in.readUnsignedShort());
+                String descriptor = utf8(in.readUnsignedShort());
+                boolean visible = (access & (ACC_PRIVATE | ACC_SYNTHETIC)) == 0;
+
+                StringBuilder member = new StringBuilder();
+                member.append(access).append(' ').append(memberName).append(' ').append(descriptor);
+                int attributes = in.readUnsignedShort();
+                for (int j = 0; j < attributes; j += 1) {
+                    String attribute = utf8(in.readUnsignedShort());
+                    int length = in.readInt();
+                    if ("Signature".equals(attribute)) {
+                        member.append(" signature ").append(utf8(in.readUnsignedShort()));
+                    } else if ("Exceptions".equals(attribute)) {
+                        int exceptions = in.readUnsignedShort();
+                        member.append(" throws");
+                        for (int k = 0; k < exceptions; k += 1) {
+                            member.append(' ').append(className(in.readUnsignedShort()));
+                        }
+                    } else if ("ConstantValue".equals(attribute)) {
+                        Object value = pool[in.readUnsignedShort()];
+                        if (value instanceof StringRef) {
+                            value = '"' + utf8(((StringRef) value).index) + '"';
+                        }
+                        constants.append(memberName).append('=').append(value).append('\n');
+                    } else {
+                        in.skipBytes(length);
+                    }
+                }
+                if (visible) {
+                    members.add(member.toString());
+                }
+            }
+        }
+
+        private void addTypesInDescriptor(String descriptor) {
+            if (descriptor.indexOf(';') < 0) {
+                return;
+            }
+            Matcher matcher = TYPE_IN_DESCRIPTOR.matcher(descriptor);
+            while (matcher.find()) {
+                references.add(matcher.group(1));
+            }
+        }
+
+        private String utf8(int index) {
+            return (String) pool[index];
+        }
+
+        private String className(int index) {
+            return index == 0 ? "" : utf8(((ClassRef) pool[index]).index);
+        }
+
+        private static class ClassRef {
+            final int index;
+
+            ClassRef(int index) {
+                this.index = index;
+            }
+        }
+
+        private static class StringRef {
+            final int index;
+
+            StringRef(int index) {
+                this.index = index;
+            }
+        }
+    }
+}
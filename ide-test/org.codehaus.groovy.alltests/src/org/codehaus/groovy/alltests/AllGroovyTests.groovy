@@ -26,6 +26,7 @@ import org.junit.runners.Suite
     // org.codehaus.groovy.eclipse.codeassist.tests
     org.codehaus.groovy.eclipse.codeassist.tests.AnnotationCompletionTests,
     org.codehaus.groovy.eclipse.codeassist.tests.CommandChainCompletionTests,
+    org.codehaus.groovy.eclipse.codeassist.tests.CompletionTimeoutTests,
     org.codehaus.groovy.eclipse.codeassist.tests.ConstructorCompletionTests,
     org.codehaus.groovy.eclipse.codeassist.tests.ContentAssistLocationTests,
     org.codehaus.groovy.eclipse.codeassist.tests.ContextInformationTests,
@@ -80,12 +81,15 @@ import org.junit.runners.Suite
     // org.codehaus.groovy.eclipse.dsl.tests
     org.codehaus.groovy.eclipse.dsl.tests.BuiltInDSLInferencingTests,
     org.codehaus.groovy.eclipse.dsl.tests.DSLContentAssistTests,
+    org.codehaus.groovy.eclipse.dsl.tests.DSLDScriptClassCacheTests,
+    org.codehaus.groovy.eclipse.dsl.tests.DSLDTypeLookupTests,
     org.codehaus.groovy.eclipse.dsl.tests.DSLInferencingTests,
     org.codehaus.groovy.eclipse.dsl.tests.DSLNamedArgContentAssistTests,
     org.codehaus.groovy.eclipse.dsl.tests.DSLStoreTests,
     org.codehaus.groovy.eclipse.dsl.tests.MetaDSLInferencingTests,
     org.codehaus.groovy.eclipse.dsl.tests.PointcutCreationTests,
     org.codehaus.groovy.eclipse.dsl.tests.PointcutEvaluationTests,
+    org.codehaus.groovy.eclipse.dsl.tests.StaticCheckerReportTests,
     org.codehaus.groovy.eclipse.dsl.tests.StringObjectVectorTests,
 
     // org.codehaus.groovy.eclipse.junit.tests
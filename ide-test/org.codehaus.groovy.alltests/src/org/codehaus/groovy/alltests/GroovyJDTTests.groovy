@@ -35,6 +35,8 @@ import org.junit.runners.Suite
     org.eclipse.jdt.core.groovy.tests.builder.BasicGroovyBuildTests,
     org.eclipse.jdt.core.groovy.tests.builder.BuildAccessRulesTests,
     org.eclipse.jdt.core.groovy.tests.builder.FullProjectTests,
+    org.eclipse.jdt.core.groovy.tests.builder.GroovyClassLoaderPoolTests,
+    org.eclipse.jdt.core.groovy.tests.builder.ModuleNodeCacheTests,
     org.eclipse.jdt.core.groovy.tests.builder.STCScriptsTests,
     org.eclipse.jdt.core.groovy.tests.builder.ScriptFolderTests,
 
@@ -50,11 +52,13 @@ import org.junit.runners.Suite
     org.eclipse.jdt.core.groovy.tests.model.GroovyCompilationUnitTests,
     org.eclipse.jdt.core.groovy.tests.model.GroovyContentTypeTests,
     org.eclipse.jdt.core.groovy.tests.model.GroovyPartialModelTests,
+    org.eclipse.jdt.core.groovy.tests.model.ModuleNodeMapperTests,
     org.eclipse.jdt.core.groovy.tests.model.MoveRenameCopyTests,
 
     // Search tests
     org.eclipse.jdt.core.groovy.tests.search.ArrayInferencingTests,
     org.eclipse.jdt.core.groovy.tests.search.BinarySearchTests,
+    org.eclipse.jdt.core.groovy.tests.search.CategoryMethodIndexTests,
     org.eclipse.jdt.core.groovy.tests.search.CategorySearchTests,
     org.eclipse.jdt.core.groovy.tests.search.DGMInferencingTests,
     org.eclipse.jdt.core.groovy.tests.search.DeclarationInferencingTests,
@@ -63,14 +67,18 @@ import org.junit.runners.Suite
     org.eclipse.jdt.core.groovy.tests.search.GenericsMappingTest,
     org.eclipse.jdt.core.groovy.tests.search.Groovy20InferencingTests,
     org.eclipse.jdt.core.groovy.tests.search.Groovy21InferencingTests,
+    org.eclipse.jdt.core.groovy.tests.search.InferenceMemoTests,
+    org.eclipse.jdt.core.groovy.tests.search.InferenceResultsTests,
     org.eclipse.jdt.core.groovy.tests.search.InferencingTests,
     org.eclipse.jdt.core.groovy.tests.search.JDTPropertyNodeInferencingTests,
     org.eclipse.jdt.core.groovy.tests.search.LocalVariableReferenceSearchTests,
+    org.eclipse.jdt.core.groovy.tests.search.MethodCacheTests,
     org.eclipse.jdt.core.groovy.tests.search.MethodReferenceSearchTests,
     org.eclipse.jdt.core.groovy.tests.search.OperatorOverloadingInferencingTests,
     org.eclipse.jdt.core.groovy.tests.search.StaticInferencingTests,
     org.eclipse.jdt.core.groovy.tests.search.SyntheticAccessorInferencingTests,
-    org.eclipse.jdt.core.groovy.tests.search.TypeReferenceSearchTests
+    org.eclipse.jdt.core.groovy.tests.search.TypeReferenceSearchTests,
+    org.eclipse.jdt.core.groovy.tests.search.VariableScopeTests
 ])
 final class GroovyJDTTests {
     @BeforeClass
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.eclipse.codeassist.tests
+
+import org.codehaus.groovy.eclipse.codeassist.requestor.GroovyCompletionProposalComputer
+import org.eclipse.jface.text.contentassist.ICompletionProposal
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+/**
+ * Ensures the type and package searches that run in the background are waited for unless a time budget is set.
+ */
+final class CompletionTimeoutTests extends CompletionTestSuite {
+
+    private long timeout
+
+    @Before
+    void setUp() {
+        timeout = GroovyCompletionProposalComputer.timeout
+    }
+
+    @After
+    void tearDown() {
+        GroovyCompletionProposalComputer.timeout = timeout
+    }
+
+    private static final String CONTENTS = 'def HTMLish = null\nHTML'
+
+    @Test
+    void testNoTimeoutByDefault() {
+        if (System.getProperty('greclipse.contentAssistTimeout') == null) {
+            assert timeout == 0L
+        }
+        GroovyCompletionProposalComputer.timeout = 0L
+
+        ICompletionProposal[] proposals = createProposalsAtOffset(CONTENTS, getLastIndexOf(CONTENTS, 'HTML'))
+        proposalExists(proposals, 'HTMLish', 1)
+        proposalExists(proposals, 'HTML - javax.swing.text.html', 1)
+    }
+
+    @Test
+    void testSearchesFinishWithinBudget() {
+        GroovyCompletionProposalComputer.timeout = 60000L
+
+        ICompletionProposal[] proposals = createProposalsAtOffset(CONTENTS, getLastIndexOf(CONTENTS, 'HTML'))
+        proposalExists(proposals, 'HTMLish', 1)
+        proposalExists(proposals, 'HTML - javax.swing.text.html', 1)
+    }
+
+    @Test
+    void testSearchesDroppedWhenBudgetExceeded() {
+        // the budget is used up by the work done on the caller's thread
+        GroovyCompletionProposalComputer.timeout = 1L
+
+        ICompletionProposal[] proposals = createProposalsAtOffset(CONTENTS, getLastIndexOf(CONTENTS, 'HTML'))
+        proposalExists(proposals, 'HTMLish', 1)
+        proposalExists(proposals, 'HTML - javax.swing.text.html', 0)
+    }
+}
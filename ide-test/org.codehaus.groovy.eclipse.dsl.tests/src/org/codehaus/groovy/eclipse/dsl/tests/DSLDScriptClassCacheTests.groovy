@@ -0,0 +1,139 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.eclipse.dsl.tests
+
+import static org.junit.Assert.*
+
+import org.codehaus.groovy.eclipse.dsl.script.DSLDScriptClassCache
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+final class DSLDScriptClassCacheTests {
+
+    private File location
+
+    @Before
+    void setUp() {
+        location = File.createTempFile('dsld', 'cache')
+        location.delete()
+        location.mkdirs()
+    }
+
+    @After
+    void tearDown() {
+        location.deleteDir()
+    }
+
+    private DSLDScriptClassCache cache(String version = '1', int maxEntries = 256, int maxMemoryEntries = 32) {
+        new DSLDScriptClassCache(location, version, maxEntries, maxMemoryEntries)
+    }
+
+    private Object answer(DSLDScriptClassCache cache, String name, int value) {
+        Class<?> clazz = cache.getScriptClass(name, "def answer() { $value }", new GroovyClassLoader(getClass().classLoader))
+        clazz.newInstance().answer()
+    }
+
+    private List<File> entries() {
+        location.listFiles().toList()
+    }
+
+    private File newEntry(Closure<?> action) {
+        Set<File> before = entries() as Set
+        action.call()
+        List<File> created = entries() - before
+        assertEquals(1, created.size())
+        created[0]
+    }
+
+    private void assertValid(File entry) {
+        // the entry was stored again and can be read
+        assertEquals(0xD51D0001, new DataInputStream(new ByteArrayInputStream(entry.bytes)).readInt())
+        assertEquals(1, answer(cache(), 'x.dsld', 1))
+        assertEquals(1, entries().size())
+    }
+
+    @Test
+    void testEntryIsReused() {
+        File one = newEntry { assertEquals(1, answer(cache(), 'x.dsld', 1)) }
+        File two = newEntry { assertEquals(2, answer(cache(), 'x.dsld', 2)) }
+
+        // an entry that is read, not compiled, gives away its origin
+        one.bytes = two.bytes
+        assertEquals(2, answer(cache(), 'x.dsld', 1))
+        assertEquals(2, entries().size())
+    }
+
+    @Test
+    void testChangedVersionMisses() {
+        newEntry { answer(cache('1'), 'x.dsld', 1) }
+        newEntry { answer(cache('2'), 'x.dsld', 1) }
+
+        assertEquals(1, answer(cache('1'), 'x.dsld', 1))
+        assertEquals(1, answer(cache('2'), 'x.dsld', 1))
+        assertEquals(2, entries().size())
+    }
+
+    @Test
+    void testCorruptEntryIsRecompiled() {
+        File entry = newEntry { answer(cache(), 'x.dsld', 1) }
+
+        entry.bytes = 'not a compiled script'.bytes
+        assertEquals(1, answer(cache(), 'x.dsld', 1))
+        assertValid(entry)
+    }
+
+    @Test
+    void testPartialEntryIsRecompiled() {
+        File entry = newEntry { answer(cache(), 'x.dsld', 1) }
+        byte[] valid = entry.bytes
+
+        entry.bytes = Arrays.copyOf(valid, valid.length.intdiv(2) as int)
+        assertEquals(1, answer(cache(), 'x.dsld', 1))
+        assertValid(entry)
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsDeleted() {
+        File a = newEntry { answer(cache('1', 2, 32), 'a.dsld', 1) }
+        File b = newEntry { answer(cache('1', 2, 32), 'b.dsld', 2) }
+        a.lastModified = 1000
+        b.lastModified = 2000
+
+        // reading an entry makes it the most recently used one
+        assertEquals(1, answer(cache('1', 2, 32), 'a.dsld', 1))
+        File c = newEntry { answer(cache('1', 2, 32), 'c.dsld', 3) }
+
+        assertEquals([a, c] as Set, entries() as Set)
+    }
+
+    @Test
+    void testLeastRecentlyUsedScriptIsForgotten() {
+        DSLDScriptClassCache cache = cache('1', 256, 2)
+        answer(cache, 'a.dsld', 1)
+        answer(cache, 'b.dsld', 2)
+        answer(cache, 'a.dsld', 1)
+        answer(cache, 'c.dsld', 3)
+
+        // only scripts kept in memory can do without their entries
+        entries()*.delete()
+        assertEquals(1, answer(cache, 'a.dsld', 1))
+        assertEquals(3, answer(cache, 'c.dsld', 3))
+        assertEquals(0, entries().size())
+        assertEquals(2, answer(cache, 'b.dsld', 2))
+        assertEquals(1, entries().size())
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.eclipse.dsl.tests
+
+import static org.eclipse.jdt.core.groovy.tests.search.InferencingTestSuite.doVisit
+
+import org.codehaus.groovy.eclipse.dsl.lookup.DSLDTypeLookup
+import org.eclipse.jdt.groovy.search.ITypeLookup
+import org.eclipse.jdt.groovy.search.TypeLookupRegistry
+import org.junit.Test
+
+/**
+ * Tests that the DSLD lookups pooled between visits forget each visit and answer the next one like new lookups.
+ */
+final class DSLDTypeLookupTests extends DSLInferencingTestSuite {
+
+    private static final String CONTENTS =
+        'class Foo { }\n' +
+        'class Other { Class<String> blar() { } }\n' +
+        'class Another { Class<String> blar() { } }\n' +
+        'new Foo().blar()'
+
+    private static final int START = CONTENTS.lastIndexOf('blar'), END = START + 'blar'.length()
+
+    private final TypeLookupRegistry registry = TypeLookupRegistry.getRegistry()
+
+    private List<DSLDTypeLookup> pooledLookups() {
+        registry.@reusableLookups[DSLDTypeLookup.name] ?: []
+    }
+
+    private void visit() {
+        def unit = addGroovySource(CONTENTS, nextUnitName())
+        assert doVisit(START, END, unit, false).node != null
+    }
+
+    @Test
+    void testReleasedLookupsAreReset() {
+        createDsls('contribute(currentType("Foo")) { delegatesTo "Other" }')
+        visit()
+
+        assert !pooledLookups().isEmpty()
+        for (DSLDTypeLookup lookup : pooledLookups()) {
+            assert lookup.@store == null
+            assert lookup.@pattern == null
+            assert lookup.@disabledScriptsAsSet == null
+            assert lookup.@module == null
+            assert lookup.@resolver == null
+            // nor does it keep the last expression of the visit
+            assert lookup.currentExpression == null
+            assert !lookup.isStatic()
+        }
+    }
+
+    @Test
+    void testPooledLookupIsReused() {
+        visit()
+        List<DSLDTypeLookup> pooled = new ArrayList<DSLDTypeLookup>(pooledLookups())
+        assert !pooled.isEmpty()
+
+        List<ITypeLookup> lookups = registry.getLookupsFor(project)
+        try {
+            assert lookups.any { it.is(pooled[0]) }
+            assert pooledLookups().size() == pooled.size() - 1
+        } finally {
+            registry.release(lookups as ITypeLookup[])
+        }
+        assert pooledLookups().size() == pooled.size()
+    }
+
+    @Test
+    void testPoolIsBounded() {
+        List<List<ITypeLookup>> taken = []
+        12.times { taken << registry.getLookupsFor(project) }
+        taken.each { registry.release(it as ITypeLookup[]) }
+
+        assert pooledLookups().size() == 8
+    }
+
+    @Test
+    void testReusedLookupSeesChangedContributions() {
+        createDsls('contribute(currentType("Foo")) { delegatesTo "Other" }')
+        assertDeclaringType(CONTENTS, START, END, 'Other')
+
+        deleteDslFile(0)
+        createDsls('contribute(currentType("Foo")) { delegatesTo "Another" }')
+        assertDeclaringType(CONTENTS, START, END, 'Another')
+
+        deleteDslFile(1)
+        assertUnknownConfidence(CONTENTS, START, END, 'Foo')
+    }
+}
@@ -15,19 +15,27 @@
  */
 package org.codehaus.groovy.eclipse.dsl.tests
 
+import org.codehaus.groovy.ast.ASTNode
 import org.codehaus.groovy.eclipse.dsl.DSLDStore
 import org.codehaus.groovy.eclipse.dsl.DSLDStoreManager
 import org.codehaus.groovy.eclipse.dsl.DSLPreferences
 import org.codehaus.groovy.eclipse.dsl.GroovyDSLCoreActivator
 import org.codehaus.groovy.eclipse.dsl.contributions.IContributionGroup
+import org.codehaus.groovy.eclipse.dsl.pointcuts.GroovyDSLDContext
 import org.codehaus.groovy.eclipse.dsl.pointcuts.IPointcut
 import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.CurrentTypePointcut
 import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.FindFieldPointcut
 import org.codehaus.groovy.eclipse.test.SynchronizationUtils
+import org.codehaus.jdt.groovy.model.GroovyCompilationUnit
+import org.codehaus.jdt.groovy.model.ModuleNodeMapper.ModuleNodeInfo
 import org.eclipse.core.resources.IFile
 import org.eclipse.core.resources.IStorage
 import org.eclipse.core.resources.IncrementalProjectBuilder
+import org.eclipse.jdt.core.IJavaElement
 import org.eclipse.jdt.core.groovy.tests.SimpleProgressMonitor
+import org.eclipse.jdt.groovy.search.ITypeRequestor
+import org.eclipse.jdt.groovy.search.TypeInferencingVisitorFactory
+import org.eclipse.jdt.groovy.search.TypeLookupResult
 import org.eclipse.jdt.internal.core.JavaModelManager
 import org.junit.Test
 
@@ -371,6 +379,80 @@ final class DSLStoreTests extends DSLInferencingTestSuite {
         )
     }
 
+    private static List<String> pointcutOrder(DSLDStore store) {
+        Map<IPointcut, List<IContributionGroup>> pointcutContributionMap = store.@pointcutContributionMap
+        return pointcutContributionMap.keySet().collect { IPointcut pc ->
+            pc.class.simpleName + ':' + pc.containerIdentifier.name
+        }
+    }
+
+    @Test
+    void testIncrementalRefreshKeepsOrder() {
+        createDsls('currentType().accept { }', 'fields().accept { }', 'currentType().accept { }\nfields().accept { }')
+        DSLDStoreManager manager = GroovyDSLCoreActivator.default.contextStoreManager
+        manager.initialize(project, true)
+
+        List<String> before = pointcutOrder(manager.getDSLDStore(project))
+        assert before.size() == 4
+
+        // executes the first script again; its pointcuts must not move to the end
+        project.getFile('dsl0.dsld').setContents(new ByteArrayInputStream('currentType().accept { }\n'.getBytes(project.defaultCharset)), true, false, null)
+        SynchronizationUtils.waitForDSLDProcessingToComplete()
+        assert pointcutOrder(manager.getDSLDStore(project)) == before
+
+        manager.initialize(project, true)
+        List<String> incremental = pointcutOrder(manager.getDSLDStore(project))
+        assert incremental == before
+
+        manager.clearDSLDStore(project)
+        manager.initialize(project, true)
+        assert pointcutOrder(manager.getDSLDStore(project)) == incremental
+    }
+
+    @Test
+    void testIndexedLookupMatchesLinearScan() {
+        createDsls(
+            "currentType('java.lang.String').accept { property name: 'p0' }",
+            "fileName('Other.groovy').accept { property name: 'p1' }",
+            "(fileName('Idx.groovy') & currentType(subType('java.lang.Number'))).accept { property name: 'p2' }",
+            "nature('org.eclipse.jdt.groovy.core.groovyNature').accept { property name: 'p3' }",
+            "nature('no.such.nature').accept { property name: 'p4' }",
+            "enclosingMethod(name('m')).accept { property name: 'p5' }",
+            "currentType().accept { property name: 'p6' }\ncurrentType('java.lang.String').accept { property name: 'p7' }")
+        DSLDStoreManager manager = GroovyDSLCoreActivator.default.contextStoreManager
+        manager.initialize(project, true)
+        DSLDStore store = manager.getDSLDStore(project)
+
+        GroovyCompilationUnit unit = addGroovySource('class Idx {\n def m() { "x".length(); 1.intValue(); [].size() }\n def n() { 2.0d.toString() }\n}', 'Idx', 'p')
+        ModuleNodeInfo info = unit.getModuleInfo(true)
+        GroovyDSLDContext indexed = new GroovyDSLDContext(unit, info.module, info.resolver)
+        GroovyDSLDContext linear = new GroovyDSLDContext(unit, info.module, info.resolver)
+        DSLDStore subStore = store.createSubStore(indexed)
+
+        Set<String> found = new HashSet<String>()
+        int lookups = 0
+        ITypeRequestor requestor = { ASTNode node, TypeLookupResult result, IJavaElement enclosingElement ->
+            if (result?.scope != null && result.type != null) {
+                List<String> expected = contributions(store, linear, result)
+                assert contributions(subStore, indexed, result) == expected : "Different contributions for $node"
+                found.addAll(expected)
+                lookups += 1
+            }
+            return ITypeRequestor.VisitStatus.CONTINUE
+        } as ITypeRequestor
+        new TypeInferencingVisitorFactory().createVisitor(unit).visitCompilationUnit(requestor)
+
+        assert lookups > 0
+        assert found == ['p0', 'p2', 'p3', 'p5', 'p6', 'p7'] as Set
+    }
+
+    private static List<String> contributions(DSLDStore store, GroovyDSLDContext context, TypeLookupResult result) {
+        context.setCurrentScope(result.scope)
+        context.setTargetType(result.type)
+        context.setStatic(false)
+        return store.findContributions(context, Collections.<String>emptySet())*.contributionName()
+    }
+
     @Test
     void testDisabledOfFile() {
         createDsls('currentType().accept { }', 'fields().accept { }')
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.eclipse.dsl.tests
+
+import static org.junit.Assert.*
+
+import org.codehaus.groovy.ast.expr.VariableExpression
+import org.codehaus.groovy.eclipse.dsl.checker.ReportStaticCheckerHandler
+import org.codehaus.groovy.eclipse.dsl.checker.ReportStaticCheckerHandler.Format
+import org.codehaus.groovy.eclipse.dsl.checker.ResourceTypeChecker
+import org.codehaus.groovy.eclipse.dsl.checker.StaticCheckerApplication
+import org.codehaus.groovy.eclipse.test.GroovyEclipseTestSuite
+import org.eclipse.core.resources.IFile
+import org.eclipse.core.resources.IResource
+import org.eclipse.core.resources.ResourcesPlugin
+import org.eclipse.core.runtime.Path
+import org.junit.Test
+
+final class StaticCheckerReportTests extends GroovyEclipseTestSuite {
+
+    /** Text of a checked node that needs escaping: quote, markup, newline, tab and a control character. */
+    private static final String TEXT = 'a"<b>&\n\tc' + (char) 1
+
+    private static IFile file(String path) {
+        // handles are enough; the report only uses the paths
+        return ResourcesPlugin.workspace.root.getFile(new Path(path))
+    }
+
+    private static String report(Format format, boolean withProblems) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+        ReportStaticCheckerHandler handler = new ReportStaticCheckerHandler(new PrintStream(bytes, true, 'UTF-8'), format, 'Proj "1" <&>')
+
+        handler.setResource(file('/Proj/src/p/A.groovy'))
+        if (withProblems) {
+            handler.setResource(file('/Proj/src/p/B.groovy'))
+            handler.handleUnknownReference(new VariableExpression(TEXT), null, 3)
+            handler.handleTypeAssertionFailed(new VariableExpression('x'), 'java.lang.String', 'java.lang.Object', null, 5)
+        }
+        assertEquals(!withProblems, handler.finish(null))
+        assertEquals(withProblems ? 2 : 0, handler.numProblemsFound())
+
+        return bytes.toString('UTF-8').normalize()
+    }
+
+    @Test
+    void testJUnitReport() {
+        String expected =
+            '<?xml version="1.0" encoding="UTF-8"?>\n' +
+            '<testsuite name="Proj &quot;1&quot; &lt;&amp;&gt;">\n' +
+            '  <testcase classname="src.p.A" name="/Proj/src/p/A.groovy"/>\n' +
+            '  <testcase classname="src.p.B" name="/Proj/src/p/B.groovy">\n' +
+            '    <failure type="UnknownType" message="Line 3: unknown type: a&quot;&lt;b&gt;&amp;&#10;\tc"/>\n' +
+            '    <failure type="TypeAssertion" message="Line 5: Invalid inferred type.  x  Expected: java.lang.String Actual: java.lang.Object"/>\n' +
+            '  </testcase>\n' +
+            '</testsuite>\n'
+        assertEquals(expected, report(Format.JUNIT, true))
+    }
+
+    @Test
+    void testJUnitReportWithoutProblems() {
+        String expected =
+            '<?xml version="1.0" encoding="UTF-8"?>\n' +
+            '<testsuite name="Proj &quot;1&quot; &lt;&amp;&gt;">\n' +
+            '  <testcase classname="src.p.A" name="/Proj/src/p/A.groovy"/>\n' +
+            '</testsuite>\n'
+        assertEquals(expected, report(Format.JUNIT, false))
+    }
+
+    @Test
+    void testJsonReport() {
+        String expected =
+            '{\n' +
+            '  "name": "Proj \\"1\\" <&>",\n' +
+            '  "files": [\n' +
+            '    {"file": "/Proj/src/p/A.groovy", "problems": []},\n' +
+            '    {"file": "/Proj/src/p/B.groovy", "problems": [' +
+                '{"line": 3, "text": "a\\"<b>&\\n\\tc\\' + 'u0001", "kind": "unknownType"}, ' +
+                '{"line": 5, "text": "x", "kind": "typeAssertion", "expected": "java.lang.String", "actual": "java.lang.Object"}]}\n' +
+            '  ],\n' +
+            '  "problems": 2\n' +
+            '}\n'
+        assertEquals(expected, report(Format.JSON, true))
+    }
+
+    @Test
+    void testJsonReportWithoutProblems() {
+        String expected =
+            '{\n' +
+            '  "name": "Proj \\"1\\" <&>",\n' +
+            '  "files": [\n' +
+            '    {"file": "/Proj/src/p/A.groovy", "problems": []}\n' +
+            '  ],\n' +
+            '  "problems": 0\n' +
+            '}\n'
+        assertEquals(expected, report(Format.JSON, false))
+    }
+
+    private String check(int threads) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream()
+        ReportStaticCheckerHandler handler = new ReportStaticCheckerHandler(new PrintStream(bytes, true, 'UTF-8'), Format.JSON, 'TestProject')
+        List<IResource> resources = null
+        withProject { resources = [it] }
+
+        ResourceTypeChecker checker = new ResourceTypeChecker(handler, resources, null, null, false)
+        checker.threads = threads
+        assertFalse(checker.doCheck(null))
+
+        return bytes.toString('UTF-8').normalize()
+    }
+
+    @Test
+    void testParallelReportMatchesSerial() {
+        for (i in 0..<8) {
+            addGroovySource("""\
+                |def a$i = unknown$i
+                |def b$i = 'b' // TYPE:java.lang.Integer
+                |def c$i = $i // TYPE:java.lang.Integer
+                |""".stripMargin(), "Checked$i", 'p')
+        }
+
+        String serial = check(1)
+        assertFalse(serial.contains('"problems": 0'))
+        for (i in 0..<8) {
+            assertTrue(serial.contains("Checked${i}.groovy"))
+        }
+
+        assertEquals(serial, check(4))
+    }
+
+    @Test
+    void testGitPathsAreNotQuoted() {
+        String output = 'src/p/A.groovy\u0000src/p/\u00c4 b.groovy\u0000src/p/"q"\tt.groovy\u0000'
+        assertEquals(['src/p/A.groovy', 'src/p/\u00c4 b.groovy', 'src/p/"q"\tt.groovy'], StaticCheckerApplication.splitGitPaths(output))
+        assertEquals([], StaticCheckerApplication.splitGitPaths(''))
+    }
+
+    @Test
+    void testFormatNames() {
+        assertEquals(Format.JUNIT, Format.forName('junit'))
+        assertEquals(Format.JSON, Format.forName('JSON'))
+        try {
+            Format.forName('xml')
+            fail('Expected an unknown format to be rejected')
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
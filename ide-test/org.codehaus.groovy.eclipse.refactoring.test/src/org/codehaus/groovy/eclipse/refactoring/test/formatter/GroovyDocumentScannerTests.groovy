@@ -19,6 +19,7 @@ import static org.junit.Assert.*
 
 import groovyjarjarantlr.Token
 import org.codehaus.greclipse.GroovyTokenTypeBridge
+import org.codehaus.groovy.antlr.GroovySourceToken
 import org.codehaus.groovy.eclipse.refactoring.formatter.GroovyDocumentScanner
 import org.eclipse.jface.text.Document
 import org.eclipse.jface.text.IDocument
@@ -62,6 +63,25 @@ final class GroovyDocumentScannerTests {
         }
     }
 
+    private static List<String> describe(Collection<Token> tokens) {
+        tokens.collect { Token token ->
+            GroovySourceToken gToken = (GroovySourceToken) token
+            "${gToken.text}@${gToken.line}:${gToken.column}-${gToken.lineLast}:${gToken.columnLast}".toString()
+        }
+    }
+
+    /**
+     * Checks that the tokens of an incrementally rescanned document are those of a full scan.
+     */
+    private void assertSameAsFullScan(GroovyDocumentScanner scanner) {
+        GroovyDocumentScanner fresh = new GroovyDocumentScanner(new Document(document.get()))
+        try {
+            assertEquals(describe(fresh.getTokens(0, document.length)), describe(scanner.getTokens(0, document.length)))
+        } finally {
+            fresh.dispose()
+        }
+    }
+
     //
 
     @Test
@@ -150,4 +170,88 @@ final class GroovyDocumentScannerTests {
         assertTokens(["def", "a", "=", "3", "+", "4", "<newline>"], tokens)
         scanner.dispose()
     }
+
+    @Test
+    void testEditWithinLine() {
+        String text =
+            "class Foo {\n" +
+            "    def a = <***>\n" +
+            "    def b = 'b'\n" +
+            "    def c = 'c'\n" +
+            "}\n"
+        makeEditor(text)
+
+        GroovyDocumentScanner scanner = new GroovyDocumentScanner(document)
+        scanner.getLastToken()
+
+        send("3+4")
+        assertSameAsFullScan(scanner)
+        scanner.dispose()
+    }
+
+    @Test
+    void testEditAddingLines() {
+        String text =
+            "class Foo {\n" +
+            "    def a = 1<***>\n" +
+            "    def b = 'b'\n" +
+            "    def c = 'c'\n" +
+            "}\n"
+        makeEditor(text)
+
+        GroovyDocumentScanner scanner = new GroovyDocumentScanner(document)
+        scanner.getLastToken()
+
+        send("\n    def x = 2\n")
+        assertSameAsFullScan(scanner)
+
+        caret = document.get().indexOf("def x")
+        editDoc.replace(caret, "def x = 2\n    ".length(), "")
+        assertSameAsFullScan(scanner)
+        scanner.dispose()
+    }
+
+    @Test
+    void testEditChangingLexerState() {
+        String text =
+            "class Foo {\n" +
+            "    def a = <***>\n" +
+            "    def b = 'b'\n" +
+            "    def c = 'c'\n" +
+            "}\n"
+        makeEditor(text)
+
+        GroovyDocumentScanner scanner = new GroovyDocumentScanner(document)
+        scanner.getLastToken()
+
+        // the lines that follow are now inside the string
+        send('\'\'\'')
+        assertSameAsFullScan(scanner)
+
+        // and outside of it again
+        send('\'\'\'')
+        assertSameAsFullScan(scanner)
+        scanner.dispose()
+    }
+
+    @Test
+    void testTokensHeldAcrossEdits() {
+        String text =
+            "class Foo {\n" +
+            "    def a = 1<***>\n" +
+            "    def b = 'b'\n" +
+            "}\n"
+        makeEditor(text)
+
+        GroovyDocumentScanner scanner = new GroovyDocumentScanner(document)
+        List<Token> tokens = scanner.getLineTokens(2)
+        List<String> before = describe(tokens)
+
+        send("\n")
+        assertEquals(before, describe(tokens))
+        assertTokens(["def", "b", "=", "b", "<newline>"], scanner.getLineTokens(3))
+        assertEquals(before, describe(tokens))
+        assertEquals(3, tokens[0].line)
+        scanner.dispose()
+    }
 }
@@ -33,6 +33,7 @@ import org.codehaus.groovy.eclipse.codeassist.proposals.GroovyCategoryMethodProp
 import org.codehaus.groovy.eclipse.codeassist.proposals.GroovyFieldProposal;
 import org.codehaus.groovy.eclipse.codeassist.proposals.IGroovyProposal;
 import org.eclipse.jdt.groovy.core.util.GroovyUtils;
+import org.eclipse.jdt.groovy.search.CategoryMethodIndex;
 import org.eclipse.jdt.groovy.search.VariableScope;
 
 public class CategoryProposalCreator extends AbstractProposalCreator {
@@ -42,7 +43,24 @@ public class CategoryProposalCreator extends AbstractProposalCreator {
         List<IGroovyProposal> groovyProposals = new LinkedList<IGroovyProposal>();
         Set<String> existingFieldProposals = new HashSet<String>();
         Map<String, List<MethodNode>> existingMethodProposals = new HashMap<String, List<MethodNode>>();
+
+        // default categories come from the shared index; only methods that may take the self type need to be checked
+        CategoryMethodIndex index = CategoryMethodIndex.getDefault();
+        for (MethodNode method : index.getCompletionMethods(selfType)) {
+            if (categories.contains(index.getCategory(method)) && !filter.isFiltered(method)) {
+                addMethodProposal(method, selfType, prefix, groovyProposals, existingMethodProposals);
+            }
+        }
+        for (MethodNode method : index.getCompletionAccessors()) {
+            if (categories.contains(index.getCategory(method)) && !filter.isFiltered(method)) {
+                addPropertyProposal(method, selfType, prefix, groovyProposals, existingFieldProposals);
+            }
+        }
+
         for (ClassNode category : categories) {
+            if (index.isDefaultCategory(category)) {
+                continue;
+            }
             List<MethodNode> allMethods = category.getAllDeclaredMethods();
             boolean isDGMCategory = isDGMCategory(category);
             for (MethodNode method : allMethods) {
@@ -50,35 +68,48 @@ public class CategoryProposalCreator extends AbstractProposalCreator {
                 if (isDGMCategory && filter.isFiltered(method)) {
                     continue;
                 }
-                String methodName = method.getName();
                 if (method.isStatic() && method.isPublic()) {
-                    Parameter[] params = method.getParameters();
-                    // need to check if the method is being accessed directly or as a property (eg- getText() --> text)
-                    if (ProposalUtils.looselyMatches(prefix, methodName)) {
-                        if (params.length > 0 && GroovyUtils.isAssignable(selfType, params[0].getType()) && !isDuplicate(method, existingMethodProposals)) {
-                            GroovyCategoryMethodProposal methodProposal = new GroovyCategoryMethodProposal(method);
-                            methodProposal.setRelevanceMultiplier(isInterestingType(method.getReturnType()) ? 101 : 1);
-                            groovyProposals.add(methodProposal);
-                            List<MethodNode> methodList = existingMethodProposals.get(methodName);
-                            if (methodList == null) {
-                                methodList = new ArrayList<MethodNode>(2);
-                                existingMethodProposals.put(methodName, methodList);
-                            }
-                            methodList.add(method);
-                        }
-                    } else if (params.length == 1 && findLooselyMatchedAccessorKind(prefix, methodName, true).isAccessorKind(method, true) && !existingFieldProposals.contains(methodName) && hasNoField(selfType, methodName)) {
-                        // add property variant of accessor name
-                        GroovyFieldProposal fieldProposal = new GroovyFieldProposal(createMockField(method));
-                        fieldProposal.setRelevanceMultiplier(1);
-                        groovyProposals.add(fieldProposal);
-                        existingFieldProposals.add(methodName);
-                    }
+                    addMethodProposal(method, selfType, prefix, groovyProposals, existingMethodProposals);
+                    addPropertyProposal(method, selfType, prefix, groovyProposals, existingFieldProposals);
                 }
             }
         }
         return groovyProposals;
     }
 
+    private void addMethodProposal(MethodNode method, ClassNode selfType, String prefix, List<IGroovyProposal> groovyProposals, Map<String, List<MethodNode>> existingMethodProposals) {
+        String methodName = method.getName();
+        Parameter[] params = method.getParameters();
+        if (ProposalUtils.looselyMatches(prefix, methodName)) {
+            if (params.length > 0 && GroovyUtils.isAssignable(selfType, params[0].getType()) && !isDuplicate(method, existingMethodProposals)) {
+                GroovyCategoryMethodProposal methodProposal = new GroovyCategoryMethodProposal(method);
+                methodProposal.setRelevanceMultiplier(isInterestingType(method.getReturnType()) ? 101 : 1);
+                groovyProposals.add(methodProposal);
+                List<MethodNode> methodList = existingMethodProposals.get(methodName);
+                if (methodList == null) {
+                    methodList = new ArrayList<MethodNode>(2);
+                    existingMethodProposals.put(methodName, methodList);
+                }
+                methodList.add(method);
+            }
+        }
+    }
+
+    private void addPropertyProposal(MethodNode method, ClassNode selfType, String prefix, List<IGroovyProposal> groovyProposals, Set<String> existingFieldProposals) {
+        String methodName = method.getName();
+        Parameter[] params = method.getParameters();
+        // need to check if the method is being accessed directly or as a property (eg- getText() --> text)
+        if (!ProposalUtils.looselyMatches(prefix, methodName) && params.length == 1 &&
+                findLooselyMatchedAccessorKind(prefix, methodName, true).isAccessorKind(method, true) &&
+                !existingFieldProposals.contains(methodName) && hasNoField(selfType, methodName)) {
+            // add property variant of accessor name
+            GroovyFieldProposal fieldProposal = new GroovyFieldProposal(createMockField(method));
+            fieldProposal.setRelevanceMultiplier(1);
+            groovyProposals.add(fieldProposal);
+            existingFieldProposals.add(methodName);
+        }
+    }
+
     /**
      * Checks that the new method hasn't already been added.
      */
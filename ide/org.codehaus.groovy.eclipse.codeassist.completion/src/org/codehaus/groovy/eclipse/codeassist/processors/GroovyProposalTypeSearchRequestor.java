@@ -69,6 +69,7 @@ import org.eclipse.jdt.internal.ui.text.java.LazyJavaTypeCompletionProposal;
 import org.eclipse.jdt.ui.text.java.JavaContentAssistInvocationContext;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.eclipse.swt.graphics.Image;
 
 /**
  * This type requestor searches for groovy type content assist proposals in the current
@@ -248,11 +249,17 @@ public class GroovyProposalTypeSearchRequestor implements ISearchRequestor, Rele
     /**
      * Called after all types have been accepted by this requestor.  Converts each type into an {@link ICompletionProposal}.
      *
+     * @param importedNames imports of the compilation unit, read from its resolver by the thread that owns the resolver
      * @return list of all {@link ICompletionProposal}s applicable for this content assist request
      */
-    List<ICompletionProposal> processAcceptedTypes(JDTResolver resolver) {
+    List<ICompletionProposal> processAcceptedTypes(ImportedNames importedNames) {
         checkCancel();
 
+        if (imports == null && importedNames != null) {
+            imports = importedNames.typeImports;
+            onDemandimports = importedNames.onDemandImports;
+        }
+
         int n;
         if (acceptedTypes == null || (n = acceptedTypes.size()) == 0) {
             return Collections.EMPTY_LIST;
@@ -288,11 +295,6 @@ public class GroovyProposalTypeSearchRequestor implements ISearchRequestor, Rele
                 }
                 char[] fullyQualifiedName = CharOperation.concat(packageName, typeName, '.');
 
-                // get this imports from the module node
-                if (imports == null && resolver.getScope() != null) {
-                    initializeImportArrays(resolver.getScope());
-                }
-
                 if (imports != null) {
                     // check to see if this type is imported explicitly
                     for (char[][] importName : imports) {
@@ -355,7 +357,7 @@ public class GroovyProposalTypeSearchRequestor implements ISearchRequestor, Rele
             completionName = simpleTypeName;
         }
 
-        GroovyCompletionProposal proposal = createProposal(CompletionProposal.TYPE_REF, this.actualCompletionPosition - this.offset);
+        final GroovyCompletionProposal proposal = createProposal(CompletionProposal.TYPE_REF, this.actualCompletionPosition - this.offset);
         proposal.setDeclarationSignature(packageName);
         proposal.setSignature(CompletionEngine.createNonGenericTypeSignature(packageName, simpleTypeName));
         proposal.setCompletion(completionName);
@@ -367,7 +369,18 @@ public class GroovyProposalTypeSearchRequestor implements ISearchRequestor, Rele
         proposal.setAccessibility(accessibility);
         proposal.setPackageName(packageName);
         String completionString = new String(completionName);
-        JavaTypeCompletionProposal javaCompletionProposal = new JavaTypeCompletionProposal(completionString, null, this.offset, this.replaceLength, ProposalUtils.getImage(proposal), ProposalUtils.createDisplayString(proposal), proposal.getRelevance(), completionString, javaContext);
+        // the image comes from the UI thread's registry, so it is created when the proposal is first shown
+        JavaTypeCompletionProposal javaCompletionProposal = new JavaTypeCompletionProposal(completionString, null, this.offset, this.replaceLength, null, ProposalUtils.createDisplayString(proposal), proposal.getRelevance(), completionString, javaContext) {
+            @Override
+            public Image getImage() {
+                Image image = super.getImage();
+                if (image == null) {
+                    image = ProposalUtils.getImage(proposal);
+                    setImage(image);
+                }
+                return image;
+            }
+        };
         javaCompletionProposal.setRelevance(proposal.getRelevance());
 
         return javaCompletionProposal;
@@ -483,8 +496,10 @@ public class GroovyProposalTypeSearchRequestor implements ISearchRequestor, Rele
                 final int accessibility = acceptedConstructor.accessibility;
                 char[] fullyQualifiedName = CharOperation.concat(packageName, simpleTypeName, '.');
 
-                if (imports == null && resolver.getScope() != null) {
-                    initializeImportArrays(resolver.getScope());
+                if (imports == null) {
+                    ImportedNames importedNames = new ImportedNames(resolver);
+                    imports = importedNames.typeImports;
+                    onDemandimports = importedNames.onDemandImports;
                 }
 
                 // propose all constructors regardless of package, but ignore enums
@@ -728,40 +743,6 @@ public class GroovyProposalTypeSearchRequestor implements ISearchRequestor, Rele
         return proposal;
     }
 
-    /**
-     * Fills in {@link #imports} and {@link #onDemandimports} from the compilation unit.
-     *
-     * NOTE: The original implementation of this method did not add "java.lang" to star
-     * imports. Adding it to the array may result in extra type proposals. Not sure...
-     */
-    private void initializeImportArrays(GroovyCompilationUnitScope scope) {
-        int i, n = (scope.imports != null) ? scope.imports.length : 0, s, t;
-        for (i = 0, s = 0, t = 0; i < n; i += 1) {
-            if (!scope.imports[i].isStatic()) {
-                if (scope.imports[i].onDemand) {
-                    s += 1;
-                } else {
-                    t += 1;
-                }
-            }
-        }
-
-        char[][] starImports = new char[s][];
-        char[][][] typeImports = new char[t][][];
-        for (i = 0, s = 0, t = 0; i < n; i += 1) {
-            if (!scope.imports[i].isStatic()) {
-                if (scope.imports[i].onDemand) {
-                    starImports[s++] = getImportName(scope.imports[i]);
-                } else {
-                    typeImports[t++] = new char[][] {getSimpleName(scope.imports[i]), getImportName(scope.imports[i])};
-                }
-            }
-        }
-
-        imports = typeImports;
-        onDemandimports = starImports;
-    }
-
     private static char[] getImportName(ImportBinding binding) {
         if (binding.reference != null) {
             return CharOperation.concatWith(binding.reference.getImportName(), '.');
@@ -778,6 +759,55 @@ public class GroovyProposalTypeSearchRequestor implements ISearchRequestor, Rele
 
     //--------------------------------------------------------------------------
 
+    /**
+     * The non-static imports of a compilation unit. The resolver and its scope may only be used by the thread that owns
+     * them, so processors that search on a background thread read the imports when they are given the resolver.
+     *
+     * NOTE: The original implementation did not add "java.lang" to star imports. Adding
+     * it to the array may result in extra type proposals. Not sure...
+     */
+    public static class ImportedNames {
+        /** Array of simple name, fully-qualified name pairs or {@code null} if the resolver has no scope. */
+        final char[][][] typeImports;
+        /** Array of fully-qualified names or {@code null} if the resolver has no scope. */
+        final char[][] onDemandImports;
+
+        public ImportedNames(JDTResolver resolver) {
+            GroovyCompilationUnitScope scope = (resolver != null ? resolver.getScope() : null);
+            if (scope == null) {
+                typeImports = null;
+                onDemandImports = null;
+                return;
+            }
+
+            int i, n = (scope.imports != null) ? scope.imports.length : 0, s, t;
+            for (i = 0, s = 0, t = 0; i < n; i += 1) {
+                if (!scope.imports[i].isStatic()) {
+                    if (scope.imports[i].onDemand) {
+                        s += 1;
+                    } else {
+                        t += 1;
+                    }
+                }
+            }
+
+            char[][] starImports = new char[s][];
+            char[][][] singleImports = new char[t][][];
+            for (i = 0, s = 0, t = 0; i < n; i += 1) {
+                if (!scope.imports[i].isStatic()) {
+                    if (scope.imports[i].onDemand) {
+                        starImports[s++] = getImportName(scope.imports[i]);
+                    } else {
+                        singleImports[t++] = new char[][] {getSimpleName(scope.imports[i]), getImportName(scope.imports[i])};
+                    }
+                }
+            }
+
+            typeImports = singleImports;
+            onDemandImports = starImports;
+        }
+    }
+
     private static class AcceptedCtor {
         public int modifiers;
         public char[] simpleTypeName;
@@ -36,12 +36,16 @@ public class PackageCompletionProcessor extends AbstractGroovyCompletionProcesso
 
     protected JDTResolver resolver;
 
+    /** Read from the resolver when it is set, since proposals may be generated on another thread. */
+    protected GroovyProposalTypeSearchRequestor.ImportedNames importedNames;
+
     public PackageCompletionProcessor(ContentAssistContext context, JavaContentAssistInvocationContext javaContext, SearchableEnvironment nameEnvironment) {
         super(context, javaContext, nameEnvironment);
     }
 
     public void setResolverInformation(ModuleNode module, JDTResolver resolver) {
         this.resolver = resolver;
+        this.importedNames = new GroovyProposalTypeSearchRequestor.ImportedNames(resolver);
     }
 
     public List<ICompletionProposal> generateProposals(IProgressMonitor monitor) {
@@ -60,7 +64,7 @@ public class PackageCompletionProcessor extends AbstractGroovyCompletionProcesso
                 getNameEnvironment().findTypes(packageCompletionText,
                     true /* find all member types, should be false when in constructor*/,
                     true /* camel case match */, getSearchFor(), requestor, monitor);
-                typeProposals.addAll(requestor.processAcceptedTypes(resolver));
+                typeProposals.addAll(requestor.processAcceptedTypes(importedNames));
             }
             return typeProposals;
         }
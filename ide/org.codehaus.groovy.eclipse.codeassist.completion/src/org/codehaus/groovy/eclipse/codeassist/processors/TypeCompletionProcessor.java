@@ -44,12 +44,16 @@ public class TypeCompletionProcessor extends AbstractGroovyCompletionProcessor i
 
     protected JDTResolver resolver;
 
+    /** Read from the resolver when it is set, since proposals may be generated on another thread. */
+    protected GroovyProposalTypeSearchRequestor.ImportedNames importedNames;
+
     public TypeCompletionProcessor(ContentAssistContext context, JavaContentAssistInvocationContext javaContext, SearchableEnvironment nameEnvironment) {
         super(context, javaContext, nameEnvironment);
     }
 
     public void setResolverInformation(ModuleNode module, JDTResolver resolver) {
         this.resolver = resolver;
+        this.importedNames = new GroovyProposalTypeSearchRequestor.ImportedNames(resolver);
     }
 
     public List<ICompletionProposal> generateProposals(IProgressMonitor monitor) {
@@ -70,7 +74,7 @@ public class TypeCompletionProcessor extends AbstractGroovyCompletionProcessor i
                 true, // camel case match
                 getSearchFor(), requestor, monitor);
 
-        List<ICompletionProposal> typeProposals = requestor.processAcceptedTypes(resolver);
+        List<ICompletionProposal> typeProposals = requestor.processAcceptedTypes(importedNames);
 
         return typeProposals;
     }
@@ -21,6 +21,14 @@ import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.codehaus.groovy.eclipse.GroovyLogManager;
 import org.codehaus.groovy.eclipse.TraceCategory;
@@ -50,6 +58,8 @@ import org.codehaus.jdt.groovy.model.GroovyCompilationUnit;
 import org.codehaus.jdt.groovy.model.ModuleNodeMapper.ModuleNodeInfo;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.jdt.core.ICompilationUnit;
 import org.eclipse.jdt.core.JavaModelException;
@@ -65,6 +75,17 @@ import org.eclipse.jface.text.contentassist.IContextInformation;
 
 public class GroovyCompletionProposalComputer implements IJavaCompletionProposalComputer {
 
+    // allow test cases to set a time budget for the background searches
+    public static long timeout = Long.getLong("greclipse.contentAssistTimeout", 0L);
+
+    private static final ExecutorService SEARCH_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Groovy Content Assist Search");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
     private static final Map<ContentAssistLocation, List<IGroovyCompletionProcessorFactory>> LOCATION_FACTORIES;
     static {
         Map<ContentAssistLocation, List<IGroovyCompletionProcessorFactory>> locationFactories =
@@ -206,24 +227,7 @@ public class GroovyCompletionProposalComputer implements IJavaCompletionProposal
         if (assistContext != null) {
             List<IGroovyCompletionProcessorFactory> factories = LOCATION_FACTORIES.get(assistContext.location);
             if (factories != null) {
-                SubMonitor submon = SubMonitor.convert(monitor, factories.size());
-                SearchableEnvironment environment = createSearchableEnvironment(javaContext);
-                try {
-                    for (IGroovyCompletionProcessorFactory factory : factories) {
-                        IGroovyCompletionProcessor processor = factory.createProcessor(assistContext, javaContext, environment);
-                        if (processor != null) {
-                            if (processor instanceof ITypeResolver) {
-                                ((ITypeResolver) processor).setResolverInformation(moduleInfo.module, moduleInfo.resolver);
-                            }
-                            proposals.addAll(processor.generateProposals(submon.newChild(1)));
-                        }
-                    }
-                } finally {
-                    if (environment != null) {
-                        environment.cleanup();
-                    }
-                    submon.done();
-                }
+                proposals.addAll(generateProposals(factories, assistContext, javaContext, moduleInfo, monitor));
             }
 
             // extra filtering and sorting provided by third parties
@@ -253,6 +257,169 @@ public class GroovyCompletionProposalComputer implements IJavaCompletionProposal
         return proposals;
     }
 
+    /**
+     * Runs the processors for the content assist location. Processors that search the name environment for types and
+     * packages are run on background threads, each with an environment of its own, while the other processors (locals,
+     * members, keywords, etc.) run on the caller's thread. The background processors are created and given the module's
+     * resolver information on the caller's thread, so they take what they need from the resolver (which is not safe to
+     * share between threads) before they are submitted. Background results that are not ready once the caller's work is
+     * done are waited for; if the optional time budget (system property <code>greclipse.contentAssistTimeout</code> in
+     * milliseconds, no limit by default) elapses first, they are cancelled and left out. All results are left out once
+     * the user cancels.
+     */
+    private List<ICompletionProposal> generateProposals(List<IGroovyCompletionProcessorFactory> factories,
+            ContentAssistContext assistContext, JavaContentAssistInvocationContext javaContext, ModuleNodeInfo moduleInfo, IProgressMonitor monitor) {
+        final SubMonitor submon = SubMonitor.convert(monitor, factories.size());
+        final long start = System.currentTimeMillis();
+
+        // start the slow searches first so they overlap with the processing below
+        final BackgroundMonitor background = new BackgroundMonitor(monitor);
+        List<Future<List<ICompletionProposal>>> futures = new ArrayList<Future<List<ICompletionProposal>>>();
+        List<IGroovyCompletionProcessorFactory> foreground = new ArrayList<IGroovyCompletionProcessorFactory>(factories.size());
+        for (IGroovyCompletionProcessorFactory factory : factories) {
+            if (!isSearchFactory(factory)) {
+                foreground.add(factory);
+                continue;
+            }
+            final SearchableEnvironment environment = createSearchableEnvironment(javaContext);
+            final IGroovyCompletionProcessor processor = createProcessor(factory, assistContext, javaContext, environment, moduleInfo);
+            if (processor == null) {
+                if (environment != null) {
+                    environment.cleanup();
+                }
+                continue;
+            }
+            futures.add(SEARCH_EXECUTOR.submit(new Callable<List<ICompletionProposal>>() {
+                public List<ICompletionProposal> call() {
+                    try {
+                        return runProcessor(processor, background);
+                    } finally {
+                        if (environment != null) {
+                            environment.cleanup();
+                        }
+                    }
+                }
+            }));
+        }
+
+        List<ICompletionProposal> proposals = new ArrayList<ICompletionProposal>();
+        try {
+            if (!foreground.isEmpty()) {
+                SearchableEnvironment environment = createSearchableEnvironment(javaContext);
+                try {
+                    for (IGroovyCompletionProcessorFactory factory : foreground) {
+                        IGroovyCompletionProcessor processor = createProcessor(factory, assistContext, javaContext, environment, moduleInfo);
+                        if (processor != null) {
+                            proposals.addAll(runProcessor(processor, submon.newChild(1)));
+                        }
+                    }
+                } finally {
+                    if (environment != null) {
+                        environment.cleanup();
+                    }
+                }
+            }
+
+            long budget = timeout, deadline = (budget > 0 ? start + budget : Long.MAX_VALUE);
+            for (Future<List<ICompletionProposal>> future : futures) {
+                List<ICompletionProposal> result = await(future, budget, deadline, background);
+                if (result != null) {
+                    proposals.addAll(result);
+                }
+                submon.worked(1);
+            }
+        } finally {
+            // stop any searches that are still running
+            background.setCanceled(true);
+            submon.done();
+        }
+        return proposals;
+    }
+
+    private static IGroovyCompletionProcessor createProcessor(IGroovyCompletionProcessorFactory factory, ContentAssistContext assistContext,
+            JavaContentAssistInvocationContext javaContext, SearchableEnvironment environment, ModuleNodeInfo moduleInfo) {
+        IGroovyCompletionProcessor processor = factory.createProcessor(assistContext, javaContext, environment);
+        if (processor instanceof ITypeResolver) {
+            ((ITypeResolver) processor).setResolverInformation(moduleInfo.module, moduleInfo.resolver);
+        }
+        return processor;
+    }
+
+    private static List<ICompletionProposal> runProcessor(IGroovyCompletionProcessor processor, IProgressMonitor monitor) {
+        long start = System.currentTimeMillis();
+        List<ICompletionProposal> proposals = processor.generateProposals(monitor);
+        if (GroovyLogManager.manager.hasLoggers()) {
+            GroovyLogManager.manager.log(TraceCategory.CONTENT_ASSIST, processor.getClass().getSimpleName() + " found " +
+                proposals.size() + " proposals in " + (System.currentTimeMillis() - start) + "ms on " + Thread.currentThread().getName());
+        }
+        return proposals;
+    }
+
+    /**
+     * @return the proposals of the background processor or <code>null</code> if it failed, was cancelled or did not finish in time
+     */
+    private static List<ICompletionProposal> await(Future<List<ICompletionProposal>> future, long budget, long deadline, BackgroundMonitor monitor) {
+        try {
+            while (true) {
+                if (monitor.isCanceled()) {
+                    return null;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    monitor.setCanceled(true);
+                    if (GroovyLogManager.manager.hasLoggers()) {
+                        GroovyLogManager.manager.log(TraceCategory.CONTENT_ASSIST, "Content assist time budget of " + budget + "ms exceeded; dropping remaining search results");
+                    }
+                    return null;
+                }
+                try {
+                    // wake up regularly to notice cancellation by the user
+                    return future.get(Math.min(remaining, 50), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // check again
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (!(e.getCause() instanceof OperationCanceledException)) {
+                GroovyContentAssist.logError("Exception during background content assist", e.getCause());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Type and package searches go through the Java indexes and the whole classpath; they are the slow part of content
+     * assist. Their processors copy what they need from the resolver when they are given it, so they can run on their own
+     * threads without touching the resolver or its scope.
+     */
+    private static boolean isSearchFactory(IGroovyCompletionProcessorFactory factory) {
+        return factory instanceof TypeCompletionProcessorFactory || factory instanceof PackageCompletionProcessorFactory;
+    }
+
+    /**
+     * Progress monitor for the background processors. Cancelled when the request is done with them or the user cancels.
+     */
+    private static class BackgroundMonitor extends NullProgressMonitor {
+        private final IProgressMonitor delegate;
+        private volatile boolean canceled;
+
+        BackgroundMonitor(IProgressMonitor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return canceled || (delegate != null && delegate.isCanceled());
+        }
+
+        @Override
+        public void setCanceled(boolean value) {
+            canceled = value;
+        }
+    }
+
     // visible for testing
     public ContentAssistContext createContentAssistContext(GroovyCompilationUnit gunit, int invocationOffset, IDocument document) {
         String fullCompletionText = findCompletionText(document, invocationOffset);
@@ -117,6 +117,8 @@ public class DSLDResourceListener implements IResourceChangeListener {
                             // and point cuts need to be created
                             new SuggestionsLoader(file).addSuggestionsContributionGroup();
                         }
+                        // keep the contributions in the order of the last refresh
+                        store.restoreScriptOrder();
                     }
                 }
             }
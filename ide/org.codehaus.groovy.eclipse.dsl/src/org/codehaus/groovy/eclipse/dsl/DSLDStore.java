@@ -16,20 +16,49 @@
 package org.codehaus.groovy.eclipse.dsl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import org.codehaus.groovy.ast.ClassNode;
 import org.codehaus.groovy.eclipse.GroovyLogManager;
 import org.codehaus.groovy.eclipse.TraceCategory;
 import org.codehaus.groovy.eclipse.dsl.contributions.IContributionElement;
 import org.codehaus.groovy.eclipse.dsl.contributions.IContributionGroup;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.BindingSet;
 import org.codehaus.groovy.eclipse.dsl.pointcuts.GroovyDSLDContext;
 import org.codehaus.groovy.eclipse.dsl.pointcuts.IPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.AbstractModifierPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.AndPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.BindPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.CurrentTypePointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.DeclaringTypePointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.FileExtensionPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.FileNamePointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.FindAnnotationPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.FindFieldPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.FindMethodPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.FindPropertyPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.HasArgumentsPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.HasAttributesPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.NamePointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.NotPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.OrPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.PackageFolderPointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.ProjectNaturePointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.SourceFolderOfFilePointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.SubTypePointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.TypePointcut;
+import org.codehaus.groovy.eclipse.dsl.pointcuts.impl.ValuePointcut;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IStorage;
 import org.eclipse.jdt.internal.core.NonJavaResource;
@@ -49,12 +78,41 @@ public class DSLDStore {
     private final Map<IStorage, Set<IPointcut>> keyContextMap =
         new HashMap<IStorage, Set<IPointcut>>();
 
+    /** Contents of the scripts as of the last refresh that executed them; guarded by keyContextMap. */
+    private final Map<IStorage, String> refreshedContents =
+        new HashMap<IStorage, String>();
+
+    /** Scripts in the order of the last refresh; guarded by pointcutContributionMap. */
+    private List<IStorage> scriptOrder = Collections.emptyList();
+
+    /** Index of the pointcuts by the file names and natures they require; guarded by pointcutContributionMap and rebuilt after changes. */
+    private PointcutIndex pointcutIndex;
+
+    /**
+     * Within a sub-store, the match results of pointcuts that depend on nothing but the current type (and the file),
+     * by pointcut and current type. A <code>null</code> value records that the pointcut did not match.
+     */
+    private final Map<IPointcut, Map<ClassNode, BindingSet>> matchCache;
+
+    /** Within a sub-store, analysis of the pointcuts for {@link #findContributions}. */
+    private final Map<IPointcut, PointcutInfo> pointcutInfos;
+
+    public DSLDStore() {
+        this(false);
+    }
+
+    private DSLDStore(boolean isSubStore) {
+        matchCache = isSubStore ? new HashMap<IPointcut, Map<ClassNode, BindingSet>>() : null;
+        pointcutInfos = isSubStore ? new HashMap<IPointcut, PointcutInfo>() : null;
+    }
+
     public void addContributionGroup(IPointcut pointcut, IContributionGroup contribution) {
         synchronized (pointcutContributionMap) {
             List<IContributionGroup> contributions = pointcutContributionMap.get(pointcut);
             if (contributions == null) {
                 contributions = new ArrayList<IContributionGroup>();
                 pointcutContributionMap.put(pointcut, contributions);
+                pointcutIndex = null;
             }
             contributions.add(contribution);
         }
@@ -77,12 +135,14 @@ public class DSLDStore {
         Set<IPointcut> pointcuts;
         synchronized (keyContextMap) {
             pointcuts = keyContextMap.remove(identifier);
+            refreshedContents.remove(identifier);
         }
         if (pointcuts != null) {
             synchronized (pointcutContributionMap) {
                 for (IPointcut pointcut : pointcuts) {
                     pointcutContributionMap.remove(pointcut);
                 }
+                pointcutIndex = null;
             }
         }
     }
@@ -90,9 +150,11 @@ public class DSLDStore {
     public void purgeAll() {
         synchronized (keyContextMap) {
             keyContextMap.clear();
+            refreshedContents.clear();
         }
         synchronized (pointcutContributionMap) {
             pointcutContributionMap.clear();
+            pointcutIndex = null;
         }
     }
 
@@ -106,11 +168,17 @@ public class DSLDStore {
      * @return a new {@link DSLDStore} containing only matches against the pattern
      */
     public DSLDStore createSubStore(GroovyDSLDContext pattern) {
-        DSLDStore subStore = new DSLDStore();
+        DSLDStore subStore = new DSLDStore(true);
         synchronized (pointcutContributionMap) {
-            for (Map.Entry<IPointcut, List<IContributionGroup>> entry : pointcutContributionMap.entrySet()) {
-                if (entry.getKey().fastMatch(pattern)) {
-                    subStore.addAllContributions(entry.getKey(), entry.getValue());
+            if (pointcutIndex == null) {
+                pointcutIndex = new PointcutIndex(pointcutContributionMap.keySet());
+            }
+            // only pointcuts that do not require another file name or nature can match
+            BitSet candidates = pointcutIndex.getCandidates(pattern);
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                IPointcut pointcut = pointcutIndex.pointcuts[i];
+                if (pointcut.fastMatch(pattern)) {
+                    subStore.addAllContributions(pointcut, pointcutContributionMap.get(pointcut));
                 }
             }
         }
@@ -122,6 +190,7 @@ public class DSLDStore {
             List<IContributionGroup> existing = pointcutContributionMap.get(pointcut);
             if (existing == null) {
                 pointcutContributionMap.put(pointcut, contributions);
+                pointcutIndex = null;
             } else {
                 existing.addAll(contributions);
             }
@@ -147,11 +216,10 @@ public class DSLDStore {
             for (Map.Entry<IPointcut, List<IContributionGroup>> entry : pointcutContributionMap.entrySet()) {
                 IPointcut pointcut = entry.getKey();
                 if (!disabledScripts.contains(DSLDStore.toUniqueString(pointcut.getContainerIdentifier()))) {
-                    pattern.resetBinding();
-                    Collection<?> results = pointcut.matches(pattern, pattern.getCurrentType());
-                    if (results != null) {
+                    BindingSet binding = match(pointcut, pattern);
+                    if (binding != null) {
                         for (IContributionGroup group : entry.getValue()) {
-                            elts.addAll(group.getContributions(pattern, pattern.getCurrentBinding()));
+                            elts.addAll(group.getContributions(pattern, binding));
                         }
                     }
                 }
@@ -160,12 +228,129 @@ public class DSLDStore {
         return elts;
     }
 
+    /**
+     * Matches the pointcut against the current type of the pattern. Contributions are always evaluated anew, since they
+     * may look at (and change) the current scope.
+     *
+     * @return the bindings of the match or <code>null</code> if the pointcut does not match
+     */
+    private BindingSet match(IPointcut pointcut, GroovyDSLDContext pattern) {
+        ClassNode currentType = pattern.getCurrentType(); // may be changed by the contributions of previous pointcuts
+        if (pointcutInfos == null) {
+            pattern.resetBinding();
+            return pointcut.matches(pattern, currentType) != null ? pattern.getCurrentBinding() : null;
+        }
+
+        PointcutInfo info = pointcutInfos.get(pointcut);
+        if (info == null) {
+            info = new PointcutInfo(pointcut);
+            pointcutInfos.put(pointcut, info);
+        }
+        if (info.requiredTypeName != null && (currentType == null || !info.requiredTypeName.equals(currentType.getName()))) {
+            return null;
+        }
+        Map<ClassNode, BindingSet> results = null;
+        if (info.isTypeOnly && currentType != null) {
+            results = matchCache.get(pointcut);
+            if (results == null) {
+                // the same type may be represented by several (differently parameterized) nodes
+                results = new IdentityHashMap<ClassNode, BindingSet>();
+                matchCache.put(pointcut, results);
+            } else if (results.containsKey(currentType)) {
+                BindingSet binding = results.get(currentType);
+                pattern.setCurrentBinding(binding != null ? binding : new BindingSet());
+                return binding;
+            }
+        }
+
+        pattern.resetBinding();
+        BindingSet binding = pointcut.matches(pattern, currentType) != null ? pattern.getCurrentBinding() : null;
+        if (results != null) {
+            results.put(currentType, binding);
+        }
+        return binding;
+    }
+
     public IStorage[] getAllContextKeys() {
         synchronized (keyContextMap) {
             return keyContextMap.keySet().toArray(new IStorage[0]);
         }
     }
 
+    /**
+     * @return the contents of the script when it was last executed by a refresh, or <code>null</code> if it has been
+     *         purged since
+     */
+    String getRefreshedContents(IStorage identifier) {
+        synchronized (keyContextMap) {
+            return refreshedContents.get(identifier);
+        }
+    }
+
+    void setRefreshedContents(IStorage identifier, String contents) {
+        synchronized (keyContextMap) {
+            refreshedContents.put(identifier, contents);
+        }
+    }
+
+    /**
+     * Puts the pointcuts in the order of the scripts that contributed them, keeping their order within each script, so
+     * that contributions are found in the same order as if the scripts had all been executed in that order. Pointcuts
+     * of other scripts come last. The order is remembered for {@link #restoreScriptOrder()}.
+     */
+    void sortByScripts(Collection<IStorage> scripts) {
+        synchronized (pointcutContributionMap) {
+            scriptOrder = new ArrayList<IStorage>(scripts);
+            restoreScriptOrder();
+        }
+    }
+
+    /**
+     * Puts the pointcuts back in the order of the scripts given to the last {@link #sortByScripts(Collection)}; used
+     * after a single script was executed again, which adds its pointcuts at the end.
+     */
+    void restoreScriptOrder() {
+        synchronized (pointcutContributionMap) {
+            final Map<IStorage, Integer> positions = new HashMap<IStorage, Integer>();
+            for (IStorage script : scriptOrder) {
+                if (!positions.containsKey(script)) {
+                    positions.put(script, positions.size());
+                }
+            }
+
+            List<IPointcut> pointcuts = new ArrayList<IPointcut>(pointcutContributionMap.keySet());
+            // stable, so the order within each script is kept
+            Collections.sort(pointcuts, new Comparator<IPointcut>() {
+                public int compare(IPointcut a, IPointcut b) {
+                    return position(a) - position(b);
+                }
+
+                private int position(IPointcut pointcut) {
+                    Integer position = positions.get(pointcut.getContainerIdentifier());
+                    return position != null ? position : positions.size();
+                }
+            });
+            Map<IPointcut, List<IContributionGroup>> sorted = new LinkedHashMap<IPointcut, List<IContributionGroup>>();
+            for (IPointcut pointcut : pointcuts) {
+                sorted.put(pointcut, pointcutContributionMap.get(pointcut));
+            }
+            pointcutContributionMap.clear();
+            pointcutContributionMap.putAll(sorted);
+            pointcutIndex = null;
+        }
+    }
+
+    /**
+     * @return the identifiers of all scripts that have contributed to or been executed for this store
+     */
+    Set<IStorage> getAllScriptKeys() {
+        synchronized (keyContextMap) {
+            Set<IStorage> keys = new HashSet<IStorage>(keyContextMap.keySet());
+            keys.addAll(refreshedContents.keySet());
+            return keys;
+        }
+    }
+
     public static String toUniqueString(IStorage storage) {
         if (storage instanceof IFile) {
             return storage.getFullPath().toPortableString();
@@ -175,4 +360,144 @@ public class DSLDStore {
             return storage.getName();
         }
     }
+
+    //--------------------------------------------------------------------------
+
+    /**
+     * Pointcuts whose matching depends on the current type (and layout of the current file) only; the structural ones
+     * looking at the current scope, node or enclosing declarations are not in here, neither are user-defined ones.
+     */
+    private static final Set<Class<?>> TYPE_ONLY_POINTCUTS = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+        AndPointcut.class, OrPointcut.class, NotPointcut.class, BindPointcut.class,
+        CurrentTypePointcut.class, SubTypePointcut.class, TypePointcut.class, DeclaringTypePointcut.class,
+        FindAnnotationPointcut.class, FindFieldPointcut.class, FindMethodPointcut.class, FindPropertyPointcut.class,
+        NamePointcut.class, HasArgumentsPointcut.class, HasAttributesPointcut.class, ValuePointcut.class,
+        AbstractModifierPointcut.FinalPointcut.class, AbstractModifierPointcut.PrivatePointcut.class,
+        AbstractModifierPointcut.PublicPointcut.class, AbstractModifierPointcut.StaticPointcut.class,
+        AbstractModifierPointcut.SynchronizedPointcut.class,
+        FileExtensionPointcut.class, FileNamePointcut.class, PackageFolderPointcut.class,
+        ProjectNaturePointcut.class, SourceFolderOfFilePointcut.class));
+
+    private static class PointcutInfo {
+        /** if not null, the pointcut can only match a current type of this name */
+        final String requiredTypeName;
+        /** whether the result of matching can be reused for the same current type */
+        final boolean isTypeOnly;
+
+        PointcutInfo(IPointcut pointcut) {
+            requiredTypeName = getRequiredTypeName(pointcut);
+            isTypeOnly = isTypeOnly(pointcut);
+        }
+
+        private static String getRequiredTypeName(IPointcut pointcut) {
+            if (pointcut.getClass() == CurrentTypePointcut.class) {
+                Object arg = pointcut.getFirstArgument();
+                if (arg instanceof String) {
+                    return (String) arg;
+                } else if (arg instanceof Class) {
+                    return ((Class<?>) arg).getName();
+                }
+            } else if (pointcut.getClass() == AndPointcut.class) {
+                for (Object arg : pointcut.getArgumentValues()) {
+                    if (arg instanceof IPointcut) {
+                        String name = getRequiredTypeName((IPointcut) arg);
+                        if (name != null) {
+                            return name;
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+
+        private static boolean isTypeOnly(IPointcut pointcut) {
+            if (!TYPE_ONLY_POINTCUTS.contains(pointcut.getClass())) {
+                return false;
+            }
+            for (Object arg : pointcut.getArgumentValues()) {
+                if (arg instanceof IPointcut && !isTypeOnly((IPointcut) arg)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Groups pointcuts by the file name or project nature they require to {@link IPointcut#fastMatch fast match}. Only
+     * pointcuts that are known to fail fast unless the file name (or a nature) matches are indexed by it; all others are
+     * candidates for every file.
+     */
+    private static class PointcutIndex {
+        /** all pointcuts in order of registration */
+        final IPointcut[] pointcuts;
+        final Map<String, BitSet> byRequirement = new HashMap<String, BitSet>();
+        final BitSet unconstrained = new BitSet();
+
+        PointcutIndex(Collection<IPointcut> all) {
+            pointcuts = all.toArray(new IPointcut[all.size()]);
+            for (int i = 0; i < pointcuts.length; i += 1) {
+                Collection<String> requirements = getRequirements(pointcuts[i]);
+                if (requirements.isEmpty()) {
+                    unconstrained.set(i);
+                } else {
+                    for (String requirement : requirements) {
+                        BitSet bits = byRequirement.get(requirement);
+                        if (bits == null) {
+                            bits = new BitSet();
+                            byRequirement.put(requirement, bits);
+                        }
+                        bits.set(i);
+                    }
+                }
+            }
+        }
+
+        BitSet getCandidates(GroovyDSLDContext pattern) {
+            BitSet candidates = (BitSet) unconstrained.clone();
+            add(candidates, "file:" + pattern.simpleFileName);
+            if (pattern.projectNatures != null) {
+                for (String nature : pattern.projectNatures) {
+                    add(candidates, "nature:" + nature);
+                }
+            }
+            return candidates;
+        }
+
+        private void add(BitSet candidates, String requirement) {
+            BitSet bits = byRequirement.get(requirement);
+            if (bits != null) {
+                candidates.or(bits);
+            }
+        }
+
+        /**
+         * @return keys of which at least one must be satisfied by the context for the pointcut to fast match
+         */
+        private static Collection<String> getRequirements(IPointcut pointcut) {
+            if (pointcut.getClass() == FileNamePointcut.class) {
+                Object arg = pointcut.getFirstArgument();
+                if (arg instanceof String) {
+                    return Collections.singleton("file:" + arg);
+                }
+            } else if (pointcut.getClass() == ProjectNaturePointcut.class) {
+                Collection<String> requirements = new ArrayList<String>();
+                for (String natureId : ((ProjectNaturePointcut) pointcut).getNatureIds()) {
+                    requirements.add("nature:" + natureId);
+                }
+                return requirements;
+            } else if (pointcut.getClass() == AndPointcut.class) {
+                // fast matches only if all of its pointcuts do
+                for (Object arg : pointcut.getArgumentValues()) {
+                    if (arg instanceof IPointcut) {
+                        Collection<String> requirements = getRequirements((IPointcut) arg);
+                        if (!requirements.isEmpty()) {
+                            return requirements;
+                        }
+                    }
+                }
+            }
+            return Collections.emptySet();
+        }
+    }
 }
@@ -29,6 +29,7 @@ import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jdt.core.IJavaProject;
+import org.eclipse.jdt.groovy.search.InferenceResults;
 
 /**
  * Singleton class that holds the {@link DSLDStore}s for all Groovy projects.
@@ -54,32 +55,48 @@ public class DSLDStoreManager {
     }
 
     public DSLDStore getDSLDStore(String projectName) {
-        DSLDStore contextStore = projectDSLDMap.get(projectName);
-        if (contextStore == null) {
-            contextStore = new DSLDStore();
-            projectDSLDMap.put(projectName, contextStore);
+        // stores of several projects may be refreshed concurrently
+        synchronized (projectDSLDMap) {
+            DSLDStore contextStore = projectDSLDMap.get(projectName);
+            if (contextStore == null) {
+                contextStore = new DSLDStore();
+                projectDSLDMap.put(projectName, contextStore);
+            }
+            return contextStore;
         }
-        return contextStore;
     }
 
     public void clearDSLDStore(IProject project) {
-        projectDSLDMap.remove(project.getName());
+        synchronized (projectDSLDMap) {
+            projectDSLDMap.remove(project.getName());
+        }
+        InferenceResults.invalidateAll();
     }
 
     public void clearDSLDStore(IJavaProject project) {
-        projectDSLDMap.remove(project.getElementName());
+        synchronized (projectDSLDMap) {
+            projectDSLDMap.remove(project.getElementName());
+        }
+        InferenceResults.invalidateAll();
     }
 
     public void reset() {
-        projectDSLDMap.clear();
+        synchronized (projectDSLDMap) {
+            projectDSLDMap.clear();
+        }
+        InferenceResults.invalidateAll();
     }
 
     public boolean hasDSLDStoreFor(IProject project) {
-        return projectDSLDMap.containsKey(project.getName());
+        synchronized (projectDSLDMap) {
+            return projectDSLDMap.containsKey(project.getName());
+        }
     }
 
     public List<String> getAllStores() {
-        return new ArrayList<String>(projectDSLDMap.keySet());
+        synchronized (projectDSLDMap) {
+            return new ArrayList<String>(projectDSLDMap.keySet());
+        }
     }
 
     public void initializeAll(boolean synchronous) {
@@ -153,6 +170,8 @@ public class DSLDStoreManager {
     }
     synchronized void removeInProgress(IProject project) {
         inProgress.remove(project.getName());
+        // inferencing results recorded before the refresh may be missing contributions
+        InferenceResults.invalidateAll();
         notifyAll();
     }
 }
@@ -18,8 +18,17 @@ package org.codehaus.groovy.eclipse.dsl;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.codehaus.groovy.eclipse.GroovyLogManager;
 import org.codehaus.groovy.eclipse.TraceCategory;
@@ -41,11 +50,13 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.jobs.ISchedulingRule;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jdt.core.IJarEntryResource;
 import org.eclipse.jdt.core.IJavaModelStatusConstants;
 import org.eclipse.jdt.core.IJavaProject;
 import org.eclipse.jdt.core.IPackageFragment;
@@ -66,7 +77,8 @@ public class RefreshDSLDJob extends Job {
 
         public DSLDResourceVisitor(IProject project) {
             this.project = project;
-            dsldFiles = new HashSet<IStorage>();
+            // in the order found, which is the order their contributions are applied in
+            dsldFiles = new LinkedHashSet<IStorage>();
             alreadyAdded = new HashSet<String>();
         }
 
@@ -244,9 +256,15 @@ public class RefreshDSLDJob extends Job {
         }
     }
 
+    /** Maximum number of projects that are refreshed at the same time. */
+    private static final int PARALLELISM = Math.min(4, Runtime.getRuntime().availableProcessors());
+
     private final List<IProject> projects;
     private DSLDStoreManager contextStoreManager = GroovyDSLCoreActivator.getDefault().getContextStoreManager();
 
+    /** Contents of the scripts in jars, by jar and entry path; most libraries are on the classpath of several projects. */
+    private final Map<String, String> libraryContents = new ConcurrentHashMap<String, String>();
+
     /**
      * Deprecated.  Use {@link DSLDStoreManager#initialize(IProject, boolean)}
      * instead.  This new method allows for the initialization of a store synchronously
@@ -300,18 +318,25 @@ public class RefreshDSLDJob extends Job {
             submon.beginTask("Refresh DSLD scripts", projects.size() * 9);
 
             List<IStatus> errorStatuses = new ArrayList<IStatus>();
-            for (IProject project : projects) {
-                IStatus res = Status.OK_STATUS;
-                try {
-                    res = refreshProject(project, submon.newChild(9));
-                } finally {
-                    contextStoreManager.removeInProgress(project);
-                }
-                if (!res.isOK()) {
-                    errorStatuses.add(res);
-                } else if (res == Status.CANCEL_STATUS) {
+            if (PARALLELISM > 1 && projects.size() > 1) {
+                IStatus res = refreshProjectsInParallel(submon, errorStatuses);
+                if (res == Status.CANCEL_STATUS) {
                     return res;
                 }
+            } else {
+                for (IProject project : projects) {
+                    IStatus res = Status.OK_STATUS;
+                    try {
+                        res = refreshProject(project, submon.newChild(9));
+                    } finally {
+                        contextStoreManager.removeInProgress(project);
+                    }
+                    if (res == Status.CANCEL_STATUS) {
+                        return res;
+                    } else if (!res.isOK()) {
+                        errorStatuses.add(res);
+                    }
+                }
             }
 
             submon.done();
@@ -333,6 +358,64 @@ public class RefreshDSLDJob extends Job {
         }
     }
 
+    /**
+     * Refreshes the projects on a few worker threads. The scripts of each project are still executed in order, so
+     * contributions are registered in the same order as by a serial refresh.
+     */
+    private IStatus refreshProjectsInParallel(SubMonitor submon, List<IStatus> errorStatuses) {
+        final IProgressMonitor jobMonitor = submon;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(PARALLELISM, projects.size()), new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Refresh DSLD scripts");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<IStatus>> results = new ArrayList<Future<IStatus>>(projects.size());
+            for (final IProject project : projects) {
+                results.add(executor.submit(new Callable<IStatus>() {
+                    public IStatus call() {
+                        try {
+                            // progress monitors are not thread-safe; only share cancellation with the job
+                            return refreshProject(project, new NullProgressMonitor() {
+                                @Override
+                                public boolean isCanceled() {
+                                    return jobMonitor.isCanceled();
+                                }
+                            });
+                        } finally {
+                            contextStoreManager.removeInProgress(project);
+                        }
+                    }
+                }));
+            }
+
+            IStatus result = Status.OK_STATUS;
+            for (Future<IStatus> future : results) {
+                IStatus res;
+                try {
+                    res = future.get();
+                } catch (ExecutionException e) {
+                    res = new Status(IStatus.ERROR, GroovyDSLCoreActivator.PLUGIN_ID, "Error refreshing DSLDs.", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    jobMonitor.setCanceled(true);
+                    res = Status.CANCEL_STATUS;
+                }
+                if (res == Status.CANCEL_STATUS) {
+                    result = res;
+                } else if (!res.isOK()) {
+                    errorStatuses.add(res);
+                }
+                submon.worked(9);
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     private IStatus refreshProject(IProject project, IProgressMonitor monitor) {
         String event = null;
         if (GroovyLogManager.manager.hasLoggers()) {
@@ -349,30 +432,35 @@ public class RefreshDSLDJob extends Job {
         monitor.worked(1);
 
 
-        // purge existing
+        DSLDStore store = GroovyDSLCoreActivator.getDefault().getContextStoreManager().getDSLDStore(project);
+
+        // find dslds
         if (GroovyLogManager.manager.hasLoggers()) {
-            GroovyLogManager.manager.log(TraceCategory.DSL, "Purging old state");
+            GroovyLogManager.manager.log(TraceCategory.DSL, "Finding inferencing DSL scripts");
         }
-        DSLDStore store = GroovyDSLCoreActivator.getDefault().getContextStoreManager().getDSLDStore(project);
-        store.purgeAll();
+        Set<IStorage> findDSLDFiles = new DSLDResourceVisitor(project).findFiles(monitor);
 
         if (monitor.isCanceled()) {
             return Status.CANCEL_STATUS;
         }
         monitor.worked(1);
 
-        // find dslds
+        // purge scripts that are gone
         if (GroovyLogManager.manager.hasLoggers()) {
-            GroovyLogManager.manager.log(TraceCategory.DSL, "Finding inferencing DSL scripts");
+            GroovyLogManager.manager.log(TraceCategory.DSL, "Purging old state");
+        }
+        Set<IStorage> obsolete = store.getAllScriptKeys();
+        obsolete.removeAll(findDSLDFiles);
+        for (IStorage identifier : obsolete) {
+            store.purgeIdentifier(identifier);
         }
-        Set<IStorage> findDSLDFiles = new DSLDResourceVisitor(project).findFiles(monitor);
 
         if (monitor.isCanceled()) {
             return Status.CANCEL_STATUS;
         }
         monitor.worked(1);
 
-        // now add the rest
+        // now (re-)execute the new and changed ones
         for (IStorage file : findDSLDFiles) {
             if (GroovyLogManager.manager.hasLoggers()) {
                 GroovyLogManager.manager.log(TraceCategory.DSL, "Processing " + file.getName() + " in project " + project.getName());
@@ -381,8 +469,20 @@ public class RefreshDSLDJob extends Job {
 
             if (isDSLD(file)) {
                 DSLDScriptExecutor executor = new DSLDScriptExecutor(JavaCore.create(project));
-                executor.executeScript(file);
+                String contents = getContents(file, executor);
+                if (contents != null && contents.equals(store.getRefreshedContents(file))) {
+                    if (GroovyLogManager.manager.hasLoggers()) {
+                        GroovyLogManager.manager.log(TraceCategory.DSL, "Skipping unchanged " + file.getName());
+                    }
+                } else {
+                    store.purgeIdentifier(file);
+                    executor.executeScript(file, contents);
+                    if (contents != null) {
+                        store.setRefreshedContents(file, contents);
+                    }
+                }
             } else if (isSuggestionFile(file)) {
+                store.purgeIdentifier(file);
                 new SuggestionsLoader((IFile)file).loadExistingSuggestions();
             }
 
@@ -390,6 +490,8 @@ public class RefreshDSLDJob extends Job {
                 return Status.CANCEL_STATUS;
             }
         }
+        // re-executed scripts were added at the end; restore the order of a full refresh
+        store.sortByScripts(findDSLDFiles);
         monitor.worked(6);
 
         monitor.done();
@@ -399,6 +501,30 @@ public class RefreshDSLDJob extends Job {
         return Status.OK_STATUS;
     }
 
+    /**
+     * @return the contents of the script, or <code>null</code> if they could not be read
+     */
+    private String getContents(IStorage file, DSLDScriptExecutor executor) {
+        String key = null;
+        if (file instanceof IJarEntryResource) {
+            key = ((IJarEntryResource) file).getPackageFragmentRoot().getPath() + "!" + file.getFullPath();
+            String contents = libraryContents.get(key);
+            if (contents != null) {
+                return contents;
+            }
+        }
+        try {
+            String contents = executor.getContents(file);
+            if (key != null) {
+                libraryContents.put(key, contents);
+            }
+            return contents;
+        } catch (Exception e) {
+            // let the executor report the problem
+            return null;
+        }
+    }
+
     @Override
     public boolean belongsTo(Object family) {
         return family == RefreshDSLDJob.class;
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.eclipse.dsl.checker;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.codehaus.groovy.ast.ASTNode;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.jface.text.Position;
+import org.eclipse.swt.widgets.Shell;
+
+/**
+ * Writes the results of static checking as a JUnit XML or JSON report, one test case (or file entry) per checked file.
+ * Each file is written out as soon as the next one is started, so the report grows while checking is in progress.
+ */
+public class ReportStaticCheckerHandler implements IStaticCheckerHandler {
+
+    public enum Format {
+        JUNIT, JSON;
+
+        public static Format forName(String name) {
+            return valueOf(name.toUpperCase());
+        }
+    }
+
+    private static class Problem {
+        final int line;
+        final String text;
+        final String expectedType; // null for unknown references
+        final String actualType;
+
+        Problem(int line, String text, String expectedType, String actualType) {
+            this.line = line;
+            this.text = text;
+            this.expectedType = expectedType;
+            this.actualType = actualType;
+        }
+
+        String getMessage() {
+            if (expectedType == null) {
+                return "Line " + line + ": unknown type: " + text;
+            }
+            return "Line " + line + ": Invalid inferred type.  " + text + "  Expected: " + expectedType + " Actual: " + actualType;
+        }
+    }
+
+    private final PrintStream out;
+    private final Format format;
+
+    private IFile resource;
+    private final List<Problem> problems = new ArrayList<Problem>();
+    private int numProblems = 0;
+    private int numFiles = 0;
+
+    /**
+     * @param name name of the test suite, for example the name of the checked project
+     */
+    public ReportStaticCheckerHandler(PrintStream out, Format format, String name) {
+        this.out = out;
+        this.format = format;
+        if (format == Format.JUNIT) {
+            out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            out.println("<testsuite name=\"" + escapeXml(name) + "\">");
+        } else {
+            out.println("{");
+            out.println("  \"name\": \"" + escapeJson(name) + "\",");
+            out.print("  \"files\": [");
+        }
+    }
+
+    public void handleUnknownReference(ASTNode node, Position position, int line) {
+        problems.add(new Problem(line, node.getText(), null, null));
+        numProblems++;
+    }
+
+    public void handleTypeAssertionFailed(ASTNode node, String expectedType, String actualType, Position position, int line) {
+        problems.add(new Problem(line, node.getText(), expectedType, actualType));
+        numProblems++;
+    }
+
+    public void setResource(IFile resource) {
+        writeResource();
+        this.resource = resource;
+    }
+
+    public int numProblemsFound() {
+        return numProblems;
+    }
+
+    public void handleResourceStart(IResource resource) throws CoreException {
+        // do nothing
+    }
+
+    public boolean finish(Shell shell) {
+        writeResource();
+        if (format == Format.JUNIT) {
+            out.println("</testsuite>");
+        } else {
+            out.println(numFiles > 0 ? "\n  ]," : "],");
+            out.println("  \"problems\": " + numProblems);
+            out.println("}");
+        }
+        if (out != System.out) {
+            out.close();
+        }
+        System.out.println(numProblems == 0 ? "SUCCESS" : "FAILURE found " + numProblems + " type checking problem(s)");
+        return numProblems == 0;
+    }
+
+    private void writeResource() {
+        if (resource == null) {
+            return;
+        }
+        String path = resource.getFullPath().toString();
+        if (format == Format.JUNIT) {
+            String className = resource.getProjectRelativePath().removeFileExtension().toString().replace('/', '.');
+            out.print("  <testcase classname=\"" + escapeXml(className) + "\" name=\"" + escapeXml(path) + "\"");
+            if (problems.isEmpty()) {
+                out.println("/>");
+            } else {
+                out.println(">");
+                for (Problem problem : problems) {
+                    out.println("    <failure type=\"" + (problem.expectedType == null ? "UnknownType" : "TypeAssertion") +
+                        "\" message=\"" + escapeXml(problem.getMessage()) + "\"/>");
+                }
+                out.println("  </testcase>");
+            }
+        } else {
+            out.print(numFiles > 0 ? ",\n" : "\n");
+            out.print("    {\"file\": \"" + escapeJson(path) + "\", \"problems\": [");
+            for (int i = 0, n = problems.size(); i < n; i += 1) {
+                Problem problem = problems.get(i);
+                out.print(i > 0 ? ", " : "");
+                out.print("{\"line\": " + problem.line + ", \"text\": \"" + escapeJson(problem.text) + "\"");
+                if (problem.expectedType == null) {
+                    out.print(", \"kind\": \"unknownType\"}");
+                } else {
+                    out.print(", \"kind\": \"typeAssertion\", \"expected\": \"" + escapeJson(problem.expectedType) +
+                        "\", \"actual\": \"" + escapeJson(problem.actualType) + "\"}");
+                }
+            }
+            out.print("]}");
+        }
+        numFiles += 1;
+        problems.clear();
+        resource = null;
+        out.flush();
+    }
+
+    private static String escapeXml(String s) {
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0, n = s.length(); i < n; i += 1) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '<': sb.append("&lt;"); break;
+            case '>': sb.append("&gt;"); break;
+            case '&': sb.append("&amp;"); break;
+            case '"': sb.append("&quot;"); break;
+            case '\n': sb.append("&#10;"); break;
+            default:
+                if (c >= 0x20 || c == '\t') sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String escapeJson(String s) {
+        if (s == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0, n = s.length(); i < n; i += 1) {
+            char c = s.charAt(i);
+            switch (c) {
+            case '"': sb.append("\\\""); break;
+            case '\\': sb.append("\\\\"); break;
+            case '\n': sb.append("\\n"); break;
+            case '\r': sb.append("\\r"); break;
+            case '\t': sb.append("\\t"); break;
+            default:
+                if (c < 0x20) {
+                    sb.append(String.format("\\u%04x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -15,12 +15,20 @@
  */
 package org.codehaus.groovy.eclipse.dsl.checker;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
+import org.codehaus.groovy.ast.ASTNode;
 import org.codehaus.groovy.ast.Comment;
 import org.codehaus.jdt.groovy.model.GroovyCompilationUnit;
 import org.codehaus.jdt.groovy.model.GroovyNature;
@@ -38,6 +46,8 @@ import org.eclipse.jdt.groovy.core.util.ContentTypeUtils;
 import org.eclipse.jdt.groovy.search.TypeInferencingVisitorFactory;
 import org.eclipse.jdt.groovy.search.TypeInferencingVisitorWithRequestor;
 import org.eclipse.jdt.internal.core.util.Util;
+import org.eclipse.jface.text.Position;
+import org.eclipse.swt.widgets.Shell;
 
 /**
  * Performs static checking on all groovy files contained in the resource passed in
@@ -48,9 +58,18 @@ public class ResourceTypeChecker {
     
     class CheckerVisitor implements IResourceVisitor {
         private IProgressMonitor monitor;
+        private final List<GroovyCompilationUnit> units;
 
         CheckerVisitor(IProgressMonitor monitor) {
+            this(monitor, null);
+        }
+
+        /**
+         * @param units if not null, units are collected here to be checked later instead of being checked right away
+         */
+        CheckerVisitor(IProgressMonitor monitor, List<GroovyCompilationUnit> units) {
             this.monitor = monitor;
+            this.units = units;
         }
 
         public boolean visit(IResource resource) throws CoreException {
@@ -70,65 +89,122 @@ public class ResourceTypeChecker {
                     if (monitor.isCanceled()) {
                         throw new OperationCanceledException();
                     }
-                    monitor.subTask(resource.getName());
-                    handler.setResource((IFile) resource);
-                    Map<Integer, String> commentsMap = findComments(unit);
-                    StaticTypeCheckerRequestor requestor = new StaticTypeCheckerRequestor(handler, commentsMap, onlyAssertions);
-                    TypeInferencingVisitorWithRequestor visitor = new TypeInferencingVisitorFactory().createVisitor(unit);
-                    try {
-                        unit.becomeWorkingCopy(monitor);
-                        visitor.visitCompilationUnit(requestor);
-                    } finally {
-                        unit.discardWorkingCopy();
+                    if (units != null) {
+                        units.add(unit);
+                    } else {
+                        monitor.subTask(resource.getName());
+                        checkUnit(unit, handler, monitor);
                     }
                 }
             }
             return true;
         }
+    }
 
-        private Map<Integer, String> findComments(GroovyCompilationUnit unit) {
-            List<Comment> comments = unit.getModuleNode().getContext().getComments();
-            Map<Integer, String> allComments = new HashMap<Integer, String>(comments.size());
-            for (Comment comment : comments) {
-                StringTokenizer stok = new StringTokenizer(comment.toString());
-                String type = null;
-                if (stok.hasMoreTokens()) {
-                    // consume the comment start
-                    String val = stok.nextToken();
-                    int typeIndex = val.indexOf("TYPE:");
-                    if (typeIndex > 0) {
-                        type = val.substring(typeIndex + "TYPE:".length());
-                        if (type.length() == 0) {
-                            type = null;
-                        }
-                    }
+    /**
+     * Records the results of checking one unit on a worker thread, to be passed on to the actual handler in one go.
+     */
+    private static class BufferingHandler implements IStaticCheckerHandler {
+        private IFile resource;
+        private final List<Object[]> problems = new ArrayList<Object[]>();
+
+        public void handleUnknownReference(ASTNode node, Position position, int line) {
+            problems.add(new Object[] {node, position, line});
+        }
+
+        public void handleTypeAssertionFailed(ASTNode node, String expectedType, String actualType, Position position, int line) {
+            problems.add(new Object[] {node, position, line, expectedType, actualType});
+        }
+
+        public void setResource(IFile resource) {
+            this.resource = resource;
+        }
+
+        public int numProblemsFound() {
+            return problems.size();
+        }
+
+        public void handleResourceStart(IResource resource) throws CoreException {
+            // do nothing
+        }
+
+        public boolean finish(Shell shell) {
+            return problems.isEmpty();
+        }
+
+        void replay(IStaticCheckerHandler handler) {
+            handler.setResource(resource);
+            for (Object[] problem : problems) {
+                if (problem.length == 3) {
+                    handler.handleUnknownReference((ASTNode) problem[0], (Position) problem[1], (Integer) problem[2]);
+                } else {
+                    handler.handleTypeAssertionFailed((ASTNode) problem[0], (String) problem[3], (String) problem[4], (Position) problem[1], (Integer) problem[2]);
                 }
-                String candidate;
-                if (stok.hasMoreTokens() && (candidate = stok.nextToken()).startsWith("TYPE:")) {
-                    // may or may not have a space after the colon
-                    if (candidate.equals("TYPE:")) {
-                        if (stok.hasMoreTokens()) {
-                            type = stok.nextToken();
-                        }
-                    } else {
-                        String[] split = candidate.split("\\:");
-                        type = split[1];
+            }
+        }
+    }
+
+    /**
+     * Checks one unit with a visitor of its own, so units can be checked on several threads at once.
+     */
+    private void checkUnit(GroovyCompilationUnit unit, IStaticCheckerHandler handler, IProgressMonitor monitor) throws CoreException {
+        handler.setResource((IFile) unit.getResource());
+        Map<Integer, String> commentsMap = findComments(unit);
+        StaticTypeCheckerRequestor requestor = new StaticTypeCheckerRequestor(handler, commentsMap, onlyAssertions);
+        TypeInferencingVisitorWithRequestor visitor = new TypeInferencingVisitorFactory().createVisitor(unit);
+        try {
+            unit.becomeWorkingCopy(monitor);
+            visitor.visitCompilationUnit(requestor);
+        } finally {
+            unit.discardWorkingCopy();
+        }
+    }
+
+    private static Map<Integer, String> findComments(GroovyCompilationUnit unit) {
+        List<Comment> comments = unit.getModuleNode().getContext().getComments();
+        Map<Integer, String> allComments = new HashMap<Integer, String>(comments.size());
+        for (Comment comment : comments) {
+            StringTokenizer stok = new StringTokenizer(comment.toString());
+            String type = null;
+            if (stok.hasMoreTokens()) {
+                // consume the comment start
+                String val = stok.nextToken();
+                int typeIndex = val.indexOf("TYPE:");
+                if (typeIndex > 0) {
+                    type = val.substring(typeIndex + "TYPE:".length());
+                    if (type.length() == 0) {
+                        type = null;
                     }
                 }
-                if (type != null) {
-                    allComments.put(comment.sline, type);
+            }
+            String candidate;
+            if (stok.hasMoreTokens() && (candidate = stok.nextToken()).startsWith("TYPE:")) {
+                // may or may not have a space after the colon
+                if (candidate.equals("TYPE:")) {
+                    if (stok.hasMoreTokens()) {
+                        type = stok.nextToken();
+                    }
+                } else {
+                    String[] split = candidate.split("\\:");
+                    type = split[1];
                 }
             }
-            return allComments;
+            if (type != null) {
+                allComments.put(comment.sline, type);
+            }
         }
+        return allComments;
     }
-    
+
     private final IStaticCheckerHandler handler;
     private final List<IResource> resources;
 
     protected boolean onlyAssertions;
     protected final char[][] includes;
     protected final char[][] excludes;
+
+    /** number of units that are checked at the same time */
+    private int threads = 1;
     
     public ResourceTypeChecker(IStaticCheckerHandler handler, String projectName, char[][] includes, char[][] excludes, boolean onlyAssertions) {
         this(handler, createProject(projectName), includes, excludes, onlyAssertions);
@@ -150,6 +226,14 @@ public class ResourceTypeChecker {
         return Collections.<IResource>singletonList(project);
     }
 
+    /**
+     * Sets the number of worker threads that check units at the same time. With more than one, the results of each unit
+     * are buffered and passed on to the handler in the order the units are found, so the report is the same as with one.
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
     /**
      * Performs the tpe checking on the selected resources.
      * @param monitor progress monitor, can be null
@@ -160,6 +244,10 @@ public class ResourceTypeChecker {
         if (monitor == null) {
             monitor = new NullProgressMonitor();
         }
+        if (threads > 1) {
+            doCheckInParallel(monitor);
+            return handler.finish(null);
+        }
         monitor.beginTask("Static type analysis", resources.size());
         for (IResource resource : resources) {
             if (monitor.isCanceled()) {
@@ -171,4 +259,61 @@ public class ResourceTypeChecker {
         }
         return handler.finish(null);
     }
+
+    private void doCheckInParallel(final IProgressMonitor monitor) throws CoreException {
+        List<GroovyCompilationUnit> units = new ArrayList<GroovyCompilationUnit>();
+        for (IResource resource : resources) {
+            if (monitor.isCanceled()) {
+                throw new OperationCanceledException();
+            }
+            resource.accept(new CheckerVisitor(monitor, units));
+        }
+        monitor.beginTask("Static type analysis", units.size());
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "Static type checker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            List<Future<BufferingHandler>> results = new ArrayList<Future<BufferingHandler>>(units.size());
+            for (final GroovyCompilationUnit unit : units) {
+                results.add(executor.submit(new Callable<BufferingHandler>() {
+                    public BufferingHandler call() throws CoreException {
+                        if (monitor.isCanceled()) {
+                            return null;
+                        }
+                        BufferingHandler buffer = new BufferingHandler();
+                        checkUnit(unit, buffer, new NullProgressMonitor());
+                        return buffer;
+                    }
+                }));
+            }
+            for (int i = 0, n = units.size(); i < n; i += 1) {
+                if (monitor.isCanceled()) {
+                    throw new OperationCanceledException();
+                }
+                monitor.subTask(units.get(i).getElementName());
+                try {
+                    BufferingHandler buffer = results.get(i).get();
+                    if (buffer != null) {
+                        buffer.replay(handler);
+                    }
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof CoreException) {
+                        throw (CoreException) e.getCause();
+                    }
+                    throw new RuntimeException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new OperationCanceledException();
+                }
+                monitor.worked(1);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
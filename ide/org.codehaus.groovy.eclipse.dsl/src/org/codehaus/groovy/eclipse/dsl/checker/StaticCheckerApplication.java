@@ -1,8 +1,16 @@
 package org.codehaus.groovy.eclipse.dsl.checker;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 import org.codehaus.groovy.eclipse.dsl.GroovyDSLCoreActivator;
 import org.eclipse.core.resources.IFile;
@@ -72,8 +80,18 @@ public class StaticCheckerApplication implements IApplication {
             System.out.println("Performing static type checking on project " + projectName);
             boolean success = false;
             try {
-                IStaticCheckerHandler handler = new SysoutStaticCheckerHandler(resultFile == null ? System.out : createOutStream(resultFile));
-                ResourceTypeChecker checker = new ResourceTypeChecker(handler, projectName, inclusionFilters, exclusionFilters, assertionsOnly);
+                PrintStream out = resultFile == null ? System.out : createOutStream(resultFile);
+                IStaticCheckerHandler handler = reportFormat == null ? new SysoutStaticCheckerHandler(out) :
+                    new ReportStaticCheckerHandler(out, reportFormat, projectName);
+                ResourceTypeChecker checker;
+                if (changedSince == null) {
+                    checker = new ResourceTypeChecker(handler, projectName, inclusionFilters, exclusionFilters, assertionsOnly);
+                } else {
+                    List<IResource> changed = findChangedFiles(project, changedSince);
+                    System.out.println("Checking " + changed.size() + " file(s) changed since " + changedSince);
+                    checker = new ResourceTypeChecker(handler, changed, inclusionFilters, exclusionFilters, assertionsOnly);
+                }
+                checker.setThreads(threads);
                 success = checker.doCheck(null);
             } catch (Exception e) {
                 e.printStackTrace();
@@ -127,6 +145,9 @@ public class StaticCheckerApplication implements IApplication {
     private String projectFolderPath;
     Display display;
     private String resultFile;
+    private ReportStaticCheckerHandler.Format reportFormat;
+    private String changedSince;
+    private int threads = 1;
     
     public Object start(IApplicationContext context) throws Exception {
         processCommandLine((String[]) context.getArguments().get(IApplicationContext.APPLICATION_ARGS));
@@ -255,6 +276,39 @@ public class StaticCheckerApplication implements IApplication {
                     break;
                 }
                 resultFile = args[++i];
+            } else if (arg.equals("--report_format")) {
+                if (i == args.length-1) {
+                    System.err.println("Missing --report_format argument");
+                    doHelp = true;
+                    break;
+                }
+                try {
+                    reportFormat = ReportStaticCheckerHandler.Format.forName(args[++i]);
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Invalid --report_format argument: " + args[i]);
+                    doHelp = true;
+                    break;
+                }
+            } else if (arg.equals("--changed_since")) {
+                if (i == args.length-1) {
+                    System.err.println("Missing --changed_since argument");
+                    doHelp = true;
+                    break;
+                }
+                changedSince = args[++i];
+            } else if (arg.equals("--threads")) {
+                if (i == args.length-1) {
+                    System.err.println("Missing --threads argument");
+                    doHelp = true;
+                    break;
+                }
+                try {
+                    threads = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid --threads argument: " + args[i]);
+                    doHelp = true;
+                    break;
+                }
             }
         }
         
@@ -267,6 +321,68 @@ public class StaticCheckerApplication implements IApplication {
         }
     }
     
+    /**
+     * Asks git for the files of the project that differ from the given revision, including uncommitted changes and new
+     * files that are not ignored. Deleted files and files outside of the project are left out.
+     */
+    private List<IResource> findChangedFiles(IProject project, String revision) throws IOException, InterruptedException {
+        Set<IResource> changed = new LinkedHashSet<IResource>();
+        addGitFiles(project, changed, "diff", "--name-only", "-z", "--relative", revision, "--");
+        addGitFiles(project, changed, "ls-files", "-z", "--others", "--exclude-standard");
+        return new ArrayList<IResource>(changed);
+    }
+
+    /**
+     * Runs a git command that lists paths relative to the project and adds the files that exist. The command must
+     * separate the paths with NUL characters (<code>-z</code>), so that git does not quote paths with non-ASCII
+     * characters, spaces or other special characters.
+     */
+    private void addGitFiles(IProject project, Set<IResource> files, String... command) throws IOException, InterruptedException {
+        File location = project.getLocation().toFile();
+        List<String> commandLine = new ArrayList<String>();
+        commandLine.add("git");
+        commandLine.addAll(Arrays.asList(command));
+        Process git = new ProcessBuilder(commandLine).directory(location).redirectErrorStream(true).start();
+        String output = readGitOutput(git.getInputStream());
+        if (git.waitFor() != 0) {
+            throw new IOException("git " + command[0] + " failed in " + location + ": " + output);
+        }
+        for (String path : splitGitPaths(output)) {
+            IFile file = project.getFile(path);
+            if (file.exists()) {
+                files.add(file);
+            }
+        }
+    }
+
+    private static String readGitOutput(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, n);
+            }
+        } finally {
+            in.close();
+        }
+        // git writes paths as UTF-8 bytes when they are not quoted
+        return new String(bytes.toByteArray(), "UTF-8");
+    }
+
+    /**
+     * Splits the output of a git command run with <code>-z</code> into paths.
+     */
+    static List<String> splitGitPaths(String output) {
+        List<String> paths = new ArrayList<String>();
+        for (String path : output.split("\u0000")) {
+            if (path.length() > 0) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
     private char[][] convertToCharChar(String str) {
         if (str == null) {
             return null;
@@ -285,7 +401,7 @@ public class StaticCheckerApplication implements IApplication {
         }
         
         System.out.println("Usage:");
-        System.out.println("eclipse -application org.codehause.groovy.eclipse.staticCheck [--help] [-h] [--extra_dslds <FILES>] [--assertions_only] [--excludes <PATH>] [--includes <PATH>] [--project_path <PATH>] <PROJECT_NAME>");
+        System.out.println("eclipse -application org.codehause.groovy.eclipse.staticCheck [--help] [-h] [--extra_dslds <FILES>] [--assertions_only] [--excludes <PATH>] [--includes <PATH>] [--project_path <PATH>] [--result_file <FILE>] [--report_format junit|json] [--threads <N>] [--changed_since <REVISION>] <PROJECT_NAME>");
         System.out.println("where:");
         System.out.println("\t--help OR -h  Print this message and exit.");
         System.out.println("\t--extra_dslds  list of extra dsld files to be included in this check.  Use '|' as a file separator.");
@@ -294,6 +410,9 @@ public class StaticCheckerApplication implements IApplication {
         System.out.println("\t--includes  Project-relative inclusion filters.");
         System.out.println("\t--project_path  File system path to the project to check (only required if project is not already in workspace).");
         System.out.println("\t--result_file  File to send static checking results to.  If not specified, then results sent to sysout.");
+        System.out.println("\t--report_format  Write results as a 'junit' XML or 'json' report instead of plain text.");
+        System.out.println("\t--threads  Number of files to check at the same time.  Defaults to 1.");
+        System.out.println("\t--changed_since  Only check files that git reports as changed since the given revision, or as untracked.");
         System.out.println("\t<PROJECT_NAME>  Name of a project to type check.  If not already in workspace, then must also use '--project_path'.");
         System.out.println();
         System.out.println("Ant style filters are allowed.  Eg, src/org/codehaus/groovy/**/*.groovy means all files with groovy extensions in the org.codehaus.groovy package or below will be ex/included   Filters can be concentenated using '|'.");
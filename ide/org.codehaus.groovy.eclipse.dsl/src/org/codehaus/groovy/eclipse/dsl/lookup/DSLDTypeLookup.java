@@ -34,7 +34,7 @@ import org.codehaus.jdt.groovy.internal.compiler.ast.JDTResolver;
 import org.codehaus.jdt.groovy.model.GroovyCompilationUnit;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jdt.groovy.search.AbstractSimplifiedTypeLookup;
-import org.eclipse.jdt.groovy.search.ITypeLookup;
+import org.eclipse.jdt.groovy.search.IReusableTypeLookup;
 import org.eclipse.jdt.groovy.search.ITypeResolver;
 import org.eclipse.jdt.groovy.search.TypeLookupResult.TypeConfidence;
 import org.eclipse.jdt.groovy.search.VariableScope;
@@ -42,7 +42,7 @@ import org.eclipse.jdt.groovy.search.VariableScope;
 /**
  * Uses the current set of DSLDs for this project to look up types.
  */
-public class DSLDTypeLookup extends AbstractSimplifiedTypeLookup implements ITypeLookup, ITypeResolver {
+public class DSLDTypeLookup extends AbstractSimplifiedTypeLookup implements IReusableTypeLookup, ITypeResolver {
 
     private static final String GORM_SIGNATURE = "Provided by Grails ORM DSL";
 
@@ -75,6 +75,15 @@ public class DSLDTypeLookup extends AbstractSimplifiedTypeLookup implements ITyp
         store = store.createSubStore(pattern);
     }
 
+    public void reset() {
+        store = null;
+        pattern = null;
+        disabledScriptsAsSet = null;
+        module = null;
+        resolver = null;
+        clearCurrentExpression();
+    }
+
     // FIXADE Should shortcut if we find a solution earlier.
     @Override
     protected TypeAndDeclaration lookupTypeAndDeclaration(ClassNode declaringType, String name, VariableScope scope) {
@@ -15,6 +15,7 @@
  */
 package org.codehaus.groovy.eclipse.dsl.pointcuts.impl;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -58,6 +59,18 @@ public class ProjectNaturePointcut extends AbstractPointcut {
         return matches(pattern, null) != null;
     }
 
+    /**
+     * @return the nature ids that satisfy this pointcut (the argument and the nature it is a shortcut for, if any)
+     */
+    public Collection<String> getNatureIds() {
+        Object firstArgument = getFirstArgument();
+        if (!(firstArgument instanceof String)) {
+            return Collections.emptySet();
+        }
+        String shortcutFor = SHORTCUTS.get(firstArgument);
+        return shortcutFor == null ? Collections.singleton((String) firstArgument) : Arrays.asList((String) firstArgument, shortcutFor);
+    }
+
     @Override
     public void verify() throws PointcutVerificationException {
         String maybeStatus = allArgsAreStrings();
@@ -0,0 +1,294 @@
+/*
+ * Copyright 2009-2017 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.codehaus.groovy.eclipse.dsl.script;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import groovy.lang.GroovyClassLoader;
+import groovy.lang.GroovySystem;
+
+import org.codehaus.groovy.control.CompilationUnit;
+import org.codehaus.groovy.control.Phases;
+import org.codehaus.groovy.eclipse.GroovyLogManager;
+import org.codehaus.groovy.eclipse.TraceCategory;
+import org.codehaus.groovy.eclipse.dsl.GroovyDSLCoreActivator;
+import org.codehaus.groovy.tools.GroovyClass;
+
+/**
+ * Keeps the compiled classes of DSLD scripts in the plug-in's state location, so that refreshing the DSLD store only
+ * has to define the classes of scripts that have been compiled before. Entries are keyed by a digest of the script's
+ * name and contents, the version of DSL support and the version of Groovy; a changed script gets a new entry and the
+ * least recently used entries are deleted once there are more than {@link #MAX_ENTRIES}. The {@link #MAX_MEMORY_ENTRIES}
+ * most recently used entries are also kept in memory, which saves reading them again for scripts that several projects get from the same library.
+ * <p>
+ * Set the system property <code>greclipse.dsldClassCache</code> to <code>false</code> to compile every time.
+ */
+public class DSLDScriptClassCache {
+
+    private static final boolean ENABLED = !"false".equals(System.getProperty("greclipse.dsldClassCache"));
+
+    private static final int MAX_ENTRIES = 256;
+
+    private static final int MAX_MEMORY_ENTRIES = 32;
+
+    private static final int FORMAT = 0xD51D0001;
+
+    private static DSLDScriptClassCache instance;
+
+    public static synchronized DSLDScriptClassCache getDefault() {
+        if (instance == null) {
+            File location = null;
+            String version = null;
+            if (ENABLED) {
+                try {
+                    version = GroovyDSLCoreActivator.getDefault().getBundle().getVersion() + "|" + GroovySystem.getVersion();
+                    location = GroovyDSLCoreActivator.getDefault().getStateLocation().append("scripts").toFile();
+                } catch (Exception e) {
+                    // plug-in not started or no instance location; compile without caching
+                }
+            }
+            instance = new DSLDScriptClassCache(location, version, MAX_ENTRIES, MAX_MEMORY_ENTRIES);
+        }
+        return instance;
+    }
+
+    //--------------------------------------------------------------------------
+
+    private final File location;
+    private final String version;
+    private final int maxEntries;
+    private final Map<String, CompiledScript> memory;
+
+    /**
+     * @param location directory of the entries, or <code>null</code> to compile every time
+     * @param version versions of the compiler and DSL support; part of the key of every entry
+     * @param maxEntries number of entries kept in the directory
+     * @param maxMemoryEntries number of entries also kept in memory
+     */
+    @SuppressWarnings("serial")
+    public DSLDScriptClassCache(File location, String version, int maxEntries, final int maxMemoryEntries) {
+        this.location = location;
+        this.version = version;
+        this.maxEntries = maxEntries;
+        this.memory = new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+                return size() > maxMemoryEntries;
+            }
+        };
+    }
+
+    /**
+     * Returns the main class of the script, loading it from the cache if it has been compiled before or compiling it
+     * with the given class loader and adding it to the cache otherwise. Classes loaded from the cache are defined by a
+     * fresh class loader that delegates to the given one.
+     *
+     * @throws org.codehaus.groovy.control.CompilationFailedException if the script does not compile
+     */
+    public Class<?> getScriptClass(String scriptName, String scriptContents, GroovyClassLoader gcl) throws Exception {
+        if (location == null) {
+            return gcl.parseClass(scriptContents, scriptName);
+        }
+
+        String digest = digest(scriptName, scriptContents);
+        CompiledScript compiled;
+        synchronized (memory) {
+            compiled = memory.get(digest);
+        }
+        if (compiled != null) {
+            return compiled.define(gcl);
+        }
+
+        File entry = new File(location, digest);
+        if (entry.isFile()) {
+            try {
+                compiled = load(entry);
+                Class<?> clazz = compiled.define(gcl);
+                entry.setLastModified(System.currentTimeMillis());
+                remember(digest, compiled);
+                if (GroovyLogManager.manager.hasLoggers()) {
+                    GroovyLogManager.manager.log(TraceCategory.DSL, "Loaded compiled script " + scriptName + " from " + entry);
+                }
+                return clazz;
+            } catch (Exception e) {
+                // corrupt or incompatible entry; recompile
+                entry.delete();
+            } catch (LinkageError e) {
+                entry.delete();
+            }
+        }
+
+        CompilationUnit unit = new CompilationUnit(gcl);
+        unit.addSource(scriptName, scriptContents);
+        unit.compile(Phases.CLASS_GENERATION);
+
+        @SuppressWarnings("unchecked")
+        List<GroovyClass> classes = unit.getClasses();
+        String mainClassName = unit.getAST().getModules().get(0).getClasses().get(0).getName();
+        Map<String, byte[]> bytes = new HashMap<String, byte[]>();
+        for (GroovyClass groovyClass : classes) {
+            bytes.put(groovyClass.getName(), groovyClass.getBytes());
+        }
+        compiled = new CompiledScript(mainClassName, bytes);
+        try {
+            store(entry, compiled);
+        } catch (IOException e) {
+            GroovyDSLCoreActivator.logException("Could not cache compiled script " + scriptName, e);
+        }
+        remember(digest, compiled);
+        return compiled.define(gcl);
+    }
+
+    private void remember(String digest, CompiledScript compiled) {
+        synchronized (memory) {
+            memory.put(digest, compiled);
+        }
+    }
+
+    private CompiledScript load(File entry) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)));
+        try {
+            if (in.readInt() != FORMAT) {
+                throw new IOException("Unexpected format of " + entry);
+            }
+            String mainClassName = in.readUTF();
+            Map<String, byte[]> bytes = new HashMap<String, byte[]>();
+            for (int i = 0, n = in.readInt(); i < n; i += 1) {
+                String name = in.readUTF();
+                byte[] b = new byte[in.readInt()];
+                in.readFully(b);
+                bytes.put(name, b);
+            }
+            return new CompiledScript(mainClassName, bytes);
+        } finally {
+            in.close();
+        }
+    }
+
+    private void store(File entry, CompiledScript compiled) throws IOException {
+        if (!location.isDirectory() && !location.mkdirs()) {
+            throw new IOException("Could not create " + location);
+        }
+        // write to a temporary file first so that a concurrent or interrupted write never leaves a partial entry
+        File temp = File.createTempFile("dsld", ".tmp", location);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(FORMAT);
+            out.writeUTF(compiled.mainClassName);
+            out.writeInt(compiled.bytes.size());
+            for (Map.Entry<String, byte[]> e : compiled.bytes.entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeInt(e.getValue().length);
+                out.write(e.getValue());
+            }
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(entry)) {
+            temp.delete();
+        }
+        prune();
+    }
+
+    private void prune() {
+        File[] entries = location.listFiles();
+        if (entries != null && entries.length > maxEntries) {
+            Arrays.sort(entries, new Comparator<File>() {
+                public int compare(File one, File two) {
+                    long x = one.lastModified(), y = two.lastModified();
+                    return x < y ? -1 : (x == y ? 0 : 1);
+                }
+            });
+            for (int i = 0, n = entries.length - maxEntries; i < n; i += 1) {
+                entries[i].delete();
+            }
+        }
+    }
+
+    private String digest(String scriptName, String scriptContents) throws NoSuchAlgorithmException {
+        MessageDigest md = MessageDigest.getInstance("SHA-1");
+        md.update(toBytes(version + "|" + scriptName + "|"));
+        md.update(toBytes(scriptContents));
+
+        StringBuilder sb = new StringBuilder(40);
+        for (byte b : md.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static byte[] toBytes(String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class CompiledScript {
+        final String mainClassName;
+        final Map<String, byte[]> bytes;
+
+        CompiledScript(String mainClassName, Map<String, byte[]> bytes) {
+            this.mainClassName = mainClassName;
+            this.bytes = bytes;
+        }
+
+        /**
+         * Defines the classes in a new class loader, so that each execution of the script gets its own classes.
+         */
+        Class<?> define(ClassLoader parent) throws ClassNotFoundException {
+            return new ScriptClassLoader(parent, bytes).loadClass(mainClassName);
+        }
+    }
+
+    /**
+     * Defines the classes of one compiled script on demand.
+     */
+    private static class ScriptClassLoader extends ClassLoader {
+        private final Map<String, byte[]> bytes;
+
+        ScriptClassLoader(ClassLoader parent, Map<String, byte[]> bytes) {
+            super(parent);
+            this.bytes = bytes;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            byte[] b = bytes.get(name);
+            if (b == null) {
+                throw new ClassNotFoundException(name);
+            }
+            return defineClass(name, b, 0, b.length);
+        }
+    }
+}
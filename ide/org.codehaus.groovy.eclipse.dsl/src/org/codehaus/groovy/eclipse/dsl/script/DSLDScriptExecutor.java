@@ -218,6 +218,13 @@ public class DSLDScriptExecutor {
     }
 
     public Object executeScript(IStorage scriptFile) {
+        return executeScript(scriptFile, null);
+    }
+
+    /**
+     * @param scriptContents contents of the script if already read, or {@code null} to read them from the file
+     */
+    public Object executeScript(IStorage scriptFile, String scriptContents) {
         this.scriptFile = scriptFile;
         String event = null;
         try {
@@ -229,10 +236,12 @@ public class DSLDScriptExecutor {
             factory = new PointcutFactory(scriptFile, project.getProject());
             Object result = null;
             try {
-                String scriptContents = getContents(scriptFile);
-                Class<Script> clazz = null;
+                if (scriptContents == null) {
+                    scriptContents = getContents(scriptFile);
+                }
+                Class<?> clazz = null;
                 try {
-                    clazz = gcl.parseClass(scriptContents, scriptFile.getName());
+                    clazz = DSLDScriptClassCache.getDefault().getScriptClass(scriptFile.getName(), scriptContents, gcl);
                 } catch (Exception e) {
                     if (GroovyLogManager.manager.hasLoggers()) {
                         StringWriter writer = new StringWriter();
@@ -252,7 +261,7 @@ public class DSLDScriptExecutor {
                     }
                     return result;
                 }
-                Script dsldScript = clazz.newInstance();
+                Script dsldScript = (Script) clazz.newInstance();
                 dsldScript.setBinding(new DSLDScriptBinding(dsldScript));
                 result = dsldScript.run();
             } catch (UnsupportedDSLVersion e) {
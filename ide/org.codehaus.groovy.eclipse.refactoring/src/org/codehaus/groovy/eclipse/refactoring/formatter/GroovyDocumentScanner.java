@@ -36,9 +36,13 @@ import org.eclipse.jface.text.ITextSelection;
  * Provides methods to retrieve tokens for a given IDocument presumed to
  * contain Groovy source code.
  * <p>
- * A sophisticated implementation could try to work incrementally and invalidate
- * only some tokens when the document is changed. This implementation is rather
- * naive and clears the whole cache on every document change.
+ * Tokens are scanned lazily, up to the position of interest. Whenever scanning
+ * reaches a new line, the state of the lexer is recorded as a checkpoint. When
+ * the document is changed, the tokens before the change are kept and scanning
+ * restarts from a checkpoint ahead of the change; once it reaches a checkpoint
+ * behind the change in the same lexer state as before, the remaining tokens are
+ * taken over from before the change (with their line numbers adjusted) instead
+ * of being scanned again.
  */
 public class GroovyDocumentScanner implements IDocumentListener {
 
@@ -59,6 +63,48 @@ public class GroovyDocumentScanner implements IDocumentListener {
 
     private GroovyScanner tokenScanner;
 
+    /**
+     * Lexer states at the start of lines scanned so far, in document order; null
+     * while {@link #tokens} is null or if tokens were not scanned by this class.
+     */
+    private List<Checkpoint> checkpoints;
+
+    /** Set once the EOF token is scanned or scanning has failed. */
+    private boolean complete;
+
+    /**
+     * Tokens and checkpoints from before the last document change. The
+     * checkpoints all lie behind the change; they are in old document offsets,
+     * which differ by {@link #staleDelta} from the current ones.
+     */
+    private List<Token> staleTokens;
+    private List<Checkpoint> staleCheckpoints;
+    private int staleIndex;
+    private int staleDelta;
+    private boolean staleComplete;
+
+    private static class Checkpoint {
+        /** Index of the first token scanned from this point. */
+        int tokenIndex;
+        /** Document offset of the scanner. */
+        int offset;
+        /** Document offset of the start of the line at {@link #offset}. */
+        int lineOffset;
+        /** Antlr line and column of the scanner. */
+        int line;
+        final int column;
+        final GroovyScanner.State state;
+
+        Checkpoint(int tokenIndex, int offset, int lineOffset, int line, int column, GroovyScanner.State state) {
+            this.tokenIndex = tokenIndex;
+            this.offset = offset;
+            this.lineOffset = lineOffset;
+            this.line = line;
+            this.column = column;
+            this.state = state;
+        }
+    }
+
     /** At most this number of scanner errors will be reported */
     private static int logLimit = 4;
 
@@ -72,7 +118,49 @@ public class GroovyDocumentScanner implements IDocumentListener {
     }
 
     public void documentChanged(DocumentEvent event) {
-        reset();
+        if (tokens == null || checkpoints == null) {
+            reset();
+            return;
+        }
+        int start = event.getOffset();
+        int oldEnd = start + event.getLength();
+        int delta = (event.getText() != null ? event.getText().length() : 0) - event.getLength();
+
+        // the lexer may have looked ahead past the end of the last token before
+        // the change, so restart from the line before that token's line
+        int restartIndex = -1;
+        while (restartIndex + 1 < checkpoints.size() && checkpoints.get(restartIndex + 1).offset < start) {
+            restartIndex += 1;
+        }
+        restartIndex -= 1;
+        if (restartIndex < 0) {
+            reset();
+            return;
+        }
+        Checkpoint restart = checkpoints.get(restartIndex);
+
+        // the checkpoints on lines that start behind the change are candidates for resynchronisation
+        List<Checkpoint> candidates = new ArrayList<Checkpoint>();
+        for (Checkpoint checkpoint : checkpoints.subList(restartIndex + 1, checkpoints.size())) {
+            if (checkpoint.lineOffset > oldEnd) {
+                candidates.add(checkpoint);
+            }
+        }
+        if (candidates.isEmpty()) {
+            staleTokens = null;
+            staleCheckpoints = null;
+        } else {
+            staleTokens = tokens;
+            staleCheckpoints = candidates;
+            staleIndex = 0;
+            staleDelta = delta;
+            staleComplete = complete;
+        }
+
+        tokens = new ArrayList<Token>(tokens.subList(0, restart.tokenIndex));
+        checkpoints.subList(restartIndex + 1, checkpoints.size()).clear();
+        tokenScanner = null;
+        complete = false;
     }
 
     public void documentAboutToBeChanged(DocumentEvent event) {}
@@ -82,35 +170,127 @@ public class GroovyDocumentScanner implements IDocumentListener {
      * scanned tokens, to ensure that we have scanned the file at least upto the
      * position that we are interested in.
      * <p>
-     * Current implementation is very naive and just scans the whole file at
-     * once. A smarter implementation could stop scanning when the position of
-     * interest is reached, and keep enough state to be able to scan onward
-     * later if a request for tokens requires it.
+     * Scanning stops at the first token at or after the given position (or at
+     * EOF); a later request for tokens further on continues from there.
      */
     protected void ensureScanned(int end) {
         if (tokens == null) {
             // We haven't started scanning yet. Initialise the scanner and token list.
             tokenScanner = new GroovyScanner(document.get());
-            tokens = getTokensIncludingEOF();
+            tokens = new ArrayList<Token>();
+            checkpoints = new ArrayList<Checkpoint>();
+            complete = false;
         }
-    }
-
-    private List<Token> getTokensIncludingEOF() {
-        List<Token> result = new ArrayList<Token>();
-        Token token;
         try {
-            do {
-                token = nextToken();
-                result.add(token);
-            } while (token.getType() != GroovyTokenTypeBridge.EOF);
+            while (!complete && (tokens.isEmpty() || getStart(tokens.get(tokens.size() - 1)) < end)) {
+                if (tokenScanner == null) {
+                    resume();
+                }
+                scanToken();
+            }
         } catch (BadLocationException bad) {
             // document may be unreconciled
+            stopScanning();
         } catch (Exception e) {
             if (logLimit-- > 0) {
                 Util.log(e);
             }
+            stopScanning();
         }
-        return result;
+    }
+
+    private int getStart(Token token) throws BadLocationException {
+        return GroovyScanner.getOffset(document, token.getLine(), token.getColumn());
+    }
+
+    private void scanToken() throws TokenStreamException, BadLocationException {
+        int line = tokenScanner.getLine();
+        if (checkpoints.isEmpty() || line > checkpoints.get(checkpoints.size() - 1).line) {
+            int column = tokenScanner.getColumn();
+            int lineOffset = document.getLineOffset(line - 1);
+            Checkpoint checkpoint = new Checkpoint(tokens.size(), lineOffset + column - 1, lineOffset, line, column, tokenScanner.getState());
+            checkpoints.add(checkpoint);
+            if (staleCheckpoints != null && resynchronize(checkpoint)) {
+                return;
+            }
+        }
+        Token token = nextToken();
+        tokens.add(token);
+        if (token.getType() == GroovyTokenTypeBridge.EOF) {
+            stopScanning();
+        }
+    }
+
+    /**
+     * Continues scanning from the last checkpoint; tokens after it are scanned again.
+     */
+    private void resume() throws BadLocationException {
+        Checkpoint checkpoint = checkpoints.get(checkpoints.size() - 1);
+        tokens.subList(checkpoint.tokenIndex, tokens.size()).clear();
+        tokenScanner = new GroovyScanner(document, checkpoint.offset, checkpoint.line, checkpoint.column, checkpoint.state);
+    }
+
+    /**
+     * Compares a new checkpoint with the checkpoints from before the last
+     * change. If one lies at the same (shifted) position and line start and
+     * has the same lexer state, the scanner would produce the old tokens from
+     * there on, so they are appended instead.
+     *
+     * @return true iff the old tokens were taken over
+     */
+    private boolean resynchronize(Checkpoint checkpoint) {
+        while (staleIndex < staleCheckpoints.size()) {
+            Checkpoint stale = staleCheckpoints.get(staleIndex);
+            int offset = stale.offset + staleDelta;
+            if (offset > checkpoint.offset) {
+                return false; // not there yet
+            }
+            staleIndex += 1;
+            if (offset == checkpoint.offset && stale.lineOffset + staleDelta == checkpoint.lineOffset && stale.state.equals(checkpoint.state)) {
+                int lineDelta = checkpoint.line - stale.line;
+                int tokenDelta = checkpoint.tokenIndex - stale.tokenIndex;
+                for (Token token : staleTokens.subList(stale.tokenIndex, staleTokens.size())) {
+                    if (lineDelta != 0) {
+                        // the old token may still be held by a caller; do not move it
+                        token = shiftLines((GroovySourceToken) token, lineDelta);
+                    }
+                    tokens.add(token);
+                }
+                checkpoints.remove(checkpoints.size() - 1);
+                for (Checkpoint next : staleCheckpoints.subList(staleIndex - 1, staleCheckpoints.size())) {
+                    next.tokenIndex += tokenDelta;
+                    next.offset += staleDelta;
+                    next.lineOffset += staleDelta;
+                    next.line += lineDelta;
+                    checkpoints.add(next);
+                }
+                complete = staleComplete;
+                tokenScanner = null; // resume from the last checkpoint if more tokens are needed
+                staleTokens = null;
+                staleCheckpoints = null;
+                return true;
+            }
+        }
+        staleTokens = null;
+        staleCheckpoints = null;
+        return false;
+    }
+
+    private static GroovySourceToken shiftLines(GroovySourceToken token, int lineDelta) {
+        GroovySourceToken copy = new GroovySourceToken(token.getType());
+        copy.setText(token.getText());
+        copy.setLine(token.getLine() + lineDelta);
+        copy.setColumn(token.getColumn());
+        copy.setLineLast(token.getLineLast() + lineDelta);
+        copy.setColumnLast(token.getColumnLast());
+        return copy;
+    }
+
+    private void stopScanning() {
+        complete = true;
+        tokenScanner = null;
+        staleTokens = null;
+        staleCheckpoints = null;
     }
 
     private Token nextToken() throws TokenStreamException, BadLocationException {
@@ -132,6 +312,10 @@ public class GroovyDocumentScanner implements IDocumentListener {
      */
     private void reset() {
         tokens = null;
+        checkpoints = null;
+        tokenScanner = null;
+        staleTokens = null;
+        staleCheckpoints = null;
     }
 
     /**
@@ -252,7 +436,8 @@ public class GroovyDocumentScanner implements IDocumentListener {
                 endTokenIndex = endTokenIndex - 1;
             }
             Assert.isTrue(startTokenIndex <= endTokenIndex);
-            return tokens.subList(startTokenIndex, endTokenIndex + 1);
+            // copy, as the token list changes as scanning goes on and when the document changes
+            return new ArrayList<Token>(tokens.subList(startTokenIndex, endTokenIndex + 1));
         } catch (BadLocationException e) {
             throw new Error(e);
         }
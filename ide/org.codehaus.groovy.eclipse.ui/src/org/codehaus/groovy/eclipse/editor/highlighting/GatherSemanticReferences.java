@@ -43,7 +43,7 @@ public class GatherSemanticReferences {
             try { // TODO: Time this tasks components and find opportunities to make it run faster.
                 SemanticHighlightingReferenceRequestor requestor = new SemanticHighlightingReferenceRequestor(unit);
                 TypeInferencingVisitorWithRequestor visitor = factory.createVisitor(unit);
-                visitor.visitCompilationUnit(requestor);
+                visitor.visitCompilationUnitFromStore(requestor);
                 return requestor.typedPosition;
             } catch (Exception e) {
                 GroovyCore.logException("Semantic highlighting gather failed", e);
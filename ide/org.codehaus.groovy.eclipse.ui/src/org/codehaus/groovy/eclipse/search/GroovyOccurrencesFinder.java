@@ -153,7 +153,7 @@ public class GroovyOccurrencesFinder {
                 !(nodeToLookFor instanceof MethodCallExpression)) {
             FindAllReferencesRequestor requestor = new FindAllReferencesRequestor(nodeToLookFor);
             TypeInferencingVisitorWithRequestor visitor = new TypeInferencingVisitorFactory().createVisitor(gunit);
-            visitor.visitCompilationUnit(requestor);
+            visitor.visitCompilationUnitFromStore(requestor);
             Map<ASTNode, Integer> occurences = requestor.getReferences();
             return occurences;
         }
@@ -705,6 +705,9 @@ public class Compiler implements ITypeRequestor, ProblemSeverities {
 	 *  ->  build compilation unit declarations, their bindings and record their results.
 	 */
 	protected void internalBeginToCompile(ICompilationUnit[] sourceUnits, int maxUnits) {
+		// GROOVY start: let the parser know the units it is about to parse
+		this.parser.beginToParse(sourceUnits, maxUnits);
+		// GROOVY end
 		if (!this.useSingleThread && maxUnits >= ReadManager.THRESHOLD)
 			this.parser.readManager = new ReadManager(sourceUnits, maxUnits);
 
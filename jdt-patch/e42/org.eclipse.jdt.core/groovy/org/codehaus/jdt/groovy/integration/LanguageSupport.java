@@ -12,6 +12,8 @@
 package org.codehaus.jdt.groovy.integration;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jdt.core.IClassFile;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.JavaModelException;
@@ -107,6 +109,21 @@ public interface LanguageSupport {
 	 */
 	boolean maybePerformDelegatedSearch(PossibleMatch possibleMatch, SearchPattern pattern, SearchRequestor requestor);
 
+	/**
+	 * Performs the delegated searches of a range of possible matches in one go, possibly on several threads.
+	 * Results are sent to the requestor on the calling thread and in the order of the possible matches.
+	 * Possible matches that are not searched here are offered to
+	 * {@link #maybePerformDelegatedSearch(PossibleMatch, SearchPattern, SearchRequestor)} one at a time.
+	 * @param possibleMatches the possible matches
+	 * @param start index of the first possible match to search
+	 * @param length number of possible matches to search
+	 * @param pattern
+	 * @param requestor the requestor to send any completed search results to
+	 * @param monitor progress monitor used to check for cancellation; may be null
+	 * @return for each possible match in the range, whether its search was performed, or null if none was performed
+	 */
+	boolean[] performDelegatedSearch(PossibleMatch[] possibleMatches, int start, int length, SearchPattern pattern, SearchRequestor requestor, IProgressMonitor monitor) throws CoreException;
+
 	EventHandler getEventHandler();
 
 	void filterNonSourceMembers(BinaryType binaryType);
@@ -12,6 +12,8 @@
 package org.codehaus.jdt.groovy.integration;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.jdt.core.IJavaElement;
 import org.eclipse.jdt.core.JavaCore;
@@ -99,6 +101,10 @@ public class LanguageSupportFactory {
 	public static boolean maybePerformDelegatedSearch(PossibleMatch possibleMatch, SearchPattern pattern, SearchRequestor requestor) {
 		return getLanguageSupport().maybePerformDelegatedSearch(possibleMatch, pattern, requestor);
 	}
+
+	public static boolean[] performDelegatedSearch(PossibleMatch[] possibleMatches, int start, int length, SearchPattern pattern, SearchRequestor requestor, IProgressMonitor monitor) throws CoreException {
+		return getLanguageSupport().performDelegatedSearch(possibleMatches, start, length, pattern, requestor, monitor);
+	}
 	
 	/**
 	 * Removes members from this binary type that are not mapped to locations in the 
@@ -12515,4 +12515,9 @@ public void reset() {
 	// standard Java parser, nothing to do
 }
 //GROOVY end
+//GROOVY start: new method where the parser can prepare for the units it is about to parse
+public void beginToParse(ICompilationUnit[] sourceUnits, int maxUnits) {
+	// standard Java parser, nothing to do
+}
+//GROOVY end
 }
@@ -1092,6 +1092,16 @@ protected void locateMatches(JavaProject javaProject, PossibleMatch[] possibleMa
 	boolean isInterestingProject = LanguageSupportFactory.isInterestingProject(javaProject.getProject());
 	Set alreadyMatched = new HashSet();
 	// GROOVY end
+	// GROOVY add -- let the language support locate the matches of its source files up front, possibly in parallel
+	if (isInterestingProject) {
+		boolean[] delegated = LanguageSupportFactory.performDelegatedSearch(possibleMatches, start, length, this.pattern, this.requestor, this.progressMonitor);
+		if (delegated != null) {
+			for (int i = 0; i < length; i++) {
+				if (delegated[i]) alreadyMatched.add(possibleMatches[start + i]);
+			}
+		}
+	}
+	// GROOVY end
 
 	// create and resolve binding (equivalent to beginCompilation() in Compiler)
 	boolean mustResolvePattern = this.pattern.mustResolve;
@@ -1102,7 +1112,7 @@ protected void locateMatches(JavaProject javaProject, PossibleMatch[] possibleMa
 		for (int i = start, maxUnits = start + length; i < maxUnits; i++) {
 			PossibleMatch possibleMatch = possibleMatches[i];
 			// GROOVY start
-			if (isInterestingProject && possibleMatch.isInterestingSourceFile()) {
+			if (isInterestingProject && possibleMatch.isInterestingSourceFile() && !alreadyMatched.contains(possibleMatch)) {
 				boolean matchPerformed = LanguageSupportFactory.maybePerformDelegatedSearch(possibleMatch, this.pattern, this.requestor);
 				if (matchPerformed) {
 					alreadyMatched.add(possibleMatch);
@@ -16,6 +16,7 @@
 package org.codehaus.jdt.groovy.integration;
 
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.jdt.core.IJavaElement;
@@ -114,6 +115,10 @@ public class LanguageSupportFactory {
 		return getLanguageSupport().maybePerformDelegatedSearch(possibleMatch, pattern, requestor);
 	}
 
+	public static boolean[] performDelegatedSearch(PossibleMatch[] possibleMatches, int start, int length, SearchPattern pattern, SearchRequestor requestor, IProgressMonitor monitor) throws CoreException {
+		return getLanguageSupport().performDelegatedSearch(possibleMatches, start, length, pattern, requestor, monitor);
+	}
+
 	/**
 	 * Removes members from this binary type that are not mapped to locations in the
 	 * source code (ie- their source location is invalid).  This ensures that